@@ -6,6 +6,7 @@ import com.cgvsu.model.ModelPreparationUtils;
 import com.cgvsu.objreader.ObjReader;
 import com.cgvsu.render_engine.RenderSettings;
 import com.cgvsu.render_engine.Texture;
+import com.cgvsu.render_engine.TextureCache;
 import com.cgvsu.render_engine.Transform;
 import com.cgvsu.render_engine.TransformComponent;
 import com.cgvsu.render_engine.camera_gizmo.CameraManager;
@@ -14,7 +15,6 @@ import com.cgvsu.render_engine.scene.SceneObject;
 import javafx.event.ActionEvent;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.stage.FileChooser;
@@ -22,7 +22,6 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -55,9 +54,11 @@ public class GuiButtons {
         Path fileName = Path.of(file.getAbsolutePath());
 
         try {
-            String fileContent = Files.readString(fileName);
-            Model mesh = ObjReader.read(fileContent);
-            mesh = ModelPreparationUtils.prepare(mesh);
+            // Файл отображается в память и разбирается по кускам параллельно;
+            // триангуляция и нормали считаются по той же упакованной сетке, без объектных списков
+            Model mesh = ModelPreparationUtils.prepare(ObjReader.readPackedParallel(fileName));
+            // BVH для выбора лучом строится в фоне, пока модель уже показывается
+            mesh.getPackedMesh().prepareBvh();
 
             String objectName = file.getName().replace(".obj", "");
             SceneObject newObject = new SceneObject(objectName, mesh, controller.getCurrentTexture());
@@ -67,7 +68,7 @@ public class GuiButtons {
 
             scene.addObject(newObject);
             newObject.setWireframeColor(javafx.scene.paint.Color.WHITE);
-            newObject.setModelColor(renderSettings.baseColor);
+            newObject.setModelColor(renderSettings.getBaseColor());
 
             if (!selectedObjects.isEmpty() && selectedObjects.contains(newObject)) {
                 guiMethods.applySettingsToSelected(renderSettings, selectedObjects);
@@ -90,13 +91,13 @@ public class GuiButtons {
         if (file == null) return null;
 
         try {
-            Image image = new Image(file.toURI().toString());
-            Texture texture = new Texture(image);
+            // Один и тот же файл разбирается один раз, объекты получают общую текстуру
+            Texture texture = TextureCache.shared().get(file.toPath());
 
             String textureInfo = String.format("Текстура: %s (%dx%d)",
                     file.getName(),
-                    (int) image.getWidth(),
-                    (int) image.getHeight());
+                    texture.getWidth(),
+                    texture.getHeight());
 
             if (textureInfoLabel != null) {
                 textureInfoLabel.setText(textureInfo);
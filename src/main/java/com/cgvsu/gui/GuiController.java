@@ -3,26 +3,23 @@ package com.cgvsu.gui;
 import com.cgvsu.math.Matrix4;
 import com.cgvsu.math.Vector3;
 import com.cgvsu.model.Model;
-import com.cgvsu.model.Polygon;
 import com.cgvsu.model.PolygonSelection;
 import com.cgvsu.objwriter.ObjWriter;
 import com.cgvsu.render_engine.*;
 import com.cgvsu.render_engine.camera_gizmo.CameraManager;
 import com.cgvsu.render_engine.scene.Scene;
 import com.cgvsu.render_engine.scene.SceneObject;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.*;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.stage.FileChooser;
-import javafx.util.Duration;
 
 import java.io.File;
 import java.io.IOException;
@@ -56,16 +53,27 @@ public class GuiController {
     @FXML private ListView<SceneObject> modelsListView;
     @FXML private CheckBox polygonCheckBox;
 
-    private List<PolygonSelection> selectedPolygons = new ArrayList<>();
+    private final PolygonSelection selectedPolygons = new PolygonSelection();
     private boolean polygonSelectionMode = false;
 
     private CameraManager cameraManager;
     private GuiMethods guiMethods;
     private GuiButtons guiButtons;
-    private Timeline timeline;
+    private AnimationTimer renderLoop;
 
-    private final Scene scene = new Scene();
+    // Версия изменений сцены и размер холста, для которых нарисован последний кадр
+    private long renderedVersion = -1;
+    private double renderedWidth = -1;
+    private double renderedHeight = -1;
+
+    // Изменения сцены и настроек этого окна: другие вьюпорты их не видят
+    private final ChangeTracker changeTracker = new ChangeTracker();
+    private final Scene scene = new Scene(changeTracker);
     private final RenderSettings renderSettings = new RenderSettings();
+    private final RenderEngine renderEngine = new RenderEngine();
+    private BackgroundRenderer backgroundRenderer;
+    // Кадр на экране: его ID-буфер отвечает, что видно под курсором
+    private BackgroundRenderer.Frame displayedFrame;
     private final List<SceneObject> selectedObjects = new ArrayList<>();
     private SceneObject hoveredObject = null;
     private Texture currentTexture = null;
@@ -80,9 +88,14 @@ public class GuiController {
 
     @FXML
     private void initialize() {
+        renderSettings.setChangeTracker(changeTracker);
         guiMethods = new GuiMethods(this, scene, renderSettings, selectedObjects);
         guiButtons = new GuiButtons(this, guiMethods, scene, renderSettings, selectedObjects);
 
+        renderEngine.setBackgroundColor(backgroundColor);
+        // Дальше движком пользуется только поток рендера
+        backgroundRenderer = new BackgroundRenderer(renderEngine);
+
         cameraManager = new CameraManager(scene);
         cameraManager.initializeWithUI(viewMenu, addCameraMenuItem);
 
@@ -127,6 +140,7 @@ public class GuiController {
             polygonSelectionMode = b;
             if (!b) {
                 selectedPolygons.clear();
+                requestRender();
             }
         });
     }
@@ -136,11 +150,12 @@ public class GuiController {
             if (event.getButton() == MouseButton.PRIMARY) {
                 if (polygonSelectionMode && !selectedObjects.isEmpty()) {
                     handlePolygonSelection((int) event.getX(), (int) event.getY());
-                    renderFrame();
+                    requestRender();
                 } else {
                     guiMethods.handleObjectSelection((int) event.getX(), (int) event.getY());
                     guiMethods.updateModelInfoLabel();
                     selectedPolygons.clear();
+                    requestRender();
                 }
             }
         });
@@ -191,139 +206,128 @@ public class GuiController {
 
         if (mesh == null) return;
 
-        Polygon selectedPolygon = findPolygonUnderCursor(selectedObject, mouseX, mouseY);
+        int selectedPolygon = findPolygonUnderCursor(selectedObject, mouseX, mouseY);
 
-        if (selectedPolygon != null) {
-            PolygonSelection selection = new PolygonSelection(selectedObject, selectedPolygon);
-
-            boolean alreadySelected = selectedPolygons.stream()
-                    .anyMatch(ps -> ps.equals(selection));
-
-            if (alreadySelected) {
-                selectedPolygons.removeIf(ps -> ps.equals(selection));
-            } else {
-                selectedPolygons.add(selection);
-            }
+        if (selectedPolygon >= 0) {
+            selectedPolygons.toggle(selectedObject, selectedPolygon);
         }
     }
 
-    private Polygon findPolygonUnderCursor(SceneObject object, int mouseX, int mouseY) {
+    // Номер полигона модели под курсором или -1
+    private int findPolygonUnderCursor(SceneObject object, int mouseX, int mouseY) {
         Model mesh = object.getModel();
-        if (mesh == null || mesh.polygons.isEmpty()) return null;
-
-        Camera camera = scene.getActiveCamera();
-        Matrix4 modelMatrix = RenderEngine.getModelMatrix(object);
-        Matrix4 viewMatrix = camera.getViewMatrix();
-        Matrix4 projectionMatrix = camera.getProjectionMatrix();
-        Matrix4 modelViewProjectionMatrix = projectionMatrix.multiply(viewMatrix).multiply(modelMatrix);
-
-        for (Polygon polygon : mesh.polygons) {
-            if (polygon.getVertexIndices().size() < 3) continue;
-
-            List<Integer> vertexIndices = polygon.getVertexIndices();
-            List<Vector3> screenVertices = new ArrayList<>();
-
-            for (int vertexIndex : vertexIndices) {
-                Vector3 vertex = mesh.vertices.get(vertexIndex);
-                Vector3 screenPos = RenderEngine.transformVertex(vertex, modelViewProjectionMatrix,
-                        (int) canvas.getWidth(), (int) canvas.getHeight());
-                screenVertices.add(screenPos);
-            }
-
-            if (isPointInPolygon(mouseX, mouseY, screenVertices)) {
-                return polygon;
-            }
-        }
-
-        return null;
-    }
-
-    private boolean isPointInPolygon(int x, int y, List<Vector3> vertices) {
-        int windingNumber = 0;
-        int n = vertices.size();
+        if (mesh == null || mesh.getPolygonCount() == 0) return -1;
 
-        for (int i = 0; i < n; i++) {
-            Vector3 v1 = vertices.get(i);
-            Vector3 v2 = vertices.get((i + 1) % n);
-
-            if (v1.y <= y) {
-                if (v2.y > y) {
-                    if (isLeft(v1, v2, x, y) > 0) {
-                        windingNumber++;
-                    }
-                }
-            } else {
-                if (v2.y <= y) {
-                    if (isLeft(v1, v2, x, y) < 0) {
-                        windingNumber--;
-                    }
-                }
-            }
+        // Видимый полигон — одно чтение из ID-буфера показанного кадра
+        if (displayedFrame != null && displayedFrame.hasIds()) {
+            int polygon = displayedFrame.getPolygonAt(mouseX, mouseY, object);
+            return polygon < mesh.getPolygonCount() ? polygon : -1;
         }
 
-        return windingNumber != 0;
-    }
-
-    private double isLeft(Vector3 v1, Vector3 v2, int x, int y) {
-        return (v2.x - v1.x) * (y - v1.y) - (x - v1.x) * (v2.y - v1.y);
+        // Без ID-буфера — луч из пикселя по BVH модели: ближайший к камере полигон.
+        // Пока BVH строится в фоне, полигон не выбирается
+        Camera camera = scene.getActiveCamera();
+        Matrix4 viewProjectionMatrix = camera.getProjectionMatrix().multiply(camera.getViewMatrix());
+        Picking.Hit hit = Picking.pickIfReady(List.of(object), viewProjectionMatrix,
+                (int) canvas.getWidth(), (int) canvas.getHeight(), mouseX, mouseY);
+        return hit != null ? hit.getPolygon() : -1;
     }
 
     private void setupCheckBoxes() {
         wireframeCheckBox.selectedProperty().addListener((o, a, b) -> {
-            renderSettings.drawWireframe = b;
+            renderSettings.setDrawWireframe(b);
             guiMethods.applySettingsToSelected(renderSettings, selectedObjects);
         });
 
         textureCheckBox.selectedProperty().addListener((o, a, b) -> {
-            renderSettings.useTexture = b;
+            renderSettings.setUseTexture(b);
             guiMethods.applySettingsToSelected(renderSettings, selectedObjects);
         });
 
         lightingCheckBox.selectedProperty().addListener((o, a, b) -> {
-            renderSettings.useLighting = b;
+            renderSettings.setUseLighting(b);
             guiMethods.applySettingsToSelected(renderSettings, selectedObjects);
         });
     }
 
+    /**
+     * Кадр рисуется только если с прошлого кадра изменилась сцена или размер холста.
+     * Проверка выполняется раз в пульс JavaFX, поэтому любое число изменений
+     * между пульсами даёт не больше одного кадра.
+     *
+     * Сам кадр рисуется в фоновом потоке: на пульсе поток JavaFX только снимает
+     * состояние сцены и выводит последний готовый кадр, поэтому ввод не ждёт рендера.
+     */
     private void startAnimation() {
-        timeline = new Timeline();
-        timeline.setCycleCount(Animation.INDEFINITE);
+        renderLoop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (isFrameOutdated()) {
+                    renderFrame();
+                }
+                presentFrame();
+            }
+        };
+        renderLoop.start();
+    }
 
-        KeyFrame frame = new KeyFrame(Duration.millis(15), event -> {
-            renderFrame();
-        });
+    private boolean isFrameOutdated() {
+        return renderedVersion != changeTracker.getVersion()
+                || renderedWidth != canvas.getWidth()
+                || renderedHeight != canvas.getHeight();
+    }
 
-        timeline.getKeyFrames().add(frame);
-        timeline.play();
+    /**
+     * Помечает вьюпорт как устаревший для изменений, о которых сцена не знает
+     * (например, выделение полигонов). Кадр будет нарисован на ближайшем пульсе.
+     */
+    public void requestRender() {
+        changeTracker.markChanged();
     }
 
     private void renderFrame() {
         double width = canvas.getWidth();
         double height = canvas.getHeight();
 
-        if (width <= 0 || height <= 0) return;
-
-        canvas.getGraphicsContext2D().setFill(backgroundColor);
-        canvas.getGraphicsContext2D().fillRect(0, 0, width, height);
+        renderedWidth = width;
+        renderedHeight = height;
+        if (width <= 0 || height <= 0) {
+            renderedVersion = changeTracker.getVersion();
+            return;
+        }
 
         scene.getActiveCamera().setAspectRatio((float) (width / height));
 
-        if (!scene.getObjects().isEmpty()) {
-            RenderEngine.render(
-                    canvas.getGraphicsContext2D(),
-                    scene,
-                    null, // Передаем null, так как текстура теперь берется из объекта
-                    renderSettings,
-                    (int) width,
-                    (int) height,
-                    selectedPolygons
-            );
-
+        // Рендерим даже пустую сцену: буфер кадра сам заливает фон
+        backgroundRenderer.submit(FrameSnapshot.capture(
+                scene,
+                null, // Передаем null, так как текстура теперь берется из объекта
+                renderSettings,
+                (int) width,
+                (int) height,
+                selectedPolygons
+        ));
+        // Версия берётся после снимка: смена соотношения сторон камеры выше уже учтена в кадре
+        renderedVersion = changeTracker.getVersion();
+    }
+
+    private void presentFrame() {
+        BackgroundRenderer.Frame frame = backgroundRenderer.takeFrame();
+        if (frame == null) {
+            return;
         }
+        displayedFrame = frame;
+        GraphicsContext graphicsContext = canvas.getGraphicsContext2D();
+        frame.getFrameBuffer().flush(graphicsContext.getPixelWriter());
+    }
+
+    public BackgroundRenderer.Frame getDisplayedFrame() {
+        return displayedFrame;
     }
 
     public void clearSelectedPolygons() {
         selectedPolygons.clear();
+        requestRender();
     }
 
     @FXML
@@ -460,40 +464,18 @@ public class GuiController {
         Optional<ButtonType> result = confirmation.showAndWait();
 
         if (result.isPresent() && result.get() == deleteButton) {
-            Map<SceneObject, List<Integer>> polygonsToRemoveByObject = new HashMap<>();
-
-            for (PolygonSelection selection : selectedPolygons) {
-                SceneObject object = selection.getObject();
+            for (SceneObject object : selectedPolygons.getObjects()) {
                 Model model = object.getModel();
-
                 if (model != null) {
-                    int polygonIndex = model.polygons.indexOf(selection.getPolygon()) + 1;
-                    if (polygonIndex > 0) {
-                        polygonsToRemoveByObject
-                                .computeIfAbsent(object, k -> new ArrayList<>())
-                                .add(polygonIndex);
-                    }
+                    model.removePolygons(selectedPolygons.getPolygons(object), true);
+                    // BVH изменённой сетки строится в фоне, а не при следующем наведении мыши
+                    model.getPackedMesh().prepareBvh();
                 }
             }
 
-            for (Map.Entry<SceneObject, List<Integer>> entry : polygonsToRemoveByObject.entrySet()) {
-                SceneObject object = entry.getKey();
-                Model model = object.getModel();
-                List<Integer> polygonIndices = entry.getValue();
-
-                model.removePolygons(
-                        new ArrayList<>(polygonIndices),
-                        model.vertices,
-                        model.textureVertices,
-                        model.normals,
-                        model.polygons,
-                        true
-                );
-            }
-
             selectedPolygons.clear();
 
-            renderFrame();
+            requestRender();
             guiButtons.showAlert("Удаление", "Полигоны успешно удалены!");
         }
     }
@@ -199,54 +199,22 @@ public class GuiMethods {
     }
 
     private SceneObject findObjectUnderCursor(int x, int y) {
-        for (SceneObject obj : scene.getObjects()) {
-            if (isMouseOverObject(obj, x, y)) {
-                return obj;
-            }
+        // Объект под курсором — прямо из ID-буфера показанного кадра
+        BackgroundRenderer.Frame frame = controller.getDisplayedFrame();
+        if (frame != null && frame.hasIds()) {
+            return frame.getObjectAt(x, y);
         }
-        return null;
-    }
-
-    private boolean isMouseOverObject(SceneObject obj, int mouseX, int mouseY) {
-        if (obj == null || obj.getModel() == null) return false;
-
-        Model mesh = obj.getModel();
-        Camera camera = scene.getActiveCamera();
-
-        Matrix4 modelMatrix = RenderEngine.getModelMatrix(obj);
-        Matrix4 viewMatrix = camera.getViewMatrix();
-        Matrix4 projectionMatrix = camera.getProjectionMatrix();
-        Matrix4 modelViewProjectionMatrix = projectionMatrix.multiply(viewMatrix).multiply(modelMatrix);
-
-        float minX = Float.POSITIVE_INFINITY;
-        float maxX = Float.NEGATIVE_INFINITY;
-        float minY = Float.POSITIVE_INFINITY;
-        float maxY = Float.NEGATIVE_INFINITY;
 
         Canvas canvas = controller.getCanvas();
-        if (canvas == null) return false;
+        if (canvas == null) return null;
 
-        for (Vector3 vertex : mesh.vertices) {
-            Vector3 screenPos = RenderEngine.transformVertex(vertex, modelViewProjectionMatrix,
-                    (int) canvas.getWidth(), (int) canvas.getHeight());
-
-            if (Float.isNaN(screenPos.x) || Float.isNaN(screenPos.y)) {
-                continue;
-            }
-
-            minX = Math.min(minX, screenPos.x);
-            maxX = Math.max(maxX, screenPos.x);
-            minY = Math.min(minY, screenPos.y);
-            maxY = Math.max(maxY, screenPos.y);
-        }
-
-        if (!Float.isFinite(minX) || !Float.isFinite(maxX) ||
-                !Float.isFinite(minY) || !Float.isFinite(maxY)) {
-            return false;
-        }
-
-        return mouseX >= minX && mouseX <= maxX &&
-                mouseY >= minY && mouseY <= maxY;
+        // Без ID-буфера — ближайшее попадание луча по BVH моделей (только уже построенных:
+        // наведение мыши не должно ждать построения BVH большой сетки)
+        Camera camera = scene.getActiveCamera();
+        Matrix4 viewProjectionMatrix = camera.getProjectionMatrix().multiply(camera.getViewMatrix());
+        Picking.Hit hit = Picking.pickIfReady(scene.getObjects(), viewProjectionMatrix,
+                (int) canvas.getWidth(), (int) canvas.getHeight(), x, y);
+        return hit != null ? hit.getObject() : null;
     }
 
     public void updateObjectColors() {
@@ -259,28 +227,28 @@ public class GuiMethods {
                 obj.setModelColor(Color.rgb(173, 216, 230));
             } else {
                 obj.setWireframeColor(Color.WHITE);
-                obj.setModelColor(renderSettings.baseColor);
+                obj.setModelColor(renderSettings.getBaseColor());
             }
         }
     }
 
     public void updateUIFromSelectedObjects() {
         if (selectedObjects.isEmpty()) {
-            controller.getWireframeCheckBox().setSelected(renderSettings.drawWireframe);
-            controller.getTextureCheckBox().setSelected(renderSettings.useTexture);
-            controller.getLightingCheckBox().setSelected(renderSettings.useLighting);
+            controller.getWireframeCheckBox().setSelected(renderSettings.isDrawWireframe());
+            controller.getTextureCheckBox().setSelected(renderSettings.isUseTexture());
+            controller.getLightingCheckBox().setSelected(renderSettings.isUseLighting());
         } else {
             SceneObject firstSelected = selectedObjects.get(0);
             RenderSettings settings = firstSelected.getRenderSettings();
 
             if (settings != null) {
-                controller.getWireframeCheckBox().setSelected(settings.drawWireframe);
-                controller.getTextureCheckBox().setSelected(settings.useTexture);
-                controller.getLightingCheckBox().setSelected(settings.useLighting);
+                controller.getWireframeCheckBox().setSelected(settings.isDrawWireframe());
+                controller.getTextureCheckBox().setSelected(settings.isUseTexture());
+                controller.getLightingCheckBox().setSelected(settings.isUseLighting());
             } else {
-                controller.getWireframeCheckBox().setSelected(renderSettings.drawWireframe);
-                controller.getTextureCheckBox().setSelected(renderSettings.useTexture);
-                controller.getLightingCheckBox().setSelected(renderSettings.useLighting);
+                controller.getWireframeCheckBox().setSelected(renderSettings.isDrawWireframe());
+                controller.getTextureCheckBox().setSelected(renderSettings.isUseTexture());
+                controller.getLightingCheckBox().setSelected(renderSettings.isUseLighting());
             }
         }
 
@@ -391,24 +359,24 @@ public class GuiMethods {
             Model hoveredModel = hoveredObject.getModel();
             infoText = String.format("Наведено на: %s (Вершин: %d, Полигонов: %d)",
                     hoveredObject.getName(),
-                    hoveredModel.vertices.size(),
-                    hoveredModel.polygons.size());
+                    hoveredModel.getVertexCount(),
+                    hoveredModel.getPolygonCount());
         } else if (!selectedObjects.isEmpty()) {
             if (selectedObjects.size() == 1) {
                 SceneObject selected = selectedObjects.get(0);
                 Model selectedModel = selected.getModel();
                 infoText = String.format("Выделено: %s (Вершин: %d, Полигонов: %d)",
                         selected.getName(),
-                        selectedModel.vertices.size(),
-                        selectedModel.polygons.size());
+                        selectedModel.getVertexCount(),
+                        selectedModel.getPolygonCount());
             } else {
                 SceneObject lastSelected = selectedObjects.get(selectedObjects.size() - 1);
                 Model lastModel = lastSelected.getModel();
                 infoText = String.format("Выделено моделей: %d || Последняя: %s (Вершин: %d, Полигонов: %d)",
                         selectedObjects.size(),
                         lastSelected.getName(),
-                        lastModel.vertices.size(),
-                        lastModel.polygons.size());
+                        lastModel.getVertexCount(),
+                        lastModel.getPolygonCount());
             }
         } else {
             infoText = String.format("Объектов на сцене: %d",
@@ -421,10 +389,10 @@ public class GuiMethods {
     public void applySettingsToSelected(RenderSettings settings, List<SceneObject> selectedObjects) {
         if (!selectedObjects.isEmpty()) {
             RenderSettings currentUISettings = new RenderSettings();
-            currentUISettings.drawWireframe = controller.getWireframeCheckBox().isSelected();
-            currentUISettings.useTexture = controller.getTextureCheckBox().isSelected();
-            currentUISettings.useLighting = controller.getLightingCheckBox().isSelected();
-            currentUISettings.baseColor = settings.baseColor;
+            currentUISettings.setDrawWireframe(controller.getWireframeCheckBox().isSelected());
+            currentUISettings.setUseTexture(controller.getTextureCheckBox().isSelected());
+            currentUISettings.setUseLighting(controller.getLightingCheckBox().isSelected());
+            currentUISettings.setBaseColor(settings.getBaseColor());
 
             for (SceneObject obj : selectedObjects) {
                 obj.applyRenderSettings(currentUISettings);
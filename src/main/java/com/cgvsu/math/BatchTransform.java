@@ -0,0 +1,212 @@
+package com.cgvsu.math;
+
+import java.util.Optional;
+
+/**
+ * Пакетное преобразование упакованных координат (x, y, z подряд) матрицей 4x4.
+ *
+ * Если SIMD-реализация на Vector API собрана (профиль Maven vector) и в рантайме доступен модуль
+ * jdk.incubator.vector (запуск с --add-modules jdk.incubator.vector), используется она, иначе — обычный цикл. Обе реализации делают
+ * одни и те же операции в том же порядке, что и Matrix4.multiply(Vector4), поэтому результат
+ * совпадает побитово. SIMD можно отключить свойством -Dcgvsu.vector=false.
+ *
+ * Массивы-источник и приёмник могут совпадать, если смещения равны или области не пересекаются.
+ */
+public final class BatchTransform {
+
+    static final float EPS = 1e-7f;
+
+    /**
+     * Реализация пакетных операций. Матрица передаётся плоским массивом по строкам (Matrix4.m).
+     */
+    interface Kernel {
+        void transformPoints(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count);
+
+        void transformDirections(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count);
+
+        void transformPointsHomogeneous(float[] m, float[] src, int srcOffset, int count,
+                                        float[] outX, float[] outY, float[] outZ, float[] outW);
+
+        void projectToScreen(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count,
+                             int width, int height);
+    }
+
+    private static final Kernel SCALAR = new ScalarKernel();
+    private static final Kernel VECTOR = loadVectorKernel();
+    private static final Kernel KERNEL = VECTOR != null ? VECTOR : SCALAR;
+
+    private BatchTransform() {
+    }
+
+    private static Kernel loadVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("cgvsu.vector", "true"))) {
+            return null;
+        }
+        // Инкубаторный модуль не подключается по умолчанию: без него класс с Vector API даже не загружаем
+        final Optional<Module> vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector");
+        if (vectorModule.isEmpty()) {
+            return null;
+        }
+        try {
+            // Модуль приложения не объявляет зависимость от инкубатора: читать его разрешаем здесь
+            BatchTransform.class.getModule().addReads(vectorModule.get());
+            // Класса нет, если сборка шла без профиля vector
+            Class<?> type = Class.forName("com.cgvsu.math.VectorBatchKernel");
+            return (Kernel) type.getDeclaredMethod("createIfProfitable").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static Kernel scalarKernel() {
+        return SCALAR;
+    }
+
+    // null, если Vector API недоступен
+    static Kernel vectorKernel() {
+        return VECTOR;
+    }
+
+    public static boolean isVectorized() {
+        return KERNEL != SCALAR;
+    }
+
+    /**
+     * Точки (w = 1): dst = (M * (x, y, z, 1)).xyz, без деления на w.
+     */
+    public static void transformPoints(Matrix4 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        KERNEL.transformPoints(matrix.m, src, srcOffset, dst, dstOffset, count);
+    }
+
+    public static void transformPoints(Matrix4 matrix, float[] src, float[] dst, int count) {
+        transformPoints(matrix, src, 0, dst, 0, count);
+    }
+
+    /**
+     * Направления (w = 0): dst = верхний левый блок 3x3 матрицы, умноженный на (x, y, z).
+     */
+    public static void transformDirections(Matrix4 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        KERNEL.transformDirections(matrix.m, src, srcOffset, dst, dstOffset, count);
+    }
+
+    public static void transformDirections(Matrix4 matrix, float[] src, float[] dst, int count) {
+        transformDirections(matrix, src, 0, dst, 0, count);
+    }
+
+    /**
+     * Однородные координаты точек (w = 1) раздельными массивами: outX[i], outY[i], outZ[i], outW[i].
+     * Деление на w и отбраковку оставляют вызывающему (например, стадии обработки вершин).
+     */
+    public static void transformPointsHomogeneous(Matrix4 matrix, float[] src, int count,
+                                                  float[] outX, float[] outY, float[] outZ, float[] outW) {
+        KERNEL.transformPointsHomogeneous(matrix.m, src, 0, count, outX, outY, outZ, outW);
+    }
+
+    /**
+     * Проекция на экран с делением на w: dst = (screenX, screenY, ndcZ), как у RenderEngine.transformVertex.
+     * Точки с |w| < 1e-7 или нечисловым результатом получают (NaN, NaN, NaN).
+     */
+    public static void projectToScreen(Matrix4 matrix, float[] src, int srcOffset, float[] dst, int dstOffset, int count,
+                                       int width, int height) {
+        KERNEL.projectToScreen(matrix.m, src, srcOffset, dst, dstOffset, count, width, height);
+    }
+
+    public static void projectToScreen(Matrix4 matrix, float[] src, float[] dst, int count, int width, int height) {
+        projectToScreen(matrix, src, 0, dst, 0, count, width, height);
+    }
+
+    static final class ScalarKernel implements Kernel {
+
+        @Override
+        public void transformPoints(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+            transformPointsRange(m, src, srcOffset, dst, dstOffset, 0, count);
+        }
+
+        @Override
+        public void transformDirections(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+            transformDirectionsRange(m, src, srcOffset, dst, dstOffset, 0, count);
+        }
+
+        @Override
+        public void transformPointsHomogeneous(float[] m, float[] src, int srcOffset, int count,
+                                               float[] outX, float[] outY, float[] outZ, float[] outW) {
+            transformPointsHomogeneousRange(m, src, srcOffset, outX, outY, outZ, outW, 0, count);
+        }
+
+        @Override
+        public void projectToScreen(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count,
+                                    int width, int height) {
+            projectToScreenRange(m, src, srcOffset, dst, dstOffset, width, height, 0, count);
+        }
+    }
+
+    // Скалярные циклы по диапазону точек [from, to): ими же SIMD-реализация добирает хвост
+
+    static void transformPointsRange(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int from, int to) {
+        for (int i = from; i < to; i++) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            dst[d] = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+            dst[d + 1] = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+            dst[d + 2] = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+        }
+    }
+
+    static void transformDirectionsRange(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int from, int to) {
+        for (int i = from; i < to; i++) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            dst[d] = m[0] * x + m[1] * y + m[2] * z;
+            dst[d + 1] = m[4] * x + m[5] * y + m[6] * z;
+            dst[d + 2] = m[8] * x + m[9] * y + m[10] * z;
+        }
+    }
+
+    static void transformPointsHomogeneousRange(float[] m, float[] src, int srcOffset,
+                                                float[] outX, float[] outY, float[] outZ, float[] outW,
+                                                int from, int to) {
+        for (int i = from; i < to; i++) {
+            final int s = srcOffset + i * 3;
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            outX[i] = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+            outY[i] = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+            outZ[i] = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+            outW[i] = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0f;
+        }
+    }
+
+    static void projectToScreenRange(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset,
+                                     int width, int height, int from, int to) {
+        for (int i = from; i < to; i++) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final float x = src[s];
+            final float y = src[s + 1];
+            final float z = src[s + 2];
+            final float rx = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+            final float ry = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+            final float rz = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+            final float rw = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0f;
+            final float ndcX = rx / rw;
+            final float ndcY = ry / rw;
+            final float ndcZ = rz / rw;
+            if (Math.abs(rw) < EPS || !Float.isFinite(ndcX) || !Float.isFinite(ndcY) || !Float.isFinite(ndcZ)) {
+                dst[d] = Float.NaN;
+                dst[d + 1] = Float.NaN;
+                dst[d + 2] = Float.NaN;
+                continue;
+            }
+            dst[d] = (ndcX * width * 0.5F) + width * 0.5F;
+            dst[d + 1] = (-ndcY * height * 0.5F) + height * 0.5F;
+            dst[d + 2] = ndcZ;
+        }
+    }
+}
@@ -3,103 +3,213 @@ package com.cgvsu.math;
 import java.util.Arrays;
 import java.util.Objects;
 
+/**
+ * Матрица 4x4 в одном плоском массиве по строкам: элемент (row, col) лежит в m[row * 4 + col].
+ *
+ * Обычные операции (add, multiply, inverse, ...) возвращают новую матрицу.
+ * Для горячих мест есть операции с приёмником (multiply(a, b, dest), transformPoint, set):
+ * они ничего не создают, приёмник может совпадать с аргументом.
+ */
 public final class Matrix4 {
-    public final float[][] m;
+    public final float[] m;
     private static final float EPS = 1e-7f;
 
+    /**
+     * Нулевая матрица (например, приёмник для операций без выделения памяти).
+     */
+    public Matrix4() {
+        this.m = new float[16];
+    }
+
     public Matrix4(float[][] values) {
         Objects.requireNonNull(values, "Массив значений нулевой!");
         if (values.length != 4 || values[0].length != 4 || values[1].length != 4 || values[2].length != 4 || values[3].length != 4) {
             throw new IllegalArgumentException("Матрица должна быть задана как 4x4!");
         }
-        this.m = new float[4][4];
+        this.m = new float[16];
         for (int i = 0; i < 4; i++) {
-            System.arraycopy(values[i], 0, this.m[i], 0, 4);
+            System.arraycopy(values[i], 0, this.m, i * 4, 4);
         }
     }
 
+    public Matrix4(Matrix4 other) {
+        Objects.requireNonNull(other, "Переданная в качестве аргумента матрица нулевая!");
+        this.m = other.m.clone();
+    }
+
     public static Matrix4 zero() {
-        return new Matrix4(new float[][]{
-                {0,0,0,0},
-                {0,0,0,0},
-                {0,0,0,0},
-                {0,0,0,0}
-        });
+        return new Matrix4();
     }
 
     public static Matrix4 identity() {
-        return new Matrix4(new float[][]{
-                {1,0,0,0},
-                {0,1,0,0},
-                {0,0,1,0},
-                {0,0,0,1}
-        });
+        return new Matrix4().setIdentity();
     }
 
     public float get(int row, int col) {
-        return m[row][col];
+        return m[row * 4 + col];
+    }
+
+    public Matrix4 set(int row, int col, float value) {
+        m[row * 4 + col] = value;
+        return this;
+    }
+
+    public Matrix4 set(Matrix4 other) {
+        System.arraycopy(other.m, 0, m, 0, 16);
+        return this;
+    }
+
+    public Matrix4 setIdentity() {
+        Arrays.fill(m, 0);
+        m[0] = m[5] = m[10] = m[15] = 1;
+        return this;
     }
 
     public Matrix4 add(Matrix4 o) {
         Objects.requireNonNull(o, "Переданный в качестве аргумента вектор нулевой!");
-        float[][] r = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                r[i][j] = m[i][j] + o.m[i][j];
-            }
+        Matrix4 r = new Matrix4();
+        for (int i = 0; i < 16; i++) {
+            r.m[i] = m[i] + o.m[i];
         }
-        return new Matrix4(r);
+        return r;
     }
 
     public Matrix4 subtract(Matrix4 o) {
         Objects.requireNonNull(o, "Переданный в качестве аргумента вектор нулевой!");
-        float[][] r = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                r[i][j] = m[i][j] - o.m[i][j];
-            }
+        Matrix4 r = new Matrix4();
+        for (int i = 0; i < 16; i++) {
+            r.m[i] = m[i] - o.m[i];
         }
-        return new Matrix4(r);
+        return r;
     }
 
     public Matrix4 multiply(Matrix4 o) {
         Objects.requireNonNull(o, "Переданный в качестве аргумента вектор нулевой!");
-        float[][] r = new float[4][4];
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                float sum = 0;
-                for (int k = 0; k < 4; k++) {
-                    sum += m[i][k] * o.m[k][j];
-                }
-                r[i][j] = sum;
-            }
-        }
-        return new Matrix4(r);
+        return multiply(this, o, new Matrix4());
+    }
+
+    /**
+     * dest = left * right без выделения памяти. dest может совпадать с left и/или right.
+     */
+    public static Matrix4 multiply(Matrix4 left, Matrix4 right, Matrix4 dest) {
+        final float[] a = left.m;
+        final float[] b = right.m;
+        // Сумма начинается с 0f, как в цикле с sum = 0: результат совпадает побитово (включая знак нуля)
+        final float r00 = 0f + a[0] * b[0] + a[1] * b[4] + a[2] * b[8] + a[3] * b[12];
+        final float r01 = 0f + a[0] * b[1] + a[1] * b[5] + a[2] * b[9] + a[3] * b[13];
+        final float r02 = 0f + a[0] * b[2] + a[1] * b[6] + a[2] * b[10] + a[3] * b[14];
+        final float r03 = 0f + a[0] * b[3] + a[1] * b[7] + a[2] * b[11] + a[3] * b[15];
+        final float r10 = 0f + a[4] * b[0] + a[5] * b[4] + a[6] * b[8] + a[7] * b[12];
+        final float r11 = 0f + a[4] * b[1] + a[5] * b[5] + a[6] * b[9] + a[7] * b[13];
+        final float r12 = 0f + a[4] * b[2] + a[5] * b[6] + a[6] * b[10] + a[7] * b[14];
+        final float r13 = 0f + a[4] * b[3] + a[5] * b[7] + a[6] * b[11] + a[7] * b[15];
+        final float r20 = 0f + a[8] * b[0] + a[9] * b[4] + a[10] * b[8] + a[11] * b[12];
+        final float r21 = 0f + a[8] * b[1] + a[9] * b[5] + a[10] * b[9] + a[11] * b[13];
+        final float r22 = 0f + a[8] * b[2] + a[9] * b[6] + a[10] * b[10] + a[11] * b[14];
+        final float r23 = 0f + a[8] * b[3] + a[9] * b[7] + a[10] * b[11] + a[11] * b[15];
+        final float r30 = 0f + a[12] * b[0] + a[13] * b[4] + a[14] * b[8] + a[15] * b[12];
+        final float r31 = 0f + a[12] * b[1] + a[13] * b[5] + a[14] * b[9] + a[15] * b[13];
+        final float r32 = 0f + a[12] * b[2] + a[13] * b[6] + a[14] * b[10] + a[15] * b[14];
+        final float r33 = 0f + a[12] * b[3] + a[13] * b[7] + a[14] * b[11] + a[15] * b[15];
+
+        final float[] r = dest.m;
+        r[0] = r00; r[1] = r01; r[2] = r02; r[3] = r03;
+        r[4] = r10; r[5] = r11; r[6] = r12; r[7] = r13;
+        r[8] = r20; r[9] = r21; r[10] = r22; r[11] = r23;
+        r[12] = r30; r[13] = r31; r[14] = r32; r[15] = r33;
+        return dest;
     }
 
     public Vector4 multiply(Vector4 v) {
         Objects.requireNonNull(v);
         return new Vector4(
-                m[0][0]*v.x + m[0][1]*v.y + m[0][2]*v.z + m[0][3]*v.w,
-                m[1][0]*v.x + m[1][1]*v.y + m[1][2]*v.z + m[1][3]*v.w,
-                m[2][0]*v.x + m[2][1]*v.y + m[2][2]*v.z + m[2][3]*v.w,
-                m[3][0]*v.x + m[3][1]*v.y + m[3][2]*v.z + m[3][3]*v.w
+                m[0]*v.x + m[1]*v.y + m[2]*v.z + m[3]*v.w,
+                m[4]*v.x + m[5]*v.y + m[6]*v.z + m[7]*v.w,
+                m[8]*v.x + m[9]*v.y + m[10]*v.z + m[11]*v.w,
+                m[12]*v.x + m[13]*v.y + m[14]*v.z + m[15]*v.w
         );
     }
 
+    /**
+     * dest = this * v без выделения памяти. dest может совпадать с v.
+     */
+    public Vector4 multiply(Vector4 v, Vector4 dest) {
+        final float x = v.x, y = v.y, z = v.z, w = v.w;
+        return dest.set(
+                m[0]*x + m[1]*y + m[2]*z + m[3]*w,
+                m[4]*x + m[5]*y + m[6]*z + m[7]*w,
+                m[8]*x + m[9]*y + m[10]*z + m[11]*w,
+                m[12]*x + m[13]*y + m[14]*z + m[15]*w);
+    }
+
+    /**
+     * Точка (src[srcOffset..+2], w = 1) в однородные координаты dst[dstOffset..+3].
+     * Порядок операций тот же, что у multiply(Vector4). Массивы могут совпадать, если области не пересекаются.
+     */
+    public void transformPoint(float[] src, int srcOffset, float[] dst, int dstOffset) {
+        final float x = src[srcOffset];
+        final float y = src[srcOffset + 1];
+        final float z = src[srcOffset + 2];
+        dst[dstOffset] = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+        dst[dstOffset + 1] = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+        dst[dstOffset + 2] = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+        dst[dstOffset + 3] = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0f;
+    }
+
+    public void transformPoint(float[] src, int srcOffset, float[] dst) {
+        transformPoint(src, srcOffset, dst, 0);
+    }
+
+    /**
+     * Точка с делением на w: dst[dstOffset..+2] = (M * (x, y, z, 1)).xyz / w.
+     * Возвращает false (и ничего не пишет), если |w| слишком мало — как multiplyMatrix4ByVector3.
+     */
+    public boolean transformPointProjective(float[] src, int srcOffset, float[] dst, int dstOffset) {
+        final float x = src[srcOffset];
+        final float y = src[srcOffset + 1];
+        final float z = src[srcOffset + 2];
+        final float rw = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0f;
+        if (Math.abs(rw) < EPS) {
+            return false;
+        }
+        final float rx = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+        final float ry = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+        final float rz = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+        dst[dstOffset] = rx / rw;
+        dst[dstOffset + 1] = ry / rw;
+        dst[dstOffset + 2] = rz / rw;
+        return true;
+    }
+
     public Matrix4 transpose() {
-        float[][] r = new float[4][4];
+        return transpose(this, new Matrix4());
+    }
+
+    /**
+     * dest = source^T без выделения памяти. dest может совпадать с source.
+     */
+    public static Matrix4 transpose(Matrix4 source, Matrix4 dest) {
+        final float[] s = source.m;
+        final float[] r = dest.m;
+        if (s == r) {
+            for (int i = 0; i < 4; i++) {
+                for (int j = i + 1; j < 4; j++) {
+                    float t = r[i * 4 + j]; r[i * 4 + j] = r[j * 4 + i]; r[j * 4 + i] = t;
+                }
+            }
+            return dest;
+        }
         for (int i = 0; i < 4; i++) {
             for (int j = 0; j < 4; j++) {
-                r[i][j] = m[j][i];
+                r[i * 4 + j] = s[j * 4 + i];
             }
         }
-        return new Matrix4(r);
+        return dest;
     }
 
     public float determinant() {
         int n = 4;
-        float[][] a = copy(m);
+        float[][] a = toRows();
         int swaps = 0;
         float det = 1.0f;
 
@@ -140,8 +250,8 @@ public final class Matrix4 {
 
     public Matrix4 inverse() {
         int n = 4;
-        float[][] a = copy(m);
-        float[][] inv = identity().m;
+        float[][] a = toRows();
+        float[][] inv = identity().toRows();
 
         for (int col = 0; col < n; col++) {
             int pivot = col;
@@ -183,7 +293,7 @@ public final class Matrix4 {
     public Vector4 solve(Vector4 b) {
         Objects.requireNonNull(b, "Переданный в качестве аргумента вектор нулевой!");
         int n = 4;
-        float[][] a = copy(m);
+        float[][] a = toRows();
         float[] rhs = new float[]{b.x, b.y, b.z, b.w};
 
         for (int col = 0; col < n; col++) {
@@ -226,10 +336,13 @@ public final class Matrix4 {
         return new Vector4(x[0], x[1], x[2], x[3]);
     }
 
-    private static float[][] copy(float[][] src) {
-        float[][] r = new float[src.length][src[0].length];
-        for (int i = 0; i < src.length; i++) {
-            System.arraycopy(src[i], 0, r[i], 0, src[i].length);
+    /**
+     * Копия в виде строк 4x4 (для метода Гаусса, где строки переставляются).
+     */
+    public float[][] toRows() {
+        float[][] r = new float[4][4];
+        for (int i = 0; i < 4; i++) {
+            System.arraycopy(m, i * 4, r[i], 0, 4);
         }
         return r;
     }
@@ -239,11 +352,9 @@ public final class Matrix4 {
     }
 
     public boolean approxEquals(Matrix4 o, float eps) {
-        for (int i = 0; i < 4; i++) {
-            for (int j = 0; j < 4; j++) {
-                if (Math.abs(m[i][j] - o.m[i][j]) > eps) {
-                    return false;
-                }
+        for (int i = 0; i < 16; i++) {
+            if (Math.abs(m[i] - o.m[i]) > eps) {
+                return false;
             }
         }
         return true;
@@ -253,8 +364,8 @@ public final class Matrix4 {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Matrix4 other)) return false;
-        for (int i=0;i<4;i++) for (int j=0;j<4;j++) {
-            if (Float.floatToIntBits(m[i][j]) != Float.floatToIntBits(other.m[i][j])) return false;
+        for (int i = 0; i < 16; i++) {
+            if (Float.floatToIntBits(m[i]) != Float.floatToIntBits(other.m[i])) return false;
         }
         return true;
     }
@@ -262,13 +373,13 @@ public final class Matrix4 {
     @Override
     public int hashCode() {
         int r = 1;
-        for (int i=0;i<4;i++) for (int j=0;j<4;j++) r = 31*r + Float.hashCode(m[i][j]);
+        for (int i = 0; i < 16; i++) r = 31*r + Float.hashCode(m[i]);
         return r;
     }
 
     @Override
     public String toString() {
-        return "Matrix4" + Arrays.deepToString(m);
+        return "Matrix4" + Arrays.deepToString(toRows());
     }
 
-}
\ No newline at end of file
+}
@@ -18,6 +18,54 @@ public final class Vector3 {
         this.z = z;
     }
 
+    public Vector3(Vector3 other) {
+        this(other.x, other.y, other.z);
+    }
+
+    // Операции с приёмником: ничего не создают, dest может совпадать с аргументами.
+    // Координаты на конечность не проверяются.
+
+    public Vector3 set(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        return this;
+    }
+
+    public Vector3 set(Vector3 o) {
+        return set(o.x, o.y, o.z);
+    }
+
+    public static Vector3 add(Vector3 a, Vector3 b, Vector3 dest) {
+        return dest.set(a.x + b.x, a.y + b.y, a.z + b.z);
+    }
+
+    public static Vector3 subtract(Vector3 a, Vector3 b, Vector3 dest) {
+        return dest.set(a.x - b.x, a.y - b.y, a.z - b.z);
+    }
+
+    public static Vector3 scale(Vector3 a, float s, Vector3 dest) {
+        return dest.set(a.x * s, a.y * s, a.z * s);
+    }
+
+    public static Vector3 cross(Vector3 a, Vector3 b, Vector3 dest) {
+        return dest.set(
+                a.y * b.z - a.z * b.y,
+                a.z * b.x - a.x * b.z,
+                a.x * b.y - a.y * b.x
+        );
+    }
+
+    /**
+     * Нормализация как у normalized(): нулевой вектор остаётся нулевым.
+     */
+    public static Vector3 normalize(Vector3 a, Vector3 dest) {
+        float length = (float) Math.sqrt(a.x * a.x + a.y * a.y + a.z * a.z);
+        if (length == 0) {
+            return dest.set(0, 0, 0);
+        }
+        return dest.set(a.x / length, a.y / length, a.z / length);
+    }
 
     public Vector3 add(Vector3 o) {
         Objects.requireNonNull(o, "Переданный в качестве аргумента вектор нулевой!");
@@ -3,7 +3,7 @@ package com.cgvsu.math;
 import java.util.Objects;
 
 public final class Vector4 {
-    public final float x, y, z, w;
+    public float x, y, z, w;
     private static final float EPS = 1e-7f;
 
     public Vector4(float x, float y, float z, float w) {
@@ -17,6 +17,17 @@ public final class Vector4 {
         this.w = w;
     }
 
+    /**
+     * Перезаписывает координаты (для переиспользуемых приёмников). Без проверки на конечность.
+     */
+    public Vector4 set(float x, float y, float z, float w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        return this;
+    }
+
     public Vector4 add(Vector4 o) {
         Objects.requireNonNull(o, "Переданный в качестве аргумента вектор нулевой!");
         return new Vector4(x + o.x, y + o.y, z + o.z, w + o.w);
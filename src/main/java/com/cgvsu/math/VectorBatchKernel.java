@@ -0,0 +1,135 @@
+package com.cgvsu.math;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD-реализация BatchTransform на Vector API. Загружается только через BatchTransform,
+ * когда модуль jdk.incubator.vector есть в рантайме. Собирается только профилем Maven vector,
+ * чтобы обычная сборка не требовала инкубаторного модуля.
+ *
+ * Координаты лежат подряд (x, y, z), поэтому за одну итерацию из массива собираются
+ * (gather) векторы x, y и z для нескольких точек, считаются все строки матрицы
+ * и результат раскладывается обратно. Операции и их порядок — как в скалярном цикле:
+ * умножение и сложение по отдельности, без FMA.
+ */
+final class VectorBatchKernel implements BatchTransform.Kernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    // Смещения x соседних точек: 0, 3, 6, ...
+    private static final int[] STRIDE_3 = new int[LANES];
+
+    static {
+        for (int i = 0; i < LANES; i++) {
+            STRIDE_3[i] = i * 3;
+        }
+    }
+
+    private VectorBatchKernel() {
+    }
+
+    /**
+     * null, если векторы слишком короткие, чтобы выиграть у скалярного цикла.
+     */
+    static BatchTransform.Kernel createIfProfitable() {
+        return LANES >= 4 ? new VectorBatchKernel() : null;
+    }
+
+    private static int vectorEnd(int count) {
+        return SPECIES.loopBound(count);
+    }
+
+    @Override
+    public void transformPoints(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        final int end = vectorEnd(count);
+        for (int i = 0; i < end; i += LANES) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final FloatVector x = FloatVector.fromArray(SPECIES, src, s, STRIDE_3, 0);
+            final FloatVector y = FloatVector.fromArray(SPECIES, src, s + 1, STRIDE_3, 0);
+            final FloatVector z = FloatVector.fromArray(SPECIES, src, s + 2, STRIDE_3, 0);
+            row(m, 0, x, y, z).intoArray(dst, d, STRIDE_3, 0);
+            row(m, 4, x, y, z).intoArray(dst, d + 1, STRIDE_3, 0);
+            row(m, 8, x, y, z).intoArray(dst, d + 2, STRIDE_3, 0);
+        }
+        BatchTransform.transformPointsRange(m, src, srcOffset, dst, dstOffset, end, count);
+    }
+
+    @Override
+    public void transformDirections(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count) {
+        final int end = vectorEnd(count);
+        for (int i = 0; i < end; i += LANES) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final FloatVector x = FloatVector.fromArray(SPECIES, src, s, STRIDE_3, 0);
+            final FloatVector y = FloatVector.fromArray(SPECIES, src, s + 1, STRIDE_3, 0);
+            final FloatVector z = FloatVector.fromArray(SPECIES, src, s + 2, STRIDE_3, 0);
+            directionRow(m, 0, x, y, z).intoArray(dst, d, STRIDE_3, 0);
+            directionRow(m, 4, x, y, z).intoArray(dst, d + 1, STRIDE_3, 0);
+            directionRow(m, 8, x, y, z).intoArray(dst, d + 2, STRIDE_3, 0);
+        }
+        BatchTransform.transformDirectionsRange(m, src, srcOffset, dst, dstOffset, end, count);
+    }
+
+    @Override
+    public void transformPointsHomogeneous(float[] m, float[] src, int srcOffset, int count,
+                                           float[] outX, float[] outY, float[] outZ, float[] outW) {
+        final int end = vectorEnd(count);
+        for (int i = 0; i < end; i += LANES) {
+            final int s = srcOffset + i * 3;
+            final FloatVector x = FloatVector.fromArray(SPECIES, src, s, STRIDE_3, 0);
+            final FloatVector y = FloatVector.fromArray(SPECIES, src, s + 1, STRIDE_3, 0);
+            final FloatVector z = FloatVector.fromArray(SPECIES, src, s + 2, STRIDE_3, 0);
+            row(m, 0, x, y, z).intoArray(outX, i);
+            row(m, 4, x, y, z).intoArray(outY, i);
+            row(m, 8, x, y, z).intoArray(outZ, i);
+            row(m, 12, x, y, z).intoArray(outW, i);
+        }
+        BatchTransform.transformPointsHomogeneousRange(m, src, srcOffset, outX, outY, outZ, outW, end, count);
+    }
+
+    @Override
+    public void projectToScreen(float[] m, float[] src, int srcOffset, float[] dst, int dstOffset, int count,
+                                int width, int height) {
+        final float halfWidth = width * 0.5F;
+        final float halfHeight = height * 0.5F;
+        final int end = vectorEnd(count);
+        for (int i = 0; i < end; i += LANES) {
+            final int s = srcOffset + i * 3;
+            final int d = dstOffset + i * 3;
+            final FloatVector x = FloatVector.fromArray(SPECIES, src, s, STRIDE_3, 0);
+            final FloatVector y = FloatVector.fromArray(SPECIES, src, s + 1, STRIDE_3, 0);
+            final FloatVector z = FloatVector.fromArray(SPECIES, src, s + 2, STRIDE_3, 0);
+            final FloatVector rw = row(m, 12, x, y, z);
+            final FloatVector ndcX = row(m, 0, x, y, z).div(rw);
+            final FloatVector ndcY = row(m, 4, x, y, z).div(rw);
+            final FloatVector ndcZ = row(m, 8, x, y, z).div(rw);
+
+            final VectorMask<Float> invalid = rw.abs().compare(VectorOperators.LT, BatchTransform.EPS)
+                    .or(ndcX.test(VectorOperators.IS_FINITE).not())
+                    .or(ndcY.test(VectorOperators.IS_FINITE).not())
+                    .or(ndcZ.test(VectorOperators.IS_FINITE).not());
+
+            // (ndcX * width * 0.5F) + width * 0.5F и (-ndcY * height * 0.5F) + height * 0.5F
+            ndcX.mul((float) width).mul(0.5F).add(halfWidth)
+                    .blend(Float.NaN, invalid).intoArray(dst, d, STRIDE_3, 0);
+            ndcY.neg().mul((float) height).mul(0.5F).add(halfHeight)
+                    .blend(Float.NaN, invalid).intoArray(dst, d + 1, STRIDE_3, 0);
+            ndcZ.blend(Float.NaN, invalid).intoArray(dst, d + 2, STRIDE_3, 0);
+        }
+        BatchTransform.projectToScreenRange(m, src, srcOffset, dst, dstOffset, width, height, end, count);
+    }
+
+    // m[r] * x + m[r + 1] * y + m[r + 2] * z + m[r + 3] * 1.0f
+    private static FloatVector row(float[] m, int r, FloatVector x, FloatVector y, FloatVector z) {
+        return x.mul(m[r]).add(y.mul(m[r + 1])).add(z.mul(m[r + 2])).add(m[r + 3]);
+    }
+
+    // m[r] * x + m[r + 1] * y + m[r + 2] * z
+    private static FloatVector directionRow(float[] m, int r, FloatVector x, FloatVector y, FloatVector z) {
+        return x.mul(m[r]).add(y.mul(m[r + 1])).add(z.mul(m[r + 2]));
+    }
+}
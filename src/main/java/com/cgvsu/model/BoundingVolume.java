@@ -0,0 +1,98 @@
+package com.cgvsu.model;
+
+/**
+ * Ограничивающие объёмы сетки в её собственных координатах: выровненный по осям
+ * параллелепипед (AABB) и сфера с центром в центре параллелепипеда.
+ *
+ * Считается один раз на сетку ({@link PackedMesh#getBounds()}) и пересчитывается вместе с ней
+ * после изменения геометрии. Вершины с нечисловыми координатами не учитываются: рендер их
+ * всё равно отбрасывает.
+ */
+public final class BoundingVolume {
+
+    private static final BoundingVolume EMPTY = new BoundingVolume(
+            Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+            0, 0, 0, -1);
+
+    public final float minX, minY, minZ;
+    public final float maxX, maxY, maxZ;
+    public final float centerX, centerY, centerZ;
+    // Радиус сферы; отрицателен у пустого объёма
+    public final float radius;
+
+    private BoundingVolume(float minX, float minY, float minZ,
+                           float maxX, float maxY, float maxZ,
+                           float centerX, float centerY, float centerZ, float radius) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.radius = radius;
+    }
+
+    /**
+     * Объёмы по плоскому массиву позиций (x, y, z подряд).
+     */
+    public static BoundingVolume fromPositions(float[] positions, int count) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        boolean any = false;
+        for (int i = 0; i < count * 3; i += 3) {
+            final float x = positions[i], y = positions[i + 1], z = positions[i + 2];
+            if (!Float.isFinite(x) || !Float.isFinite(y) || !Float.isFinite(z)) {
+                continue;
+            }
+            any = true;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        if (!any) {
+            return EMPTY;
+        }
+
+        // Сфера вокруг центра AABB: радиус — до самой дальней вершины (не больше половины диагонали)
+        final double centerX = (minX + (double) maxX) * 0.5;
+        final double centerY = (minY + (double) maxY) * 0.5;
+        final double centerZ = (minZ + (double) maxZ) * 0.5;
+        double maxDistanceSquared = 0;
+        for (int i = 0; i < count * 3; i += 3) {
+            final double dx = positions[i] - centerX;
+            final double dy = positions[i + 1] - centerY;
+            final double dz = positions[i + 2] - centerZ;
+            final double distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (distanceSquared > maxDistanceSquared && Double.isFinite(distanceSquared)) {
+                maxDistanceSquared = distanceSquared;
+            }
+        }
+        // Запас на округление радиуса и центра до float: сфера должна содержать все вершины
+        final float center = Math.max(Math.abs((float) centerX), Math.max(Math.abs((float) centerY), Math.abs((float) centerZ)));
+        final float radius = Math.nextUp((float) Math.sqrt(maxDistanceSquared)) + Math.ulp(center);
+        return new BoundingVolume(minX, minY, minZ, maxX, maxY, maxZ,
+                (float) centerX, (float) centerY, (float) centerZ, radius);
+    }
+
+    public boolean isEmpty() {
+        return radius < 0;
+    }
+
+    /**
+     * Восемь вершин параллелепипеда (x, y, z подряд) в массив длиной не меньше 24.
+     */
+    public void corners(float[] out) {
+        for (int i = 0; i < 8; i++) {
+            out[i * 3] = (i & 1) == 0 ? minX : maxX;
+            out[i * 3 + 1] = (i & 2) == 0 ? minY : maxY;
+            out[i * 3 + 2] = (i & 4) == 0 ? minZ : maxZ;
+        }
+    }
+}
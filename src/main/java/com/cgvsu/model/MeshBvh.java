@@ -0,0 +1,457 @@
+package com.cgvsu.model;
+
+import java.util.Arrays;
+
+/**
+ * Иерархия ограничивающих объёмов (BVH) над треугольниками сетки — для выбора лучом за O(log n).
+ *
+ * Многоугольники разбиваются веером (0, k, k + 1), как при триангуляции. Узлы лежат в плоских
+ * массивах: левый потомок внутреннего узла идёт сразу за ним, номер правого хранится в узле.
+ * Разбиение — по SAH (площади поверхности) на корзинах вдоль самой длинной оси центров треугольников.
+ *
+ * Строится в координатах модели по {@link PackedMesh} и кэшируется вместе с ней
+ * ({@link PackedMesh#getBvh()}), поэтому пересобирается после изменения геометрии.
+ * Треугольники с нечисловыми вершинами пропускаются: рендер их тоже не рисует.
+ */
+public final class MeshBvh {
+
+    // Лист, который дешевле не делить; больше MAX_LEAF_SIZE треугольников лист не держит
+    private static final int LEAF_SIZE = 4;
+    private static final int MAX_LEAF_SIZE = 16;
+    private static final int BIN_COUNT = 12;
+    // Ограничение глубины: стек обхода фиксированного размера
+    private static final int MAX_DEPTH = 48;
+
+    private final float[] positions;
+    // Треугольники в порядке листьев: вершины (по три), многоугольник и угол веера
+    private final int[] triangleVertices;
+    private final int[] trianglePolygons;
+    private final int[] triangleCorners;
+    private final int triangleCount;
+
+    // Узлы: minX, minY, minZ, maxX, maxY, maxZ; у листа start — первый треугольник, у внутреннего — правый потомок
+    private final float[] nodeBounds;
+    private final int[] nodeStart;
+    private final int[] nodeSize;
+    private int nodeCount;
+
+    // Данные только на время построения; центры и объёмы переставляются вместе с order
+    private float[] centroids;
+    private float[] triangleBounds;
+    private int[] order;
+    private final int[] binCounts = new int[BIN_COUNT];
+    // Корзина: объём треугольников и объём их центров
+    private final float[] binBounds = new float[BIN_COUNT * 12];
+    // Объёмы узла на каждом уровне рекурсии и отложенные объёмы правых потомков
+    private final float[][] levelBounds = new float[MAX_DEPTH + 1][12];
+    private final float[][] pendingBounds = new float[MAX_DEPTH + 1][12];
+    private final float[] sweepBounds = new float[6];
+    private final double[] rightAreas = new double[BIN_COUNT];
+    private final int[] rightCounts = new int[BIN_COUNT];
+
+    private MeshBvh(PackedMesh mesh) {
+        positions = mesh.getPositions();
+        final int[] offsets = mesh.getPolygonOffsets();
+        final int[] indices = mesh.getVertexIndices();
+        final int polygonCount = mesh.getPolygonCount();
+
+        int capacity = 0;
+        for (int p = 0; p < polygonCount; p++) {
+            capacity += Math.max(0, offsets[p + 1] - offsets[p] - 2);
+        }
+        final int[] vertices = new int[capacity * 3];
+        final int[] polygons = new int[capacity];
+        final int[] corners = new int[capacity];
+        centroids = new float[capacity * 3];
+        triangleBounds = new float[capacity * 6];
+
+        int count = 0;
+        for (int p = 0; p < polygonCount; p++) {
+            final int start = offsets[p];
+            final int size = offsets[p + 1] - start;
+            for (int k = 1; k + 1 < size; k++) {
+                final int a = indices[start], b = indices[start + k], c = indices[start + k + 1];
+                if (!isFinite(a) || !isFinite(b) || !isFinite(c)) {
+                    continue;
+                }
+                vertices[count * 3] = a;
+                vertices[count * 3 + 1] = b;
+                vertices[count * 3 + 2] = c;
+                polygons[count] = p;
+                corners[count] = k;
+                for (int axis = 0; axis < 3; axis++) {
+                    final float va = positions[a * 3 + axis], vb = positions[b * 3 + axis], vc = positions[c * 3 + axis];
+                    final float min = Math.min(va, Math.min(vb, vc));
+                    final float max = Math.max(va, Math.max(vb, vc));
+                    triangleBounds[count * 6 + axis] = min;
+                    triangleBounds[count * 6 + 3 + axis] = max;
+                    centroids[count * 3 + axis] = (min + max) * 0.5f;
+                }
+                count++;
+            }
+        }
+
+        triangleCount = count;
+        nodeBounds = new float[Math.max(1, 2 * count - 1) * 6];
+        nodeStart = new int[Math.max(1, 2 * count - 1)];
+        nodeSize = new int[Math.max(1, 2 * count - 1)];
+        order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        if (count > 0) {
+            computeBounds(0, count, levelBounds[0]);
+            buildNode(0, count, 0);
+        }
+
+        // Треугольники раскладываются в порядке листьев
+        triangleVertices = new int[count * 3];
+        trianglePolygons = new int[count];
+        triangleCorners = new int[count];
+        for (int i = 0; i < count; i++) {
+            final int t = order[i];
+            triangleVertices[i * 3] = vertices[t * 3];
+            triangleVertices[i * 3 + 1] = vertices[t * 3 + 1];
+            triangleVertices[i * 3 + 2] = vertices[t * 3 + 2];
+            trianglePolygons[i] = polygons[t];
+            triangleCorners[i] = corners[t];
+        }
+        centroids = null;
+        triangleBounds = null;
+        order = null;
+    }
+
+    public static MeshBvh build(PackedMesh mesh) {
+        return new MeshBvh(mesh);
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Ищет ближайшее пересечение луча origin + t * direction (t >= 0) с треугольниками сетки,
+     * ближе уже записанного в hit. Обе стороны треугольников считаются попаданием.
+     *
+     * @return true, если hit обновлён
+     */
+    public boolean intersect(double originX, double originY, double originZ,
+                             double directionX, double directionY, double directionZ, RayHit hit) {
+        if (nodeCount == 0) {
+            return false;
+        }
+        final double invX = 1.0 / directionX, invY = 1.0 / directionY, invZ = 1.0 / directionZ;
+        if (boxEntry(0, originX, originY, originZ, invX, invY, invZ, hit.getDistance()) == Double.POSITIVE_INFINITY) {
+            return false;
+        }
+
+        // Стек узлов с расстоянием входа в их объём: ближний потомок обходится первым
+        final int[] stack = new int[MAX_DEPTH + 2];
+        final double[] stackEntry = new double[MAX_DEPTH + 2];
+        int top = 0;
+        stack[top] = 0;
+        stackEntry[top++] = 0;
+        boolean found = false;
+        while (top > 0) {
+            top--;
+            if (stackEntry[top] > hit.getDistance()) {
+                continue; // Уже нашли пересечение ближе этого объёма
+            }
+            final int node = stack[top];
+            final int size = nodeSize[node];
+            if (size > 0) {
+                final int first = nodeStart[node];
+                for (int t = first; t < first + size; t++) {
+                    found |= intersectTriangle(t, originX, originY, originZ, directionX, directionY, directionZ, hit);
+                }
+                continue;
+            }
+
+            final int left = node + 1;
+            final int right = nodeStart[node];
+            final double leftEntry = boxEntry(left, originX, originY, originZ, invX, invY, invZ, hit.getDistance());
+            final double rightEntry = boxEntry(right, originX, originY, originZ, invX, invY, invZ, hit.getDistance());
+            final boolean leftFirst = leftEntry <= rightEntry;
+            final int near = leftFirst ? left : right;
+            final int far = leftFirst ? right : left;
+            final double nearEntry = leftFirst ? leftEntry : rightEntry;
+            final double farEntry = leftFirst ? rightEntry : leftEntry;
+            if (farEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = far;
+                stackEntry[top++] = farEntry;
+            }
+            if (nearEntry != Double.POSITIVE_INFINITY) {
+                stack[top] = near;
+                stackEntry[top++] = nearEntry;
+            }
+        }
+        return found;
+    }
+
+    private boolean isFinite(int vertex) {
+        final int o = vertex * 3;
+        return Float.isFinite(positions[o]) && Float.isFinite(positions[o + 1]) && Float.isFinite(positions[o + 2]);
+    }
+
+    /**
+     * Строит узел над треугольниками [start, end). Объёмы узла (6 чисел) и центров его
+     * треугольников (ещё 6) уже лежат в levelBounds[depth]: их считает родитель по корзинам.
+     */
+    private void buildNode(int start, int end, int depth) {
+        final int node = nodeCount++;
+        final float[] bounds = levelBounds[depth];
+        System.arraycopy(bounds, 0, nodeBounds, node * 6, 6);
+
+        final int count = end - start;
+        if (count <= LEAF_SIZE || depth >= MAX_DEPTH) {
+            leaf(node, start, count);
+            return;
+        }
+
+        // Ось разбиения — самая длинная по центрам треугольников
+        final float extentX = bounds[9] - bounds[6], extentY = bounds[10] - bounds[7], extentZ = bounds[11] - bounds[8];
+        final int axis = extentX >= extentY && extentX >= extentZ ? 0 : (extentY >= extentZ ? 1 : 2);
+        final float axisMin = bounds[6 + axis];
+        final float extent = axis == 0 ? extentX : (axis == 1 ? extentY : extentZ);
+
+        final float[] left = levelBounds[depth + 1];
+        final float[] right = pendingBounds[depth];
+        int mid = -1;
+        if (extent > 0) {
+            final double scale = BIN_COUNT / (double) extent;
+            final int split = findSplit(node, start, end, axis, axisMin, scale);
+            if (split < 0 && count <= MAX_LEAF_SIZE) {
+                leaf(node, start, count);
+                return;
+            }
+            if (split >= 0) {
+                mid = partition(start, end, axis, axisMin, scale, split);
+                unionBins(0, split + 1, left);
+                unionBins(split + 1, BIN_COUNT, right);
+            }
+        }
+        if (mid <= start || mid >= end) {
+            // Все центры совпадают или деление не выгодно, а лист слишком велик: делим пополам как есть
+            mid = (start + end) >>> 1;
+            computeBounds(start, mid, left);
+            computeBounds(mid, end, right);
+        }
+
+        buildNode(start, mid, depth + 1);
+        // Левое поддерево затирает только более глубокие уровни: объёмы правого потомка целы
+        System.arraycopy(right, 0, levelBounds[depth + 1], 0, 12);
+        nodeStart[node] = nodeCount;
+        nodeSize[node] = 0;
+        buildNode(mid, end, depth + 1);
+    }
+
+    private void leaf(int node, int start, int count) {
+        nodeStart[node] = start;
+        nodeSize[node] = count;
+    }
+
+    private static int bin(float centroid, float axisMin, double scale) {
+        return Math.min(BIN_COUNT - 1, (int) ((centroid - axisMin) * scale));
+    }
+
+    // Объём треугольников [start, end) и их центров — в out (12 чисел)
+    private void computeBounds(int start, int end, float[] out) {
+        resetBounds(out, 0);
+        resetBounds(out, 6);
+        for (int t = start; t < end; t++) {
+            unionBounds(out, 0, triangleBounds, t * 6);
+            unionPoint(out, 6, centroids, t * 3);
+        }
+    }
+
+    // Объединение корзин [from, to) — в out (12 чисел)
+    private void unionBins(int from, int to, float[] out) {
+        resetBounds(out, 0);
+        resetBounds(out, 6);
+        for (int k = from; k < to; k++) {
+            unionBounds(out, 0, binBounds, k * 12);
+            unionBounds(out, 6, binBounds, k * 12 + 6);
+        }
+    }
+
+    /**
+     * Лучшая граница между корзинами по SAH: левая часть — корзины 0..split.
+     * -1, если деление не дешевле листа.
+     */
+    private int findSplit(int node, int start, int end, int axis, float axisMin, double scale) {
+        Arrays.fill(binCounts, 0);
+        for (int k = 0; k < BIN_COUNT; k++) {
+            resetBounds(binBounds, k * 12);
+            resetBounds(binBounds, k * 12 + 6);
+        }
+        for (int t = start; t < end; t++) {
+            final int k = bin(centroids[t * 3 + axis], axisMin, scale);
+            binCounts[k]++;
+            unionBounds(binBounds, k * 12, triangleBounds, t * 6);
+            unionPoint(binBounds, k * 12 + 6, centroids, t * 3);
+        }
+
+        // Справа налево копим площади и число треугольников правой части
+        resetBounds(sweepBounds, 0);
+        int count = 0;
+        for (int k = BIN_COUNT - 1; k > 0; k--) {
+            unionBounds(sweepBounds, 0, binBounds, k * 12);
+            count += binCounts[k];
+            rightAreas[k] = halfArea(sweepBounds, 0);
+            rightCounts[k] = count;
+        }
+
+        resetBounds(sweepBounds, 0);
+        count = 0;
+        double bestCost = Double.POSITIVE_INFINITY;
+        int best = -1;
+        for (int k = 0; k < BIN_COUNT - 1; k++) {
+            unionBounds(sweepBounds, 0, binBounds, k * 12);
+            count += binCounts[k];
+            if (count == 0 || rightCounts[k + 1] == 0) {
+                continue;
+            }
+            final double cost = halfArea(sweepBounds, 0) * count + rightAreas[k + 1] * rightCounts[k + 1];
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = k;
+            }
+        }
+        final double leafCost = halfArea(nodeBounds, node * 6) * (end - start);
+        if (best < 0 || ((end - start) <= MAX_LEAF_SIZE && bestCost >= leafCost)) {
+            return -1;
+        }
+        return best;
+    }
+
+    private int partition(int start, int end, int axis, float axisMin, double scale, int split) {
+        int i = start, j = end - 1;
+        while (i <= j) {
+            if (bin(centroids[i * 3 + axis], axisMin, scale) <= split) {
+                i++;
+            } else {
+                swap(i, j--);
+            }
+        }
+        return i;
+    }
+
+    // Переставляет треугольники вместе с их данными: проходы по диапазону читают память подряд
+    private void swap(int i, int j) {
+        final int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+        for (int k = 0; k < 3; k++) {
+            final float c = centroids[i * 3 + k];
+            centroids[i * 3 + k] = centroids[j * 3 + k];
+            centroids[j * 3 + k] = c;
+        }
+        for (int k = 0; k < 6; k++) {
+            final float b = triangleBounds[i * 6 + k];
+            triangleBounds[i * 6 + k] = triangleBounds[j * 6 + k];
+            triangleBounds[j * 6 + k] = b;
+        }
+    }
+
+    private static void unionPoint(float[] target, int o, float[] points, int p) {
+        for (int k = 0; k < 3; k++) {
+            target[o + k] = min(target[o + k], points[p + k]);
+            target[o + 3 + k] = max(target[o + 3 + k], points[p + k]);
+        }
+    }
+
+    private static void resetBounds(float[] bounds, int o) {
+        bounds[o] = bounds[o + 1] = bounds[o + 2] = Float.POSITIVE_INFINITY;
+        bounds[o + 3] = bounds[o + 4] = bounds[o + 5] = Float.NEGATIVE_INFINITY;
+    }
+
+    private static void unionBounds(float[] target, int o, float[] source, int s) {
+        for (int k = 0; k < 3; k++) {
+            target[o + k] = min(target[o + k], source[s + k]);
+            target[o + 3 + k] = max(target[o + 3 + k], source[s + 3 + k]);
+        }
+    }
+
+    // Math.min/max для float медленнее из-за NaN и -0; координаты здесь конечны
+    private static float min(float a, float b) {
+        return a < b ? a : b;
+    }
+
+    private static float max(float a, float b) {
+        return a > b ? a : b;
+    }
+
+    // Половина площади поверхности параллелепипеда (0 у пустого)
+    private static double halfArea(float[] bounds, int o) {
+        final double dx = bounds[o + 3] - (double) bounds[o];
+        final double dy = bounds[o + 4] - (double) bounds[o + 1];
+        final double dz = bounds[o + 5] - (double) bounds[o + 2];
+        if (!(dx >= 0) || !(dy >= 0) || !(dz >= 0)) {
+            return 0;
+        }
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    // Параметр входа луча в объём узла; +inf, если луч его не задевает ближе maxDistance
+    private double boxEntry(int node, double originX, double originY, double originZ,
+                            double invX, double invY, double invZ, double maxDistance) {
+        final int b = node * 6;
+        double near = 0, far = maxDistance;
+        double t1 = (nodeBounds[b] - originX) * invX, t2 = (nodeBounds[b + 3] - originX) * invX;
+        // NaN (луч в плоскости грани) не сужает интервал
+        if (Math.min(t1, t2) > near) near = Math.min(t1, t2);
+        if (Math.max(t1, t2) < far) far = Math.max(t1, t2);
+        t1 = (nodeBounds[b + 1] - originY) * invY;
+        t2 = (nodeBounds[b + 4] - originY) * invY;
+        if (Math.min(t1, t2) > near) near = Math.min(t1, t2);
+        if (Math.max(t1, t2) < far) far = Math.max(t1, t2);
+        t1 = (nodeBounds[b + 2] - originZ) * invZ;
+        t2 = (nodeBounds[b + 5] - originZ) * invZ;
+        if (Math.min(t1, t2) > near) near = Math.min(t1, t2);
+        if (Math.max(t1, t2) < far) far = Math.max(t1, t2);
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+
+    // Пересечение с треугольником t (Möller–Trumbore)
+    private boolean intersectTriangle(int t, double originX, double originY, double originZ,
+                                      double directionX, double directionY, double directionZ, RayHit hit) {
+        final int a = triangleVertices[t * 3] * 3;
+        final int b = triangleVertices[t * 3 + 1] * 3;
+        final int c = triangleVertices[t * 3 + 2] * 3;
+        final double ax = positions[a], ay = positions[a + 1], az = positions[a + 2];
+        final double e1x = positions[b] - ax, e1y = positions[b + 1] - ay, e1z = positions[b + 2] - az;
+        final double e2x = positions[c] - ax, e2y = positions[c + 1] - ay, e2z = positions[c + 2] - az;
+
+        final double px = directionY * e2z - directionZ * e2y;
+        final double py = directionZ * e2x - directionX * e2z;
+        final double pz = directionX * e2y - directionY * e2x;
+        final double determinant = e1x * px + e1y * py + e1z * pz;
+        if (determinant == 0 || !Double.isFinite(determinant)) {
+            return false; // Луч параллелен треугольнику или треугольник вырожден
+        }
+        final double inverse = 1.0 / determinant;
+        final double sx = originX - ax, sy = originY - ay, sz = originZ - az;
+        final double u = (sx * px + sy * py + sz * pz) * inverse;
+        if (u < 0 || u > 1) {
+            return false;
+        }
+        final double qx = sy * e1z - sz * e1y;
+        final double qy = sz * e1x - sx * e1z;
+        final double qz = sx * e1y - sy * e1x;
+        final double v = (directionX * qx + directionY * qy + directionZ * qz) * inverse;
+        if (v < 0 || u + v > 1) {
+            return false;
+        }
+        final double distance = (e2x * qx + e2y * qy + e2z * qz) * inverse;
+        if (!(distance >= 0) || !(distance < hit.getDistance())) {
+            return false;
+        }
+        hit.set(distance, trianglePolygons[t], triangleCorners[t],
+                triangleVertices[t * 3], triangleVertices[t * 3 + 1], triangleVertices[t * 3 + 2], u, v);
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.cgvsu.model;
+
+import java.util.Arrays;
+
+/**
+ * Уникальные рёбра сетки — пары номеров вершин — для отрисовки каркаса.
+ *
+ * Каждая сторона многоугольника (угол k -> угол k + 1) получает номер ребра; общая сторона
+ * соседних многоугольников — один номер. Пары ищутся в хэш-таблице с открытой адресацией
+ * по ключу long (меньшая вершина в старших битах), без объектов на ребро.
+ *
+ * Строится по {@link PackedMesh} и кэшируется вместе с ней ({@link PackedMesh#getEdges()}),
+ * поэтому пересобирается только после изменения геометрии.
+ */
+public final class MeshEdges {
+
+    private static final long EMPTY = -1L;
+
+    // Концы рёбер: (меньшая, большая вершина) подряд
+    private final int[] edgeVertices;
+    private final int edgeCount;
+    // Номер ребра для стороны, начинающейся в каждом углу сетки
+    private final int[] cornerEdges;
+
+    private MeshEdges(int[] edgeVertices, int edgeCount, int[] cornerEdges) {
+        this.edgeVertices = edgeVertices;
+        this.edgeCount = edgeCount;
+        this.cornerEdges = cornerEdges;
+    }
+
+    public static MeshEdges build(PackedMesh mesh) {
+        final int[] offsets = mesh.getPolygonOffsets();
+        final int[] indices = mesh.getVertexIndices();
+        final int polygonCount = mesh.getPolygonCount();
+        final int cornerCount = offsets[polygonCount];
+
+        // Таблица заполнена не больше чем наполовину: рёбер не больше, чем углов
+        int capacity = 16;
+        while (capacity < cornerCount * 2) {
+            capacity <<= 1;
+        }
+        final int mask = capacity - 1;
+        final long[] keys = new long[capacity];
+        final int[] values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+
+        final int[] cornerEdges = new int[cornerCount];
+        int[] edgeVertices = new int[Math.max(16, cornerCount)];
+        int edgeCount = 0;
+        for (int p = 0; p < polygonCount; p++) {
+            final int start = offsets[p];
+            final int end = offsets[p + 1];
+            for (int c = start; c < end; c++) {
+                final int a = indices[c];
+                final int b = indices[c + 1 < end ? c + 1 : start];
+                final int from = Math.min(a, b);
+                final int to = Math.max(a, b);
+                final long key = ((long) from << 32) | to;
+
+                int slot = hash(key) & mask;
+                while (keys[slot] != EMPTY && keys[slot] != key) {
+                    slot = (slot + 1) & mask;
+                }
+                if (keys[slot] == EMPTY) {
+                    keys[slot] = key;
+                    values[slot] = edgeCount;
+                    if (edgeCount * 2 + 2 > edgeVertices.length) {
+                        edgeVertices = Arrays.copyOf(edgeVertices, edgeVertices.length * 2);
+                    }
+                    edgeVertices[edgeCount * 2] = from;
+                    edgeVertices[edgeCount * 2 + 1] = to;
+                    edgeCount++;
+                }
+                cornerEdges[c] = values[slot];
+            }
+        }
+        return new MeshEdges(edgeVertices, edgeCount, cornerEdges);
+    }
+
+    // Перемешивание битов ключа (последовательные номера вершин иначе ложатся в соседние ячейки)
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /** Меньший номер вершины ребра. */
+    public int getEdgeStart(int edge) {
+        return edgeVertices[edge * 2];
+    }
+
+    /** Больший номер вершины ребра. */
+    public int getEdgeEnd(int edge) {
+        return edgeVertices[edge * 2 + 1];
+    }
+
+    /**
+     * Ребро стороны многоугольника от угла corner (номер в {@link PackedMesh#getVertexIndices()})
+     * к следующему углу того же многоугольника.
+     */
+    public int getCornerEdge(int corner) {
+        return cornerEdges[corner];
+    }
+}
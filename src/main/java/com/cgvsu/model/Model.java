@@ -4,171 +4,438 @@ import com.cgvsu.math.Vector3;
 
 import java.util.*;
 
+/**
+ * Модель хранит сетку в одном из двух видов.
+ *
+ * Загруженная и подготовленная модель владеет только {@link PackedMesh}: списки объектов
+ * (Vector3, Polygon) для неё не создаются, пока модель не начнут править. Поля {@link #vertices},
+ * {@link #textureVertices}, {@link #normals} и {@link #polygons} — представления сетки:
+ * чтение идёт прямо из неё, а первое изменение через них создаёт списки.
+ * После этого (или у модели, собранной через {@link #Model()}) основными становятся
+ * списки, а упакованная сетка — кэш для горячих циклов, как раньше.
+ *
+ * Элементы представлений — копии: объект, полученный через get, и объект, переданный в add/set,
+ * с моделью не связаны. Поэтому модель меняется только через методы списков и самой модели,
+ * и каждое такое изменение сбрасывает упакованную сетку вместе с её границами, BVH и рёбрами.
+ * Чтобы сдвинуть вершину, её нужно записать обратно: {@code vertices.set(i, moved)}.
+ *
+ * Операции над всей сеткой ({@link #removePolygons(BitSet, boolean)}, {@link #recalculateNormals()})
+ * работают с тем хранилищем, которое сейчас основное: у модели без списков — по массивам сетки.
+ */
 public class Model {
-    public ArrayList<Vector3> vertices = new ArrayList<>();
-    public ArrayList<Vector2> textureVertices = new ArrayList<>();
-    public ArrayList<Vector3> normals = new ArrayList<>();
-    public ArrayList<Polygon> polygons = new ArrayList<>();
+    public final List<Vector3> vertices = new ElementList<>() {
+        @Override
+        ArrayList<Vector3> items() {
+            return vertexItems;
+        }
+
+        @Override
+        int meshSize(PackedMesh mesh) {
+            return mesh.getVertexCount();
+        }
+
+        @Override
+        Vector3 meshElement(PackedMesh mesh, int index) {
+            return mesh.createVertex(index);
+        }
+
+        @Override
+        Vector3 copy(Vector3 element) {
+            return element != null ? new Vector3(element) : null;
+        }
+    };
+    public final List<Vector2> textureVertices = new ElementList<>() {
+        @Override
+        ArrayList<Vector2> items() {
+            return textureVertexItems;
+        }
+
+        @Override
+        int meshSize(PackedMesh mesh) {
+            return mesh.getTextureVertexCount();
+        }
+
+        @Override
+        Vector2 meshElement(PackedMesh mesh, int index) {
+            return mesh.createTextureVertex(index);
+        }
+
+        // Vector2 неизменяем: копировать нечего
+        @Override
+        Vector2 copy(Vector2 element) {
+            return element;
+        }
+    };
+    public final List<Vector3> normals = new ElementList<>() {
+        @Override
+        ArrayList<Vector3> items() {
+            return normalItems;
+        }
+
+        @Override
+        int meshSize(PackedMesh mesh) {
+            return mesh.getNormalCount();
+        }
+
+        @Override
+        Vector3 meshElement(PackedMesh mesh, int index) {
+            return mesh.createNormal(index);
+        }
+
+        @Override
+        Vector3 copy(Vector3 element) {
+            return element != null ? new Vector3(element) : null;
+        }
+    };
+    public final List<Polygon> polygons = new ElementList<>() {
+        @Override
+        ArrayList<Polygon> items() {
+            return polygonItems;
+        }
+
+        @Override
+        int meshSize(PackedMesh mesh) {
+            return mesh.getPolygonCount();
+        }
+
+        @Override
+        Polygon meshElement(PackedMesh mesh, int index) {
+            return mesh.createPolygon(index);
+        }
+
+        @Override
+        Polygon copy(Polygon element) {
+            return element != null ? new Polygon(element) : null;
+        }
+    };
 
-    public ArrayList<Vector3> getVertices() {
+    // Списки за полями-представлениями; null, пока модель хранится только упакованной сеткой
+    private ArrayList<Vector3> vertexItems;
+    private ArrayList<Vector2> textureVertexItems;
+    private ArrayList<Vector3> normalItems;
+    private ArrayList<Polygon> polygonItems;
+
+    // Основное хранилище, если списков нет, иначе — лениво собираемая копия
+    private PackedMesh packedMesh;
+
+    public Model() {
+        vertexItems = new ArrayList<>();
+        textureVertexItems = new ArrayList<>();
+        normalItems = new ArrayList<>();
+        polygonItems = new ArrayList<>();
+    }
+
+    /**
+     * Модель поверх упакованной сетки (без копирования и без объектных списков).
+     */
+    public Model(PackedMesh mesh) {
+        packedMesh = Objects.requireNonNull(mesh, "mesh");
+    }
+
+    /**
+     * Представление одного из списков модели. Без своих списков элементы читаются
+     * из упакованной сетки; изменение создаёт списки и сбрасывает кэши модели.
+     */
+    private abstract class ElementList<T> extends AbstractList<T> implements RandomAccess {
+
+        abstract ArrayList<T> items();
+
+        abstract int meshSize(PackedMesh mesh);
+
+        abstract T meshElement(PackedMesh mesh, int index);
+
+        abstract T copy(T element);
+
+        // Списки модели перед изменением; кэши сбрасываются заранее, до самой правки
+        private ArrayList<T> itemsForEdit() {
+            ensureObjectLists();
+            invalidateCaches();
+            return items();
+        }
+
+        @Override
+        public int size() {
+            ArrayList<T> items = items();
+            return items != null ? items.size() : meshSize(packedMesh);
+        }
+
+        @Override
+        public T get(int index) {
+            ArrayList<T> items = items();
+            if (items != null) {
+                return copy(items.get(index));
+            }
+            return meshElement(packedMesh, Objects.checkIndex(index, meshSize(packedMesh)));
+        }
+
+        @Override
+        public T set(int index, T element) {
+            return itemsForEdit().set(index, copy(element));
+        }
+
+        @Override
+        public void add(int index, T element) {
+            itemsForEdit().add(index, copy(element));
+            modCount++;
+        }
+
+        @Override
+        public T remove(int index) {
+            T removed = itemsForEdit().remove(index);
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            itemsForEdit().subList(fromIndex, toIndex).clear();
+            modCount++;
+        }
+    }
+
+    /**
+     * Компактное представление модели. Кэшируется и пересобирается после любого изменения
+     * через списки или методы модели.
+     */
+    public PackedMesh getPackedMesh() {
+        PackedMesh cached = packedMesh;
+        if (cached == null) {
+            cached = PackedMesh.fromModel(this);
+            packedMesh = cached;
+        }
+        return cached;
+    }
+
+    // true, если у модели есть списки объектов (созданы при сборке или по запросу)
+    public boolean hasObjectLists() {
+        return vertexItems != null;
+    }
+
+    /**
+     * Ограничивающие объёмы модели. Кэшируются вместе с {@link #getPackedMesh()}
+     * и так же пересчитываются после изменения геометрии.
+     */
+    public BoundingVolume getBounds() {
+        return getPackedMesh().getBounds();
+    }
+
+    /**
+     * BVH для выбора объектов и полигонов лучом. Кэшируется вместе с {@link #getPackedMesh()}.
+     */
+    public MeshBvh getBvh() {
+        return getPackedMesh().getBvh();
+    }
+
+    // Изменения через списки и методы модели сбрасывают кэши сами
+    public void invalidateCaches() {
+        // Без списков упакованная сетка — единственная копия данных
+        if (vertexItems != null) {
+            packedMesh = null;
+        }
+    }
+
+    // Число элементов без создания списков
+    public int getVertexCount() {
+        return vertices.size();
+    }
+
+    public int getTextureVertexCount() {
+        return textureVertices.size();
+    }
+
+    public int getNormalCount() {
+        return normals.size();
+    }
+
+    public int getPolygonCount() {
+        return polygons.size();
+    }
+
+    // Списки создаются из упакованной сетки при первом изменении
+    private void ensureObjectLists() {
+        if (vertexItems != null) {
+            return;
+        }
+        PackedMesh mesh = packedMesh;
+        vertexItems = mesh.createVertexList();
+        textureVertexItems = mesh.createTextureVertexList();
+        normalItems = mesh.createNormalList();
+        polygonItems = mesh.createPolygonList();
+    }
+
+    // Упакованная сетка становится единственным хранилищем, списки сбрасываются
+    private void replaceMesh(PackedMesh mesh) {
+        vertexItems = null;
+        textureVertexItems = null;
+        normalItems = null;
+        polygonItems = null;
+        packedMesh = mesh;
+    }
+
+    public List<Vector3> getVertices() {
         return vertices;
     }
 
-    public void setVertices(ArrayList<Vector3> vertices) {
-        this.vertices = vertices;
+    public void setVertices(List<Vector3> vertices) {
+        replaceContents(this.vertices, vertices);
     }
 
-    public ArrayList<Vector2> getTextureVertices() {
+    public List<Vector2> getTextureVertices() {
         return textureVertices;
     }
 
-    public void setTextureVertices(ArrayList<Vector2> textureVertices) {
-        this.textureVertices = textureVertices;
+    public void setTextureVertices(List<Vector2> textureVertices) {
+        replaceContents(this.textureVertices, textureVertices);
     }
 
-    public ArrayList<Vector3> getNormals() {
+    public List<Vector3> getNormals() {
         return normals;
     }
 
-    public void setNormals(ArrayList<Vector3> normals) {
-        this.normals = normals;
+    public void setNormals(List<Vector3> normals) {
+        replaceContents(this.normals, normals);
     }
 
-    public ArrayList<Polygon> getPolygons() {
+    public List<Polygon> getPolygons() {
         return polygons;
     }
 
-    public void setPolygons(ArrayList<Polygon> polygons) {
-        this.polygons = polygons;
+    public void setPolygons(List<Polygon> polygons) {
+        replaceContents(this.polygons, polygons);
+    }
+
+    // Элементы копируются тем же представлением, что и при add; снимок source нужен,
+    // если передано само представление
+    private static <T> void replaceContents(List<T> view, List<T> source) {
+        List<T> snapshot = new ArrayList<>(source);
+        view.clear();
+        view.addAll(snapshot);
+    }
+
+    // Свои списки модели без копирования элементов (для PackedMesh.fromModel)
+    List<Vector3> getVertexItems() {
+        ensureObjectLists();
+        return vertexItems;
+    }
+
+    List<Vector2> getTextureVertexItems() {
+        ensureObjectLists();
+        return textureVertexItems;
+    }
+
+    List<Vector3> getNormalItems() {
+        ensureObjectLists();
+        return normalItems;
+    }
+
+    List<Polygon> getPolygonItems() {
+        ensureObjectLists();
+        return polygonItems;
     }
 
     /// Методы для удаления полигонов, вершин, нормалей и текстурных вершин
 
-    public void removePolygons(ArrayList<Integer> polygonIndices, ArrayList<Vector3> vertices,
-                               ArrayList<Vector2> textureVertices, ArrayList<Vector3> normals,
-                               ArrayList<Polygon> polygons, boolean removeVertices) {
-        boolean[] checkIdxVertices = new boolean[vertices.size()];
-        boolean[] checkIdxTexture = new boolean[textureVertices.size()];
-        boolean[] checkIdxNormals = new boolean[normals.size()];
-        Arrays.fill(checkIdxVertices, true);
-        Arrays.fill(checkIdxTexture, true);
-        Arrays.fill(checkIdxNormals, true);
-        ArrayList<Polygon> polygonResult = new ArrayList<>();
-
-        for (int i = 0; i < polygons.size(); i++) {
-            Polygon original = polygons.get(i);
-            if (!polygonIndices.contains(i + 1)) {
-                for (int idx : original.getVertexIndices()) {
-                    checkIdxVertices[idx] = false;
-                }
-                for (int idx : original.getTextureVertexIndices()) {
-                    checkIdxTexture[idx] = false;
-                }
-                for (int idx : original.getNormalIndices()) {
-                    checkIdxNormals[idx] = false;
-                }
-                polygonResult.add(original);
-            }
+    /**
+     * Удаляет полигоны с номерами из removed (с нуля) за один линейный проход —
+     * по спискам или, если их нет, по массивам упакованной сетки.
+     *
+     * При removeVertices из модели удаляются и вершины, текстурные вершины и нормали,
+     * на которые не ссылается ни один оставшийся полигон; индексы полигонов пересчитываются.
+     */
+    public void removePolygons(BitSet removed, boolean removeVertices) {
+        if (vertexItems == null) {
+            replaceMesh(packedMesh.withoutPolygons(removed, removeVertices));
+            return;
         }
 
+        // Списки правятся на месте: оставшиеся объекты Polygon сохраняются
+        ArrayList<Polygon> polygonResult = new ArrayList<>(polygonItems.size());
+        for (int i = 0; i < polygonItems.size(); i++) {
+            if (!removed.get(i)) {
+                polygonResult.add(polygonItems.get(i));
+            }
+        }
 
         if (removeVertices) {
-            ArrayList<Integer> offsetVertices = createRemoveListVertices(checkIdxVertices);
-            ArrayList<Integer> offsetTexture = createRemoveListTexture(checkIdxTexture);
-            ArrayList<Integer> offsetNormals = createRemoveListNormals(checkIdxNormals);
+            // Отмечаем используемые элементы, сдвигаем их к началу списков и перенумеровываем ссылки
+            int[] vertexMap = new int[vertexItems.size()];
+            int[] textureMap = new int[textureVertexItems.size()];
+            int[] normalMap = new int[normalItems.size()];
             for (Polygon polygon : polygonResult) {
-                ArrayList<Integer> newVertexIndexes = new ArrayList<>();
-                ArrayList<Integer> newTextureIndexes = new ArrayList<>();
-                ArrayList<Integer> newNormalsIndexes = new ArrayList<>();
-                for (int vertexIdx : polygon.getVertexIndices()) {
-                    int c = offsetVertices.get(vertexIdx);
-                    int idx = vertexIdx + c;
-                    newVertexIndexes.add(idx);
-                }
-                for (int vertexIdx : polygon.getTextureVertexIndices()) {
-                    int c = offsetTexture.get(vertexIdx);
-                    int idx = vertexIdx + c;
-                    newTextureIndexes.add(idx);
-                }
-                for (int vertexIdx : polygon.getNormalIndices()) {
-                    int c = offsetNormals.get(vertexIdx);
-                    int idx = vertexIdx + c;
-                    newNormalsIndexes.add(idx);
+                markUsed(polygon.getVertexIndices(), vertexMap);
+                markUsed(polygon.getTextureVertexIndices(), textureMap);
+                markUsed(polygon.getNormalIndices(), normalMap);
+            }
+            // Если ничего не удалено, номера не меняются и ссылки можно не трогать
+            boolean remapVertices = compactUsed(vertexItems, vertexMap);
+            boolean remapTexture = compactUsed(textureVertexItems, textureMap);
+            boolean remapNormals = compactUsed(normalItems, normalMap);
+            if (remapVertices || remapTexture || remapNormals) {
+                for (Polygon polygon : polygonResult) {
+                    if (remapVertices) remap(polygon.getVertexIndices(), vertexMap);
+                    if (remapTexture) remap(polygon.getTextureVertexIndices(), textureMap);
+                    if (remapNormals) remap(polygon.getNormalIndices(), normalMap);
                 }
-                polygon.setVertexIndices(newVertexIndexes);
-                polygon.setTextureVertexIndices(newTextureIndexes);
-                polygon.setNormalIndices(newNormalsIndexes);
             }
         }
-        setPolygons(polygonResult);
+        polygonItems = polygonResult;
+        invalidateCaches();
     }
 
-    // удаление вершин
-    private ArrayList<Integer> createRemoveListVertices(boolean[] checkIdx) {
-        ArrayList<Integer> offset = new ArrayList<>();
-        ArrayList<Vector3> newVertices = new ArrayList<>();
-        int c = 0;
-        for (int i = 0; i < checkIdx.length; i++) {
-            boolean value = checkIdx[i];
-            if (value) {
-                c--;
-            } else {
-                newVertices.add(vertices.get(i));
-            }
-            offset.add(c);
+    private static void markUsed(ArrayList<Integer> indices, int[] map) {
+        for (int i = 0; i < indices.size(); i++) {
+            map[indices.get(i)] = 1;
         }
-        setVertices(newVertices);
-        return offset;
     }
 
-    // удаление текстурных вершин
-    private ArrayList<Integer> createRemoveListTexture(boolean[] checkIdx) {
-        ArrayList<Integer> offset = new ArrayList<>();
-        ArrayList<Vector2> newTexture = new ArrayList<>();
-        int c = 0;
-        for (int i = 0; i < checkIdx.length; i++) {
-            boolean value = checkIdx[i];
-            if (value) {
-                c--;
+    // Оставляет в списке только отмеченные элементы; map[i] становится новым номером элемента i.
+    // Возвращает true, если какие-то элементы удалены
+    private static <T> boolean compactUsed(ArrayList<T> items, int[] map) {
+        int count = 0;
+        for (int i = 0; i < map.length; i++) {
+            if (map[i] != 0) {
+                items.set(count, items.get(i));
+                map[i] = count++;
             } else {
-                newTexture.add(textureVertices.get(i));
+                map[i] = -1;
             }
-            offset.add(c);
         }
-        setTextureVertices(newTexture);
-        return offset;
+        if (count == items.size()) {
+            return false;
+        }
+        items.subList(count, items.size()).clear();
+        return true;
     }
 
-    // удаление нормалей
-    private ArrayList<Integer> createRemoveListNormals(boolean[] checkIdx) {
-        ArrayList<Integer> offset = new ArrayList<>();
-        ArrayList<Vector3> newNormals = new ArrayList<>();
-        int c = 0;
-        for (int i = 0; i < checkIdx.length; i++) {
-            boolean value = checkIdx[i];
-            if (value) {
-                c--;
-            } else {
-                newNormals.add(normals.get(i));
-            }
-            offset.add(c);
+    private static void remap(ArrayList<Integer> indices, int[] map) {
+        for (int i = 0; i < indices.size(); i++) {
+            indices.set(i, map[indices.get(i)]);
         }
-        setNormals(newNormals);
-        return offset;
     }
 
-    /** Вычисление нормалей **/
+    /**
+     * Вычисление нормалей: нормаль вершины — нормированная сумма нормалей её полигонов,
+     * индексы нормалей полигонов совпадают с индексами вершин.
+     */
     public void recalculateNormals() {
-        normals.clear();
-
-        // Инициализируем список нормалей для вершин
-        ArrayList<Vector3> vertexNormals = new ArrayList<>();
-        for (int i = 0; i < vertices.size(); i++) {
-            vertexNormals.add(new Vector3(0, 0, 0));
+        if (vertexItems == null) {
+            replaceMesh(packedMesh.withVertexNormals());
+            return;
         }
 
+        // Списки правятся на месте
+        normalItems.clear();
+
+        // Суммы нормалей полигонов для каждой вершины (x, y, z подряд)
+        final float[] vertexNormals = new float[vertexItems.size() * 3];
+
+        // Промежуточные векторы переиспользуются для всех полигонов
+        final Vector3 edge1 = new Vector3(0, 0, 0);
+        final Vector3 edge2 = new Vector3(0, 0, 0);
+        final Vector3 polygonNormal = new Vector3(0, 0, 0);
+
         // Вычисляем нормали для каждого полигона и добавляем к вершинам
-        for (Polygon polygon : polygons) {
+        for (Polygon polygon : polygonItems) {
             List<Integer> vertexIndices = polygon.getVertexIndices();
 
             if (vertexIndices.size() < 3) {
@@ -176,48 +443,47 @@ public class Model {
             }
 
             // Вычисляем нормаль полигона через векторное произведение
-            Vector3 polygonNormal = calculatePolygonNormal(polygon);
+            calculatePolygonNormal(vertexIndices, edge1, edge2, polygonNormal);
 
             // Добавляем нормаль полигона ко всем его вершинам
-            for (Integer vertexIndex : vertexIndices) {
-                Vector3 currentNormal = vertexNormals.get(vertexIndex);
-                vertexNormals.set(vertexIndex, currentNormal.add(polygonNormal));
+            for (int i = 0; i < vertexIndices.size(); i++) {
+                final int offset = vertexIndices.get(i) * 3;
+                vertexNormals[offset] += polygonNormal.x;
+                vertexNormals[offset + 1] += polygonNormal.y;
+                vertexNormals[offset + 2] += polygonNormal.z;
             }
         }
 
         // Нормализуем все нормали вершин
-        for (Vector3 normal : vertexNormals) {
-            normals.add(normal.normalized());
+        normalItems.ensureCapacity(vertexItems.size());
+        for (int offset = 0; offset < vertexNormals.length; offset += 3) {
+            polygonNormal.set(vertexNormals[offset], vertexNormals[offset + 1], vertexNormals[offset + 2]);
+            normalItems.add(Vector3.normalize(polygonNormal, new Vector3(0, 0, 0)));
         }
 
         // Обновляем индексы нормалей в полигонах
-        for (Polygon polygon : polygons) {
+        for (Polygon polygon : polygonItems) {
             ArrayList<Integer> normalIndices = new ArrayList<>();
             for (Integer vertexIndex : polygon.getVertexIndices()) {
                 normalIndices.add(vertexIndex); // Теперь нормаль вершины = индекс вершины
             }
             polygon.setNormalIndices(normalIndices); // обновляем ссылки в полигонах
         }
+        invalidateCaches();
     }
 
-    // Вычисление нормали полигона через векторное произведение
-    private Vector3 calculatePolygonNormal(Polygon polygon) {
-        List<Integer> vertexIndices = polygon.getVertexIndices();
-
-        if (vertexIndices.size() < 3) {
-            return new Vector3(0, 0, 0);
-        }
-
+    // Вычисление нормали полигона через векторное произведение (результат в dest)
+    private void calculatePolygonNormal(List<Integer> vertexIndices, Vector3 edge1, Vector3 edge2, Vector3 dest) {
         // Берем первые три вершины для вычисления нормали
-        Vector3 v0 = vertices.get(vertexIndices.get(0));
-        Vector3 v1 = vertices.get(vertexIndices.get(1));
-        Vector3 v2 = vertices.get(vertexIndices.get(2));
+        Vector3 v0 = vertexItems.get(vertexIndices.get(0));
+        Vector3 v1 = vertexItems.get(vertexIndices.get(1));
+        Vector3 v2 = vertexItems.get(vertexIndices.get(2));
 
         // Вычисляем векторы сторон
-        Vector3 edge1 = v1.subtract(v0);
-        Vector3 edge2 = v2.subtract(v0);
+        Vector3.subtract(v1, v0, edge1);
+        Vector3.subtract(v2, v0, edge2);
 
         // Векторное произведение дает нормаль
-        return edge1.cross(edge2).normalized();
+        Vector3.normalize(Vector3.cross(edge1, edge2, dest), dest);
     }
 }
\ No newline at end of file
@@ -1,13 +1,18 @@
 package com.cgvsu.model;
 
-import com.cgvsu.triangulation.Triangulator;
-
 public final class ModelPreparationUtils {
 
     private ModelPreparationUtils() {}
 
     public static TriangulatedModel prepare(final Model raw) {
-        TriangulatedModel triangulated = Triangulator.triangulate(raw);
+        return prepare(raw.getPackedMesh());
+    }
+
+    /**
+     * Триангуляция и пересчёт нормалей прямо по массивам сетки, без объектных списков.
+     */
+    public static TriangulatedModel prepare(final PackedMesh raw) {
+        TriangulatedModel triangulated = new TriangulatedModel(raw);
         triangulated.recalculateNormals();
         return triangulated;
     }
@@ -0,0 +1,628 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector2;
+import com.cgvsu.math.Vector3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Компактная сетка в виде структуры массивов.
+ *
+ * Координаты лежат подряд во float[] (x, y, z / u, v), индексы углов всех полигонов —
+ * в общих int[], а таблица polygonOffsets хранит начало каждого полигона:
+ * углы полигона p занимают [polygonOffsets[p], polygonOffsets[p + 1]).
+ * Индексы начинаются с нуля, как в {@link Model}.
+ *
+ * Если у полигона нет текстурных координат или нормалей (или их число не совпадает
+ * с числом вершин), соответствующие индексы всех его углов равны {@link #NO_INDEX}.
+ *
+ * Массивы отдаются без копирования и не должны изменяться снаружи.
+ */
+public final class PackedMesh {
+
+    public static final int NO_INDEX = -1;
+
+    private final float[] positions;
+    private final float[] textureCoordinates;
+    private final float[] normals;
+    private final int[] polygonOffsets;
+    private final int[] vertexIndices;
+    private final int[] textureVertexIndices;
+    private final int[] normalIndices;
+    private final boolean triangulated;
+    // Ограничивающие объёмы: считаются при первом запросе (сетка неизменяема, гонка безвредна)
+    private BoundingVolume bounds;
+    // Иерархия для выбора лучом: строится в фоне (prepareBvh) или при первом запросе
+    private volatile MeshBvh bvh;
+    private final AtomicBoolean bvhScheduled = new AtomicBoolean();
+    // Уникальные рёбра для каркаса
+    private MeshEdges edges;
+
+    private PackedMesh(float[] positions, float[] textureCoordinates, float[] normals,
+                       int[] polygonOffsets, int[] vertexIndices,
+                       int[] textureVertexIndices, int[] normalIndices) {
+        this.positions = positions;
+        this.textureCoordinates = textureCoordinates;
+        this.normals = normals;
+        this.polygonOffsets = polygonOffsets;
+        this.vertexIndices = vertexIndices;
+        this.textureVertexIndices = textureVertexIndices;
+        this.normalIndices = normalIndices;
+
+        boolean allTriangles = true;
+        for (int p = 0; p + 1 < polygonOffsets.length; p++) {
+            if (polygonOffsets[p + 1] - polygonOffsets[p] != 3) {
+                allTriangles = false;
+                break;
+            }
+        }
+        this.triangulated = allTriangles;
+    }
+
+    /**
+     * Сетка из готовых массивов (без копирования). Массивы должны быть согласованы:
+     * polygonOffsets начинается с нуля и заканчивается длиной массивов индексов.
+     */
+    public static PackedMesh fromArrays(float[] positions, float[] textureCoordinates, float[] normals,
+                                        int[] polygonOffsets, int[] vertexIndices,
+                                        int[] textureVertexIndices, int[] normalIndices) {
+        if (polygonOffsets.length == 0 || polygonOffsets[0] != 0
+                || polygonOffsets[polygonOffsets.length - 1] != vertexIndices.length
+                || textureVertexIndices.length != vertexIndices.length
+                || normalIndices.length != vertexIndices.length) {
+            throw new IllegalArgumentException("Inconsistent polygon arrays");
+        }
+        return new PackedMesh(positions, textureCoordinates, normals,
+                polygonOffsets, vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    public static PackedMesh fromModel(Model model) {
+        if (!model.hasObjectLists()) {
+            return model.getPackedMesh();
+        }
+        // Свои списки модели, без копирования элементов
+        List<Vector3> modelVertices = model.getVertexItems();
+        List<Vector2> modelTextureVertices = model.getTextureVertexItems();
+        List<Vector3> modelNormals = model.getNormalItems();
+        List<Polygon> modelPolygons = model.getPolygonItems();
+
+        float[] positions = new float[modelVertices.size() * 3];
+        for (int i = 0; i < modelVertices.size(); i++) {
+            Vector3 v = modelVertices.get(i);
+            positions[i * 3] = v.x;
+            positions[i * 3 + 1] = v.y;
+            positions[i * 3 + 2] = v.z;
+        }
+
+        float[] textureCoordinates = new float[modelTextureVertices.size() * 2];
+        for (int i = 0; i < modelTextureVertices.size(); i++) {
+            Vector2 vt = modelTextureVertices.get(i);
+            textureCoordinates[i * 2] = vt.x;
+            textureCoordinates[i * 2 + 1] = vt.y;
+        }
+
+        float[] normals = new float[modelNormals.size() * 3];
+        for (int i = 0; i < modelNormals.size(); i++) {
+            Vector3 n = modelNormals.get(i);
+            normals[i * 3] = n.x;
+            normals[i * 3 + 1] = n.y;
+            normals[i * 3 + 2] = n.z;
+        }
+
+        int cornerCount = 0;
+        for (Polygon polygon : modelPolygons) {
+            cornerCount += polygon.getVertexIndices().size();
+        }
+
+        int[] polygonOffsets = new int[modelPolygons.size() + 1];
+        int[] vertexIndices = new int[cornerCount];
+        int[] textureVertexIndices = new int[cornerCount];
+        int[] normalIndices = new int[cornerCount];
+
+        int corner = 0;
+        for (int p = 0; p < modelPolygons.size(); p++) {
+            Polygon polygon = modelPolygons.get(p);
+            ArrayList<Integer> polygonVertices = polygon.getVertexIndices();
+            ArrayList<Integer> polygonTextureVertices = polygon.getTextureVertexIndices();
+            ArrayList<Integer> polygonNormals = polygon.getNormalIndices();
+            int size = polygonVertices.size();
+            boolean hasTexture = polygonTextureVertices.size() == size;
+            boolean hasNormals = polygonNormals.size() == size;
+
+            polygonOffsets[p] = corner;
+            for (int j = 0; j < size; j++, corner++) {
+                vertexIndices[corner] = polygonVertices.get(j);
+                textureVertexIndices[corner] = hasTexture ? polygonTextureVertices.get(j) : NO_INDEX;
+                normalIndices[corner] = hasNormals ? polygonNormals.get(j) : NO_INDEX;
+            }
+        }
+        polygonOffsets[modelPolygons.size()] = corner;
+
+        return new PackedMesh(positions, textureCoordinates, normals,
+                polygonOffsets, vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    /**
+     * Сетка с теми же массивами координат, но другими полигонами (например, после триангуляции).
+     */
+    public PackedMesh withPolygons(int[] polygonOffsets, int[] vertexIndices,
+                                   int[] textureVertexIndices, int[] normalIndices) {
+        return new PackedMesh(positions, textureCoordinates, normals,
+                polygonOffsets, vertexIndices, textureVertexIndices, normalIndices);
+    }
+
+    /**
+     * Модель, которая хранит эту сетку без копирования; объектные списки создаются только по запросу.
+     */
+    public Model toModel() {
+        return new Model(this);
+    }
+
+    // Элементы сетки в виде новых объектов модели (для представлений списков Model)
+
+    Vector3 createVertex(int index) {
+        return new Vector3(positions[index * 3], positions[index * 3 + 1], positions[index * 3 + 2]);
+    }
+
+    Vector2 createTextureVertex(int index) {
+        return new Vector2(textureCoordinates[index * 2], textureCoordinates[index * 2 + 1]);
+    }
+
+    Vector3 createNormal(int index) {
+        return new Vector3(normals[index * 3], normals[index * 3 + 1], normals[index * 3 + 2]);
+    }
+
+    Polygon createPolygon(int index) {
+        int start = polygonOffsets[index];
+        int end = polygonOffsets[index + 1];
+        ArrayList<Integer> polygonVertices = new ArrayList<>(end - start);
+        ArrayList<Integer> polygonTextureVertices = new ArrayList<>();
+        ArrayList<Integer> polygonNormals = new ArrayList<>();
+        for (int c = start; c < end; c++) {
+            polygonVertices.add(vertexIndices[c]);
+            if (textureVertexIndices[c] != NO_INDEX) {
+                polygonTextureVertices.add(textureVertexIndices[c]);
+            }
+            if (normalIndices[c] != NO_INDEX) {
+                polygonNormals.add(normalIndices[c]);
+            }
+        }
+        Polygon polygon = new Polygon();
+        polygon.setVertexIndices(polygonVertices);
+        if (!polygonTextureVertices.isEmpty()) {
+            polygon.setTextureVertexIndices(polygonTextureVertices);
+        }
+        if (!polygonNormals.isEmpty()) {
+            polygon.setNormalIndices(polygonNormals);
+        }
+        return polygon;
+    }
+
+    ArrayList<Vector3> createVertexList() {
+        ArrayList<Vector3> result = new ArrayList<>(getVertexCount());
+        for (int i = 0; i < getVertexCount(); i++) {
+            result.add(createVertex(i));
+        }
+        return result;
+    }
+
+    ArrayList<Vector2> createTextureVertexList() {
+        ArrayList<Vector2> result = new ArrayList<>(getTextureVertexCount());
+        for (int i = 0; i < getTextureVertexCount(); i++) {
+            result.add(createTextureVertex(i));
+        }
+        return result;
+    }
+
+    ArrayList<Vector3> createNormalList() {
+        ArrayList<Vector3> result = new ArrayList<>(getNormalCount());
+        for (int i = 0; i < getNormalCount(); i++) {
+            result.add(createNormal(i));
+        }
+        return result;
+    }
+
+    ArrayList<Polygon> createPolygonList() {
+        ArrayList<Polygon> result = new ArrayList<>(getPolygonCount());
+        for (int p = 0; p < getPolygonCount(); p++) {
+            result.add(createPolygon(p));
+        }
+        return result;
+    }
+
+    /**
+     * Сетка без полигонов с номерами из removed. При removeVertices удаляются и координаты,
+     * на которые не ссылается ни один оставшийся полигон; индексы перенумеровываются.
+     */
+    public PackedMesh withoutPolygons(BitSet removed, boolean removeVertices) {
+        int keptPolygons = 0;
+        int keptCorners = 0;
+        for (int p = 0; p < getPolygonCount(); p++) {
+            if (!removed.get(p)) {
+                keptPolygons++;
+                keptCorners += getPolygonSize(p);
+            }
+        }
+
+        final int[] newOffsets = new int[keptPolygons + 1];
+        final int[] newVertexIndices = new int[keptCorners];
+        final int[] newTextureVertexIndices = new int[keptCorners];
+        final int[] newNormalIndices = new int[keptCorners];
+        int polygon = 0;
+        int corner = 0;
+        for (int p = 0; p < getPolygonCount(); p++) {
+            if (removed.get(p)) {
+                continue;
+            }
+            final int start = polygonOffsets[p];
+            final int size = getPolygonSize(p);
+            newOffsets[polygon++] = corner;
+            System.arraycopy(vertexIndices, start, newVertexIndices, corner, size);
+            System.arraycopy(textureVertexIndices, start, newTextureVertexIndices, corner, size);
+            System.arraycopy(normalIndices, start, newNormalIndices, corner, size);
+            corner += size;
+        }
+        newOffsets[keptPolygons] = corner;
+
+        if (!removeVertices) {
+            return new PackedMesh(positions, textureCoordinates, normals,
+                    newOffsets, newVertexIndices, newTextureVertexIndices, newNormalIndices);
+        }
+        // Отмечаем используемые элементы, сдвигаем их к началу массивов и перенумеровываем ссылки;
+        // если ничего не удалено, массив координат остаётся прежним
+        return new PackedMesh(
+                compactUsed(positions, 3, newVertexIndices),
+                compactUsed(textureCoordinates, 2, newTextureVertexIndices),
+                compactUsed(normals, 3, newNormalIndices),
+                newOffsets, newVertexIndices, newTextureVertexIndices, newNormalIndices);
+    }
+
+    // Оставляет элементы (по stride чисел), на которые ссылается indices, и пересчитывает indices
+    private static float[] compactUsed(float[] items, int stride, int[] indices) {
+        final int[] map = new int[items.length / stride];
+        for (int index : indices) {
+            if (index != NO_INDEX) {
+                map[index] = 1;
+            }
+        }
+        int count = 0;
+        for (int i = 0; i < map.length; i++) {
+            map[i] = map[i] != 0 ? count++ : NO_INDEX;
+        }
+        if (count == map.length) {
+            return items;
+        }
+        final float[] result = new float[count * stride];
+        for (int i = 0; i < map.length; i++) {
+            if (map[i] != NO_INDEX) {
+                System.arraycopy(items, i * stride, result, map[i] * stride, stride);
+            }
+        }
+        for (int c = 0; c < indices.length; c++) {
+            if (indices[c] != NO_INDEX) {
+                indices[c] = map[indices[c]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Сетка с нормалями вершин: нормаль вершины — нормированная сумма нормалей полигонов,
+     * в которые она входит (нормаль полигона — по первым трём вершинам).
+     * Индексы нормалей совпадают с индексами вершин.
+     */
+    public PackedMesh withVertexNormals() {
+        final float[] vertexNormals = new float[positions.length];
+
+        for (int p = 0; p < getPolygonCount(); p++) {
+            final int start = polygonOffsets[p];
+            final int end = polygonOffsets[p + 1];
+            if (end - start < 3) {
+                continue; // Пропускаем полигоны с менее чем 3 вершинами
+            }
+
+            // Нормаль полигона через векторное произведение сторон
+            final int i0 = vertexIndices[start] * 3;
+            final int i1 = vertexIndices[start + 1] * 3;
+            final int i2 = vertexIndices[start + 2] * 3;
+            final float e1x = positions[i1] - positions[i0];
+            final float e1y = positions[i1 + 1] - positions[i0 + 1];
+            final float e1z = positions[i1 + 2] - positions[i0 + 2];
+            final float e2x = positions[i2] - positions[i0];
+            final float e2y = positions[i2 + 1] - positions[i0 + 1];
+            final float e2z = positions[i2 + 2] - positions[i0 + 2];
+            float nx = e1y * e2z - e1z * e2y;
+            float ny = e1z * e2x - e1x * e2z;
+            float nz = e1x * e2y - e1y * e2x;
+            final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                nx = 0;
+                ny = 0;
+                nz = 0;
+            } else {
+                nx /= length;
+                ny /= length;
+                nz /= length;
+            }
+
+            // Добавляем нормаль полигона ко всем его вершинам
+            for (int c = start; c < end; c++) {
+                final int offset = vertexIndices[c] * 3;
+                vertexNormals[offset] += nx;
+                vertexNormals[offset + 1] += ny;
+                vertexNormals[offset + 2] += nz;
+            }
+        }
+
+        // Нормализуем суммы (нулевая сумма остаётся нулевой, как у Vector3.normalize)
+        for (int offset = 0; offset < vertexNormals.length; offset += 3) {
+            final float x = vertexNormals[offset];
+            final float y = vertexNormals[offset + 1];
+            final float z = vertexNormals[offset + 2];
+            final float length = (float) Math.sqrt(x * x + y * y + z * z);
+            if (length != 0) {
+                vertexNormals[offset] = x / length;
+                vertexNormals[offset + 1] = y / length;
+                vertexNormals[offset + 2] = z / length;
+            }
+        }
+
+        // Массивы неизменяемы, поэтому индексы вершин служат и индексами нормалей
+        return new PackedMesh(positions, textureCoordinates, vertexNormals,
+                polygonOffsets, vertexIndices, textureVertexIndices, vertexIndices);
+    }
+
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    public int getTextureVertexCount() {
+        return textureCoordinates.length / 2;
+    }
+
+    public int getNormalCount() {
+        return normals.length / 3;
+    }
+
+    public int getPolygonCount() {
+        return polygonOffsets.length - 1;
+    }
+
+    public int getCornerCount() {
+        return vertexIndices.length;
+    }
+
+    public int getPolygonStart(int polygon) {
+        return polygonOffsets[polygon];
+    }
+
+    public int getPolygonSize(int polygon) {
+        return polygonOffsets[polygon + 1] - polygonOffsets[polygon];
+    }
+
+    public boolean hasTextureVertices(int polygon) {
+        return getPolygonSize(polygon) > 0 && textureVertexIndices[polygonOffsets[polygon]] != NO_INDEX;
+    }
+
+    public boolean hasNormals(int polygon) {
+        return getPolygonSize(polygon) > 0 && normalIndices[polygonOffsets[polygon]] != NO_INDEX;
+    }
+
+    // true, если все полигоны — треугольники
+    public boolean isTriangulated() {
+        return triangulated;
+    }
+
+    /**
+     * AABB и ограничивающая сфера позиций (в координатах модели).
+     */
+    public BoundingVolume getBounds() {
+        BoundingVolume cached = bounds;
+        if (cached == null) {
+            cached = BoundingVolume.fromPositions(positions, getVertexCount());
+            bounds = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * BVH треугольников сетки для пересечения с лучом (в координатах модели).
+     * Если она ещё не построена, строится в вызывающем потоке; для потока интерфейса —
+     * {@link #prepareBvh()} и {@link #getBvhIfReady()}.
+     */
+    public MeshBvh getBvh() {
+        MeshBvh cached = bvh;
+        if (cached == null) {
+            cached = MeshBvh.build(this);
+            bvh = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * BVH, если она уже построена, иначе null. Не блокирует.
+     */
+    public MeshBvh getBvhIfReady() {
+        return bvh;
+    }
+
+    /**
+     * Запускает построение BVH в фоновом потоке (один раз на сетку), чтобы выбор лучом
+     * не строил её в потоке интерфейса при первом движении мыши.
+     */
+    public void prepareBvh() {
+        if (bvh == null && bvhScheduled.compareAndSet(false, true)) {
+            ForkJoinPool.commonPool().execute(this::getBvh);
+        }
+    }
+
+    /**
+     * Уникальные рёбра сетки для каркаса.
+     */
+    public MeshEdges getEdges() {
+        MeshEdges cached = edges;
+        if (cached == null) {
+            cached = MeshEdges.build(this);
+            edges = cached;
+        }
+        return cached;
+    }
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getTextureCoordinates() {
+        return textureCoordinates;
+    }
+
+    public float[] getNormals() {
+        return normals;
+    }
+
+    public int[] getPolygonOffsets() {
+        return polygonOffsets;
+    }
+
+    public int[] getVertexIndices() {
+        return vertexIndices;
+    }
+
+    public int[] getTextureVertexIndices() {
+        return textureVertexIndices;
+    }
+
+    public int[] getNormalIndices() {
+        return normalIndices;
+    }
+
+    /**
+     * Примерный объём данных сетки в байтах (без заголовков массивов).
+     */
+    public long getDataSizeBytes() {
+        return 4L * (positions.length + textureCoordinates.length + normals.length
+                + polygonOffsets.length + vertexIndices.length
+                + textureVertexIndices.length + normalIndices.length);
+    }
+
+    /**
+     * Пошаговая сборка сетки без промежуточных объектов: используется загрузчиком и триангулятором.
+     */
+    public static final class Builder {
+        private float[] positions = new float[3 * 64];
+        private float[] textureCoordinates = new float[2 * 64];
+        private float[] normals = new float[3 * 64];
+        private int[] polygonOffsets = new int[65];
+        private int[] vertexIndices = new int[3 * 64];
+        private int[] textureVertexIndices = new int[3 * 64];
+        private int[] normalIndices = new int[3 * 64];
+
+        private int positionsSize;
+        private int textureCoordinatesSize;
+        private int normalsSize;
+        private int polygonCount;
+        private int cornerCount;
+
+        public Builder addVertex(float x, float y, float z) {
+            positions = ensure(positions, positionsSize + 3);
+            positions[positionsSize++] = x;
+            positions[positionsSize++] = y;
+            positions[positionsSize++] = z;
+            return this;
+        }
+
+        public Builder addTextureVertex(float u, float v) {
+            textureCoordinates = ensure(textureCoordinates, textureCoordinatesSize + 2);
+            textureCoordinates[textureCoordinatesSize++] = u;
+            textureCoordinates[textureCoordinatesSize++] = v;
+            return this;
+        }
+
+        public Builder addNormal(float x, float y, float z) {
+            normals = ensure(normals, normalsSize + 3);
+            normals[normalsSize++] = x;
+            normals[normalsSize++] = y;
+            normals[normalsSize++] = z;
+            return this;
+        }
+
+        /**
+         * Добавляет угол текущего полигона. Отсутствующие индексы передаются как {@link #NO_INDEX}.
+         */
+        public Builder addCorner(int vertexIndex, int textureVertexIndex, int normalIndex) {
+            vertexIndices = ensure(vertexIndices, cornerCount + 1);
+            textureVertexIndices = ensure(textureVertexIndices, cornerCount + 1);
+            normalIndices = ensure(normalIndices, cornerCount + 1);
+            vertexIndices[cornerCount] = vertexIndex;
+            textureVertexIndices[cornerCount] = textureVertexIndex;
+            normalIndices[cornerCount] = normalIndex;
+            cornerCount++;
+            return this;
+        }
+
+        /**
+         * Закрывает полигон из углов, добавленных после предыдущего вызова.
+         * Если текстурные индексы или нормали заданы не у всех углов, они сбрасываются для всего полигона.
+         */
+        public Builder endPolygon() {
+            int start = polygonOffsets[polygonCount];
+            normalizeAttribute(textureVertexIndices, start, cornerCount);
+            normalizeAttribute(normalIndices, start, cornerCount);
+            polygonOffsets = ensure(polygonOffsets, polygonCount + 2);
+            polygonOffsets[++polygonCount] = cornerCount;
+            return this;
+        }
+
+        public int getVertexCount() {
+            return positionsSize / 3;
+        }
+
+        public int getTextureVertexCount() {
+            return textureCoordinatesSize / 2;
+        }
+
+        public int getNormalCount() {
+            return normalsSize / 3;
+        }
+
+        public int getCornerCount() {
+            return cornerCount;
+        }
+
+        public PackedMesh build() {
+            if (cornerCount != polygonOffsets[polygonCount]) {
+                throw new IllegalStateException("Polygon is not finished: call endPolygon()");
+            }
+            return new PackedMesh(
+                    Arrays.copyOf(positions, positionsSize),
+                    Arrays.copyOf(textureCoordinates, textureCoordinatesSize),
+                    Arrays.copyOf(normals, normalsSize),
+                    Arrays.copyOf(polygonOffsets, polygonCount + 1),
+                    Arrays.copyOf(vertexIndices, cornerCount),
+                    Arrays.copyOf(textureVertexIndices, cornerCount),
+                    Arrays.copyOf(normalIndices, cornerCount));
+        }
+
+        private static void normalizeAttribute(int[] indices, int start, int end) {
+            for (int c = start; c < end; c++) {
+                if (indices[c] == NO_INDEX) {
+                    Arrays.fill(indices, start, end, NO_INDEX);
+                    return;
+                }
+            }
+        }
+
+        private static float[] ensure(float[] array, int size) {
+            return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+        }
+
+        private static int[] ensure(int[] array, int size) {
+            return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+        }
+    }
+}
@@ -14,6 +14,17 @@ public class Polygon {
         normalIndices = new ArrayList<Integer>();
     }
 
+    // Копия со своими списками индексов
+    public Polygon(Polygon other) {
+        vertexIndices = copyIndices(other.vertexIndices);
+        textureVertexIndices = copyIndices(other.textureVertexIndices);
+        normalIndices = copyIndices(other.normalIndices);
+    }
+
+    private static ArrayList<Integer> copyIndices(ArrayList<Integer> indices) {
+        return indices != null ? new ArrayList<>(indices) : null;
+    }
+
     public void setVertexIndices(ArrayList<Integer> vertexIndices) {
         assert vertexIndices.size() >= 3;
         this.vertexIndices = vertexIndices;
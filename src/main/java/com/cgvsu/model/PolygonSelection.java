@@ -1,41 +1,94 @@
 package com.cgvsu.model;
 
-import com.cgvsu.model.Polygon;
 import com.cgvsu.render_engine.scene.SceneObject;
 
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выделенные полигоны сцены: для каждого объекта — набор номеров полигонов его модели (BitSet).
+ *
+ * Проверка и переключение полигона не перебирают выделение, а набор объекта сразу
+ * подходит для {@link Model#removePolygons(BitSet, boolean)}. Номера относятся к текущему
+ * списку полигонов модели, поэтому после правки модели выделение объекта нужно сбросить.
+ */
 public class PolygonSelection {
-    private final SceneObject sceneObject;
-    private final Polygon polygon;
+    private final Map<SceneObject, BitSet> polygonsByObject = new LinkedHashMap<>();
+    private int size;
+
+    public boolean contains(SceneObject sceneObject, int polygon) {
+        BitSet polygons = polygonsByObject.get(sceneObject);
+        return polygons != null && polygon >= 0 && polygons.get(polygon);
+    }
+
+    public void add(SceneObject sceneObject, int polygon) {
+        BitSet polygons = polygonsByObject.computeIfAbsent(sceneObject, k -> new BitSet());
+        if (!polygons.get(polygon)) {
+            polygons.set(polygon);
+            size++;
+        }
+    }
+
+    public void remove(SceneObject sceneObject, int polygon) {
+        BitSet polygons = polygonsByObject.get(sceneObject);
+        if (polygons == null || polygon < 0 || !polygons.get(polygon)) {
+            return;
+        }
+        polygons.clear(polygon);
+        size--;
+        if (polygons.isEmpty()) {
+            polygonsByObject.remove(sceneObject);
+        }
+    }
 
-    public PolygonSelection(SceneObject sceneObject, Polygon polygon) {
-        this.sceneObject = sceneObject;
-        this.polygon = polygon;
+    /**
+     * Снимает выделение с полигона, если он выделен, иначе выделяет.
+     *
+     * @return true, если полигон теперь выделен
+     */
+    public boolean toggle(SceneObject sceneObject, int polygon) {
+        if (contains(sceneObject, polygon)) {
+            remove(sceneObject, polygon);
+            return false;
+        }
+        add(sceneObject, polygon);
+        return true;
     }
 
-    public SceneObject getSceneObject() {
-        return sceneObject;
+    /**
+     * Номера выделенных полигонов объекта (пустой набор, если их нет). Набор принадлежит
+     * выделению, изменять его нельзя.
+     */
+    public BitSet getPolygons(SceneObject sceneObject) {
+        BitSet polygons = polygonsByObject.get(sceneObject);
+        return polygons != null ? polygons : new BitSet();
     }
 
-    public Polygon getPolygon() {
-        return polygon;
+    /** Объекты, у которых выделен хотя бы один полигон, в порядке выделения. */
+    public Set<SceneObject> getObjects() {
+        return Collections.unmodifiableSet(polygonsByObject.keySet());
     }
 
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
+    public void removeObject(SceneObject sceneObject) {
+        BitSet polygons = polygonsByObject.remove(sceneObject);
+        if (polygons != null) {
+            size -= polygons.cardinality();
+        }
+    }
 
-        PolygonSelection that = (PolygonSelection) obj;
-        return sceneObject.equals(that.sceneObject) &&
-                polygon.equals(that.polygon);
+    public int size() {
+        return size;
     }
 
-    @Override
-    public int hashCode() {
-        return 31 * sceneObject.hashCode() + polygon.hashCode();
+    public boolean isEmpty() {
+        return size == 0;
     }
 
-    public SceneObject getObject() {
-        return sceneObject;
+    public void clear() {
+        polygonsByObject.clear();
+        size = 0;
     }
-}
\ No newline at end of file
+}
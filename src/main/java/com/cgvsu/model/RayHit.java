@@ -0,0 +1,73 @@
+package com.cgvsu.model;
+
+/**
+ * Ближайшее пересечение луча с сеткой, найденное {@link MeshBvh}.
+ *
+ * Многоугольник разбит веером: попавший треугольник — углы 0, corner и corner + 1 многоугольника
+ * (вершины vertex0, vertex1, vertex2). Точка попадания — (1 - u - v) * vertex0 + u * vertex1 + v * vertex2.
+ * Один объект переиспользуется для нескольких сеток: поиск продолжается только ближе уже найденного.
+ */
+public final class RayHit {
+
+    private double distance = Double.POSITIVE_INFINITY;
+    private int polygon = -1;
+    private int corner;
+    private int vertex0, vertex1, vertex2;
+    private double u, v;
+
+    /**
+     * Сбрасывает результат; дальше maxDistance (в единицах направления луча) пересечения не ищутся.
+     */
+    public void reset(double maxDistance) {
+        distance = maxDistance;
+        polygon = -1;
+    }
+
+    void set(double distance, int polygon, int corner, int vertex0, int vertex1, int vertex2, double u, double v) {
+        this.distance = distance;
+        this.polygon = polygon;
+        this.corner = corner;
+        this.vertex0 = vertex0;
+        this.vertex1 = vertex1;
+        this.vertex2 = vertex2;
+        this.u = u;
+        this.v = v;
+    }
+
+    public boolean isHit() {
+        return polygon >= 0;
+    }
+
+    // Параметр луча: точка попадания — origin + distance * direction
+    public double getDistance() {
+        return distance;
+    }
+
+    public int getPolygon() {
+        return polygon;
+    }
+
+    public int getCorner() {
+        return corner;
+    }
+
+    public int getVertex0() {
+        return vertex0;
+    }
+
+    public int getVertex1() {
+        return vertex1;
+    }
+
+    public int getVertex2() {
+        return vertex2;
+    }
+
+    public double getU() {
+        return u;
+    }
+
+    public double getV() {
+        return v;
+    }
+}
@@ -0,0 +1,501 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.PackedMesh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Разбор строк OBJ прямо из байтов, без String и списков слов на каждую строку.
+ *
+ * Правила те же, что у {@link ObjReader#read(String)}: слова разделяются пробельными символами,
+ * строка с пробелом в начале не распознаётся, лишние аргументы игнорируются, а сообщения
+ * об ошибках совпадают. Числа разбираются вручную; редкие формы, которые понимает
+ * Float.parseFloat (NaN, Infinity, суффиксы f/d, шестнадцатеричная запись, очень длинная мантисса),
+ * отдаются ему. В отличие от read(String), отрицательные (относительные) индексы граней
+ * поддерживаются.
+ */
+final class ObjLineParser {
+
+	// Точные степени десяти в double (10^22 — последняя представимая точно)
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	static final int VERTEX = 0;
+	static final int TEXTURE_VERTEX = 1;
+	static final int NORMAL = 2;
+
+	private final PackedMesh.Builder result;
+	private final boolean deferRelativeIndices;
+
+	// Индексы текущего полигона: те же три списка, что у Polygon, но переиспользуемые
+	private int[] faceVertexIndices = new int[16];
+	private int[] faceTextureVertexIndices = new int[16];
+	private int[] faceNormalIndices = new int[16];
+	private boolean[] faceVertexRelative = new boolean[16];
+	private boolean[] faceTextureVertexRelative = new boolean[16];
+	private boolean[] faceNormalRelative = new boolean[16];
+	private int faceVertexCount;
+	private int faceTextureVertexCount;
+	private int faceNormalCount;
+
+	// Углы (в нумерации result) с отрицательными индексами, которые нужно сдвинуть при склейке кусков
+	private final IndexList relativeVertexCorners = new IndexList();
+	private final IndexList relativeTextureVertexCorners = new IndexList();
+	private final IndexList relativeNormalCorners = new IndexList();
+
+	// Счётчик строк и состояние перевода строки между кусками
+	private int lineCount;
+	private boolean skipLineFeed;
+
+	// Текущая строка и позиция разбора в ней
+	private ByteBuffer buffer;
+	private int position;
+	private int lineEnd;
+	private int lineInd;
+	private int wordStart;
+	private int wordEnd;
+
+	ObjLineParser(PackedMesh.Builder result) {
+		this(result, false);
+	}
+
+	/**
+	 * @param deferRelativeIndices разбор куска файла: отрицательные (относительные) индексы
+	 *                             отсчитываются от начала куска и запоминаются, а окончательное
+	 *                             значение получается при склейке, когда известно, сколько
+	 *                             элементов было в предыдущих кусках
+	 */
+	ObjLineParser(PackedMesh.Builder result, boolean deferRelativeIndices) {
+		this.result = result;
+		this.deferRelativeIndices = deferRelativeIndices;
+	}
+
+	/**
+	 * Разбирает все законченные строки в [start, limit). Строки заканчиваются на '\n', '\r' или "\r\n";
+	 * перевод строки может быть разорван между вызовами.
+	 *
+	 * @param endOfInput данных больше не будет: хвост без перевода строки — последняя строка
+	 * @return начало незаконченной строки (её нужно передать ещё раз вместе со следующими данными)
+	 */
+	int parseLines(ByteBuffer buffer, int start, int limit, boolean endOfInput) {
+		int lineStart = start;
+		for (int i = start; i < limit; i++) {
+			byte b = buffer.get(i);
+			if (b == '\n' && skipLineFeed) {
+				// '\n' после '\r' — тот же перевод строки
+				lineStart = i + 1;
+			} else if (b == '\n' || b == '\r') {
+				parseLine(buffer, lineStart, i, ++lineCount);
+				lineStart = i + 1;
+			}
+			skipLineFeed = b == '\r';
+		}
+		if (endOfInput && lineStart < limit) {
+			parseLine(buffer, lineStart, limit, ++lineCount);
+			lineStart = limit;
+		}
+		return lineStart;
+	}
+
+	int getLineCount() {
+		return lineCount;
+	}
+
+	IndexList getRelativeCorners(int kind) {
+		return switch (kind) {
+			case VERTEX -> relativeVertexCorners;
+			case TEXTURE_VERTEX -> relativeTextureVertexCorners;
+			default -> relativeNormalCorners;
+		};
+	}
+
+	/**
+	 * Разбирает одну строку [start, end) буфера (без символов перевода строки).
+	 */
+	void parseLine(ByteBuffer buffer, int start, int end, int lineInd) {
+		this.buffer = buffer;
+		this.position = start;
+		this.lineEnd = end;
+		this.lineInd = lineInd;
+
+		// Токен — всё до первого пробельного символа (пустой, если строка с него начинается)
+		int tokenEnd = start;
+		while (tokenEnd < end && !isWhitespace(buffer.get(tokenEnd))) {
+			tokenEnd++;
+		}
+		position = tokenEnd;
+
+		switch (tokenEnd - start) {
+			case 1 -> {
+				byte b = buffer.get(start);
+				if (b == 'v') {
+					parseVertex();
+				} else if (b == 'f') {
+					parseFace();
+				}
+			}
+			case 2 -> {
+				if (buffer.get(start) == 'v') {
+					byte b = buffer.get(start + 1);
+					if (b == 't') {
+						parseTextureVertex();
+					} else if (b == 'n') {
+						parseNormal();
+					}
+				}
+			}
+			default -> {}
+		}
+	}
+
+	private void parseVertex() {
+		float x = nextFloat("Too few vertex arguments.");
+		float y = nextFloat("Too few vertex arguments.");
+		float z = nextFloat("Too few vertex arguments.");
+		result.addVertex(x, y, z);
+	}
+
+	private void parseTextureVertex() {
+		float u = nextFloat("Too few texture vertex arguments.");
+		float v = nextFloat("Too few texture vertex arguments.");
+		result.addTextureVertex(u, v);
+	}
+
+	private void parseNormal() {
+		float x = nextFloat("Too few normal arguments.");
+		float y = nextFloat("Too few normal arguments.");
+		float z = nextFloat("Too few normal arguments.");
+		result.addNormal(x, y, z);
+	}
+
+	private void parseFace() {
+		faceVertexCount = 0;
+		faceTextureVertexCount = 0;
+		faceNormalCount = 0;
+		while (nextWord()) {
+			parseFaceWord(wordStart, wordEnd);
+		}
+
+		boolean hasTexture = faceTextureVertexCount == faceVertexCount;
+		boolean hasNormals = faceNormalCount == faceVertexCount;
+		for (int i = 0; i < faceVertexCount; i++) {
+			int corner = result.getCornerCount();
+			if (faceVertexRelative[i]) {
+				relativeVertexCorners.add(corner);
+			}
+			if (hasTexture && faceTextureVertexRelative[i]) {
+				relativeTextureVertexCorners.add(corner);
+			}
+			if (hasNormals && faceNormalRelative[i]) {
+				relativeNormalCorners.add(corner);
+			}
+			result.addCorner(
+					faceVertexIndices[i],
+					hasTexture ? faceTextureVertexIndices[i] : PackedMesh.NO_INDEX,
+					hasNormals ? faceNormalIndices[i] : PackedMesh.NO_INDEX);
+		}
+		result.endPolygon();
+	}
+
+	/**
+	 * Слово вида v, v/vt, v//vn или v/vt/vn. Пустые хвостовые части отбрасываются,
+	 * как у String.split("/").
+	 */
+	private void parseFaceWord(int start, int end) {
+		int vertexStart = start, vertexEnd = start;
+		int textureStart = start, textureEnd = start;
+		int normalStart = start, normalEnd = start;
+		int partCount = 0;
+		int lastNonEmptyPart = -1;
+
+		int partStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i < end && buffer.get(i) != '/') {
+				continue;
+			}
+			switch (partCount) {
+				case 0 -> { vertexStart = partStart; vertexEnd = i; }
+				case 1 -> { textureStart = partStart; textureEnd = i; }
+				case 2 -> { normalStart = partStart; normalEnd = i; }
+				default -> {}
+			}
+			if (i > partStart) {
+				lastNonEmptyPart = partCount;
+			}
+			partCount++;
+			partStart = i + 1;
+		}
+
+		switch (lastNonEmptyPart + 1) {
+			case 1 -> addFaceIndex(vertexStart, vertexEnd, VERTEX);
+			case 2 -> {
+				addFaceIndex(vertexStart, vertexEnd, VERTEX);
+				addFaceIndex(textureStart, textureEnd, TEXTURE_VERTEX);
+			}
+			case 3 -> {
+				addFaceIndex(vertexStart, vertexEnd, VERTEX);
+				addFaceIndex(normalStart, normalEnd, NORMAL);
+				if (textureEnd > textureStart) {
+					addFaceIndex(textureStart, textureEnd, TEXTURE_VERTEX);
+				}
+			}
+			default -> throw new ObjReaderException("Invalid element size.", lineInd);
+		}
+	}
+
+	/**
+	 * Положительный индекс OBJ абсолютный (с единицы), отрицательный отсчитывается от конца
+	 * уже прочитанных элементов: -1 — последний.
+	 */
+	private void addFaceIndex(int start, int end, int kind) {
+		int objIndex = parseInt(start, end);
+		boolean relative = objIndex < 0;
+		int index;
+		if (!relative) {
+			index = objIndex - 1;
+		} else {
+			int count = switch (kind) {
+				case VERTEX -> result.getVertexCount();
+				case TEXTURE_VERTEX -> result.getTextureVertexCount();
+				default -> result.getNormalCount();
+			};
+			index = count + objIndex;
+			if (deferRelativeIndices) {
+				index = encodeRelative(index);
+			}
+		}
+		relative &= deferRelativeIndices;
+
+		switch (kind) {
+			case VERTEX -> {
+				faceVertexIndices = ensure(faceVertexIndices, faceVertexCount + 1);
+				faceVertexRelative = ensure(faceVertexRelative, faceVertexCount + 1);
+				faceVertexRelative[faceVertexCount] = relative;
+				faceVertexIndices[faceVertexCount++] = index;
+			}
+			case TEXTURE_VERTEX -> {
+				faceTextureVertexIndices = ensure(faceTextureVertexIndices, faceTextureVertexCount + 1);
+				faceTextureVertexRelative = ensure(faceTextureVertexRelative, faceTextureVertexCount + 1);
+				faceTextureVertexRelative[faceTextureVertexCount] = relative;
+				faceTextureVertexIndices[faceTextureVertexCount++] = index;
+			}
+			default -> {
+				faceNormalIndices = ensure(faceNormalIndices, faceNormalCount + 1);
+				faceNormalRelative = ensure(faceNormalRelative, faceNormalCount + 1);
+				faceNormalRelative[faceNormalCount] = relative;
+				faceNormalIndices[faceNormalCount++] = index;
+			}
+		}
+	}
+
+	/**
+	 * Индекс относительно начала куска может быть отрицательным (ссылка на предыдущие куски).
+	 * Отрицательные значения сдвигаются на единицу, чтобы не совпасть с {@link PackedMesh#NO_INDEX}.
+	 */
+	static int encodeRelative(int index) {
+		return index < 0 ? index - 1 : index;
+	}
+
+	static int decodeRelative(int encoded) {
+		return encoded < 0 ? encoded + 1 : encoded;
+	}
+
+	private boolean nextWord() {
+		int i = position;
+		while (i < lineEnd && isWhitespace(buffer.get(i))) {
+			i++;
+		}
+		if (i == lineEnd) {
+			position = i;
+			return false;
+		}
+		wordStart = i;
+		while (i < lineEnd && !isWhitespace(buffer.get(i))) {
+			i++;
+		}
+		wordEnd = i;
+		position = i;
+		return true;
+	}
+
+	private float nextFloat(String tooFewArgumentsMessage) {
+		if (!nextWord()) {
+			throw new ObjReaderException(tooFewArgumentsMessage, lineInd);
+		}
+		return parseFloat(wordStart, wordEnd);
+	}
+
+	/**
+	 * Десятичное число вида [+-]digits[.digits][(e|E)[+-]digits].
+	 * Мантисса до 2^53 и порядок до 22 дают точный результат одной операцией в double;
+	 * округление double во float совпадает с Float.parseFloat, кроме попадания ровно
+	 * в середину между соседними float — тогда, как и во всех прочих случаях, разбирает Float.parseFloat.
+	 */
+	private float parseFloat(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		boolean exact = true;
+		while (i < end && isDigit(buffer.get(i))) {
+			hasDigits = true;
+			if (mantissa < MAX_EXACT_MANTISSA) {
+				mantissa = mantissa * 10 + (buffer.get(i) - '0');
+			} else {
+				exact = false;
+			}
+			i++;
+		}
+		if (i < end && buffer.get(i) == '.') {
+			i++;
+			while (i < end && isDigit(buffer.get(i))) {
+				hasDigits = true;
+				if (mantissa < MAX_EXACT_MANTISSA) {
+					mantissa = mantissa * 10 + (buffer.get(i) - '0');
+					exponent--;
+				} else {
+					exact = false;
+				}
+				i++;
+			}
+		}
+		if (hasDigits && i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+				negativeExponent = buffer.get(i) == '-';
+				i++;
+			}
+			int exponentStart = i;
+			int explicitExponent = 0;
+			while (i < end && isDigit(buffer.get(i))) {
+				explicitExponent = Math.min(explicitExponent * 10 + (buffer.get(i) - '0'), 100_000);
+				i++;
+			}
+			if (i == exponentStart) {
+				exact = false;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if (!hasDigits || i != end || !exact || mantissa >= MAX_EXACT_MANTISSA) {
+			return parseFloatSlow(start, end);
+		}
+		if (mantissa == 0) {
+			return negative ? -0.0f : 0.0f;
+		}
+		if (exponent < -22 || exponent > 22) {
+			return parseFloatSlow(start, end);
+		}
+
+		double value = exponent >= 0
+				? mantissa * POWERS_OF_TEN[exponent]
+				: mantissa / POWERS_OF_TEN[-exponent];
+		float rounded = (float) value;
+		if (value != rounded) {
+			float neighbour = value > rounded ? Math.nextUp(rounded) : Math.nextDown(rounded);
+			if (value - rounded == neighbour - value) {
+				return parseFloatSlow(start, end);
+			}
+		}
+		return negative ? -rounded : rounded;
+	}
+
+	private float parseFloatSlow(int start, int end) {
+		try {
+			return Float.parseFloat(wordToString(start, end));
+		} catch (NumberFormatException e) {
+			throw new ObjReaderException("Failed to parse float value.", lineInd);
+		}
+	}
+
+	/**
+	 * Те же правила, что у Integer.parseInt: необязательный знак, хотя бы одна цифра, без переполнения.
+	 */
+	private int parseInt(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+		if (i == end) {
+			throw new ObjReaderException("Failed to parse int value.", lineInd);
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			byte b = buffer.get(i);
+			if (!isDigit(b)) {
+				throw new ObjReaderException("Failed to parse int value.", lineInd);
+			}
+			value = value * 10 + (b - '0');
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw new ObjReaderException("Failed to parse int value.", lineInd);
+			}
+		}
+		if (negative) {
+			value = -value;
+		}
+		if (value > Integer.MAX_VALUE) {
+			throw new ObjReaderException("Failed to parse int value.", lineInd);
+		}
+		return (int) value;
+	}
+
+	private String wordToString(int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++) {
+			bytes[i - start] = buffer.get(i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Пробельные символы регулярного выражения \s
+	static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static int[] ensure(int[] array, int size) {
+		return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+	}
+
+	private static boolean[] ensure(boolean[] array, int size) {
+		return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+	}
+
+	/**
+	 * Растущий список int без упаковки в Integer.
+	 */
+	static final class IndexList {
+		private int[] values = new int[16];
+		private int size;
+
+		void add(int value) {
+			values = ensure(values, size + 1);
+			values[size++] = value;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int get(int i) {
+			return values[i];
+		}
+	}
+}
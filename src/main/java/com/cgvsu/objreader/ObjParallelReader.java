@@ -0,0 +1,245 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.PackedMesh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Параллельное чтение OBJ: файл отображается в память кусками, которые режутся по границам строк,
+ * и каждый кусок разбирается в свою сетку отдельной задачей. Потом сетки склеиваются.
+ *
+ * Положительные индексы OBJ абсолютные и переносятся как есть. Отрицательные отсчитываются
+ * от начала куска, а при склейке к ним прибавляется число элементов в предыдущих кусках.
+ * Номер строки в ошибке тоже пересчитывается в сквозной.
+ */
+final class ObjParallelReader {
+
+	static final long MIN_CHUNK_SIZE = 1L << 20;
+	static final long MAX_CHUNK_SIZE = 64L << 20;
+	// Окно поиска конца строки на границе куска
+	private static final int BOUNDARY_SCAN_SIZE = 1 << 16;
+
+	private ObjParallelReader() {
+	}
+
+	/**
+	 * Размер куска: несколько кусков на поток, чтобы потоки выравнивались по нагрузке.
+	 */
+	static long chunkSizeFor(long fileSize, int parallelism) {
+		long size = fileSize / (Math.max(1, parallelism) * 4L);
+		return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+	}
+
+	static PackedMesh read(Path path, ForkJoinPool pool, long chunkSize) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] bounds = findChunkBounds(channel, chunkSize);
+			Chunk[] chunks = new Chunk[bounds.length - 1];
+			for (int i = 0; i < chunks.length; i++) {
+				chunks[i] = new Chunk(bounds[i], bounds[i + 1]);
+			}
+
+			try {
+				pool.invoke(new ChunkTask(channel, chunks, 0, chunks.length));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			// Первая по файлу ошибка, с номером строки от начала файла
+			int lineOffset = 0;
+			for (Chunk chunk : chunks) {
+				if (chunk.error != null) {
+					throw new ObjReaderException(chunk.error.getErrorMessage(), lineOffset + chunk.error.getLineInd());
+				}
+				lineOffset += chunk.lineCount;
+			}
+
+			return merge(chunks);
+		}
+	}
+
+	/**
+	 * Границы кусков: каждая граница стоит сразу после '\n', поэтому строки (и пары "\r\n") не рвутся.
+	 */
+	static long[] findChunkBounds(FileChannel channel, long chunkSize) throws IOException {
+		long size = channel.size();
+		List<Long> bounds = new ArrayList<>();
+		bounds.add(0L);
+
+		ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+		long nominal = chunkSize;
+		while (nominal < size) {
+			long boundary = findLineEnd(channel, window, nominal, size);
+			if (boundary >= size) {
+				break;
+			}
+			bounds.add(boundary);
+			// Следующая граница — не раньше чем через chunkSize (длинная строка могла съесть несколько)
+			nominal = Math.max(nominal + chunkSize, boundary + 1);
+		}
+		bounds.add(size);
+
+		long[] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	private static long findLineEnd(FileChannel channel, ByteBuffer window, long from, long size) throws IOException {
+		long position = from;
+		while (position < size) {
+			window.clear();
+			int read = channel.read(window, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (window.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private static void parseChunk(FileChannel channel, Chunk chunk) throws IOException {
+		long length = chunk.end - chunk.start;
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("OBJ line is too long to be mapped: " + length + " bytes");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, length);
+
+		PackedMesh.Builder builder = new PackedMesh.Builder();
+		ObjLineParser parser = new ObjLineParser(builder, true);
+		try {
+			parser.parseLines(buffer, 0, (int) length, true);
+		} catch (ObjReaderException e) {
+			chunk.error = e;
+			return;
+		} finally {
+			chunk.lineCount = parser.getLineCount();
+		}
+		chunk.mesh = builder.build();
+		chunk.relativeVertexCorners = parser.getRelativeCorners(ObjLineParser.VERTEX);
+		chunk.relativeTextureVertexCorners = parser.getRelativeCorners(ObjLineParser.TEXTURE_VERTEX);
+		chunk.relativeNormalCorners = parser.getRelativeCorners(ObjLineParser.NORMAL);
+	}
+
+	private static PackedMesh merge(Chunk[] chunks) {
+		int positionsSize = 0, textureCoordinatesSize = 0, normalsSize = 0, polygonCount = 0, cornerCount = 0;
+		for (Chunk chunk : chunks) {
+			PackedMesh mesh = chunk.mesh;
+			positionsSize += mesh.getPositions().length;
+			textureCoordinatesSize += mesh.getTextureCoordinates().length;
+			normalsSize += mesh.getNormals().length;
+			polygonCount += mesh.getPolygonCount();
+			cornerCount += mesh.getCornerCount();
+		}
+
+		float[] positions = new float[positionsSize];
+		float[] textureCoordinates = new float[textureCoordinatesSize];
+		float[] normals = new float[normalsSize];
+		int[] polygonOffsets = new int[polygonCount + 1];
+		int[] vertexIndices = new int[cornerCount];
+		int[] textureVertexIndices = new int[cornerCount];
+		int[] normalIndices = new int[cornerCount];
+
+		int positionsBase = 0, textureCoordinatesBase = 0, normalsBase = 0, polygonBase = 0, cornerBase = 0;
+		for (Chunk chunk : chunks) {
+			PackedMesh mesh = chunk.mesh;
+			System.arraycopy(mesh.getPositions(), 0, positions, positionsBase, mesh.getPositions().length);
+			System.arraycopy(mesh.getTextureCoordinates(), 0, textureCoordinates, textureCoordinatesBase,
+					mesh.getTextureCoordinates().length);
+			System.arraycopy(mesh.getNormals(), 0, normals, normalsBase, mesh.getNormals().length);
+
+			int[] offsets = mesh.getPolygonOffsets();
+			for (int p = 0; p < mesh.getPolygonCount(); p++) {
+				polygonOffsets[polygonBase + p] = offsets[p] + cornerBase;
+			}
+			System.arraycopy(mesh.getVertexIndices(), 0, vertexIndices, cornerBase, mesh.getCornerCount());
+			System.arraycopy(mesh.getTextureVertexIndices(), 0, textureVertexIndices, cornerBase, mesh.getCornerCount());
+			System.arraycopy(mesh.getNormalIndices(), 0, normalIndices, cornerBase, mesh.getCornerCount());
+
+			resolveRelative(vertexIndices, cornerBase, chunk.relativeVertexCorners, positionsBase / 3);
+			resolveRelative(textureVertexIndices, cornerBase, chunk.relativeTextureVertexCorners,
+					textureCoordinatesBase / 2);
+			resolveRelative(normalIndices, cornerBase, chunk.relativeNormalCorners, normalsBase / 3);
+
+			positionsBase += mesh.getPositions().length;
+			textureCoordinatesBase += mesh.getTextureCoordinates().length;
+			normalsBase += mesh.getNormals().length;
+			polygonBase += mesh.getPolygonCount();
+			cornerBase += mesh.getCornerCount();
+			// Сетка куска больше не нужна
+			chunk.mesh = null;
+		}
+		polygonOffsets[polygonCount] = cornerCount;
+
+		return PackedMesh.fromArrays(positions, textureCoordinates, normals,
+				polygonOffsets, vertexIndices, textureVertexIndices, normalIndices);
+	}
+
+	private static void resolveRelative(int[] indices, int cornerBase, ObjLineParser.IndexList corners, int elementBase) {
+		for (int i = 0; i < corners.size(); i++) {
+			int corner = cornerBase + corners.get(i);
+			indices[corner] = ObjLineParser.decodeRelative(indices[corner]) + elementBase;
+		}
+	}
+
+	private static final class Chunk {
+		final long start;
+		final long end;
+		PackedMesh mesh;
+		ObjLineParser.IndexList relativeVertexCorners;
+		ObjLineParser.IndexList relativeTextureVertexCorners;
+		ObjLineParser.IndexList relativeNormalCorners;
+		int lineCount;
+		ObjReaderException error;
+
+		Chunk(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	// Задача живёт только внутри чтения и не сериализуется
+	@SuppressWarnings("serial")
+	private static final class ChunkTask extends RecursiveAction {
+		private final FileChannel channel;
+		private final Chunk[] chunks;
+		private final int from;
+		private final int to;
+
+		ChunkTask(FileChannel channel, Chunk[] chunks, int from, int to) {
+			this.channel = channel;
+			this.chunks = chunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				try {
+					parseChunk(channel, chunks[from]);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ChunkTask(channel, chunks, from, mid), new ChunkTask(channel, chunks, mid, to));
+		}
+	}
+}
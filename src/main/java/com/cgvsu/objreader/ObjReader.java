@@ -4,11 +4,25 @@ package com.cgvsu.objreader;
 import com.cgvsu.math.Vector2;
 import com.cgvsu.math.Vector3;
 import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedMesh;
 import com.cgvsu.model.Polygon;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class ObjReader {
 
@@ -17,6 +31,8 @@ public class ObjReader {
 	private static final String OBJ_NORMAL_TOKEN = "vn";
 	private static final String OBJ_FACE_TOKEN = "f";
 
+	private static final int STREAM_BUFFER_SIZE = 1 << 18;
+
 	public static Model read(String fileContent) {
 		Model result = new Model();
 
@@ -55,6 +71,72 @@ public class ObjReader {
 		return result;
 	}
 
+	/**
+	 * Читает OBJ сразу в упакованную сетку: координаты и индексы попадают в плоские массивы.
+	 */
+	public static PackedMesh readPacked(String fileContent) {
+		byte[] bytes = fileContent.getBytes(StandardCharsets.UTF_8);
+		try {
+			return readPacked(Channels.newChannel(new ByteArrayInputStream(bytes)));
+		} catch (IOException e) {
+			// Чтение из массива в памяти не бросает IOException
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static PackedMesh readPacked(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return readPacked(channel);
+		}
+	}
+
+	/**
+	 * Параллельное чтение большого файла: файл отображается в память, режется по границам строк
+	 * на куски, и куски разбираются одновременно в общем пуле потоков. Результат совпадает с readPacked(Path).
+	 */
+	public static PackedMesh readPackedParallel(Path path) throws IOException {
+		return readPackedParallel(path, ForkJoinPool.commonPool());
+	}
+
+	public static PackedMesh readPackedParallel(Path path, ForkJoinPool pool) throws IOException {
+		long size = Files.size(path);
+		return ObjParallelReader.read(path, pool, ObjParallelReader.chunkSizeFor(size, pool.getParallelism()));
+	}
+
+	public static PackedMesh readPacked(InputStream inputStream) throws IOException {
+		return readPacked(Channels.newChannel(inputStream));
+	}
+
+	/**
+	 * Потоковое чтение: файл читается кусками в один переиспользуемый буфер и разбирается
+	 * прямо из байтов, без строк и списков слов. В памяти одновременно лежат только буфер
+	 * и растущие массивы сетки. Канал не закрывается.
+	 */
+	public static PackedMesh readPacked(ReadableByteChannel channel) throws IOException {
+		PackedMesh.Builder result = new PackedMesh.Builder();
+		ObjLineParser parser = new ObjLineParser(result);
+
+		ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+		boolean endOfStream = false;
+		while (!endOfStream) {
+			endOfStream = channel.read(buffer) < 0;
+			buffer.flip();
+			int lineStart = parser.parseLines(buffer, 0, buffer.limit(), endOfStream);
+
+			// Незаконченная строка переносится в начало буфера; если она заняла весь буфер — растим его
+			buffer.position(lineStart);
+			buffer.compact();
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+
+		return result.build();
+	}
+
 	// Всем методам кроме основного я поставил модификатор доступа protected, чтобы обращаться к ним в тестах
 	public static Vector3 parseVertex(final ArrayList<String> wordsInLineWithoutToken, int lineInd) {
 		try {
@@ -1,11 +1,12 @@
 package com.cgvsu.objwriter;
 
+import com.cgvsu.math.BatchTransform;
 import com.cgvsu.math.Matrix3;
 import com.cgvsu.math.Matrix4;
 import com.cgvsu.math.Vector2;
 import com.cgvsu.math.Vector3;
-import com.cgvsu.math.Vector4;
 import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedMesh;
 import com.cgvsu.model.Polygon;
 import com.cgvsu.render_engine.GraphicConveyor;
 import com.cgvsu.render_engine.Transform;
@@ -34,6 +35,14 @@ public class ObjWriter {
         Files.writeString(Path.of(filePath), content);
     }
 
+    /**
+     * Сохраняет упакованную сетку (с опциональным Transform)
+     */
+    public static void write(PackedMesh mesh, String filePath, Transform transform) throws IOException {
+        String content = meshToString(mesh, transform, "Modified model");
+        Files.writeString(Path.of(filePath), content);
+    }
+
     public static String modelToString(Model model) {
         return modelToString(model, "Modified model");
     }
@@ -44,120 +53,173 @@ public class ObjWriter {
 
     /**
      * Формирование OBJ-строки с опциональным применением Transform.
+     *
+     * Структура модели со списками проверяется на уровне объектов (null, согласованность индексов),
+     * а сама запись идёт по упакованной сетке модели.
      */
     public static String modelToString(Model model, Transform transform, String comment) {
         if (model == null) {
             throw new ObjWriterException("Model cannot be null");
         }
 
-        StringBuilder sb = new StringBuilder();
-
-        if (comment != null && !comment.isEmpty()) {
-            sb.append("# ").append(comment).append("\n");
+        // Модель без объектных списков хранит только упакованную сетку: проверять (и создавать) списки незачем
+        if (!model.hasObjectLists()) {
+            return meshToString(model.getPackedMesh(), transform, comment);
         }
 
+        final PackedMesh mesh;
         try {
-            final Matrix4 modelMatrix = buildModelMatrixOrIdentity(transform);
-            final Matrix3 normalMatrix = buildNormalMatrixOrNull(transform, modelMatrix);
-
             List<Vector3> vertices = model.getVertices();
             for (int i = 0; i < vertices.size(); i++) {
-                Vector3 vertex = transformVertex(vertices.get(i), modelMatrix);
-                validateVertex(vertex, i);
-                sb.append("v ")
-                        .append(formatFloatCompact(vertex.getX()))
-                        .append(" ")
-                        .append(formatFloatCompact(vertex.getY()))
-                        .append(" ")
-                        .append(formatFloatCompact(vertex.getZ()))
-                        .append("\n");
-            }
-
-            if (!vertices.isEmpty() &&
-                    ((model.getTextureVertices() != null && !model.getTextureVertices().isEmpty()) ||
-                            (model.getNormals() != null && !model.getNormals().isEmpty()))) {
-                sb.append("\n");
+                if (vertices.get(i) == null) {
+                    throw new ObjWriterException("Vertex at index " + i + " is null");
+                }
             }
 
             List<Vector2> textureVertices = model.getTextureVertices();
             if (textureVertices != null) {
                 for (int i = 0; i < textureVertices.size(); i++) {
-                    Vector2 textureVertex = textureVertices.get(i);
-                    validateTextureVertex(textureVertex, i);
-                    sb.append("vt ")
-                            .append(formatFloatCompact(textureVertex.getX()))
-                            .append(" ")
-                            .append(formatFloatCompact(textureVertex.getY()))
-                            .append("\n");
+                    validateTextureVertex(textureVertices.get(i), i);
                 }
             }
 
-            if (textureVertices != null && !textureVertices.isEmpty() &&
-                    model.getNormals() != null && !model.getNormals().isEmpty()) {
-                sb.append("\n");
-            }
-
             List<Vector3> normals = model.getNormals();
             if (normals != null) {
                 for (int i = 0; i < normals.size(); i++) {
-                    Vector3 normal = transformNormal(normals.get(i), normalMatrix);
-                    validateNormal(normal, i);
-                    sb.append("vn ")
-                            .append(formatFloatCompact(normal.getX()))
-                            .append(" ")
-                            .append(formatFloatCompact(normal.getY()))
-                            .append(" ")
-                            .append(formatFloatCompact(normal.getZ()))
-                            .append("\n");
+                    if (normals.get(i) == null) {
+                        throw new ObjWriterException("Normal at index " + i + " is null");
+                    }
                 }
             }
 
-            if ((!vertices.isEmpty() ||
-                    (textureVertices != null && !textureVertices.isEmpty()) ||
-                    (normals != null && !normals.isEmpty())) &&
-                    !model.getPolygons().isEmpty()) {
-                sb.append("\n");
-            }
-
             List<Polygon> polygons = model.getPolygons();
             for (int i = 0; i < polygons.size(); i++) {
-                Polygon polygon = polygons.get(i);
-                validatePolygon(polygon, i,
+                validatePolygon(polygons.get(i), i,
                         vertices.size(),
                         textureVertices != null ? textureVertices.size() : 0,
                         normals != null ? normals.size() : 0);
+            }
 
-                sb.append("f");
-                List<Integer> vertexIndices = polygon.getVertexIndices();
-                List<Integer> textureVertexIndices = polygon.getTextureVertexIndices();
-                List<Integer> normalIndices = polygon.getNormalIndices();
+            mesh = model.getPackedMesh();
+        } catch (IndexOutOfBoundsException e) {
+            throw new ObjWriterException("Invalid model data structure", e);
+        } catch (NullPointerException e) {
+            throw new ObjWriterException("Model contains null elements", e);
+        }
 
-                boolean hasTextures = textureVertexIndices != null && !textureVertexIndices.isEmpty();
-                boolean hasNormals = normalIndices != null && !normalIndices.isEmpty();
+        return meshToString(mesh, transform, comment);
+    }
 
-                for (int j = 0; j < vertexIndices.size(); j++) {
-                    sb.append(" ");
-                    sb.append(vertexIndices.get(j) + 1);
+    /**
+     * Формирование OBJ-строки из упакованной сетки: координаты читаются прямо из массивов.
+     */
+    public static String meshToString(PackedMesh mesh, Transform transform, String comment) {
+        if (mesh == null) {
+            throw new ObjWriterException("Model cannot be null");
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        if (comment != null && !comment.isEmpty()) {
+            sb.append("# ").append(comment).append("\n");
+        }
+
+        final Matrix4 modelMatrix = buildModelMatrixOrIdentity(transform);
+        final Matrix4 normalMatrix = buildNormalMatrixOrNull(transform, modelMatrix);
+
+        final int vertexCount = mesh.getVertexCount();
+        final int textureVertexCount = mesh.getTextureVertexCount();
+        final int normalCount = mesh.getNormalCount();
+        final float[] positions = transformPositions(mesh.getPositions(), vertexCount, modelMatrix);
+        final float[] textureCoordinates = mesh.getTextureCoordinates();
+        final float[] normals = transformNormals(mesh.getNormals(), normalCount, normalMatrix);
+
+        for (int i = 0; i < vertexCount; i++) {
+            final float x = positions[i * 3];
+            final float y = positions[i * 3 + 1];
+            final float z = positions[i * 3 + 2];
+            validateVertex(x, y, z, i);
+            sb.append("v ")
+                    .append(formatFloatCompact(x))
+                    .append(" ")
+                    .append(formatFloatCompact(y))
+                    .append(" ")
+                    .append(formatFloatCompact(z))
+                    .append("\n");
+        }
+
+        if (vertexCount > 0 && (textureVertexCount > 0 || normalCount > 0)) {
+            sb.append("\n");
+        }
+
+        for (int i = 0; i < textureVertexCount; i++) {
+            float u = textureCoordinates[i * 2];
+            float v = textureCoordinates[i * 2 + 1];
+            if (Float.isNaN(u) || Float.isNaN(v)) {
+                throw new ObjWriterException("Texture vertex at index " + i + " contains NaN values");
+            }
+            if (Float.isInfinite(u) || Float.isInfinite(v)) {
+                throw new ObjWriterException("Texture vertex at index " + i + " contains infinite values");
+            }
+            sb.append("vt ")
+                    .append(formatFloatCompact(u))
+                    .append(" ")
+                    .append(formatFloatCompact(v))
+                    .append("\n");
+        }
 
-                    if (hasTextures || hasNormals) {
-                        sb.append("/");
+        if (textureVertexCount > 0 && normalCount > 0) {
+            sb.append("\n");
+        }
 
-                        if (hasTextures) {
-                            sb.append(textureVertexIndices.get(j) + 1);
-                        }
+        for (int i = 0; i < normalCount; i++) {
+            final float x = normals[i * 3];
+            final float y = normals[i * 3 + 1];
+            final float z = normals[i * 3 + 2];
+            validateNormal(x, y, z, i);
+            sb.append("vn ")
+                    .append(formatFloatCompact(x))
+                    .append(" ")
+                    .append(formatFloatCompact(y))
+                    .append(" ")
+                    .append(formatFloatCompact(z))
+                    .append("\n");
+        }
+
+        if ((vertexCount > 0 || textureVertexCount > 0 || normalCount > 0) && mesh.getPolygonCount() > 0) {
+            sb.append("\n");
+        }
 
-                        if (hasNormals) {
-                            sb.append("/").append(normalIndices.get(j) + 1);;
-                        }
+        final int[] vertexIndices = mesh.getVertexIndices();
+        final int[] textureVertexIndices = mesh.getTextureVertexIndices();
+        final int[] normalIndices = mesh.getNormalIndices();
+
+        for (int p = 0; p < mesh.getPolygonCount(); p++) {
+            validatePolygon(mesh, p);
+
+            final int start = mesh.getPolygonStart(p);
+            final int end = start + mesh.getPolygonSize(p);
+            final boolean hasTextures = mesh.hasTextureVertices(p);
+            final boolean hasNormals = mesh.hasNormals(p);
+
+            sb.append("f");
+            for (int c = start; c < end; c++) {
+                sb.append(" ");
+                sb.append(vertexIndices[c] + 1);
+
+                if (hasTextures || hasNormals) {
+                    sb.append("/");
+
+                    if (hasTextures) {
+                        sb.append(textureVertexIndices[c] + 1);
+                    }
+
+                    if (hasNormals) {
+                        sb.append("/").append(normalIndices[c] + 1);
                     }
                 }
-                sb.append("\n");
             }
-
-        } catch (IndexOutOfBoundsException e) {
-            throw new ObjWriterException("Invalid model data structure", e);
-        } catch (NullPointerException e) {
-            throw new ObjWriterException("Model contains null elements", e);
+            sb.append("\n");
         }
 
         return sb.toString();
@@ -175,7 +237,9 @@ public class ObjWriter {
         );
     }
 
-    private static Matrix3 buildNormalMatrixOrNull(final Transform transform, final Matrix4 modelMatrix) {
+    // Матрица нормалей 3x3 (обратная транспонированная) в верхнем левом блоке Matrix4,
+    // чтобы нормали преобразовывались тем же пакетным BatchTransform.transformDirections
+    private static Matrix4 buildNormalMatrixOrNull(final Transform transform, final Matrix4 modelMatrix) {
         if (transform == null) {
             return null;
         }
@@ -186,30 +250,49 @@ public class ObjWriter {
                 m[i][j] = modelMatrix.get(i, j);
             }
         }
-        return new Matrix3(m).inverse().transpose();
+        final Matrix3 normalMatrix = new Matrix3(m).inverse().transpose();
+        final Matrix4 result = Matrix4.identity();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                result.set(i, j, normalMatrix.get(i, j));
+            }
+        }
+        return result;
     }
 
-    private static Vector3 transformVertex(final Vector3 vertex, final Matrix4 modelMatrix) {
-        if (vertex == null) {
-            return null;
-        }
+    // Тот же порядок операций, что и у Matrix4.multiply(Vector4) с w = 1
+    private static float[] transformPositions(final float[] positions, final int count, final Matrix4 modelMatrix) {
         if (modelMatrix == null) {
-            return vertex;
+            return positions;
         }
-
-        Vector4 v4 = new Vector4(vertex.getX(), vertex.getY(), vertex.getZ(), 1.0f);
-        Vector4 r = modelMatrix.multiply(v4);
-        return new Vector3(r.x, r.y, r.z);
+        final float[] result = new float[count * 3];
+        BatchTransform.transformPoints(modelMatrix, positions, result, count);
+        return result;
     }
 
-    private static Vector3 transformNormal(final Vector3 normal, final Matrix3 normalMatrix) {
-        if (normal == null) {
-            return null;
-        }
+    // Тот же порядок операций, что и у Matrix3.multiply(Vector3).normalized()
+    private static float[] transformNormals(final float[] normals, final int count, final Matrix4 normalMatrix) {
         if (normalMatrix == null) {
-            return normal;
+            return normals;
         }
-        return normalMatrix.multiply(normal).normalized();
+        final float[] result = new float[count * 3];
+        BatchTransform.transformDirections(normalMatrix, normals, result, count);
+        for (int i = 0; i < count * 3; i += 3) {
+            final float nx = result[i];
+            final float ny = result[i + 1];
+            final float nz = result[i + 2];
+            final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) {
+                result[i] = 0;
+                result[i + 1] = 0;
+                result[i + 2] = 0;
+            } else {
+                result[i] = nx / length;
+                result[i + 1] = ny / length;
+                result[i + 2] = nz / length;
+            }
+        }
+        return result;
     }
 
     //компактное форматирование чисел как в оригинальном файле
@@ -271,6 +354,60 @@ public class ObjWriter {
         }
     }
 
+    private static void validateVertex(float x, float y, float z, int index) {
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z)) {
+            throw new ObjWriterException("Vertex at index " + index + " contains NaN values");
+        }
+        if (Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
+            throw new ObjWriterException("Vertex at index " + index + " contains infinite values");
+        }
+    }
+
+    private static void validateNormal(float x, float y, float z, int index) {
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z)) {
+            throw new ObjWriterException("Normal at index " + index + " contains NaN values");
+        }
+        if (Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
+            throw new ObjWriterException("Normal at index " + index + " contains infinite values");
+        }
+    }
+
+    // Проверка полигона упакованной сетки: согласованность углов гарантирует сама сетка
+    private static void validatePolygon(PackedMesh mesh, int polyIndex) {
+        final int size = mesh.getPolygonSize(polyIndex);
+        if (size == 0) {
+            throw new ObjWriterException("Polygon at index " + polyIndex + " has no vertices");
+        }
+        if (size < 3) {
+            throw new ObjWriterException("Polygon at index " + polyIndex + " has less than 3 vertices");
+        }
+
+        final int start = mesh.getPolygonStart(polyIndex);
+        for (int c = start; c < start + size; c++) {
+            final int vertexIndex = mesh.getVertexIndices()[c];
+            if (vertexIndex < 0 || vertexIndex >= mesh.getVertexCount()) {
+                throw new ObjWriterException(
+                        "Polygon at index " + polyIndex + " references invalid vertex index " +
+                                vertexIndex + " (available vertices: 0-" + (mesh.getVertexCount() - 1) + ")"
+                );
+            }
+            final int texIndex = mesh.getTextureVertexIndices()[c];
+            if (texIndex != PackedMesh.NO_INDEX && (texIndex < 0 || texIndex >= mesh.getTextureVertexCount())) {
+                throw new ObjWriterException(
+                        "Polygon at index " + polyIndex + " references invalid texture vertex index " +
+                                texIndex + " (available texture vertices: 0-" + (mesh.getTextureVertexCount() - 1) + ")"
+                );
+            }
+            final int normalIndex = mesh.getNormalIndices()[c];
+            if (normalIndex != PackedMesh.NO_INDEX && (normalIndex < 0 || normalIndex >= mesh.getNormalCount())) {
+                throw new ObjWriterException(
+                        "Polygon at index " + polyIndex + " references invalid normal index " +
+                                normalIndex + " (available normals: 0-" + (mesh.getNormalCount() - 1) + ")"
+                );
+            }
+        }
+    }
+
     protected static void validatePolygon(Polygon polygon, int polyIndex, int vertexCount,
                                           int textureVertexCount, int normalCount) {
         if (polygon == null) {
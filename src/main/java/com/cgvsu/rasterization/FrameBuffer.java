@@ -0,0 +1,274 @@
+package com.cgvsu.rasterization;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * Буфер кадра: упакованные пиксели в формате premultiplied ARGB (int на пиксель).
+ *
+ * Все растеризаторы пишут сюда, а на канвас кадр переносится один раз
+ * через {@link #flush(PixelWriter)} — вместо PixelWriter.setColor на каждый фрагмент.
+ *
+ * Буфер может покрывать не весь экран, а прямоугольник с началом в (originX, originY):
+ * так устроены тайлы многопоточного растеризатора. Координаты x, y всегда экранные.
+ *
+ * По желанию рядом с цветом хранятся номера объекта и полигона, нарисованных в пикселе
+ * (ID-буфер для выбора мышью). Их пишет тот же {@link #setArgb}, пока заданы текущие номера
+ * ({@link #setCurrentIds}); так растеризаторам не нужно знать об ID-буфере.
+ */
+public class FrameBuffer {
+
+    // Пиксель без объекта (фон) или номера не записывались
+    public static final int NO_ID = -1;
+
+    private final int originX;
+    private final int originY;
+    private int width;
+    private int height;
+    private int[] pixels;
+    // ID-буфер: null, если выключен
+    private int[] objectIds;
+    private int[] polygonIds;
+    private int currentObjectId = NO_ID;
+    private int currentPolygonId = NO_ID;
+    private boolean writeIds;
+
+    public FrameBuffer(int width, int height) {
+        this(0, 0, width, height);
+    }
+
+    public FrameBuffer(int originX, int originY, int width, int height) {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        this.pixels = new int[this.width * this.height];
+    }
+
+    /**
+     * Меняет размер буфера. Память переиспользуется, если размер не изменился.
+     */
+    public void resize(int width, int height) {
+        width = Math.max(0, width);
+        height = Math.max(0, height);
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+        if (objectIds != null) {
+            objectIds = new int[width * height];
+            polygonIds = new int[width * height];
+            Arrays.fill(objectIds, NO_ID);
+            Arrays.fill(polygonIds, NO_ID);
+        }
+    }
+
+    /**
+     * Включает или выключает ID-буфер. Включённый очищается вместе с цветом в {@link #clear}.
+     */
+    public void setIdsEnabled(boolean enabled) {
+        if (enabled == hasIds()) {
+            return;
+        }
+        if (enabled) {
+            objectIds = new int[width * height];
+            polygonIds = new int[width * height];
+            Arrays.fill(objectIds, NO_ID);
+            Arrays.fill(polygonIds, NO_ID);
+        } else {
+            objectIds = null;
+            polygonIds = null;
+        }
+        setCurrentIds(currentObjectId, currentPolygonId);
+    }
+
+    public boolean hasIds() {
+        return objectIds != null;
+    }
+
+    /**
+     * Номера, которые {@link #setArgb} записывает в ID-буфер. С objectId = {@link #NO_ID}
+     * ID-буфер не меняется (каркас, подсветка поверх кадра).
+     */
+    public void setCurrentIds(int objectId, int polygonId) {
+        currentObjectId = objectId;
+        currentPolygonId = polygonId;
+        writeIds = objectIds != null && objectId != NO_ID;
+    }
+
+    public void clear(int argb) {
+        Arrays.fill(pixels, argb);
+        if (objectIds != null) {
+            Arrays.fill(objectIds, NO_ID);
+            Arrays.fill(polygonIds, NO_ID);
+        }
+    }
+
+    public void setArgb(int x, int y, int argb) {
+        final int index = (y - originY) * width + (x - originX);
+        pixels[index] = argb;
+        if (writeIds) {
+            objectIds[index] = currentObjectId;
+            polygonIds[index] = currentPolygonId;
+        }
+    }
+
+    /**
+     * Накладывает полупрозрачный premultiplied цвет поверх пикселя (source over).
+     * ID-буфер не меняется: подсветка не заслоняет объект при выборе.
+     */
+    public void blendArgb(int x, int y, int argb) {
+        final int index = (y - originY) * width + (x - originX);
+        final int inverseAlpha = 255 - (argb >>> 24);
+        final int destination = pixels[index];
+        final int a = (argb >>> 24) + ((destination >>> 24) * inverseAlpha + 127) / 255;
+        final int r = ((argb >> 16) & 0xFF) + (((destination >> 16) & 0xFF) * inverseAlpha + 127) / 255;
+        final int g = ((argb >> 8) & 0xFF) + (((destination >> 8) & 0xFF) * inverseAlpha + 127) / 255;
+        final int b = (argb & 0xFF) + ((destination & 0xFF) * inverseAlpha + 127) / 255;
+        pixels[index] = (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    public int getArgb(int x, int y) {
+        return pixels[(y - originY) * width + (x - originX)];
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Номер объекта в пикселе; {@link #NO_ID} вне буфера, на фоне или без ID-буфера.
+     */
+    public int getObjectId(int x, int y) {
+        if (objectIds == null || x < getMinX() || x > getMaxX() || y < getMinY() || y > getMaxY()) {
+            return NO_ID;
+        }
+        return objectIds[(y - originY) * width + (x - originX)];
+    }
+
+    /**
+     * Номер полигона объекта {@link #getObjectId} в пикселе или {@link #NO_ID}.
+     */
+    public int getPolygonId(int x, int y) {
+        if (polygonIds == null || x < getMinX() || x > getMaxX() || y < getMinY() || y > getMaxY()) {
+            return NO_ID;
+        }
+        return polygonIds[(y - originY) * width + (x - originX)];
+    }
+
+    /**
+     * Обходит пиксели прямоугольника (экранные координаты, включительно), в которых нарисован объект:
+     * выбор рамкой или лассо (лассо проверяет координаты пикселя в visitor).
+     */
+    public void visitIds(int minX, int minY, int maxX, int maxY, IdVisitor visitor) {
+        if (objectIds == null) {
+            return;
+        }
+        minX = Math.max(minX, getMinX());
+        minY = Math.max(minY, getMinY());
+        maxX = Math.min(maxX, getMaxX());
+        maxY = Math.min(maxY, getMaxY());
+        for (int y = minY; y <= maxY; y++) {
+            int index = (y - originY) * width + (minX - originX);
+            for (int x = minX; x <= maxX; x++, index++) {
+                if (objectIds[index] != NO_ID) {
+                    visitor.visit(x, y, objectIds[index], polygonIds[index]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface IdVisitor {
+        void visit(int x, int y, int objectId, int polygonId);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Границы покрываемой области в экранных координатах (включительно)
+    public int getMinX() {
+        return originX;
+    }
+
+    public int getMinY() {
+        return originY;
+    }
+
+    public int getMaxX() {
+        return originX + width - 1;
+    }
+
+    public int getMaxY() {
+        return originY + height - 1;
+    }
+
+    /**
+     * Копирует содержимое буфера в ту же область другого (большего) буфера.
+     * ID-буфер копируется, если он включён у обоих.
+     */
+    public void copyTo(FrameBuffer target) {
+        for (int row = 0; row < height; row++) {
+            int targetOffset = (originY + row - target.originY) * target.width + (originX - target.originX);
+            System.arraycopy(pixels, row * width, target.pixels, targetOffset, width);
+            if (objectIds != null && target.objectIds != null) {
+                System.arraycopy(objectIds, row * width, target.objectIds, targetOffset, width);
+                System.arraycopy(polygonIds, row * width, target.polygonIds, targetOffset, width);
+            }
+        }
+    }
+
+    /**
+     * Переносит весь кадр в PixelWriter (канвас или WritableImage) одним вызовом.
+     */
+    public void flush(PixelWriter pixelWriter) {
+        if (width == 0 || height == 0) {
+            return;
+        }
+        pixelWriter.setPixels(originX, originY, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+    }
+
+    /**
+     * Упаковывает цвет JavaFX в premultiplied ARGB.
+     */
+    public static int packColor(Color color) {
+        return packColor(color.getRed(), color.getGreen(), color.getBlue(), color.getOpacity());
+    }
+
+    /**
+     * То же для компонент из [0, 1] без создания Color (для растеризаторов).
+     */
+    public static int packColor(double red, double green, double blue, double opacity) {
+        int a = (int) Math.round(opacity * 255.0);
+        int r = (int) Math.round(red * opacity * 255.0);
+        int g = (int) Math.round(green * opacity * 255.0);
+        int b = (int) Math.round(blue * opacity * 255.0);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Обратное преобразование premultiplied ARGB в цвет JavaFX.
+     */
+    public static Color unpackColor(int argb) {
+        int a = (argb >>> 24) & 0xFF;
+        if (a == 0) {
+            return Color.TRANSPARENT;
+        }
+        return Color.rgb(
+                Math.min(255, ((argb >> 16) & 0xFF) * 255 / a),
+                Math.min(255, ((argb >> 8) & 0xFF) * 255 / a),
+                Math.min(255, (argb & 0xFF) * 255 / a),
+                a / 255.0
+        );
+    }
+}
@@ -2,163 +2,64 @@ package com.cgvsu.rasterization;
 
 import com.cgvsu.math.Vector3;
 import com.cgvsu.render_engine.Texture;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.PixelWriter;
 import javafx.scene.paint.Color;
 
-import java.util.Arrays;
-import java.util.Comparator;
-
+/**
+ * Растеризация треугольников и линий в FrameBuffer с Z-буфером.
+ *
+ * Треугольники обходятся по целочисленным рёберным функциям (см. {@link TriangleSetup}):
+ * блоками 8x8, пустые блоки пропускаются, в покрытых целиком пиксели не проверяются.
+ * Значения функций прибавляются на каждый пиксель, веса вершин получаются из них
+ * одним умножением, а во внутренних циклах нет выделения памяти. Пиксели на общем ребре
+ * соседних треугольников рисуются ровно один раз (правило top-left).
+ *
+ * Перспективно-корректные методы рисуют через {@link TriangleRasterizer} текущего потока,
+ * остальные — через такой же переиспользуемый обходчик с линейной по экрану интерполяцией;
+ * объектов на треугольник не создаётся.
+ */
 public class Rasterization {
 
     /**
      * Заполнение треугольника одним цветом с использованием Z-буфера
      */
     public static void fillTriangle(
-            final GraphicsContext graphicsContext,
+            final FrameBuffer frameBuffer,
             final ZBuffer zBuffer,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
             double x3, double y3, double z3,
             Color color) {
-        final PixelWriter pixelWriter = graphicsContext.getPixelWriter();
-        fillTriangleScanline(pixelWriter, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3, color);
+        fillTriangleFlat(frameBuffer, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3, color);
     }
 
     /**
      * Заполнение треугольника с интерполяцией цвета и Z-буфером
      */
     public static void fillTriangle(
-            final GraphicsContext graphicsContext,
+            final FrameBuffer frameBuffer,
             final ZBuffer zBuffer,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
             double x3, double y3, double z3,
             Color color1, Color color2, Color color3) {
-        final PixelWriter pixelWriter = graphicsContext.getPixelWriter();
-        fillTriangleBarycentric(pixelWriter, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3, color1, color2, color3);
+        fillTriangleBarycentric(frameBuffer, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3, color1, color2, color3);
     }
 
     /**
-     * Быстрое заполнение треугольника с Z-буфером (scanline)
+     * Заполнение треугольника одним цветом, глубина линейна по экрану
      */
-    private static void fillTriangleScanline(
-            PixelWriter pixelWriter,
+    private static void fillTriangleFlat(
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
             double x3, double y3, double z3,
             Color color) {
 
-        double[][] vertices = {{x1, y1, z1}, {x2, y2, z2}, {x3, y3, z3}};
-        Arrays.sort(vertices, Comparator.comparingDouble(v -> v[1]));
-
-        double[] top = vertices[0];
-        double[] middle = vertices[1];
-        double[] bottom = vertices[2];
-
-        if (bottom[1] != top[1]) {
-            double t = (middle[1] - top[1]) / (bottom[1] - top[1]);
-            double xOnLongSide = interpolate(top[0], bottom[0], t);
-            double zOnLongSide = interpolate(top[2], bottom[2], t);
-            fillScanlinePart(pixelWriter, zBuffer, top, middle, new double[]{xOnLongSide, middle[1], zOnLongSide}, color);
-            fillScanlinePart(pixelWriter, zBuffer, middle, bottom, new double[]{xOnLongSide, middle[1], zOnLongSide}, color);
-        }
-    }
-
-    /**
-     * Заполняет часть треугольника между двумя y-координатами с Z-буфером
-     */
-    private static void fillScanlinePart(
-            PixelWriter pixelWriter,
-            ZBuffer zBuffer,
-            double[] start, double[] end, double[] splitPoint,
-            Color color) {
-
-        double dy = end[1] - start[1];
-        if (dy == 0) return;
-
-        int startY = (int) Math.ceil(start[1]);
-        int endY = (int) Math.floor(end[1]);
-
-        for (int y = startY; y <= endY; y++) {
-            if (y < 0 || y >= zBuffer.getHeight()) continue;
-
-            double t = (y - start[1]) / dy;
-            t = Math.max(0, Math.min(1, t));
-
-            double xLeft, xRight, zLeft, zRight;
-            if (y <= splitPoint[1]) {
-                xLeft = interpolate(start[0], splitPoint[0], t);
-                zLeft = interpolate(start[2], splitPoint[2], t);
-            } else {
-                xLeft = interpolate(splitPoint[0], end[0], t);
-                zLeft = interpolate(splitPoint[2], end[2], t);
-            }
-            xRight = interpolate(start[0], end[0], t);
-            zRight = interpolate(start[2], end[2], t);
-
-            if (xLeft > xRight) {
-                double temp = xLeft;
-                xLeft = xRight;
-                xRight = temp;
-                temp = zLeft;
-                zLeft = zRight;
-                zRight = temp;
-            }
-
-            fillHorizontalLine(pixelWriter, zBuffer, xLeft, xRight, zLeft, zRight, y, color);
-        }
-    }
-
-    /**
-     * Заполняет горизонтальную линию с Z-буфером
-     */
-    private static void fillHorizontalLine(
-            PixelWriter pixelWriter,
-            ZBuffer zBuffer,
-            double x1, double x2, double z1, double z2, int y, Color color) {
-        if (x1 > x2) {
-            double temp = x1;
-            x1 = x2;
-            x2 = temp;
-            temp = z1;
-            z1 = z2;
-            z2 = temp;
-        }
-        int startX = (int) Math.ceil(x1);
-        int endX = (int) Math.floor(x2);
-
-        double dx = x2 - x1;
-
-        // Защита от деления на ноль (может возникать на границах треугольника)
-        if (Math.abs(dx) < 1e-12) {
-            int x = (int) Math.round(x1);
-            if (x >= 0 && x < zBuffer.getWidth() && y >= 0 && y < zBuffer.getHeight()) {
-                double z = z1;
-                if (Double.isFinite(z) && z < zBuffer.get(x, y)) {
-                    pixelWriter.setColor(x, y, color);
-                    zBuffer.set(x, y, z);
-                }
-            }
-            return;
-        }
-        for (int x = startX; x <= endX; x++) {
-            if (x < 0 || x >= zBuffer.getWidth()) continue;
-
-            double t = (x - x1) / dx;
-            double z = interpolate(z1, z2, t);
-
-            if (!Double.isFinite(z)) {
-                continue;
-            }
-
-            // Проверка глубины
-            if (z < zBuffer.get(x, y)) {
-                pixelWriter.setColor(x, y, color);
-                zBuffer.set(x, y, z);
-            }
-        }
+        final ScreenLinearTriangle triangle = ScreenLinearTriangle.forCurrentThread();
+        if (!triangle.begin(frameBuffer, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3)) return;
+        triangle.argb = FrameBuffer.packColor(color);
+        triangle.traverse(ScreenLinearTriangle.FLAT);
     }
 
     // =========================
@@ -174,42 +75,40 @@ public class Rasterization {
      *  - zOverW = clip.z/clip.w (NDC z)
      */
     public static void fillTrianglePerspectiveCorrect(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double invW1, double zOverW1,
             double x2, double y2, double invW2, double zOverW2,
             double x3, double y3, double invW3, double zOverW3,
             Color color
     ) {
-        int minX = (int) Math.max(0, Math.floor(Math.min(x1, Math.min(x2, x3))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1, Math.ceil(Math.max(x1, Math.max(x2, x3))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(y1, Math.min(y2, y3))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1, Math.ceil(Math.max(y1, Math.max(y2, y3))));
-
-        BarycentricConstants constants = new BarycentricConstants(x1, y1, x2, y2, x3, y3);
-        if (constants.isDegenerate) return;
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-                double[] lambdas = computeBarycentricCoordinates(x, y, constants);
-                double l1 = lambdas[0], l2 = lambdas[1], l3 = lambdas[2];
-
-                if (l1 >= 0 && l2 >= 0 && l3 >= 0) {
-                    double invW = l1 * invW1 + l2 * invW2 + l3 * invW3;
-                    if (invW <= 1e-12 || !Double.isFinite(invW)) continue;
-
-                    double zOverW = l1 * zOverW1 + l2 * zOverW2 + l3 * zOverW3;
-                    double z = zOverW / invW;
-
-                    if (!Double.isFinite(z)) continue;
+        final TriangleRasterizer rasterizer = TriangleRasterizer.forCurrentThread();
+        rasterizer.setColor(color);
+        rasterizer.setVertex(0, x1, y1, invW1, zOverW1, 0, 0, 0, 0, 0);
+        rasterizer.setVertex(1, x2, y2, invW2, zOverW2, 0, 0, 0, 0, 0);
+        rasterizer.setVertex(2, x3, y3, invW3, zOverW3, 0, 0, 0, 0, 0);
+        rasterizer.draw(frameBuffer, zBuffer, TriangleRasterizer.Shading.FLAT);
+    }
 
-                    if (z < zBuffer.get(x, y)) {
-                        pixelWriter.setColor(x, y, color);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
-        }
+    /**
+     * Полупрозрачный треугольник поверх кадра (подсветка): глубина только проверяется
+     * со сдвигом depthOffset, а цвет argb (premultiplied) смешивается с пикселем.
+     */
+    public static void blendTrianglePerspectiveCorrect(
+            FrameBuffer frameBuffer,
+            ZBuffer zBuffer,
+            double x1, double y1, double invW1, double zOverW1,
+            double x2, double y2, double invW2, double zOverW2,
+            double x3, double y3, double invW3, double zOverW3,
+            int argb,
+            float depthOffset
+    ) {
+        final TriangleRasterizer rasterizer = TriangleRasterizer.forCurrentThread();
+        rasterizer.setBlend(argb, depthOffset);
+        rasterizer.setVertex(0, x1, y1, invW1, zOverW1, 0, 0, 0, 0, 0);
+        rasterizer.setVertex(1, x2, y2, invW2, zOverW2, 0, 0, 0, 0, 0);
+        rasterizer.setVertex(2, x3, y3, invW3, zOverW3, 0, 0, 0, 0, 0);
+        rasterizer.draw(frameBuffer, zBuffer, TriangleRasterizer.Shading.BLEND);
     }
 
     /**
@@ -217,150 +116,69 @@ public class Rasterization {
      * uOverW = u * invW, vOverW = v * invW.
      */
     public static void fillTriangleTexturedPerspectiveCorrect(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double invW1, double zOverW1, double uOverW1, double vOverW1,
             double x2, double y2, double invW2, double zOverW2, double uOverW2, double vOverW2,
             double x3, double y3, double invW3, double zOverW3, double uOverW3, double vOverW3,
             Texture texture
     ) {
-        if (texture == null || !texture.isValid()) return;
-
-        int minX = (int) Math.max(0, Math.floor(Math.min(x1, Math.min(x2, x3))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1, Math.ceil(Math.max(x1, Math.max(x2, x3))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(y1, Math.min(y2, y3))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1, Math.ceil(Math.max(y1, Math.max(y2, y3))));
-
-        BarycentricConstants constants = new BarycentricConstants(x1, y1, x2, y2, x3, y3);
-        if (constants.isDegenerate) return;
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-                double[] lambdas = computeBarycentricCoordinates(x, y, constants);
-                double l1 = lambdas[0], l2 = lambdas[1], l3 = lambdas[2];
-
-                if (l1 >= 0 && l2 >= 0 && l3 >= 0) {
-                    double invW = l1 * invW1 + l2 * invW2 + l3 * invW3;
-                    if (invW <= 1e-12 || !Double.isFinite(invW)) continue;
-
-                    double z = (l1 * zOverW1 + l2 * zOverW2 + l3 * zOverW3) / invW;
-                    if (!Double.isFinite(z)) continue;
-
-                    if (z < zBuffer.get(x, y)) {
-                        double u = (l1 * uOverW1 + l2 * uOverW2 + l3 * uOverW3) / invW;
-                        double v = (l1 * vOverW1 + l2 * vOverW2 + l3 * vOverW3) / invW;
+        fillTriangleTexturedPerspectiveCorrect(frameBuffer, zBuffer,
+                x1, y1, invW1, zOverW1, uOverW1, vOverW1,
+                x2, y2, invW2, zOverW2, uOverW2, vOverW2,
+                x3, y3, invW3, zOverW3, uOverW3, vOverW3,
+                texture, Texture.Filter.NEAREST);
+    }
 
-                        Color color = texture.getColor(u, v);
-                        pixelWriter.setColor(x, y, color);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
-        }
+    /**
+     * То же с фильтрацией текстуры. Мип-уровень выбирается в каждом пикселе
+     * по экранным производным UV: u = U / W, где U = uOverW и W = invW линейны по экрану,
+     * поэтому du/dx = (dU/dx - u * dW/dx) / W.
+     */
+    public static void fillTriangleTexturedPerspectiveCorrect(
+            FrameBuffer frameBuffer,
+            ZBuffer zBuffer,
+            double x1, double y1, double invW1, double zOverW1, double uOverW1, double vOverW1,
+            double x2, double y2, double invW2, double zOverW2, double uOverW2, double vOverW2,
+            double x3, double y3, double invW3, double zOverW3, double uOverW3, double vOverW3,
+            Texture texture,
+            Texture.Filter filter
+    ) {
+        final TriangleRasterizer rasterizer = TriangleRasterizer.forCurrentThread();
+        rasterizer.setTexture(texture, filter);
+        rasterizer.setVertex(0, x1, y1, invW1, zOverW1, uOverW1, vOverW1, 0, 0, 0);
+        rasterizer.setVertex(1, x2, y2, invW2, zOverW2, uOverW2, vOverW2, 0, 0, 0);
+        rasterizer.setVertex(2, x3, y3, invW3, zOverW3, uOverW3, vOverW3, 0, 0, 0);
+        rasterizer.draw(frameBuffer, zBuffer, TriangleRasterizer.Shading.TEXTURED);
     }
 
     /**
      * Заполнение треугольника с интерполяцией цвета через барицентрические координаты с Z-буфером
      */
     private static void fillTriangleBarycentric(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
             double x3, double y3, double z3,
             Color color1, Color color2, Color color3) {
-        int minX = (int) Math.max(0, Math.floor(Math.min(x1, Math.min(x2, x3))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1, Math.ceil(Math.max(x1, Math.max(x2, x3))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(y1, Math.min(y2, y3))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1, Math.ceil(Math.max(y1, Math.max(y2, y3))));
-
-        BarycentricConstants constants = new BarycentricConstants(x1, y1, x2, y2, x3, y3);
-
-        if (constants.isDegenerate) {
-            return;
-        }
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-                double[] lambdas = computeBarycentricCoordinates(x, y, constants);
 
-                if (lambdas[0] >= 0 && lambdas[1] >= 0 && lambdas[2] >= 0) {
-                    double z = lambdas[0] * z1 + lambdas[1] * z2 + lambdas[2] * z3;
+        final ScreenLinearTriangle triangle = ScreenLinearTriangle.forCurrentThread();
+        if (!triangle.begin(frameBuffer, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3)) return;
 
-                    // Проверка глубины
-                    if (z < zBuffer.get(x, y)) {
-                        Color color = interpolateColorBarycentric(lambdas[0], lambdas[1], lambdas[2],
-                                color1, color2, color3);
-                        pixelWriter.setColor(x, y, color);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
-        }
+        // Компоненты цветов достаём один раз, в цикле — только арифметика
+        triangle.r1 = color1.getRed(); triangle.g1 = color1.getGreen(); triangle.b1 = color1.getBlue(); triangle.a1 = color1.getOpacity();
+        triangle.r2 = color2.getRed(); triangle.g2 = color2.getGreen(); triangle.b2 = color2.getBlue(); triangle.a2 = color2.getOpacity();
+        triangle.r3 = color3.getRed(); triangle.g3 = color3.getGreen(); triangle.b3 = color3.getBlue(); triangle.a3 = color3.getOpacity();
+        triangle.traverse(ScreenLinearTriangle.GRADIENT);
     }
 
-    /**
-     * Структура для хранения вычисленных констант барицентрических координат
-     */
-    private static class BarycentricConstants {
-        final double x1, y1, x2, y2, x3, y3;
-        final double det;
-        final double invDet;
-        final boolean isDegenerate;
-
-        BarycentricConstants(double x1, double y1, double x2, double y2, double x3, double y3) {
-            this.x1 = x1; this.y1 = y1;
-            this.x2 = x2; this.y2 = y2;
-            this.x3 = x3; this.y3 = y3;
-
-            this.det = (x1 - x3) * (y2 - y3) - (x2 - x3) * (y1 - y3);
-            this.isDegenerate = Math.abs(det) < 1e-10;
-            this.invDet = isDegenerate ? 0 : 1.0 / det;
-        }
-    }
-
-    /**
-     * Вычисление барицентрических координат для точки (x,y)
-     */
-    private static double[] computeBarycentricCoordinates(int x, int y, BarycentricConstants constants) {
-        if (constants.isDegenerate) {
-            return new double[]{-1, -1, -1};
-        }
-        double lambda1 = ((x - constants.x3) * (constants.y2 - constants.y3) -
-                (constants.x2 - constants.x3) * (y - constants.y3)) * constants.invDet;
-        double lambda2 = ((constants.x1 - constants.x3) * (y - constants.y3) -
-                (x - constants.x3) * (constants.y1 - constants.y3)) * constants.invDet;
-        double lambda3 = 1 - lambda1 - lambda2;
-        return new double[]{lambda1, lambda2, lambda3};
-    }
-
-    /**
-     * Интерполяция цвета через барицентрические координаты
-     */
-    private static Color interpolateColorBarycentric(double lambda1, double lambda2, double lambda3,
-                                                     Color color1, Color color2, Color color3) {
-        double r = lambda1 * color1.getRed() + lambda2 * color2.getRed() + lambda3 * color3.getRed();
-        double g = lambda1 * color1.getGreen() + lambda2 * color2.getGreen() + lambda3 * color3.getGreen();
-        double b = lambda1 * color1.getBlue() + lambda2 * color2.getBlue() + lambda3 * color3.getBlue();
-        double a = lambda1 * color1.getOpacity() + lambda2 * color2.getOpacity() + lambda3 * color3.getOpacity();
-
-        r = Math.max(0, Math.min(1, r));
-        g = Math.max(0, Math.min(1, g));
-        b = Math.max(0, Math.min(1, b));
-        a = Math.max(0, Math.min(1, a));
-
-        return new Color(r, g, b, a);
-    }
-
-    /**
-     * Линейная интерполяция
-     */
-    private static double interpolate(double a, double b, double t) {
-        return a + t * (b - a);
+    private static double clamp01(double value) {
+        return Math.max(0, Math.min(1, value));
     }
 
     public static void fillTriangleTextured(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double z1, double u1, double v1,
             double x2, double y2, double z2, double u2, double v2,
@@ -371,58 +189,28 @@ public class Rasterization {
             return;
         }
 
-        int minX = (int) Math.max(0, Math.floor(Math.min(x1, Math.min(x2, x3))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1,
-                Math.ceil(Math.max(x1, Math.max(x2, x3))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(y1, Math.min(y2, y3))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1,
-                Math.ceil(Math.max(y1, Math.max(y2, y3))));
-
-        BarycentricConstants constants =
-                new BarycentricConstants(x1, y1, x2, y2, x3, y3);
-
-        if (constants.isDegenerate) {
+        final ScreenLinearTriangle triangle = ScreenLinearTriangle.forCurrentThread();
+        if (!triangle.begin(frameBuffer, zBuffer, x1, y1, z1, x2, y2, z2, x3, y3, z3)) {
             return;
         }
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-
-                double[] lambdas = computeBarycentricCoordinates(x, y, constants);
-                double l1 = lambdas[0];
-                double l2 = lambdas[1];
-                double l3 = lambdas[2];
-
-                if (l1 >= 0 && l2 >= 0 && l3 >= 0) {
-
-                    double z = l1 * z1 + l2 * z2 + l3 * z3;
-
-                    if (z < zBuffer.get(x, y)) {
-
-                        double u = l1 * u1 + l2 * u2 + l3 * u3;
-                        double v = l1 * v1 + l2 * v2 + l3 * v3;
-
-                        Color color = texture.getColor(u, v);
-
-                        pixelWriter.setColor(x, y, color);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
-        }
+        triangle.texture = texture;
+        triangle.u1 = u1; triangle.v1 = v1;
+        triangle.u2 = u2; triangle.v2 = v2;
+        triangle.u3 = u3; triangle.v3 = v3;
+        triangle.traverse(ScreenLinearTriangle.TEXTURED);
     }
 
     /**
      * Рисует линию с учетом Z-буфера
      */
     public static void drawLineWithZBuffer(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             Vector3 start,
             Vector3 end,
             Color color) {
 
-        drawLineWithZBuffer(pixelWriter, zBuffer,
+        drawLineWithZBuffer(frameBuffer, zBuffer,
                 start.x, start.y, start.z,
                 end.x, end.y, end.z,
                 color);
@@ -432,12 +220,14 @@ public class Rasterization {
      * Рисует линию с учетом Z-буфера (алгоритм Брезенхема)
      */
     private static void drawLineWithZBuffer(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
             Color color) {
 
+        final int argb = FrameBuffer.packColor(color);
+
         int x0 = (int) Math.round(x1);
         int y0 = (int) Math.round(y1);
         int x1i = (int) Math.round(x2);
@@ -457,12 +247,11 @@ public class Rasterization {
 
         while (true) {
 
-            if (x0 >= 0 && x0 < zBuffer.getWidth()
-                    && y0 >= 0 && y0 < zBuffer.getHeight()) {
+            if (x0 >= zBuffer.getMinX() && x0 <= zBuffer.getMaxX()
+                    && y0 >= zBuffer.getMinY() && y0 <= zBuffer.getMaxY()) {
 
-                if (z < zBuffer.get(x0, y0)) {
-                    zBuffer.set(x0, y0, z);
-                    pixelWriter.setColor(x0, y0, color);
+                if (zBuffer.testAndSet(x0, y0, (float) z)) {
+                    frameBuffer.setArgb(x0, y0, argb);
                 }
             }
 
@@ -487,24 +276,27 @@ public class Rasterization {
     }
 
     public static void drawLineWithDepthTestOnly(
-            PixelWriter pixelWriter,
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             Vector3 start,
             Vector3 end,
             Color color) {
 
-        drawLineWithDepthTestOnly(pixelWriter, zBuffer,
+        drawLineWithDepthTestOnly(frameBuffer, zBuffer,
                 start.x, start.y, start.z,
                 end.x, end.y, end.z,
-                color);
+                FrameBuffer.packColor(color));
     }
 
-    private static void drawLineWithDepthTestOnly(
-            PixelWriter pixelWriter,
+    /**
+     * То же для концов, заданных координатами, и уже упакованного цвета (без объектов на ребро).
+     */
+    public static void drawLineWithDepthTestOnly(
+            FrameBuffer frameBuffer,
             ZBuffer zBuffer,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
-            Color color) {
+            int argb) {
 
         int x0 = (int) Math.round(x1);
         int y0 = (int) Math.round(y1);
@@ -524,12 +316,12 @@ public class Rasterization {
         double z = z1;
 
         while (true) {
-            if (x0 >= 0 && x0 < zBuffer.getWidth()
-                    && y0 >= 0 && y0 < zBuffer.getHeight()) {
+            if (x0 >= zBuffer.getMinX() && x0 <= zBuffer.getMaxX()
+                    && y0 >= zBuffer.getMinY() && y0 <= zBuffer.getMaxY()) {
 
                 // ТОЛЬКО ПРОВЕРКА глубины
-                if (z < zBuffer.get(x0, y0)) {
-                    pixelWriter.setColor(x0, y0, color);
+                if (zBuffer.test(x0, y0, (float) z)) {
+                    frameBuffer.setArgb(x0, y0, argb);
                     // ВАЖНО: НЕ ДЕЛАЕМ zBuffer.set(...)
                 }
             }
@@ -549,4 +341,99 @@ public class Rasterization {
 
 
 
-}
\ No newline at end of file
+
+    /**
+     * Обход треугольника для методов с линейной по экрану интерполяцией (глубина, цвет, UV).
+     * Как и {@link TriangleRasterizer}, переиспользуется внутри потока: ни настройка,
+     * ни обход не создают объектов на треугольник.
+     */
+    private static final class ScreenLinearTriangle implements TriangleSetup.SpanVisitor {
+        static final int FLAT = 0;
+        static final int GRADIENT = 1;
+        static final int TEXTURED = 2;
+
+        private static final ThreadLocal<ScreenLinearTriangle> PER_THREAD =
+                ThreadLocal.withInitial(ScreenLinearTriangle::new);
+
+        private final TriangleSetup setup = new TriangleSetup();
+        private int mode;
+        private FrameBuffer frameBuffer;
+        private ZBuffer zBuffer;
+        private double z1, z2, z3;
+
+        // Параметры закраски; какие из них используются, зависит от mode
+        int argb;
+        double r1, g1, b1, a1;
+        double r2, g2, b2, a2;
+        double r3, g3, b3, a3;
+        Texture texture;
+        double u1, v1, u2, v2, u3, v3;
+
+        static ScreenLinearTriangle forCurrentThread() {
+            return PER_THREAD.get();
+        }
+
+        /**
+         * Настраивает обход; false — треугольник рисовать не нужно (вырожден, вне буфера или заслонён).
+         */
+        boolean begin(FrameBuffer frameBuffer, ZBuffer zBuffer,
+                      double x1, double y1, double z1,
+                      double x2, double y2, double z2,
+                      double x3, double y3, double z3) {
+            if (!setup.setup(x1, y1, x2, y2, x3, y3, zBuffer)) return false;
+            if (setup.isOccluded(zBuffer, z1, z2, z3)) return false;
+            this.frameBuffer = frameBuffer;
+            this.zBuffer = zBuffer;
+            this.z1 = z1;
+            this.z2 = z2;
+            this.z3 = z3;
+            return true;
+        }
+
+        void traverse(int mode) {
+            this.mode = mode;
+            setup.traverse(this);
+            // Буферы и текстура не удерживаются между треугольниками
+            frameBuffer = null;
+            zBuffer = null;
+            texture = null;
+        }
+
+        @Override
+        public void visit(int y, int from, int to, long e1, long e2, long e3, boolean covered) {
+            final TriangleSetup setup = this.setup;
+            final long step1 = setup.e1StepX, step2 = setup.e2StepX, step3 = setup.e3StepX;
+            for (int x = from; x <= to; x++, e1 += step1, e2 += step2, e3 += step3) {
+                if (covered || (e1 | e2 | e3) >= 0) {
+                    double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+                    double z = l1 * z1 + l2 * z2 + l3 * z3;
+
+                    switch (mode) {
+                        case FLAT:
+                            if (Double.isFinite(z) && zBuffer.testAndSet(x, y, (float) z)) {
+                                frameBuffer.setArgb(x, y, argb);
+                            }
+                            break;
+                        case GRADIENT:
+                            if (zBuffer.testAndSet(x, y, (float) z)) {
+                                frameBuffer.setArgb(x, y, FrameBuffer.packColor(
+                                        clamp01(l1 * r1 + l2 * r2 + l3 * r3),
+                                        clamp01(l1 * g1 + l2 * g2 + l3 * g3),
+                                        clamp01(l1 * b1 + l2 * b2 + l3 * b3),
+                                        clamp01(l1 * a1 + l2 * a2 + l3 * a3)));
+                            }
+                            break;
+                        default:
+                            if (zBuffer.testAndSet(x, y, (float) z)) {
+                                double u = l1 * u1 + l2 * u2 + l3 * u3;
+                                double v = l1 * v1 + l2 * v2 + l3 * v3;
+
+                                frameBuffer.setArgb(x, y, texture.sampleArgb(u, v));
+                            }
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.cgvsu.rasterization;
+
+import com.cgvsu.render_engine.Lighting;
+import com.cgvsu.render_engine.Texture;
+import javafx.scene.paint.Color;
+
+/**
+ * Перспективно-корректная заливка треугольников без выделения памяти на треугольник.
+ *
+ * Объект переиспользуется: в нём лежат {@link TriangleSetup}, атрибуты текущего треугольника
+ * и параметры закраски, а обходит треугольник он сам как {@link TriangleSetup.SpanVisitor}
+ * (без лямбды на каждый треугольник). Поэтому экземпляр нельзя делить между потоками:
+ * у каждого потока или тайла свой, статические методы {@link Rasterization} берут
+ * {@link #forCurrentThread()}.
+ *
+ * Вершины задаются по {@link #VERTEX_STRIDE} чисел: x, y (экран), invW = 1 / clip.w,
+ * zOverW = clip.z / clip.w, uOverW, vOverW, nxOverW, nyOverW, nzOverW.
+ */
+public final class TriangleRasterizer implements TriangleSetup.SpanVisitor {
+
+    /**
+     * Способ закраски. BLEND — полупрозрачная подсветка: глубина только проверяется.
+     */
+    public enum Shading {
+        FLAT, TEXTURED, LIT, TEXTURED_LIT, BLEND
+    }
+
+    public static final int VERTEX_STRIDE = 9;
+    public static final int TRIANGLE_STRIDE = 3 * VERTEX_STRIDE;
+
+    private static final ThreadLocal<TriangleRasterizer> PER_THREAD =
+            ThreadLocal.withInitial(TriangleRasterizer::new);
+
+    private final TriangleSetup setup = new TriangleSetup();
+    private final double[] vertices = new double[TRIANGLE_STRIDE];
+
+    // Атрибуты вершин текущего треугольника (копии из vertices для внутренних циклов)
+    private double w1, w2, w3;
+    private double z1, z2, z3;
+    private double u1, u2, u3;
+    private double v1, v2, v3;
+    private double nx1, nx2, nx3;
+    private double ny1, ny2, ny3;
+    private double nz1, nz2, nz3;
+    // Экранные производные invW, uOverW, vOverW — для выбора мип-уровня
+    private double dWdx, dWdy, dUdx, dUdy, dVdx, dVdy;
+
+    // Параметры закраски: меняются редко (на объект), поэтому задаются отдельно от вершин
+    private Color color;
+    private int colorArgb;
+    private double red, green, blue, opacity;
+    private Texture texture;
+    private Texture.Filter filter = Texture.Filter.NEAREST;
+    private Lighting.Light light;
+    private int blendArgb;
+    private float depthOffset;
+
+    // Состояние текущего обхода
+    private Shading shading;
+    private FrameBuffer frameBuffer;
+    private ZBuffer zBuffer;
+    private boolean needLod;
+
+    /**
+     * Экземпляр текущего потока — для кода, которому негде хранить свой.
+     */
+    public static TriangleRasterizer forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    public void setColor(Color color) {
+        if (color == this.color) {
+            return;
+        }
+        this.color = color;
+        if (color != null) {
+            colorArgb = FrameBuffer.packColor(color);
+            red = color.getRed();
+            green = color.getGreen();
+            blue = color.getBlue();
+            opacity = color.getOpacity();
+        }
+    }
+
+    public void setTexture(Texture texture, Texture.Filter filter) {
+        this.texture = texture;
+        this.filter = filter;
+    }
+
+    public void setLight(Lighting.Light light) {
+        this.light = light;
+    }
+
+    /**
+     * Цвет (premultiplied ARGB) и сдвиг глубины для {@link Shading#BLEND}.
+     */
+    public void setBlend(int argb, float depthOffset) {
+        this.blendArgb = argb;
+        this.depthOffset = depthOffset;
+    }
+
+    /**
+     * Задаёт вершину k (0..2) треугольника для {@link #draw(FrameBuffer, ZBuffer, Shading)}.
+     */
+    public void setVertex(int k, double x, double y, double invW, double zOverW,
+                          double uOverW, double vOverW,
+                          double nxOverW, double nyOverW, double nzOverW) {
+        final int o = k * VERTEX_STRIDE;
+        vertices[o] = x;
+        vertices[o + 1] = y;
+        vertices[o + 2] = invW;
+        vertices[o + 3] = zOverW;
+        vertices[o + 4] = uOverW;
+        vertices[o + 5] = vOverW;
+        vertices[o + 6] = nxOverW;
+        vertices[o + 7] = nyOverW;
+        vertices[o + 8] = nzOverW;
+    }
+
+    /**
+     * Рисует треугольник из {@link #TRIANGLE_STRIDE} чисел массива source, начиная с offset.
+     */
+    public void draw(FrameBuffer frameBuffer, ZBuffer zBuffer, Shading shading, double[] source, int offset) {
+        System.arraycopy(source, offset, vertices, 0, TRIANGLE_STRIDE);
+        draw(frameBuffer, zBuffer, shading);
+    }
+
+    /**
+     * Рисует треугольник из вершин, заданных {@link #setVertex}.
+     */
+    public void draw(FrameBuffer frameBuffer, ZBuffer zBuffer, Shading shading) {
+        final boolean textured = shading == Shading.TEXTURED || shading == Shading.TEXTURED_LIT;
+        if (textured && (texture == null || !texture.isValid())) return;
+
+        final double[] v = vertices;
+        if (!setup.setup(v[0], v[1], v[VERTEX_STRIDE], v[VERTEX_STRIDE + 1],
+                v[2 * VERTEX_STRIDE], v[2 * VERTEX_STRIDE + 1], zBuffer)) return;
+        loadAttributes();
+        // Подсветка глубину не пишет и отбрасывается только тестом в пикселях
+        if (shading != Shading.BLEND && setup.isOccludedPerspective(zBuffer, w1, z1, w2, z2, w3, z3)) return;
+
+        if (textured) {
+            // Производные барицентрических координат по экрану постоянны на треугольнике
+            final double dl1dx = setup.lambda1StepX(), dl1dy = setup.lambda1StepY();
+            final double dl2dx = setup.lambda2StepX(), dl2dy = setup.lambda2StepY();
+            dWdx = (w1 - w3) * dl1dx + (w2 - w3) * dl2dx;
+            dWdy = (w1 - w3) * dl1dy + (w2 - w3) * dl2dy;
+            dUdx = (u1 - u3) * dl1dx + (u2 - u3) * dl2dx;
+            dUdy = (u1 - u3) * dl1dy + (u2 - u3) * dl2dy;
+            dVdx = (v1 - v3) * dl1dx + (v2 - v3) * dl2dx;
+            dVdy = (v1 - v3) * dl1dy + (v2 - v3) * dl2dy;
+            needLod = filter != Texture.Filter.NEAREST;
+        }
+
+        this.shading = shading;
+        this.frameBuffer = frameBuffer;
+        this.zBuffer = zBuffer;
+        setup.traverse(this);
+        // Буферы не удерживаются между треугольниками
+        this.frameBuffer = null;
+        this.zBuffer = null;
+    }
+
+    private void loadAttributes() {
+        final double[] v = vertices;
+        final int b = VERTEX_STRIDE, c = 2 * VERTEX_STRIDE;
+        w1 = v[2];
+        w2 = v[b + 2];
+        w3 = v[c + 2];
+        z1 = v[3];
+        z2 = v[b + 3];
+        z3 = v[c + 3];
+        u1 = v[4];
+        u2 = v[b + 4];
+        u3 = v[c + 4];
+        v1 = v[5];
+        v2 = v[b + 5];
+        v3 = v[c + 5];
+        nx1 = v[6];
+        nx2 = v[b + 6];
+        nx3 = v[c + 6];
+        ny1 = v[7];
+        ny2 = v[b + 7];
+        ny3 = v[c + 7];
+        nz1 = v[8];
+        nz2 = v[b + 8];
+        nz3 = v[c + 8];
+    }
+
+    @Override
+    public void visit(int y, int x0, int x1, long e1, long e2, long e3, boolean covered) {
+        switch (shading) {
+            case FLAT:
+                flatSpan(y, x0, x1, e1, e2, e3, covered);
+                break;
+            case TEXTURED:
+                texturedSpan(y, x0, x1, e1, e2, e3, covered, false);
+                break;
+            case LIT:
+                litSpan(y, x0, x1, e1, e2, e3, covered);
+                break;
+            case TEXTURED_LIT:
+                texturedSpan(y, x0, x1, e1, e2, e3, covered, true);
+                break;
+            default:
+                blendSpan(y, x0, x1, e1, e2, e3, covered);
+                break;
+        }
+    }
+
+    private void flatSpan(int y, int from, int to, long e1, long e2, long e3, boolean covered) {
+        final TriangleSetup setup = this.setup;
+        final long step1 = setup.e1StepX, step2 = setup.e2StepX, step3 = setup.e3StepX;
+        for (int x = from; x <= to; x++, e1 += step1, e2 += step2, e3 += step3) {
+            if (covered || (e1 | e2 | e3) >= 0) {
+                double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+
+                double invW = l1 * w1 + l2 * w2 + l3 * w3;
+                if (invW > 1e-12 && Double.isFinite(invW)) {
+                    double z = (l1 * z1 + l2 * z2 + l3 * z3) / invW;
+
+                    if (Double.isFinite(z) && zBuffer.testAndSet(x, y, (float) z)) {
+                        frameBuffer.setArgb(x, y, colorArgb);
+                    }
+                }
+            }
+        }
+    }
+
+    private void blendSpan(int y, int from, int to, long e1, long e2, long e3, boolean covered) {
+        final TriangleSetup setup = this.setup;
+        final long step1 = setup.e1StepX, step2 = setup.e2StepX, step3 = setup.e3StepX;
+        for (int x = from; x <= to; x++, e1 += step1, e2 += step2, e3 += step3) {
+            if (covered || (e1 | e2 | e3) >= 0) {
+                double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+
+                double invW = l1 * w1 + l2 * w2 + l3 * w3;
+                if (invW > 1e-12 && Double.isFinite(invW)) {
+                    double z = (l1 * z1 + l2 * z2 + l3 * z3) / invW;
+
+                    if (Double.isFinite(z) && zBuffer.test(x, y, (float) z + depthOffset)) {
+                        frameBuffer.blendArgb(x, y, blendArgb);
+                    }
+                }
+            }
+        }
+    }
+
+    private void litSpan(int y, int from, int to, long e1, long e2, long e3, boolean covered) {
+        final TriangleSetup setup = this.setup;
+        final long step1 = setup.e1StepX, step2 = setup.e2StepX, step3 = setup.e3StepX;
+        for (int x = from; x <= to; x++, e1 += step1, e2 += step2, e3 += step3) {
+            if (covered || (e1 | e2 | e3) >= 0) {
+                double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+
+                double invW = l1 * w1 + l2 * w2 + l3 * w3;
+                double z = (l1 * z1 + l2 * z2 + l3 * z3) / invW;
+
+                if (invW > 1e-12 && Double.isFinite(invW) && Double.isFinite(z)
+                        && zBuffer.testAndSet(x, y, (float) z)) {
+                    double nx = (l1 * nx1 + l2 * nx2 + l3 * nx3) / invW;
+                    double ny = (l1 * ny1 + l2 * ny2 + l3 * ny3) / invW;
+                    double nz = (l1 * nz1 + l2 * nz2 + l3 * nz3) / invW;
+
+                    // Как Lighting.applySmoothLighting, но без промежуточных Vector3 и Color
+                    float intensity = Lighting.calculateSmoothIntensity(nx, ny, nz, light);
+                    frameBuffer.setArgb(x, y, FrameBuffer.packColor(
+                            Math.min(1.0, red * intensity),
+                            Math.min(1.0, green * intensity),
+                            Math.min(1.0, blue * intensity),
+                            opacity));
+                }
+            }
+        }
+    }
+
+    private void texturedSpan(int y, int from, int to, long e1, long e2, long e3, boolean covered, boolean lit) {
+        final TriangleSetup setup = this.setup;
+        final long step1 = setup.e1StepX, step2 = setup.e2StepX, step3 = setup.e3StepX;
+        for (int x = from; x <= to; x++, e1 += step1, e2 += step2, e3 += step3) {
+            if (covered || (e1 | e2 | e3) >= 0) {
+                double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+
+                double invW = l1 * w1 + l2 * w2 + l3 * w3;
+                double z = (l1 * z1 + l2 * z2 + l3 * z3) / invW;
+
+                if (invW > 1e-12 && Double.isFinite(invW) && Double.isFinite(z)
+                        && zBuffer.testAndSet(x, y, (float) z)) {
+                    double u = (l1 * u1 + l2 * u2 + l3 * u3) / invW;
+                    double v = (l1 * v1 + l2 * v2 + l3 * v3) / invW;
+
+                    // du/dx = (dU/dx - u * dW/dx) / W, где U = uOverW и W = invW линейны по экрану
+                    double lod = 0;
+                    if (needLod) {
+                        lod = texture.computeLod(
+                                (dUdx - u * dWdx) / invW, (dVdx - v * dWdx) / invW,
+                                (dUdy - u * dWdy) / invW, (dVdy - v * dWdy) / invW);
+                    }
+                    int texArgb = texture.sampleArgb(u, v, lod, filter);
+
+                    if (lit) {
+                        // Нормаль перспективно-корректно
+                        double nx = (l1 * nx1 + l2 * nx2 + l3 * nx3) / invW;
+                        double ny = (l1 * ny1 + l2 * ny2 + l3 * ny3) / invW;
+                        double nz = (l1 * nz1 + l2 * nz2 + l3 * nz3) / invW;
+                        texArgb = Lighting.applyIntensity(texArgb,
+                                Lighting.calculateSmoothIntensity(nx, ny, nz, light));
+                    }
+                    frameBuffer.setArgb(x, y, texArgb);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.cgvsu.rasterization;
+
+/**
+ * Рёберные функции треугольника в фиксированной точке для инкрементальной растеризации.
+ *
+ * Вершины привязываются к сетке 1/256 пикселя, и значения рёберных функций считаются точно в long:
+ * два треугольника с общим ребром получают на нём одни и те же значения с противоположным знаком.
+ * Пиксель, лежащий ровно на ребре, рисует только один из них — по правилу top-left
+ * (берутся верхние и левые рёбра). Поэтому сетка закрывается без щелей и без повторной записи пикселей.
+ *
+ * Как и раньше, пиксель (x, y) проверяется в точке с целыми координатами (x, y).
+ * Значения функций хранятся уже со сдвигом правила top-left, так что пиксель внутри,
+ * если все три значения неотрицательны: {@code (e1 | e2 | e3) >= 0}.
+ * Функция e1 отвечает ребру напротив первой вершины, то есть lambda1 — вес первой вершины, и т.д.
+ *
+ * Растеризаторы обходят треугольник блоками через {@link #traverse(SpanVisitor)}: блоки 8x8
+ * классифицируются по значениям функций в углах, пустые пропускаются целиком, а в полностью
+ * покрытых пиксели рисуются без проверки. На длинных тонких треугольниках это отбрасывает
+ * большую часть ограничивающего прямоугольника.
+ */
+public final class TriangleSetup {
+
+    public static final int SUBPIXEL_BITS = 8;
+    private static final int SUBPIXEL_SCALE = 1 << SUBPIXEL_BITS;
+
+    // Произведения разностей координат (до 2^30 в фиксированной точке) помещаются в long с запасом
+    public static final double MAX_COORDINATE = 1 << 21;
+
+    public static final int BLOCK_SIZE = 8;
+
+    private static final byte OUTSIDE = 0;
+    private static final byte PARTIAL = 1;
+    private static final byte COVERED = 2;
+
+    /**
+     * Горизонтальный отрезок пикселей (x0..x1, y) из обхода. e1, e2, e3 — значения рёберных функций
+     * в пикселе (x0, y), дальше по строке они растут на e1StepX, e2StepX, e3StepX.
+     * covered — все пиксели отрезка внутри треугольника, проверять их не нужно.
+     */
+    @FunctionalInterface
+    public interface SpanVisitor {
+        void visit(int y, int x0, int x1, long e1, long e2, long e3, boolean covered);
+    }
+
+    // Ограничивающий прямоугольник, уже обрезанный по области буфера
+    public int minX, maxX, minY, maxY;
+
+    // Значения рёберных функций в пикселе (minX, minY) и их приращения на пиксель по x и по y
+    public long e1, e2, e3;
+    public long e1StepX, e2StepX, e3StepX;
+    public long e1StepY, e2StepY, e3StepY;
+
+    private long bias1, bias2, bias3;
+    private double invArea;
+
+    // Классы блоков текущей строки блоков (переиспользуется между треугольниками)
+    private byte[] blockClasses = new byte[0];
+
+    public boolean setup(double x1, double y1, double x2, double y2, double x3, double y3, ZBuffer bounds) {
+        return setup(x1, y1, x2, y2, x3, y3, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+    }
+
+    /**
+     * Готовит треугольник к обходу. false — растеризовать нечего: треугольник вырожден,
+     * не пересекает область [clipMinX, clipMaxX] x [clipMinY, clipMaxY] или его вершины
+     * не помещаются в диапазон фиксированной точки (|x|, |y| до {@link #MAX_COORDINATE}).
+     */
+    public boolean setup(double x1, double y1, double x2, double y2, double x3, double y3,
+                         int clipMinX, int clipMinY, int clipMaxX, int clipMaxY) {
+        if (!inRange(x1) || !inRange(y1) || !inRange(x2) || !inRange(y2) || !inRange(x3) || !inRange(y3)) {
+            return false;
+        }
+
+        final long fx1 = Math.round(x1 * SUBPIXEL_SCALE), fy1 = Math.round(y1 * SUBPIXEL_SCALE);
+        final long fx2 = Math.round(x2 * SUBPIXEL_SCALE), fy2 = Math.round(y2 * SUBPIXEL_SCALE);
+        final long fx3 = Math.round(x3 * SUBPIXEL_SCALE), fy3 = Math.round(y3 * SUBPIXEL_SCALE);
+
+        long area = (fx2 - fx1) * (fy3 - fy1) - (fy2 - fy1) * (fx3 - fx1);
+        if (area == 0) {
+            return false;
+        }
+
+        // Пиксели, чьи точки (x, y) попадают в прямоугольник вершин
+        minX = Math.max(clipMinX, (int) ceilDiv(Math.min(fx1, Math.min(fx2, fx3))));
+        maxX = Math.min(clipMaxX, (int) Math.floorDiv(Math.max(fx1, Math.max(fx2, fx3)), SUBPIXEL_SCALE));
+        minY = Math.max(clipMinY, (int) ceilDiv(Math.min(fy1, Math.min(fy2, fy3))));
+        maxY = Math.min(clipMaxY, (int) Math.floorDiv(Math.max(fy1, Math.max(fy2, fy3)), SUBPIXEL_SCALE));
+        if (minX > maxX || minY > maxY) {
+            return false;
+        }
+
+        // Внутренность треугольника — там, где все функции положительны
+        final long sign = area > 0 ? 1 : -1;
+        area *= sign;
+        invArea = 1.0 / area;
+
+        final long px = (long) minX * SUBPIXEL_SCALE;
+        final long py = (long) minY * SUBPIXEL_SCALE;
+
+        // Ребро 2 -> 3 (напротив вершины 1)
+        long a = -(fy3 - fy2) * sign, b = (fx3 - fx2) * sign;
+        bias1 = isTopLeft(a, b) ? 0 : 1;
+        e1 = a * (px - fx2) + b * (py - fy2) - bias1;
+        e1StepX = a * SUBPIXEL_SCALE;
+        e1StepY = b * SUBPIXEL_SCALE;
+
+        // Ребро 3 -> 1 (напротив вершины 2)
+        a = -(fy1 - fy3) * sign;
+        b = (fx1 - fx3) * sign;
+        bias2 = isTopLeft(a, b) ? 0 : 1;
+        e2 = a * (px - fx3) + b * (py - fy3) - bias2;
+        e2StepX = a * SUBPIXEL_SCALE;
+        e2StepY = b * SUBPIXEL_SCALE;
+
+        // Ребро 1 -> 2 (напротив вершины 3)
+        a = -(fy2 - fy1) * sign;
+        b = (fx2 - fx1) * sign;
+        bias3 = isTopLeft(a, b) ? 0 : 1;
+        e3 = a * (px - fx1) + b * (py - fy1) - bias3;
+        e3StepX = a * SUBPIXEL_SCALE;
+        e3StepY = b * SUBPIXEL_SCALE;
+
+        return true;
+    }
+
+    /**
+     * Обходит треугольник блоками BLOCK_SIZE x BLOCK_SIZE (сетка блоков привязана к экранным координатам).
+     * Блок, который целиком снаружи хотя бы одного ребра, пропускается; блоки внутри всех рёбер
+     * отдаются как покрытые. Соседние блоки одного класса в строке склеиваются в один отрезок.
+     */
+    public void traverse(SpanVisitor visitor) {
+        final int firstBlockX = Math.floorDiv(minX, BLOCK_SIZE) * BLOCK_SIZE;
+        final int firstBlockY = Math.floorDiv(minY, BLOCK_SIZE) * BLOCK_SIZE;
+        final int blockCount = (maxX - firstBlockX) / BLOCK_SIZE + 1;
+        if (blockClasses.length < blockCount) {
+            blockClasses = new byte[blockCount];
+        }
+        final byte[] classes = blockClasses;
+
+        // Функции линейны, поэтому минимум и максимум на блоке — в его углах: от значения
+        // в левом верхнем углу они отличаются на постоянные для всех блоков смещения.
+        // Крайние блоки проверяются целиком, без обрезки по прямоугольнику — это только осторожнее.
+        final int last = BLOCK_SIZE - 1;
+        final long min1 = Math.min(0, last * e1StepX) + Math.min(0, last * e1StepY);
+        final long min2 = Math.min(0, last * e2StepX) + Math.min(0, last * e2StepY);
+        final long min3 = Math.min(0, last * e3StepX) + Math.min(0, last * e3StepY);
+        final long max1 = Math.max(0, last * e1StepX) + Math.max(0, last * e1StepY);
+        final long max2 = Math.max(0, last * e2StepX) + Math.max(0, last * e2StepY);
+        final long max3 = Math.max(0, last * e3StepX) + Math.max(0, last * e3StepY);
+
+        // Значения в левом верхнем углу первого блока строки
+        long corner1 = valueAt(e1, e1StepX, e1StepY, firstBlockX, firstBlockY);
+        long corner2 = valueAt(e2, e2StepX, e2StepY, firstBlockX, firstBlockY);
+        long corner3 = valueAt(e3, e3StepX, e3StepY, firstBlockX, firstBlockY);
+
+        for (int blockY = firstBlockY; blockY <= maxY; blockY += BLOCK_SIZE) {
+            long c1 = corner1, c2 = corner2, c3 = corner3;
+            // Диапазон непустых блоков строки: у тонкого наклонного треугольника он короткий
+            int firstActive = blockCount;
+            int lastActive = -1;
+            for (int b = 0; b < blockCount; b++) {
+                final byte blockClass;
+                if (c1 + max1 < 0 || c2 + max2 < 0 || c3 + max3 < 0) {
+                    blockClass = OUTSIDE;
+                } else if (((c1 + min1) | (c2 + min2) | (c3 + min3)) >= 0) {
+                    blockClass = COVERED;
+                } else {
+                    blockClass = PARTIAL;
+                }
+                classes[b] = blockClass;
+                if (blockClass != OUTSIDE) {
+                    firstActive = Math.min(firstActive, b);
+                    lastActive = b;
+                }
+                c1 += e1StepX * BLOCK_SIZE;
+                c2 += e2StepX * BLOCK_SIZE;
+                c3 += e3StepX * BLOCK_SIZE;
+            }
+            corner1 += e1StepY * BLOCK_SIZE;
+            corner2 += e2StepY * BLOCK_SIZE;
+            corner3 += e3StepY * BLOCK_SIZE;
+            if (lastActive < 0) {
+                continue;
+            }
+
+            final int top = Math.max(blockY, minY);
+            final int bottom = Math.min(blockY + last, maxY);
+            for (int y = top; y <= bottom; y++) {
+                int b = firstActive;
+                while (b <= lastActive) {
+                    final byte blockClass = classes[b];
+                    if (blockClass == OUTSIDE) {
+                        b++;
+                        continue;
+                    }
+                    final int runStart = b;
+                    while (b <= lastActive && classes[b] == blockClass) {
+                        b++;
+                    }
+                    final int x0 = Math.max(firstBlockX + runStart * BLOCK_SIZE, minX);
+                    final int x1 = Math.min(firstBlockX + b * BLOCK_SIZE - 1, maxX);
+                    visitor.visit(y, x0, x1,
+                            valueAt(e1, e1StepX, e1StepY, x0, y),
+                            valueAt(e2, e2StepX, e2StepY, x0, y),
+                            valueAt(e3, e3StepX, e3StepY, x0, y),
+                            blockClass == COVERED);
+                }
+            }
+        }
+    }
+
+    // Значение функции в пикселе (x, y) по значению в (minX, minY)
+    private long valueAt(long origin, long stepX, long stepY, int x, int y) {
+        return origin + (long) (x - minX) * stepX + (long) (y - minY) * stepY;
+    }
+
+    // Барицентрические веса вершин по значениям рёберных функций из обхода
+
+    public double lambda1(long e1) {
+        return (e1 + bias1) * invArea;
+    }
+
+    public double lambda2(long e2) {
+        return (e2 + bias2) * invArea;
+    }
+
+    public double lambda3(long e3) {
+        return (e3 + bias3) * invArea;
+    }
+
+    // Приращения весов на пиксель: постоянны на треугольнике (нужны для производных UV)
+
+    public double lambda1StepX() {
+        return e1StepX * invArea;
+    }
+
+    public double lambda1StepY() {
+        return e1StepY * invArea;
+    }
+
+    public double lambda2StepX() {
+        return e2StepX * invArea;
+    }
+
+    public double lambda2StepY() {
+        return e2StepY * invArea;
+    }
+
+    /**
+     * Отбраковка по пирамиде Z-буфера до обхода. Глубина любого фрагмента — выпуклая комбинация
+     * глубин вершин, поэтому треугольник не виден, если под его прямоугольником нет глубин
+     * больше минимальной из z1..z3.
+     */
+    public boolean isOccluded(ZBuffer zBuffer, double z1, double z2, double z3) {
+        final double nearest = Math.min(z1, Math.min(z2, z3));
+        // Запас на погрешность интерполяции весов (их сумма равна 1 лишь приближённо)
+        final double error = 1e-9 * Math.max(Math.abs(z1), Math.max(Math.abs(z2), Math.abs(z3)));
+        return zBuffer.isOccluded(minX, minY, maxX, maxY, (float) (nearest - error));
+    }
+
+    /**
+     * То же для перспективно-корректной глубины (Σ l * zOverW) / (Σ l * invW): она тоже выпуклая
+     * комбинация глубин вершин zOverW / invW, если все invW положительны.
+     */
+    public boolean isOccludedPerspective(ZBuffer zBuffer,
+                                         double invW1, double zOverW1,
+                                         double invW2, double zOverW2,
+                                         double invW3, double zOverW3) {
+        if (!(invW1 > 0 && invW2 > 0 && invW3 > 0)) {
+            return false;
+        }
+        return isOccluded(zBuffer, zOverW1 / invW1, zOverW2 / invW2, zOverW3 / invW3);
+    }
+
+    /**
+     * Ребро e(p) = a * x + b * y + c с внутренностью там, где e > 0 (ось y направлена вниз).
+     * Левое ребро: внутренность правее, e растёт по x. Верхнее: горизонтальное, внутренность ниже.
+     */
+    private static boolean isTopLeft(long a, long b) {
+        return a > 0 || (a == 0 && b > 0);
+    }
+
+    private static boolean inRange(double coordinate) {
+        return Math.abs(coordinate) <= MAX_COORDINATE;
+    }
+
+    private static long ceilDiv(long value) {
+        return -Math.floorDiv(-value, SUBPIXEL_SCALE);
+    }
+}
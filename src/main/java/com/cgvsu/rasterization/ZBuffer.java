@@ -1,32 +1,256 @@
 package com.cgvsu.rasterization;
 
+import java.util.Arrays;
+
+/**
+ * Z-буфер в одном плоском массиве float (строка за строкой).
+ *
+ * Экземпляр живёт между кадрами: {@link #resize(int, int)} пересоздаёт массив
+ * только при смене размера, а {@link #clear()} заливает его через Arrays.fill.
+ *
+ * Как и {@link FrameBuffer}, может покрывать прямоугольник экрана с началом в (originX, originY).
+ *
+ * Рядом с глубинами хранится грубая пирамида максимумов (Hi-Z): уровень 0 — блоки 8x8 пикселей,
+ * каждый следующий — максимум по 2x2 ячейкам предыдущего. Значение ячейки — верхняя граница
+ * глубин под ней: запись через {@link #testAndSet} только уменьшает глубину, поэтому устаревший
+ * максимум остаётся верной границей, а ячейка лишь помечается "грязной" и пересчитывается
+ * лениво, когда её значения не хватило для ответа в {@link #isOccluded}.
+ */
 public final class ZBuffer {
 
-    private final int width;
-    private final int height;
-    private final double[][] buffer;
+    // Сторона блока нижнего уровня пирамиды (как у обхода треугольников в TriangleSetup)
+    private static final int BLOCK_SIZE = 8;
+    private static final int BLOCK_SHIFT = 3;
+
+    private final int originX;
+    private final int originY;
+    private int width;
+    private int height;
+    private float[] buffer;
+
+    // Пирамида максимумов: levelMax[0] — блоки 8x8, последний уровень — одна ячейка на весь буфер
+    private float[][] levelMax;
+    private boolean[][] levelDirty;
+    private int[] levelColumns;
+    private int[] levelRows;
 
     public ZBuffer(int width, int height) {
+        this(0, 0, width, height);
+    }
+
+    public ZBuffer(int originX, int originY, int width, int height) {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        this.buffer = new float[this.width * this.height];
+        allocateLevels();
+        clear();
+    }
+
+    /**
+     * Меняет размер буфера. Если размер не изменился, массив переиспользуется.
+     */
+    public void resize(int width, int height) {
+        width = Math.max(0, width);
+        height = Math.max(0, height);
+        if (width == this.width && height == this.height) {
+            return;
+        }
         this.width = width;
         this.height = height;
-        this.buffer = new double[height][width];
+        this.buffer = new float[width * height];
+        allocateLevels();
         clear();
     }
 
-    public void clear() {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                buffer[y][x] = Double.POSITIVE_INFINITY;
+    private void allocateLevels() {
+        int levels = 0;
+        int columns = (width + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int rows = (height + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        if (columns > 0 && rows > 0) {
+            levels = 1;
+            for (int c = columns, r = rows; c > 1 || r > 1; c = (c + 1) >> 1, r = (r + 1) >> 1) {
+                levels++;
             }
         }
+        levelMax = new float[levels][];
+        levelDirty = new boolean[levels][];
+        levelColumns = new int[levels];
+        levelRows = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            levelColumns[level] = columns;
+            levelRows[level] = rows;
+            levelMax[level] = new float[columns * rows];
+            levelDirty[level] = new boolean[columns * rows];
+            columns = (columns + 1) >> 1;
+            rows = (rows + 1) >> 1;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(buffer, Float.POSITIVE_INFINITY);
+        for (int level = 0; level < levelMax.length; level++) {
+            Arrays.fill(levelMax[level], Float.POSITIVE_INFINITY);
+            Arrays.fill(levelDirty[level], false);
+        }
     }
 
-    public double get(int x, int y) {
-        return buffer[y][x];
+    public float get(int x, int y) {
+        return buffer[(y - originY) * width + (x - originX)];
     }
 
     public void set(int x, int y, double z) {
-        buffer[y][x] = z;
+        final int localX = x - originX;
+        final int localY = y - originY;
+        final float value = (float) z;
+        buffer[localY * width + localX] = value;
+
+        // Произвольная запись может и увеличить глубину: поднимаем максимумы, чтобы граница осталась верной
+        int column = localX >> BLOCK_SHIFT;
+        int row = localY >> BLOCK_SHIFT;
+        for (int level = 0; level < levelMax.length; level++, column >>= 1, row >>= 1) {
+            final int cell = row * levelColumns[level] + column;
+            levelMax[level][cell] = Math.max(levelMax[level][cell], value);
+            levelDirty[level][cell] = true;
+        }
+    }
+
+    /**
+     * Тест глубины без записи: true, если фрагмент ближе сохранённого.
+     */
+    public boolean test(int x, int y, float z) {
+        return z < buffer[(y - originY) * width + (x - originX)];
+    }
+
+    /**
+     * Совмещённые тест и запись глубины: одна адресация на фрагмент.
+     *
+     * @return true, если фрагмент прошёл тест и его глубина записана
+     */
+    public boolean testAndSet(int x, int y, float z) {
+        final int localX = x - originX;
+        final int localY = y - originY;
+        final int index = localY * width + localX;
+        if (z < buffer[index]) {
+            buffer[index] = z;
+            if (!levelDirty[0][(localY >> BLOCK_SHIFT) * levelColumns[0] + (localX >> BLOCK_SHIFT)]) {
+                markDirty(localX >> BLOCK_SHIFT, localY >> BLOCK_SHIFT);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Помечает блок и его предков; выше уже грязной ячейки подниматься незачем
+    private void markDirty(int column, int row) {
+        for (int level = 0; level < levelMax.length; level++, column >>= 1, row >>= 1) {
+            final int cell = row * levelColumns[level] + column;
+            if (levelDirty[level][cell]) {
+                return;
+            }
+            levelDirty[level][cell] = true;
+        }
+    }
+
+    /**
+     * Иерархический тест окклюзии прямоугольника [minX, maxX] x [minY, maxY] (экранные координаты, включительно).
+     *
+     * @param nearestZ нижняя граница глубины всех фрагментов, которые будут нарисованы в прямоугольнике
+     * @return true, если ни один такой фрагмент не пройдёт тест глубины: все сохранённые глубины
+     *         в прямоугольнике не больше nearestZ (или прямоугольник не пересекает буфер)
+     */
+    public boolean isOccluded(int minX, int minY, int maxX, int maxY, float nearestZ) {
+        final int x0 = Math.max(minX, originX) - originX;
+        final int y0 = Math.max(minY, originY) - originY;
+        final int x1 = Math.min(maxX, originX + width - 1) - originX;
+        final int y1 = Math.min(maxY, originY + height - 1) - originY;
+        if (x0 > x1 || y0 > y1) {
+            return true;
+        }
+        if (Float.isNaN(nearestZ)) {
+            return false;
+        }
+        return isCellOccluded(levelMax.length - 1, 0, 0,
+                x0 >> BLOCK_SHIFT, y0 >> BLOCK_SHIFT, x1 >> BLOCK_SHIFT, y1 >> BLOCK_SHIFT, nearestZ);
+    }
+
+    // Спуск от ячейки к её детям внутри прямоугольника блоков [bx0, bx1] x [by0, by1] с ранним выходом
+    private boolean isCellOccluded(int level, int column, int row, int bx0, int by0, int bx1, int by1, float nearestZ) {
+        final int cell = row * levelColumns[level] + column;
+        if (levelMax[level][cell] <= nearestZ) {
+            return true;
+        }
+        if (level == 0) {
+            if (!levelDirty[0][cell]) {
+                return false; // Максимум точный: в блоке есть более дальний пиксель
+            }
+            refreshBlock(column, row);
+            return levelMax[0][cell] <= nearestZ;
+        }
+
+        final int child = level - 1;
+        final int firstColumn = column << 1;
+        final int firstRow = row << 1;
+        final int lastColumn = Math.min(firstColumn + 1, levelColumns[child] - 1);
+        final int lastRow = Math.min(firstRow + 1, levelRows[child] - 1);
+        final int c0 = Math.max(firstColumn, bx0 >> child);
+        final int r0 = Math.max(firstRow, by0 >> child);
+        final int c1 = Math.min(lastColumn, bx1 >> child);
+        final int r1 = Math.min(lastRow, by1 >> child);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                if (!isCellOccluded(child, c, r, bx0, by0, bx1, by1, nearestZ)) {
+                    return false;
+                }
+            }
+        }
+
+        // Обошли всех детей — заодно уточняем максимум ячейки
+        if (c0 == firstColumn && r0 == firstRow && c1 == lastColumn && r1 == lastRow) {
+            float max = Float.NEGATIVE_INFINITY;
+            boolean dirty = false;
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    final int childCell = r * levelColumns[child] + c;
+                    max = Math.max(max, levelMax[child][childCell]);
+                    dirty |= levelDirty[child][childCell];
+                }
+            }
+            levelMax[level][cell] = max;
+            levelDirty[level][cell] = dirty;
+        }
+        return true;
+    }
+
+    private void refreshBlock(int column, int row) {
+        final int x0 = column << BLOCK_SHIFT;
+        final int y0 = row << BLOCK_SHIFT;
+        final int x1 = Math.min(x0 + BLOCK_SIZE, width);
+        final int y1 = Math.min(y0 + BLOCK_SIZE, height);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int y = y0; y < y1; y++) {
+            final int offset = y * width;
+            for (int x = x0; x < x1; x++) {
+                max = Math.max(max, buffer[offset + x]);
+            }
+        }
+        final int cell = row * levelColumns[0] + column;
+        levelMax[0][cell] = max;
+        levelDirty[0][cell] = false;
+    }
+
+    // Сбрасывает максимумы ячеек над прямоугольником (локальные координаты) в +inf: глубины там переписаны целиком
+    private void invalidate(int x0, int y0, int x1, int y1) {
+        int c0 = x0 >> BLOCK_SHIFT, r0 = y0 >> BLOCK_SHIFT;
+        int c1 = x1 >> BLOCK_SHIFT, r1 = y1 >> BLOCK_SHIFT;
+        for (int level = 0; level < levelMax.length; level++, c0 >>= 1, r0 >>= 1, c1 >>= 1, r1 >>= 1) {
+            for (int r = r0; r <= r1; r++) {
+                final int offset = r * levelColumns[level];
+                Arrays.fill(levelMax[level], offset + c0, offset + c1 + 1, Float.POSITIVE_INFINITY);
+                Arrays.fill(levelDirty[level], offset + c0, offset + c1 + 1, true);
+            }
+        }
     }
 
     public int getWidth() {
@@ -36,4 +260,35 @@ public final class ZBuffer {
     public int getHeight() {
         return height;
     }
+
+    // Границы покрываемой области в экранных координатах (включительно)
+    public int getMinX() {
+        return originX;
+    }
+
+    public int getMinY() {
+        return originY;
+    }
+
+    public int getMaxX() {
+        return originX + width - 1;
+    }
+
+    public int getMaxY() {
+        return originY + height - 1;
+    }
+
+    /**
+     * Копирует глубины в ту же область другого (большего) буфера.
+     */
+    public void copyTo(ZBuffer target) {
+        for (int row = 0; row < height; row++) {
+            int targetOffset = (originY + row - target.originY) * target.width + (originX - target.originX);
+            System.arraycopy(buffer, row * width, target.buffer, targetOffset, width);
+        }
+        if (width > 0 && height > 0) {
+            target.invalidate(originX - target.originX, originY - target.originY,
+                    originX - target.originX + width - 1, originY - target.originY + height - 1);
+        }
+    }
 }
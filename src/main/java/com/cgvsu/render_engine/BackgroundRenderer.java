@@ -0,0 +1,189 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.scene.SceneObject;
+
+import java.util.BitSet;
+
+/**
+ * Рендер в отдельном потоке с обменом готовых кадров.
+ *
+ * Поток JavaFX только снимает состояние сцены (FrameSnapshot) и отдаёт его сюда, а потом
+ * забирает готовый кадр. Снимок, который не успели начать рисовать, заменяется более свежим,
+ * поэтому очередь не растёт и показ отстаёт от ввода не больше чем на один кадр.
+ *
+ * Кадров три: в задний рисует поток рендера, передний показывает поток JavaFX, а между ними
+ * лежит последний готовый. Под блокировкой только меняются ссылки, пиксели никто не ждёт.
+ */
+public final class BackgroundRenderer {
+
+    private final RenderEngine renderEngine;
+    private final Thread thread;
+    private final Object lock = new Object();
+
+    // Защищено lock
+    private FrameSnapshot pendingSnapshot;
+    private Frame readyFrame = new Frame();
+    private boolean hasNewFrame;
+    private boolean busy;
+    private boolean running = true;
+
+    // Принадлежит потоку рендера
+    private Frame backFrame = new Frame();
+    // Принадлежит потоку, который показывает кадры
+    private Frame frontFrame = new Frame();
+
+    /**
+     * @param renderEngine движок, которым дальше пользуется только поток рендера
+     */
+    public BackgroundRenderer(RenderEngine renderEngine) {
+        this.renderEngine = renderEngine;
+        this.thread = new Thread(this::renderLoop, "render-thread");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Ставит снимок на отрисовку, заменяя ещё не начатый.
+     */
+    public void submit(FrameSnapshot snapshot) {
+        synchronized (lock) {
+            pendingSnapshot = snapshot;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Забирает последний готовый кадр, если он появился с прошлого вызова.
+     * Кадр остаётся во владении вызывающего потока до следующего успешного вызова.
+     *
+     * @return новый кадр или null, если нового кадра нет
+     */
+    public Frame takeFrame() {
+        synchronized (lock) {
+            if (!hasNewFrame) {
+                return null;
+            }
+            Frame frame = readyFrame;
+            readyFrame = frontFrame;
+            frontFrame = frame;
+            hasNewFrame = false;
+            return frame;
+        }
+    }
+
+    /**
+     * true, пока есть неначатый снимок или кадр рисуется.
+     */
+    public boolean isBusy() {
+        synchronized (lock) {
+            return busy || pendingSnapshot != null;
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    private void renderLoop() {
+        while (true) {
+            FrameSnapshot snapshot;
+            synchronized (lock) {
+                while (running && pendingSnapshot == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                snapshot = pendingSnapshot;
+                pendingSnapshot = null;
+                busy = true;
+            }
+
+            boolean rendered = false;
+            try {
+                renderEngine.render(snapshot, backFrame.frameBuffer);
+                backFrame.snapshot = snapshot;
+                rendered = true;
+            } catch (RuntimeException e) {
+                // Ошибка одного кадра не должна останавливать поток рендера
+                Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+            }
+
+            synchronized (lock) {
+                if (rendered) {
+                    Frame frame = readyFrame;
+                    readyFrame = backFrame;
+                    backFrame = frame;
+                    hasNewFrame = true;
+                }
+                busy = false;
+            }
+        }
+    }
+
+    /**
+     * Готовый кадр: пиксели (вместе с подсветкой выделенных полигонов) и ID-буфер.
+     */
+    public static final class Frame {
+        private final FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        // Снимок, по которому нарисован кадр: по нему номера ID-буфера разбираются в объекты
+        private FrameSnapshot snapshot;
+
+        public FrameBuffer getFrameBuffer() {
+            return frameBuffer;
+        }
+
+        public boolean hasIds() {
+            return snapshot != null && frameBuffer.hasIds();
+        }
+
+        /**
+         * Объект, видимый в пикселе кадра, или null (фон или объект изменился после кадра).
+         * Вызывается в потоке, который показывает кадры и владеет сценой.
+         */
+        public SceneObject getObjectAt(int x, int y) {
+            if (!hasIds()) {
+                return null;
+            }
+            return snapshot.resolveObjectId(frameBuffer.getObjectId(x, y));
+        }
+
+        /**
+         * Полигон объекта object, видимый в пикселе, или {@link FrameBuffer#NO_ID}.
+         */
+        public int getPolygonAt(int x, int y, SceneObject object) {
+            if (object == null || getObjectAt(x, y) != object) {
+                return FrameBuffer.NO_ID;
+            }
+            return frameBuffer.getPolygonId(x, y);
+        }
+
+        /**
+         * Видимые полигоны object в прямоугольнике экрана (выбор рамкой): номера полигонов в out.
+         */
+        public void collectPolygons(int minX, int minY, int maxX, int maxY, SceneObject object, BitSet out) {
+            if (!hasIds() || object == null) {
+                return;
+            }
+            for (int id = 0; id < snapshot.objects.size(); id++) {
+                if (snapshot.resolveObjectId(id) == object) {
+                    final int objectId = id;
+                    frameBuffer.visitIds(minX, minY, maxX, maxY, (x, y, pixelObject, polygon) -> {
+                        if (pixelObject == objectId) {
+                            out.set(polygon);
+                        }
+                    });
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -21,16 +21,33 @@ public class Camera {
         this.farPlane = farPlane;
     }
 
+    public void setChangeTracker(final ChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+    }
+
+    private void markChanged() {
+        if (changeTracker != null) {
+            changeTracker.markChanged();
+        }
+    }
+
     public void setPosition(final Vector3 position) {
         this.position = position;
+        markChanged();
     }
 
     public void setTarget(final Vector3 target) {
         this.target = target;
+        markChanged();
     }
 
     public void setAspectRatio(final float aspectRatio) {
+        // Вызывается на каждом кадре: отмечаем изменение только при реальной смене значения
+        if (this.aspectRatio == aspectRatio) {
+            return;
+        }
         this.aspectRatio = aspectRatio;
+        markChanged();
     }
 
     public Vector3 getPosition() {
@@ -53,6 +70,7 @@ public class Camera {
                 this.position.y + translation.y,
                 this.position.z + translation.z
         );
+        markChanged();
     }
 
     public void moveTarget(final Vector3 translation) {
@@ -65,6 +83,7 @@ public class Camera {
                 this.target.y + translation.y,
                 this.target.z + translation.z
         );
+        markChanged();
     }
 
     public Matrix4 getViewMatrix() {
@@ -81,4 +100,6 @@ public class Camera {
     private float aspectRatio;
     private float nearPlane;
     private float farPlane;
+    // Счётчик изменений вьюпорта, в сцене которого камера (null — камера вне сцены)
+    private ChangeTracker changeTracker;
 }
\ No newline at end of file
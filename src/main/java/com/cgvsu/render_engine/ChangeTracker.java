@@ -0,0 +1,25 @@
+package com.cgvsu.render_engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчик изменений состояния, влияющего на кадр одного вьюпорта.
+ *
+ * Вьюпорт владеет своим счётчиком и отдаёт его своей {@link com.cgvsu.render_engine.scene.Scene}
+ * и настройкам рендера; сцена передаёт его дальше объектам, их Transform и настройкам, и камерам.
+ * Все они увеличивают счётчик при каждом изменении. Цикл отрисовки сравнивает текущую версию
+ * с версией последнего кадра и перерисовывает вьюпорт только если что-то поменялось, поэтому
+ * изменения в одном окне не заставляют перерисовываться другие.
+ */
+public final class ChangeTracker {
+
+    private final AtomicLong version = new AtomicLong();
+
+    public void markChanged() {
+        version.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+}
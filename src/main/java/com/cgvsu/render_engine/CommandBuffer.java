@@ -0,0 +1,233 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.rasterization.TriangleRasterizer;
+import com.cgvsu.rasterization.ZBuffer;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.cgvsu.rasterization.Rasterization.drawLineWithDepthTestOnly;
+
+/**
+ * Команды кадра для {@link TileRenderer} в плоских массивах.
+ *
+ * Треугольники и рёбра движка хранятся без объектов на команду: вид, ограничивающий прямоугольник
+ * и номер полигона — в параллельных массивах, вершины — подряд в общем double[].
+ * Параметры закраски записываются один раз на объект ({@link #beginObject}) и используются
+ * всеми его командами. Массивы растут до размера самого большого кадра и переиспользуются
+ * между кадрами, поэтому в установившемся режиме кадр не выделяет памяти на команды.
+ *
+ * Произвольные {@link DrawCommand} тоже поддерживаются и выполняются в общем порядке подачи.
+ */
+final class CommandBuffer implements DrawOutput {
+
+    // Вид команды: треугольник с закраской Shading (по ordinal), ребро или объект DrawCommand
+    private static final TriangleRasterizer.Shading[] SHADINGS = TriangleRasterizer.Shading.values();
+    private static final byte LINE = (byte) SHADINGS.length;
+    private static final byte CUSTOM = (byte) (LINE + 1);
+
+    private static final int LINE_STRIDE = 6;
+
+    private byte[] kinds = new byte[256];
+    // Номер состояния объекта (для CUSTOM — номер в custom)
+    private int[] states = new int[256];
+    // Номер полигона для треугольника, цвет для ребра
+    private int[] values = new int[256];
+    private int[] dataOffsets = new int[256];
+    private float[] bounds = new float[4 * 256];
+    private double[] data = new double[TriangleRasterizer.TRIANGLE_STRIDE * 256];
+    private int size;
+    private int dataSize;
+
+    // Состояния объектов кадра; сами объекты переиспользуются между кадрами
+    private State[] statePool = new State[0];
+    private int stateCount;
+    private int currentState = -1;
+
+    private final List<DrawCommand> custom = new ArrayList<>();
+
+    private static final class State {
+        int objectId;
+        Texture texture;
+        Texture.Filter filter;
+        Color baseColor;
+        Lighting.Light light;
+        OcclusionGroup group;
+        int blendArgb;
+        float depthOffset;
+    }
+
+    /**
+     * Сбрасывает команды; память остаётся за буфером.
+     */
+    void clear() {
+        for (int i = 0; i < stateCount; i++) {
+            State state = statePool[i];
+            state.texture = null;
+            state.baseColor = null;
+            state.light = null;
+            state.group = null;
+        }
+        stateCount = 0;
+        currentState = -1;
+        size = 0;
+        dataSize = 0;
+        custom.clear();
+    }
+
+    int size() {
+        return size;
+    }
+
+    float getMinX(int command) {
+        return bounds[command * 4];
+    }
+
+    float getMinY(int command) {
+        return bounds[command * 4 + 1];
+    }
+
+    float getMaxX(int command) {
+        return bounds[command * 4 + 2];
+    }
+
+    float getMaxY(int command) {
+        return bounds[command * 4 + 3];
+    }
+
+    OcclusionGroup getGroup(int command) {
+        if (kinds[command] == CUSTOM) {
+            return custom.get(states[command]).group;
+        }
+        return statePool[states[command]].group;
+    }
+
+    void add(DrawCommand command) {
+        final int index = append(CUSTOM, custom.size(), 0, 0);
+        custom.add(command);
+        setBounds(index, command.minX, command.minY, command.maxX, command.maxY);
+    }
+
+    @Override
+    public void beginObject(int objectId, Texture texture, Texture.Filter filter, Color baseColor,
+                            Lighting.Light light, OcclusionGroup group) {
+        final State state = nextState();
+        state.objectId = objectId;
+        state.texture = texture;
+        state.filter = filter;
+        state.baseColor = baseColor;
+        state.light = light;
+        state.group = group;
+        state.blendArgb = 0;
+        state.depthOffset = 0;
+    }
+
+    @Override
+    public void beginSelection(int fillArgb, float depthOffset) {
+        final State state = nextState();
+        state.objectId = FrameBuffer.NO_ID;
+        state.texture = null;
+        state.filter = Texture.Filter.NEAREST;
+        state.baseColor = null;
+        state.light = null;
+        state.group = null;
+        state.blendArgb = fillArgb;
+        state.depthOffset = depthOffset;
+    }
+
+    @Override
+    public void triangle(TriangleRasterizer.Shading shading, double[] vertices, int polygonId) {
+        final int stride = TriangleRasterizer.VERTEX_STRIDE;
+        final int index = append((byte) shading.ordinal(), currentState, polygonId, TriangleRasterizer.TRIANGLE_STRIDE);
+        System.arraycopy(vertices, 0, data, dataOffsets[index], TriangleRasterizer.TRIANGLE_STRIDE);
+        setBounds(index,
+                (float) Math.min(vertices[0], Math.min(vertices[stride], vertices[2 * stride])),
+                (float) Math.min(vertices[1], Math.min(vertices[stride + 1], vertices[2 * stride + 1])),
+                (float) Math.max(vertices[0], Math.max(vertices[stride], vertices[2 * stride])),
+                (float) Math.max(vertices[1], Math.max(vertices[stride + 1], vertices[2 * stride + 1])));
+    }
+
+    @Override
+    public void line(float x1, float y1, float z1, float x2, float y2, float z2, int argb) {
+        final int index = append(LINE, currentState, argb, LINE_STRIDE);
+        final int offset = dataOffsets[index];
+        data[offset] = x1;
+        data[offset + 1] = y1;
+        data[offset + 2] = z1;
+        data[offset + 3] = x2;
+        data[offset + 4] = y2;
+        data[offset + 5] = z2;
+        setBounds(index, Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+    }
+
+    /**
+     * Выполняет команду в переданные буферы. rasterizer — растеризатор потока, который рисует
+     * (у каждого тайла свой).
+     */
+    void draw(int command, FrameBuffer frameBuffer, ZBuffer zBuffer, TriangleRasterizer rasterizer) {
+        final byte kind = kinds[command];
+        if (kind == CUSTOM) {
+            custom.get(states[command]).draw(frameBuffer, zBuffer);
+            return;
+        }
+        final int offset = dataOffsets[command];
+        if (kind == LINE) {
+            drawLineWithDepthTestOnly(frameBuffer, zBuffer,
+                    (float) data[offset], (float) data[offset + 1], (float) data[offset + 2],
+                    (float) data[offset + 3], (float) data[offset + 4], (float) data[offset + 5],
+                    values[command]);
+            return;
+        }
+        final State state = statePool[states[command]];
+        rasterizer.setTexture(state.texture, state.filter);
+        rasterizer.setColor(state.baseColor);
+        rasterizer.setLight(state.light);
+        rasterizer.setBlend(state.blendArgb, state.depthOffset);
+        // Номера пишутся вместе с цветом только на время этого треугольника
+        frameBuffer.setCurrentIds(state.objectId, values[command]);
+        rasterizer.draw(frameBuffer, zBuffer, SHADINGS[kind], data, offset);
+        frameBuffer.setCurrentIds(FrameBuffer.NO_ID, FrameBuffer.NO_ID);
+    }
+
+    private State nextState() {
+        if (stateCount == statePool.length) {
+            statePool = Arrays.copyOf(statePool, Math.max(16, statePool.length * 2));
+            for (int i = stateCount; i < statePool.length; i++) {
+                statePool[i] = new State();
+            }
+        }
+        currentState = stateCount++;
+        return statePool[currentState];
+    }
+
+    private int append(byte kind, int state, int value, int dataLength) {
+        if (size == kinds.length) {
+            final int capacity = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            states = Arrays.copyOf(states, capacity);
+            values = Arrays.copyOf(values, capacity);
+            dataOffsets = Arrays.copyOf(dataOffsets, capacity);
+            bounds = Arrays.copyOf(bounds, 4 * capacity);
+        }
+        if (dataSize + dataLength > data.length) {
+            data = Arrays.copyOf(data, Math.max(dataSize + dataLength, data.length * 2));
+        }
+        final int index = size++;
+        kinds[index] = kind;
+        states[index] = state;
+        values[index] = value;
+        dataOffsets[index] = dataSize;
+        dataSize += dataLength;
+        return index;
+    }
+
+    private void setBounds(int index, float minX, float minY, float maxX, float maxY) {
+        bounds[index * 4] = minX;
+        bounds[index * 4 + 1] = minY;
+        bounds[index * 4 + 2] = maxX;
+        bounds[index * 4 + 3] = maxY;
+    }
+}
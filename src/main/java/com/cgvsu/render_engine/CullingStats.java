@@ -0,0 +1,106 @@
+package com.cgvsu.render_engine;
+
+/**
+ * Счётчики отбраковки за последний кадр {@link RenderEngine} — для профилирования.
+ *
+ * Считается только заливка: каркас и подсветка выделения сюда не входят.
+ * В тайловом режиме заслонённые объекты отбрасывают сами тайлы, поэтому
+ * {@link #getObjectsOccluded()} там всегда 0.
+ *
+ * Заполняется во время {@link RenderEngine#render(FrameSnapshot, com.cgvsu.rasterization.FrameBuffer)};
+ * читать счётчики нужно в том же потоке после рендера.
+ */
+public final class CullingStats {
+
+    int objects;
+    int objectsOutsideFrustum;
+    int objectsOccluded;
+
+    int triangles;
+    int trianglesOutside;
+    int trianglesBackCulled;
+    int trianglesFrontCulled;
+    int trianglesClipped;
+    int trianglesDrawn;
+
+    int normals;
+    int normalsTransformed;
+
+    void reset() {
+        objects = 0;
+        objectsOutsideFrustum = 0;
+        objectsOccluded = 0;
+        triangles = 0;
+        trianglesOutside = 0;
+        trianglesBackCulled = 0;
+        trianglesFrontCulled = 0;
+        trianglesClipped = 0;
+        trianglesDrawn = 0;
+        normals = 0;
+        normalsTransformed = 0;
+    }
+
+    /** Объекты снимка кадра. */
+    public int getObjects() {
+        return objects;
+    }
+
+    /** Объекты, целиком вне пирамиды видимости: их вершины не проецировались. */
+    public int getObjectsOutsideFrustum() {
+        return objectsOutsideFrustum;
+    }
+
+    /** Объекты, целиком заслонённые уже нарисованными (пирамида Z-буфера). */
+    public int getObjectsOccluded() {
+        return objectsOccluded;
+    }
+
+    /** Треугольники объектов, дошедших до сборки треугольников. */
+    public int getTriangles() {
+        return triangles;
+    }
+
+    /** Треугольники целиком снаружи одной плоскости отсечения или с нечисловыми вершинами. */
+    public int getTrianglesOutside() {
+        return trianglesOutside;
+    }
+
+    /** Треугольники, отброшенные как задние (режим {@link RenderSettings.CullMode#BACK}). */
+    public int getTrianglesBackCulled() {
+        return trianglesBackCulled;
+    }
+
+    /** Треугольники, отброшенные как передние (режим {@link RenderSettings.CullMode#FRONT}). */
+    public int getTrianglesFrontCulled() {
+        return trianglesFrontCulled;
+    }
+
+    /** Прошедшие отбраковку треугольники, которые пришлось резать в однородных координатах. */
+    public int getTrianglesClipped() {
+        return trianglesClipped;
+    }
+
+    /** Треугольники, отправленные растеризатору (для отсечённых — каждый треугольник веера). */
+    public int getTrianglesDrawn() {
+        return trianglesDrawn;
+    }
+
+    /** Нормали объектов с освещением. */
+    public int getNormals() {
+        return normals;
+    }
+
+    /** Нормали, которые действительно преобразовывались: только у оставшихся треугольников. */
+    public int getNormalsTransformed() {
+        return normalsTransformed;
+    }
+
+    @Override
+    public String toString() {
+        return "objects " + objects + " (outside " + objectsOutsideFrustum + ", occluded " + objectsOccluded + ")"
+                + ", triangles " + triangles + " (outside " + trianglesOutside
+                + ", back " + trianglesBackCulled + ", front " + trianglesFrontCulled
+                + ", clipped " + trianglesClipped + ", drawn " + trianglesDrawn + ")"
+                + ", normals " + normalsTransformed + "/" + normals;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.rasterization.ZBuffer;
+
+/**
+ * Команда растеризации: экранный ограничивающий прямоугольник и сама отрисовка.
+ *
+ * Команда рисует только в пределах переданных буферов, поэтому её можно выполнить
+ * сразу в полноэкранные буферы или отдельно в каждом тайле, который она задевает.
+ * Треугольники и рёбра движка так не оформляются: {@link TileRenderer} хранит их
+ * в плоском буфере команд без объекта на каждый примитив.
+ */
+public abstract class DrawCommand {
+
+    final float minX;
+    final float minY;
+    final float maxX;
+    final float maxY;
+    // Объект, к которому относится команда (null — без отбраковки объекта целиком)
+    OcclusionGroup group;
+
+    protected DrawCommand(float minX, float minY, float maxX, float maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public abstract void draw(FrameBuffer frameBuffer, ZBuffer zBuffer);
+}
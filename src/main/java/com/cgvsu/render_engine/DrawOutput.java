@@ -0,0 +1,30 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.rasterization.TriangleRasterizer;
+import javafx.scene.paint.Color;
+
+/**
+ * Куда {@link RenderEngine} отдаёт собранные примитивы: сразу в буферы кадра
+ * или в команды тайлового растеризатора.
+ *
+ * Параметры закраски задаются один раз на объект. Треугольник передаётся массивом
+ * из {@link TriangleRasterizer#TRIANGLE_STRIDE} чисел, который вызывающий переиспользует
+ * для следующего треугольника.
+ */
+interface DrawOutput {
+
+    /**
+     * Следующие примитивы относятся к объекту снимка objectId (group — его группа заслонения или null).
+     */
+    void beginObject(int objectId, Texture texture, Texture.Filter filter, Color baseColor,
+                     Lighting.Light light, OcclusionGroup group);
+
+    /**
+     * Следующие треугольники — подсветка выделения ({@link TriangleRasterizer.Shading#BLEND}).
+     */
+    void beginSelection(int fillArgb, float depthOffset);
+
+    void triangle(TriangleRasterizer.Shading shading, double[] vertices, int polygonId);
+
+    void line(float x1, float y1, float z1, float x2, float y2, float z2, int argb);
+}
@@ -0,0 +1,224 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedMesh;
+import com.cgvsu.model.PolygonSelection;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок всего, что нужно для отрисовки одного кадра.
+ *
+ * Снимается в потоке JavaFX, после чего кадр можно рисовать в любом потоке:
+ * матрицы, настройки и выделение копируются, а упакованные сетки и так не меняются
+ * (при правке модели Model строит новую PackedMesh).
+ */
+public final class FrameSnapshot {
+
+    final int width;
+    final int height;
+    final Matrix4 viewMatrix;
+    final Matrix4 projectionMatrix;
+    final Lighting.Light light;
+    final boolean tiled;
+    final boolean idBuffer;
+    final List<ObjectState> objects;
+    final List<SelectedPolygons> selectedPolygons;
+
+    private FrameSnapshot(
+            int width, int height,
+            Matrix4 viewMatrix, Matrix4 projectionMatrix, Lighting.Light light, boolean tiled, boolean idBuffer,
+            List<ObjectState> objects, List<SelectedPolygons> selectedPolygons) {
+        this.width = width;
+        this.height = height;
+        this.viewMatrix = viewMatrix;
+        this.projectionMatrix = projectionMatrix;
+        this.light = light;
+        this.tiled = tiled;
+        this.idBuffer = idBuffer;
+        this.objects = Collections.unmodifiableList(objects);
+        this.selectedPolygons = Collections.unmodifiableList(selectedPolygons);
+    }
+
+    /**
+     * Снимает состояние сцены. Вызывается в потоке, который владеет сценой (JavaFX).
+     *
+     * @param texture          текстура по умолчанию для объектов без своей текстуры (может быть null)
+     * @param selectedPolygons выделенные полигоны для подсветки (может быть null)
+     */
+    public static FrameSnapshot capture(
+            final Scene scene,
+            final Texture texture,
+            final RenderSettings globalSettings,
+            final int width,
+            final int height,
+            final PolygonSelection selectedPolygons) {
+
+        final Camera camera = scene.getActiveCamera();
+
+        final List<ObjectState> objects = new ArrayList<>();
+        for (SceneObject sceneObject : scene.getObjects()) {
+            if (!sceneObject.isVisible() || sceneObject.getModel() == null) {
+                continue;
+            }
+
+            // Если у объекта нет своих настроек, используем глобальные
+            RenderSettings settings = sceneObject.getRenderSettings();
+            if (settings == null) {
+                settings = globalSettings;
+            }
+
+            // Текстура объекта имеет приоритет над "глобальной" (если задана)
+            final Texture objectTexture = (sceneObject.getTexture() != null) ? sceneObject.getTexture() : texture;
+
+            objects.add(new ObjectState(
+                    sceneObject,
+                    objects.size(),
+                    sceneObject.getModel().getPackedMesh(),
+                    RenderEngine.getModelMatrix(sceneObject),
+                    objectTexture,
+                    settings.copy(),
+                    sceneObject.getModelColor(),
+                    sceneObject.getWireframeColor()));
+        }
+
+        final List<SelectedPolygons> selection = new ArrayList<>();
+        if (selectedPolygons != null && !selectedPolygons.isEmpty()) {
+            for (ObjectState object : objects) {
+                final BitSet indices = selectedPolygons.getPolygons(object.sceneObject);
+                if (!indices.isEmpty()) {
+                    final SelectedPolygons selected = captureSelection(object, indices);
+                    if (selected != null) {
+                        selection.add(selected);
+                    }
+                }
+            }
+        }
+
+        return new FrameSnapshot(
+                width, height,
+                camera.getViewMatrix(),
+                camera.getProjectionMatrix(),
+                // Источник освещения привязан к камере
+                Lighting.createCameraLight(camera.getPosition(), camera.getTarget()),
+                globalSettings != null && globalSettings.isUseTiledRasterization(),
+                globalSettings != null && globalSettings.isWriteIdBuffer(),
+                objects, selection);
+    }
+
+    // Вершины выделенных полигонов копируются подряд: подсветка проецирует только их, а не всю сетку
+    private static SelectedPolygons captureSelection(ObjectState object, BitSet indices) {
+        final PackedMesh mesh = object.mesh;
+        int polygonCount = 0;
+        int cornerCount = 0;
+        for (int p = indices.nextSetBit(0); p >= 0 && p < mesh.getPolygonCount(); p = indices.nextSetBit(p + 1)) {
+            if (mesh.getPolygonSize(p) >= 3) {
+                polygonCount++;
+                cornerCount += mesh.getPolygonSize(p);
+            }
+        }
+        if (polygonCount == 0) {
+            return null;
+        }
+
+        final float[] meshPositions = mesh.getPositions();
+        final int[] vertexIndices = mesh.getVertexIndices();
+        final float[] positions = new float[cornerCount * 3];
+        final int[] polygonEnds = new int[polygonCount];
+        int polygon = 0;
+        int corner = 0;
+        for (int p = indices.nextSetBit(0); p >= 0 && p < mesh.getPolygonCount(); p = indices.nextSetBit(p + 1)) {
+            final int size = mesh.getPolygonSize(p);
+            if (size < 3) {
+                continue;
+            }
+            final int start = mesh.getPolygonStart(p);
+            for (int k = 0; k < size; k++, corner++) {
+                final int vertex = vertexIndices[start + k] * 3;
+                positions[corner * 3] = meshPositions[vertex];
+                positions[corner * 3 + 1] = meshPositions[vertex + 1];
+                positions[corner * 3 + 2] = meshPositions[vertex + 2];
+            }
+            polygonEnds[polygon++] = corner;
+        }
+        return new SelectedPolygons(object.modelMatrix, positions, polygonEnds);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Объект сцены по номеру из ID-буфера кадра или null, если номер неизвестен или объект
+     * изменился после снимка (номера полигонов кадра уже не соответствуют модели).
+     * Вызывается в потоке, который владеет сценой.
+     */
+    public SceneObject resolveObjectId(int objectId) {
+        if (objectId < 0 || objectId >= objects.size()) {
+            return null;
+        }
+        final ObjectState state = objects.get(objectId);
+        final Model model = state.sceneObject.getModel();
+        if (model == null || model.getPackedMesh() != state.mesh) {
+            return null;
+        }
+        return state.sceneObject;
+    }
+
+    static final class ObjectState {
+        // Ссылка только для разбора ID-буфера: при рендере объект сцены не читается
+        final SceneObject sceneObject;
+        // Номер объекта в ID-буфере
+        final int id;
+        final PackedMesh mesh;
+        final Matrix4 modelMatrix;
+        final Texture texture;
+        final RenderSettings settings;
+        final Color baseColor;
+        final Color wireframeColor;
+
+        ObjectState(SceneObject sceneObject, int id, PackedMesh mesh, Matrix4 modelMatrix, Texture texture, RenderSettings settings,
+                    Color baseColor, Color wireframeColor) {
+            this.sceneObject = sceneObject;
+            this.id = id;
+            this.mesh = mesh;
+            this.modelMatrix = modelMatrix;
+            this.texture = texture;
+            this.settings = settings;
+            this.baseColor = baseColor;
+            this.wireframeColor = wireframeColor;
+        }
+    }
+
+    /**
+     * Выделенные полигоны одного объекта.
+     */
+    static final class SelectedPolygons {
+        final Matrix4 modelMatrix;
+        // Вершины всех полигонов подряд в координатах модели (x, y, z)
+        final float[] positions;
+        // Номер вершины, следующей за последней вершиной каждого полигона
+        final int[] polygonEnds;
+
+        SelectedPolygons(Matrix4 modelMatrix, float[] positions, int[] polygonEnds) {
+            this.modelMatrix = modelMatrix;
+            this.positions = positions;
+            this.polygonEnds = polygonEnds;
+        }
+
+        int getVertexCount() {
+            return positions.length / 3;
+        }
+    }
+}
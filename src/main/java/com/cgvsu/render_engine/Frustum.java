@@ -0,0 +1,71 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.model.BoundingVolume;
+
+/**
+ * Плоскости пирамиды видимости, извлечённые из матрицы модель-вид-проекция (метод Gribb–Hartmann).
+ *
+ * Плоскости получаются сразу в координатах модели, поэтому AABB и сфера из кэша модели
+ * проверяются без преобразования. Плоскость ax + by + cz + d = 0, внутренность — где значение >= 0.
+ *
+ * Проверяются боковые плоскости экрана (с запасом в пиксель) и ближняя плоскость z = -w —
+ * те же, по которым отсекает {@link TriangleClipper}. По дальней плоскости рендер не отсекает,
+ * поэтому и отбраковка по ней изменила бы картинку.
+ */
+public final class Frustum {
+
+    private static final int PLANES = 5;
+
+    private final double[] planes = new double[PLANES * 4];
+
+    /**
+     * Пересчитывает плоскости для матрицы mvp и экрана width x height.
+     */
+    public void set(final Matrix4 mvp, final int width, final int height) {
+        final float[] m = mvp.m;
+        // Запас в один пиксель: -1 - 2/width <= ndcX <= 1 + 2/width
+        final double slackX = 1.0 + 2.0 / Math.max(1, width);
+        final double slackY = 1.0 + 2.0 / Math.max(1, height);
+        for (int col = 0; col < 4; col++) {
+            final double x = m[col];
+            final double y = m[4 + col];
+            final double z = m[8 + col];
+            final double w = m[12 + col];
+            planes[col] = w * slackX + x;           // левая
+            planes[4 + col] = w * slackX - x;       // правая
+            planes[8 + col] = w * slackY + y;       // нижняя
+            planes[12 + col] = w * slackY - y;      // верхняя
+            planes[16 + col] = z + w;               // ближняя
+        }
+    }
+
+    /**
+     * false, если объём целиком снаружи хотя бы одной плоскости (объект не даст ни одного пикселя).
+     * Сначала сфера; параллелепипед проверяется только для плоскостей, которые сфера пересекает.
+     */
+    public boolean intersects(final BoundingVolume bounds) {
+        if (bounds.isEmpty()) {
+            return false;
+        }
+        for (int p = 0; p < PLANES * 4; p += 4) {
+            final double a = planes[p], b = planes[p + 1], c = planes[p + 2], d = planes[p + 3];
+            final double distance = a * bounds.centerX + b * bounds.centerY + c * bounds.centerZ + d;
+            final double normalLength = Math.sqrt(a * a + b * b + c * c);
+            if (distance >= bounds.radius * normalLength) {
+                continue; // Сфера целиком внутри
+            }
+            if (distance < -bounds.radius * normalLength) {
+                return false;
+            }
+            // Самая "внутренняя" вершина параллелепипеда по нормали плоскости
+            final double x = a >= 0 ? bounds.maxX : bounds.minX;
+            final double y = b >= 0 ? bounds.maxY : bounds.minY;
+            final double z = c >= 0 ? bounds.maxZ : bounds.minZ;
+            if (a * x + b * y + c * z + d < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -82,6 +82,13 @@ public class GraphicConveyor {
         return matrix.multiply(v4);
     }
 
+    /**
+     * То же без выделения памяти: результат пишется в dest.
+     */
+    public static Vector4 multiplyMatrix4ByVector4(final Matrix4 matrix, final Vector3 vertex, final Vector4 dest) {
+        return matrix.multiply(dest.set(vertex.x, vertex.y, vertex.z, 1.0f), dest);
+    }
+
     public static Vector3 multiplyMatrix4ByVector3(final Matrix4 matrix, final Vector3 vertex) {
         Vector4 vertex4 = new Vector4(vertex.x, vertex.y, vertex.z, 1.0f);
         Vector4 result4 = matrix.multiply(vertex4);
@@ -102,13 +109,13 @@ public class GraphicConveyor {
     }
 
     public static Matrix4 createTranslationMatrix(Vector3 translation) {
-        float[][] values = Matrix4.identity().m;
+        Matrix4 matrix = Matrix4.identity();
 
-        values[0][3] = translation.x;
-        values[1][3] = translation.y;
-        values[2][3] = translation.z;
+        matrix.set(0, 3, translation.x);
+        matrix.set(1, 3, translation.y);
+        matrix.set(2, 3, translation.z);
 
-        return new Matrix4(values);
+        return matrix;
     }
 
     public static Matrix4 createScaleMatrix(Vector3 scale) {
@@ -132,42 +139,42 @@ public class GraphicConveyor {
         final float cos = (float) Math.cos(angle);
         final float sin = (float) Math.sin(angle);
 
-        float[][] values = Matrix4.identity().m;
+        Matrix4 matrix = Matrix4.identity();
 
-        values[1][1] = cos;
-        values[1][2] = -sin;
-        values[2][1] = sin;
-        values[2][2] = cos;
+        matrix.set(1, 1, cos);
+        matrix.set(1, 2, -sin);
+        matrix.set(2, 1, sin);
+        matrix.set(2, 2, cos);
 
-        return new Matrix4(values);
+        return matrix;
     }
 
     public static Matrix4 createRotationYMatrix(float angle) {
         final float cos = (float) Math.cos(angle);
         final float sin = (float) Math.sin(angle);
 
-        float[][] values = Matrix4.identity().m;
+        Matrix4 matrix = Matrix4.identity();
 
-        values[0][0] = cos;
-        values[0][2] = sin;
-        values[2][0] = -sin;
-        values[2][2] = cos;
+        matrix.set(0, 0, cos);
+        matrix.set(0, 2, sin);
+        matrix.set(2, 0, -sin);
+        matrix.set(2, 2, cos);
 
-        return new Matrix4(values);
+        return matrix;
     }
 
     public static Matrix4 createRotationZMatrix(float angle) {
         final float cos = (float) Math.cos(angle);
         final float sin = (float) Math.sin(angle);
 
-        float[][] values = Matrix4.identity().m;
+        Matrix4 matrix = Matrix4.identity();
 
-        values[0][0] = cos;
-        values[0][1] = -sin;
-        values[1][0] = sin;
-        values[1][1] = cos;
+        matrix.set(0, 0, cos);
+        matrix.set(0, 1, -sin);
+        matrix.set(1, 0, sin);
+        matrix.set(1, 1, cos);
 
-        return new Matrix4(values);
+        return matrix;
     }
 
     public static Matrix4 createModelMatrix(Vector3 translation, Vector3 rotation, Vector3 scale) {
@@ -90,6 +90,32 @@ public class Lighting {
         );
     }
 
+    /**
+     * Яркость из applySmoothLighting для ненормализованной нормали, без промежуточных объектов.
+     */
+    public static float calculateSmoothIntensity(double nx, double ny, double nz, Light light) {
+        float ambient = 0.2f;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        float coefficient = 0;
+        if (length > 0) {
+            Vector3 d = light.direction;
+            coefficient = (float) Math.max(0, (nx * d.x + ny * d.y + nz * d.z) / length);
+        }
+
+        float intensity = ambient + (1 - ambient) * coefficient * light.intensity;
+        return Math.max(0, Math.min(1, intensity));
+    }
+
+    /**
+     * Умножает RGB цвета premultiplied ARGB на яркость из [0, 1], альфа не меняется.
+     */
+    public static int applyIntensity(int argb, float intensity) {
+        int k = (int) (intensity * 256 + 0.5f);
+        int rb = (((argb & 0x00FF00FF) * k) >>> 8) & 0x00FF00FF;
+        int g = (((argb & 0x0000FF00) * k) >>> 8) & 0x0000FF00;
+        return (argb & 0xFF000000) | rb | g;
+    }
+
     public static Light createCameraLight(Vector3 cameraPosition, Vector3 targetPosition) {
         Vector3 direction = cameraPosition.subtract(targetPosition).normalized();
 
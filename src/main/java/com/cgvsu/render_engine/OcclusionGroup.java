@@ -0,0 +1,31 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.rasterization.ZBuffer;
+
+/**
+ * Экранный прямоугольник объекта и нижняя граница глубины его фрагментов.
+ *
+ * По ним объект целиком отбрасывается пирамидой Z-буфера ({@link ZBuffer#isOccluded}).
+ * Команды одного объекта ссылаются на общую группу, поэтому тайл проверяет её
+ * один раз на все команды объекта, а не на каждую.
+ */
+final class OcclusionGroup {
+
+    final int minX;
+    final int minY;
+    final int maxX;
+    final int maxY;
+    final float nearestZ;
+
+    OcclusionGroup(int minX, int minY, int maxX, int maxY, float nearestZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.nearestZ = nearestZ;
+    }
+
+    boolean isOccluded(ZBuffer zBuffer) {
+        return zBuffer.isOccluded(minX, minY, maxX, maxY, nearestZ);
+    }
+}
@@ -0,0 +1,172 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.model.MeshBvh;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedMesh;
+import com.cgvsu.model.RayHit;
+import com.cgvsu.render_engine.scene.SceneObject;
+
+/**
+ * Выбор объектов и полигонов лучом из пикселя экрана.
+ *
+ * Луч строится обратной проекцией пикселя на ближнюю и дальнюю плоскости и переводится
+ * в координаты каждой модели: там его пересекает BVH модели ({@link Model#getBvh()}).
+ * Параметр луча одинаков для всех объектов (модельная матрица аффинна), поэтому ближайшее
+ * попадание по всей сцене — просто минимум параметра. Луч начинается на ближней плоскости
+ * и не ограничен дальней — как и отсечение в рендере.
+ */
+public final class Picking {
+
+    private Picking() {
+    }
+
+    /**
+     * Попадание луча: объект, полигон его модели и барицентрические координаты в треугольнике веера
+     * (см. {@link RayHit}).
+     */
+    public static final class Hit {
+        private final SceneObject object;
+        private final RayHit rayHit;
+
+        private Hit(SceneObject object, RayHit rayHit) {
+            this.object = object;
+            this.rayHit = rayHit;
+        }
+
+        public SceneObject getObject() {
+            return object;
+        }
+
+        public int getPolygon() {
+            return rayHit.getPolygon();
+        }
+
+        public RayHit getRayHit() {
+            return rayHit;
+        }
+    }
+
+    /**
+     * Ближайшее попадание среди видимых объектов в пикселе (x, y) экрана width x height или null.
+     * Недостроенные BVH строятся в вызывающем потоке.
+     */
+    public static Hit pick(final Iterable<SceneObject> objects, final Matrix4 viewProjection,
+                           final int width, final int height, final double x, final double y) {
+        return pick(objects, viewProjection, width, height, x, y, true);
+    }
+
+    /**
+     * То же без ожидания — для потока интерфейса. Если BVH какой-нибудь видимой модели ещё
+     * не готова, её построение запускается в фоне ({@link PackedMesh#prepareBvh()}), а результат —
+     * null: без этой модели ближайшее попадание неизвестно.
+     */
+    public static Hit pickIfReady(final Iterable<SceneObject> objects, final Matrix4 viewProjection,
+                                  final int width, final int height, final double x, final double y) {
+        return pick(objects, viewProjection, width, height, x, y, false);
+    }
+
+    private static Hit pick(final Iterable<SceneObject> objects, final Matrix4 viewProjection,
+                            final int width, final int height, final double x, final double y,
+                            final boolean build) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        // Пиксель (x, y) растеризатор проверяет в точке с целыми координатами
+        final double ndcX = 2.0 * x / width - 1.0;
+        final double ndcY = 1.0 - 2.0 * y / height;
+
+        final Matrix4 modelViewProjection = new Matrix4();
+        final double[] near = new double[3];
+        final double[] far = new double[3];
+        final RayHit rayHit = new RayHit();
+        rayHit.reset(Double.POSITIVE_INFINITY);
+        SceneObject nearest = null;
+        boolean pending = false;
+        for (SceneObject object : objects) {
+            if (object == null || !object.isVisible() || object.getModel() == null) {
+                continue;
+            }
+            final PackedMesh mesh = object.getModel().getPackedMesh();
+            final MeshBvh bvh = build ? mesh.getBvh() : mesh.getBvhIfReady();
+            if (bvh == null) {
+                mesh.prepareBvh();
+                pending = true;
+                continue;
+            }
+            if (bvh.getTriangleCount() == 0) {
+                continue;
+            }
+            Matrix4.multiply(viewProjection, RenderEngine.getModelMatrix(object), modelViewProjection);
+            if (!unproject(modelViewProjection, ndcX, ndcY, -1, near)
+                    || !unproject(modelViewProjection, ndcX, ndcY, 1, far)) {
+                continue; // Вырожденная матрица (например, нулевой масштаб)
+            }
+            if (bvh.intersect(near[0], near[1], near[2],
+                    far[0] - near[0], far[1] - near[1], far[2] - near[2], rayHit)) {
+                nearest = object;
+            }
+        }
+        return (nearest == null || pending) ? null : new Hit(nearest, rayHit);
+    }
+
+    /**
+     * Точка NDC (x, y, z) в координатах модели: решение M * p = (x, y, z, 1) с делением на w.
+     * Гаусс с выбором главного элемента в double — точнее обращения матрицы во float.
+     */
+    private static boolean unproject(final Matrix4 matrix, final double x, final double y, final double z,
+                                     final double[] out) {
+        final double[] a = new double[20];
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 4; col++) {
+                a[row * 5 + col] = matrix.m[row * 4 + col];
+            }
+        }
+        a[4] = x;
+        a[9] = y;
+        a[14] = z;
+        a[19] = 1;
+
+        for (int col = 0; col < 4; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < 4; row++) {
+                if (Math.abs(a[row * 5 + col]) > Math.abs(a[pivot * 5 + col])) {
+                    pivot = row;
+                }
+            }
+            if (a[pivot * 5 + col] == 0) {
+                return false;
+            }
+            if (pivot != col) {
+                for (int k = 0; k < 5; k++) {
+                    final double swap = a[pivot * 5 + k];
+                    a[pivot * 5 + k] = a[col * 5 + k];
+                    a[col * 5 + k] = swap;
+                }
+            }
+            for (int row = col + 1; row < 4; row++) {
+                final double factor = a[row * 5 + col] / a[col * 5 + col];
+                for (int k = col; k < 5; k++) {
+                    a[row * 5 + k] -= factor * a[col * 5 + k];
+                }
+            }
+        }
+
+        final double[] solution = new double[4];
+        for (int row = 3; row >= 0; row--) {
+            double sum = a[row * 5 + 4];
+            for (int k = row + 1; k < 4; k++) {
+                sum -= a[row * 5 + k] * solution[k];
+            }
+            solution[row] = sum / a[row * 5 + row];
+        }
+        final double w = solution[3];
+        if (w == 0 || !Double.isFinite(w)) {
+            return false;
+        }
+        out[0] = solution[0] / w;
+        out[1] = solution[1] / w;
+        out[2] = solution[2] / w;
+        return Double.isFinite(out[0]) && Double.isFinite(out[1]) && Double.isFinite(out[2]);
+    }
+}
@@ -1,165 +1,200 @@
 package com.cgvsu.render_engine;
 
 import com.cgvsu.math.*;
-import com.cgvsu.model.Model;
-import com.cgvsu.model.Polygon;
+import com.cgvsu.model.BoundingVolume;
+import com.cgvsu.model.MeshEdges;
+import com.cgvsu.model.PackedMesh;
 import com.cgvsu.model.PolygonSelection;
-import com.cgvsu.rasterization.Rasterization;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.rasterization.TriangleRasterizer;
 import com.cgvsu.rasterization.ZBuffer;
 import com.cgvsu.render_engine.scene.Scene;
 import com.cgvsu.render_engine.scene.SceneObject;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.PixelWriter;
 import javafx.scene.paint.Color;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 
 import static com.cgvsu.rasterization.Rasterization.drawLineWithDepthTestOnly;
 
 
 public class RenderEngine {
 
-    public static void render(
+    // Сдвиг рёбер каркаса к камере, чтобы они не тонули в своих же треугольниках
+    private static final float WIREFRAME_DEPTH_OFFSET = -0.0001f;
+    // Подсветка выделенных полигонов: полупрозрачная заливка и контур
+    private static final int SELECTION_FILL_ARGB = FrameBuffer.packColor(1.0, 0.0, 0.0, 0.3);
+    private static final Color SELECTION_OUTLINE_COLOR = Color.RED;
+
+    // Буферы кадра и глубины живут между кадрами и пересоздаются только при смене размера канваса
+    private final FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+    private final ZBuffer zBuffer = new ZBuffer(0, 0);
+    private final TileRenderer tileRenderer = new TileRenderer();
+    // Спроецированные вершины текущего объекта (массивы переиспользуются между объектами и кадрами)
+    private final VertexStage vertexStage = new VertexStage();
+    private final Frustum frustum = new Frustum();
+    private final TriangleClipper clipper = new TriangleClipper();
+    // Собранный треугольник и спроецированные вершины отсечённого многоугольника:
+    // переиспользуются для всех треугольников, объекты на треугольник не создаются
+    private final double[] triangle = new double[TriangleRasterizer.TRIANGLE_STRIDE];
+    private final double[] clippedVertices = new double[TriangleClipper.MAX_VERTICES * TriangleRasterizer.VERTEX_STRIDE];
+    private final boolean[] clippedVisible = new boolean[TriangleClipper.MAX_VERTICES];
+    // Примитивы рисуются сразу (растеризатором движка) или копятся в буфере команд тайлового растеризатора
+    private final ImmediateOutput immediateOutput = new ImmediateOutput();
+    // Матрицы кадра и объекта пересчитываются на месте, без новых объектов
+    private final Matrix4 viewProjectionMatrix = new Matrix4();
+    private final Matrix4 modelViewProjectionMatrix = new Matrix4();
+    private final Matrix4 modelViewMatrix = new Matrix4();
+    // Порядок отрисовки объектов кадра: от ближних к дальним
+    private final List<FrameSnapshot.ObjectState> drawOrder = new ArrayList<>();
+    // Отметки видимых рёбер каркаса (номер текущей отметки вместо очистки) и их список
+    private int[] edgeMarks = new int[0];
+    private int[] visibleEdges = new int[0];
+    private int edgeMark;
+    // Счётчики отбраковки последнего кадра
+    private final CullingStats cullingStats = new CullingStats();
+    private Color backgroundColor = Color.TRANSPARENT;
+
+    public void setBackgroundColor(final Color backgroundColor) {
+        this.backgroundColor = (backgroundColor != null) ? backgroundColor : Color.TRANSPARENT;
+    }
+
+    /**
+     * Счётчики отбраковки последнего кадра (объект переиспользуется и обновляется каждым render).
+     */
+    public CullingStats getCullingStats() {
+        return cullingStats;
+    }
+
+    /**
+     * Синхронный рендер прямо на канвас (в потоке JavaFX).
+     */
+    public void render(
             final GraphicsContext graphicsContext,
             final Scene scene,
             final Texture texture,
             final RenderSettings globalSettings,
             final int width,
             final int height,
-            final List<PolygonSelection> selectedPolygons) {
+            final PolygonSelection selectedPolygons) {
 
-        // Очистка экрана
-        graphicsContext.clearRect(0, 0, width, height);
+        final FrameSnapshot snapshot =
+                FrameSnapshot.capture(scene, texture, globalSettings, width, height, selectedPolygons);
+        render(snapshot, frameBuffer);
 
-        // Инициализация Z-буфера
-        ZBuffer zBuffer = new ZBuffer(width, height);
-        zBuffer.clear();
+        // Готовый кадр (вместе с подсветкой выделения) переносим на канвас одним вызовом
+        frameBuffer.flush(graphicsContext.getPixelWriter());
+    }
 
-        for (SceneObject sceneObject : scene.getObjects()) {
-            if (!sceneObject.isVisible()) {
-                continue; // Пропускаем невидимые объекты
-            }
+    /**
+     * Рисует снимок сцены в переданный буфер кадра. Не обращается к JavaFX и к самой сцене,
+     * поэтому может выполняться в отдельном потоке (но одним RenderEngine — только в одном).
+     */
+    public void render(final FrameSnapshot snapshot, final FrameBuffer target) {
+        final int width = snapshot.width;
+        final int height = snapshot.height;
+        final CullingStats stats = cullingStats;
+        stats.reset();
+        stats.objects = snapshot.objects.size();
 
-            Model mesh = sceneObject.getModel();
-            Color wireframeColor = sceneObject.getWireframeColor();
-            Color baseColor = sceneObject.getModelColor();
+        // Очистка экрана
+        final int clearArgb = FrameBuffer.packColor(backgroundColor);
+        target.resize(width, height);
+        target.setIdsEnabled(snapshot.idBuffer);
+        target.clear(clearArgb);
 
-            // Получаем настройки объекта
-            RenderSettings objectSettings = sceneObject.getRenderSettings();
+        // Очистка Z-буфера
+        zBuffer.resize(width, height);
+        zBuffer.clear();
 
-            // Если у объекта нет своих настроек, используем глобальные
-            if (objectSettings == null) {
-                objectSettings = globalSettings;
-            }
+        // Примитивы либо рисуются сразу, либо копятся и раскладываются по тайлам
+        final boolean tiled = snapshot.tiled;
+        final DrawOutput output;
+        if (tiled) {
+            tileRenderer.begin(width, height);
+            output = tileRenderer.output();
+        } else {
+            immediateOutput.begin(target, zBuffer);
+            output = immediateOutput;
+        }
 
-            // Текстура объекта имеет приоритет над "глобальной" (если задана)
-            final Texture objectTexture = (sceneObject.getTexture() != null) ? sceneObject.getTexture() : texture;
+        Matrix4.multiply(snapshot.projectionMatrix, snapshot.viewMatrix, viewProjectionMatrix);
 
-            // Модельная матрица из Transform объекта
-            final Matrix4 modelMatrix = getModelMatrix(sceneObject);
+        // Ближние объекты рисуются первыми: их глубины позволяют отбросить заслонённые объекты и треугольники
+        drawOrder.clear();
+        drawOrder.addAll(snapshot.objects);
+        drawOrder.sort(Comparator.comparingDouble(
+                object -> viewDepth(viewProjectionMatrix, object.modelMatrix, object.mesh.getBounds())));
 
-            // ПЕРВЫЙ ПРОХОД: Отрисовка треугольников с Z-буфером
-            renderTriangles(graphicsContext, scene.getActiveCamera(), mesh, objectTexture, objectSettings, baseColor,
-                    modelMatrix, zBuffer, width, height);
+        for (FrameSnapshot.ObjectState object : drawOrder) {
+            final RenderSettings objectSettings = object.settings;
 
-            // ВТОРОЙ ПРОХОД: Отрисовка полигональной сетки (если нужно)
-            if (objectSettings.drawWireframe) {
-                renderWireframe(graphicsContext, scene.getActiveCamera(), mesh, wireframeColor, modelMatrix, zBuffer, width, height);
-            }
+            final PackedMesh packed = object.mesh;
+            Matrix4.multiply(viewProjectionMatrix, object.modelMatrix, modelViewProjectionMatrix);
 
-            // ТРЕТИЙ ПРОХОД: Отрисовка выделенных полигонов
-            if (selectedPolygons != null && !selectedPolygons.isEmpty()) {
-                renderSelectedPolygons(graphicsContext, scene, selectedPolygons, width, height);
+            // Объект целиком вне пирамиды видимости (за камерой или за краем экрана) — вершины не трогаем
+            frustum.set(modelViewProjectionMatrix, width, height);
+            if (!frustum.intersects(packed.getBounds())) {
+                stats.objectsOutsideFrustum++;
+                continue;
             }
-        }
-    }
-
-    private static void renderSelectedPolygons(
-            final GraphicsContext graphicsContext,
-            final Scene scene,
-            final List<PolygonSelection> selectedPolygons,
-            final int width,
-            final int height) {
-
-        for (PolygonSelection selection : selectedPolygons) {
-            SceneObject object = selection.getSceneObject();
-            Polygon polygon = selection.getPolygon();
 
-            if (!object.isVisible() || object.getModel() == null) {
+            // Обработка вершин: каждая вершина проецируется один раз на оба прохода
+            vertexStage.run(packed.getPositions(), packed.getVertexCount(), modelViewProjectionMatrix, width, height);
+            if (vertexStage.isEmpty()) {
+                stats.objectsOutsideFrustum++;
                 continue;
             }
 
-            Model mesh = object.getModel();
-
-            // Получаем вершины выделенного полигона
-            List<Integer> vertexIndices = polygon.getVertexIndices();
-            if (vertexIndices.size() < 3) continue;
-
-            // Модельная матрица
-            final Matrix4 modelMatrix = getModelMatrix(object);
-            final Camera camera = scene.getActiveCamera();
-            final Matrix4 viewMatrix = camera.getViewMatrix();
-            final Matrix4 projectionMatrix = camera.getProjectionMatrix();
-            final Matrix4 modelViewProjectionMatrix = projectionMatrix.multiply(viewMatrix).multiply(modelMatrix);
-
-            // Собираем экранные координаты вершин
-            List<Vector3> screenVertices = new ArrayList<>();
-            for (int vertexIndex : vertexIndices) {
-                Vector3 vertex = mesh.vertices.get(vertexIndex);
-                Vector3 screenPos = transformVertex(vertex, modelViewProjectionMatrix, width, height);
-                screenVertices.add(screenPos);
+            // Объект целиком за уже нарисованным — не собираем его треугольники.
+            // В тайловом режиме глубины появятся только при выполнении: проверку делает каждый тайл.
+            // Без группы (есть отсекаемые треугольники) объект рисуется без проверки
+            final OcclusionGroup group = vertexStage.occlusionGroup(objectSettings.isDrawWireframe(), WIREFRAME_DEPTH_OFFSET);
+            if (group != null && !tiled && group.isOccluded(zBuffer)) {
+                stats.objectsOccluded++;
+                continue;
             }
+            output.beginObject(object.id, object.texture, objectSettings.getTextureFilter(), object.baseColor,
+                    snapshot.light, group);
 
-            // Рисуем заполнение полигона красным цветом с прозрачностью
-            fillPolygon(graphicsContext, screenVertices, Color.rgb(255, 0, 0, 0.3));
+            // ПЕРВЫЙ ПРОХОД: Отрисовка треугольников с Z-буфером
+            Matrix4.multiply(snapshot.viewMatrix, object.modelMatrix, modelViewMatrix);
+            renderTriangles(output, modelViewMatrix, packed, vertexStage, object.texture, objectSettings, stats);
 
-            // Рисуем контур полигона красным цветом
-            drawPolygonOutline(graphicsContext, screenVertices, Color.RED);
+            // ВТОРОЙ ПРОХОД: Отрисовка полигональной сетки (если нужно)
+            if (objectSettings.isDrawWireframe()) {
+                renderWireframe(output, clipper, packed, vertexStage, objectSettings.getCullMode(), object.wireframeColor);
+            }
         }
-    }
-
-    private static void fillPolygon(GraphicsContext gc, List<Vector3> vertices, Color color) {
-        if (vertices.size() < 3) return;
 
-        gc.setFill(color);
-        gc.beginPath();
-
-        Vector3 first = vertices.get(0);
-        gc.moveTo(first.x, first.y);
-
-        for (int i = 1; i < vertices.size(); i++) {
-            Vector3 v = vertices.get(i);
-            gc.lineTo(v.x, v.y);
+        // Подсветка выделения — один раз на кадр после всех объектов, чтобы проверять глубину по готовой сцене
+        if (!snapshot.selectedPolygons.isEmpty()) {
+            output.beginSelection(SELECTION_FILL_ARGB, WIREFRAME_DEPTH_OFFSET);
+            renderSelection(output, vertexStage, snapshot.selectedPolygons,
+                    viewProjectionMatrix, modelViewProjectionMatrix, width, height);
         }
 
-        gc.closePath();
-        gc.fill();
+        if (tiled) {
+            tileRenderer.execute(target, zBuffer, clearArgb);
+        }
     }
 
-    private static void drawPolygonOutline(GraphicsContext gc, List<Vector3> vertices, Color color) {
-        if (vertices.size() < 2) return;
-
-        gc.setStroke(color);
-        gc.setLineWidth(2);
-        gc.beginPath();
-
-        Vector3 first = vertices.get(0);
-        gc.moveTo(first.x, first.y);
-
-        for (int i = 1; i < vertices.size(); i++) {
-            Vector3 v = vertices.get(i);
-            gc.lineTo(v.x, v.y);
+    // clip.w центра ограничивающей сферы — глубина объекта в пространстве камеры (w' = z)
+    private static double viewDepth(final Matrix4 viewProjection, final Matrix4 model, final BoundingVolume bounds) {
+        final float[] vp = viewProjection.m;
+        final float[] m = model.m;
+        double depth = 0;
+        for (int row = 0; row < 4; row++) {
+            final double world = m[row * 4] * bounds.centerX + m[row * 4 + 1] * bounds.centerY
+                    + m[row * 4 + 2] * bounds.centerZ + m[row * 4 + 3];
+            depth += vp[12 + row] * world;
         }
-
-        // Замыкаем полигон
-        gc.lineTo(first.x, first.y);
-        gc.stroke();
+        return depth;
     }
 
-
     public static Matrix4 getModelMatrix(final SceneObject sceneObject) {
         if (sceneObject == null || sceneObject.getTransform() == null) {
             return GraphicConveyor.createModelMatrix(
@@ -179,203 +214,392 @@ public class RenderEngine {
     }
 
     /**
-     * Рендерит только треугольники (заполнение)
+     * Рендерит только треугольники (заполнение): сборка треугольников из уже спроецированных вершин.
+     *
+     * Отсечение и отбраковка по обходу решаются по одним позициям; UV и нормали выбираются
+     * (а нормали и преобразуются) только для оставшихся треугольников. Вершины треугольника
+     * собираются в переиспользуемый массив {@link #triangle}.
      */
-    private static void renderTriangles(
-            final GraphicsContext graphicsContext,
-            final Camera camera,
-            final Model mesh,
+    private void renderTriangles(
+            final DrawOutput output,
+            final Matrix4 modelViewMatrix,
+            final PackedMesh packed,
+            final VertexStage vertices,
             final Texture texture,
             final RenderSettings settings,
-            final Color baseColor,
-            final Matrix4 modelMatrix,
-            final ZBuffer zBuffer,
-            final int width,
-            final int height) {
-
-        // Матрицы преобразования
-        final Matrix4 viewMatrix = camera.getViewMatrix();
-        final Matrix4 projectionMatrix = camera.getProjectionMatrix();
-
-        // Для векторов-столбцов: v_clip = P * V * M * v
-        final Matrix4 modelViewProjectionMatrix = projectionMatrix.multiply(viewMatrix).multiply(modelMatrix);
+            final CullingStats stats) {
 
-        // Источник освещения (привязан к камере)
-        Lighting.Light light = Lighting.createCameraLight(
-                camera.getPosition(),
-                camera.getTarget()
-        );
-
-        // Матрица вида-модели для нормалей
-        final Matrix4 modelViewMatrix = viewMatrix.multiply(modelMatrix);
+        // Матрица нормалей считается на объект; сами нормали — по мере надобности, после отбраковки
+        final boolean lighting = settings.isUseLighting() && packed.getNormalCount() > 0;
+        if (lighting) {
+            vertices.beginNormals(packed.getNormals(), packed.getNormalCount(), calculateNormalMatrix(modelViewMatrix));
+            stats.normals += packed.getNormalCount();
+        }
+        final RenderSettings.CullMode cullMode = settings.getCullMode();
 
-        final PixelWriter pixelWriter = graphicsContext.getPixelWriter();
+        // Упакованная сетка: атрибуты и индексы в плоских массивах
+        final float[] textureCoordinates = packed.getTextureCoordinates();
+        final int[] vertexIndices = packed.getVertexIndices();
+        final int[] textureVertexIndices = packed.getTextureVertexIndices();
+        final int[] normalIndices = packed.getNormalIndices();
 
         // Проходим по всем полигонам (треугольникам)
-        for (Polygon polygon : mesh.polygons) {
-            if (polygon.getVertexIndices().size() != 3) {
+        for (int p = 0; p < packed.getPolygonCount(); p++) {
+            if (packed.getPolygonSize(p) != 3) {
                 continue; // Пропускаем не-треугольники
             }
-
-            // Индексы вершин треугольника
-            int vIdx1 = polygon.getVertexIndices().get(0);
-            int vIdx2 = polygon.getVertexIndices().get(1);
-            int vIdx3 = polygon.getVertexIndices().get(2);
-
-            // Координаты вершин
-            Vector3 v1 = mesh.vertices.get(vIdx1);
-            Vector3 v2 = mesh.vertices.get(vIdx2);
-            Vector3 v3 = mesh.vertices.get(vIdx3);
-
-            // Достаём UV (если есть)
-            Vector2 tex1 = null, tex2 = null, tex3 = null;
-            if (settings.useTexture && texture != null && polygon.getTextureVertexIndices().size() == 3) {
-                int tIdx1 = polygon.getTextureVertexIndices().get(0);
-                int tIdx2 = polygon.getTextureVertexIndices().get(1);
-                int tIdx3 = polygon.getTextureVertexIndices().get(2);
-                tex1 = mesh.textureVertices.get(tIdx1);
-                tex2 = mesh.textureVertices.get(tIdx2);
-                tex3 = mesh.textureVertices.get(tIdx3);
+            final int c = packed.getPolygonStart(p);
+            stats.triangles++;
+
+            final int i1 = vertexIndices[c];
+            final int i2 = vertexIndices[c + 1];
+            final int i3 = vertexIndices[c + 2];
+
+            // Вершины за ближней плоскостью или за защитной полосой — треугольник отсекается
+            final int code1 = vertices.getOutcode(i1);
+            final int code2 = vertices.getOutcode(i2);
+            final int code3 = vertices.getOutcode(i3);
+            final int outcodes = code1 | code2 | code3;
+            if ((outcodes & VertexStage.NOT_FINITE) != 0
+                    || (code1 & code2 & code3) != 0) { // все вершины снаружи одной плоскости
+                stats.trianglesOutside++;
+                continue;
             }
-
-            // Достаём и преобразуем нормали (если есть)
-            Vector3 transformedN1 = null, transformedN2 = null, transformedN3 = null;
-            if (settings.useLighting && polygon.getNormalIndices().size() == 3) {
-                int nIdx1 = polygon.getNormalIndices().get(0);
-                int nIdx2 = polygon.getNormalIndices().get(1);
-                int nIdx3 = polygon.getNormalIndices().get(2);
-
-                Vector3 n1 = mesh.normals.get(nIdx1);
-                Vector3 n2 = mesh.normals.get(nIdx2);
-                Vector3 n3 = mesh.normals.get(nIdx3);
-
-                Matrix3 normalMatrix = calculateNormalMatrix(modelViewMatrix);
-                transformedN1 = transformNormal(n1, normalMatrix);
-                transformedN2 = transformNormal(n2, normalMatrix);
-                transformedN3 = transformNormal(n3, normalMatrix);
+            // Отбраковка по обходу вершин — до выборки атрибутов
+            if (cullMode != RenderSettings.CullMode.NONE) {
+                final boolean frontFacing = isFrontFacing(vertices, outcodes, i1, i2, i3);
+                if (frontFacing == (cullMode == RenderSettings.CullMode.FRONT)) {
+                    if (frontFacing) {
+                        stats.trianglesFrontCulled++;
+                    } else {
+                        stats.trianglesBackCulled++;
+                    }
+                    continue;
+                }
             }
 
-            // Проекция (screen + invW + zOverW + attrs)
-            ProjectedVertex pv1 = projectVertex(v1, tex1, transformedN1, modelViewProjectionMatrix, width, height);
-            ProjectedVertex pv2 = projectVertex(v2, tex2, transformedN2, modelViewProjectionMatrix, width, height);
-            ProjectedVertex pv3 = projectVertex(v3, tex3, transformedN3, modelViewProjectionMatrix, width, height);
-
-            // Отбрасываем треугольники с вершинами "на/за" камерой (без клиппинга)
-            if (pv1 == null || pv2 == null || pv3 == null) {
-                continue;
+            // Достаём UV (если есть)
+            final boolean hasTexture = settings.isUseTexture() && texture != null
+                    && textureVertexIndices[c] != PackedMesh.NO_INDEX;
+            float u1 = 0, v1 = 0, u2 = 0, v2 = 0, u3 = 0, v3 = 0;
+            if (hasTexture) {
+                final int t1 = textureVertexIndices[c] * 2;
+                final int t2 = textureVertexIndices[c + 1] * 2;
+                final int t3 = textureVertexIndices[c + 2] * 2;
+                u1 = textureCoordinates[t1];
+                v1 = textureCoordinates[t1 + 1];
+                u2 = textureCoordinates[t2];
+                v2 = textureCoordinates[t2 + 1];
+                u3 = textureCoordinates[t3];
+                v3 = textureCoordinates[t3 + 1];
             }
 
-            // Проверяем видимость треугольника (back-face culling) по экранным координатам
-            if (!isTriangleVisible(pv1, pv2, pv3)) {
-                continue;
+            // Индексы уже преобразованных нормалей (если есть)
+            final boolean hasNormals = lighting && normalIndices[c] != PackedMesh.NO_INDEX;
+            final int n1 = hasNormals ? normalIndices[c] : PackedMesh.NO_INDEX;
+            final int n2 = hasNormals ? normalIndices[c + 1] : PackedMesh.NO_INDEX;
+            final int n3 = hasNormals ? normalIndices[c + 2] : PackedMesh.NO_INDEX;
+            if (hasNormals) {
+                vertices.prepareNormal(n1);
+                vertices.prepareNormal(n2);
+                vertices.prepareNormal(n3);
             }
 
             // --- ОТРИСОВКА ЗАПОЛНЕНИЯ ---
-            if (settings.useTexture && texture != null && tex1 != null && tex2 != null && tex3 != null) {
-                if (settings.useLighting && transformedN1 != null) {
-                    // Текстура + освещение (perspective correct)
-                    drawTexturedTriangleWithLightingPerspectiveCorrect(
-                            pixelWriter,
-                            zBuffer,
-                            pv1, pv2, pv3,
-                            texture,
-                            light
-                    );
-                } else {
-                    // Только текстура (perspective correct)
-                    Rasterization.fillTriangleTexturedPerspectiveCorrect(
-                            pixelWriter,
-                            zBuffer,
-                            pv1.x, pv1.y, pv1.invW, pv1.zOverW, pv1.uOverW, pv1.vOverW,
-                            pv2.x, pv2.y, pv2.invW, pv2.zOverW, pv2.uOverW, pv2.vOverW,
-                            pv3.x, pv3.y, pv3.invW, pv3.zOverW, pv3.uOverW, pv3.vOverW,
-                            texture
-                    );
-                }
-            } else if (settings.useLighting && transformedN1 != null) {
+            final TriangleRasterizer.Shading shading;
+            if (hasTexture) {
+                // Текстура (+ освещение), perspective correct
+                shading = hasNormals
+                        ? TriangleRasterizer.Shading.TEXTURED_LIT
+                        : TriangleRasterizer.Shading.TEXTURED;
+            } else if (hasNormals) {
                 // Освещение без текстуры (perspective correct depth + normals)
-                drawLitTriangleWithNormalInterpolationPerspectiveCorrect(
-                        pixelWriter,
-                        zBuffer,
-                        pv1, pv2, pv3,
-                        baseColor,
-                        light
-                );
+                shading = TriangleRasterizer.Shading.LIT;
             } else {
                 // Простой треугольник (perspective correct depth)
-                Rasterization.fillTrianglePerspectiveCorrect(
-                        pixelWriter,
-                        zBuffer,
-                        pv1.x, pv1.y, pv1.invW, pv1.zOverW,
-                        pv2.x, pv2.y, pv2.invW, pv2.zOverW,
-                        pv3.x, pv3.y, pv3.invW, pv3.zOverW,
-                        baseColor
-                );
+                shading = TriangleRasterizer.Shading.FLAT;
+            }
+
+            if (outcodes == 0) {
+                // Сборка вершин треугольника (screen + invW + zOverW + attrs)
+                assembleVertex(triangle, 0, vertices, i1, u1, v1, n1);
+                assembleVertex(triangle, 1, vertices, i2, u2, v2, n2);
+                assembleVertex(triangle, 2, vertices, i3, u3, v3, n3);
+                output.triangle(shading, triangle, p);
+                stats.trianglesDrawn++;
+                continue;
             }
+            stats.trianglesClipped++;
+
+            // Отсечение в однородных координатах; остаток — выпуклый многоугольник, рисуем его веером
+            loadClipVertex(clipper, 0, vertices, i1, u1, v1, n1);
+            loadClipVertex(clipper, 1, vertices, i2, u2, v2, n2);
+            loadClipVertex(clipper, 2, vertices, i3, u3, v3, n3);
+            final int clippedCount = clipper.clip(outcodes, vertices.getGuardBand());
+            stats.trianglesDrawn += drawClippedFan(output, shading, p, clippedCount, vertices);
+        }
+        if (lighting) {
+            stats.normalsTransformed += vertices.getPreparedNormalCount();
         }
     }
 
-    private static void renderWireframe(
-            final GraphicsContext graphicsContext,
-            final Camera camera,
-            final Model mesh,
-            final Color wireframeColor,
-            final Matrix4 modelMatrix,
-            final ZBuffer zBuffer,
-            final int width,
-            final int height) {
-
-        // Матрицы преобразования
-        final Matrix4 viewMatrix = camera.getViewMatrix();
-        final Matrix4 projectionMatrix = camera.getProjectionMatrix();
+    // Обращён ли треугольник к камере: по экранным координатам, а если будет отсекаться — по однородным
+    private static boolean isFrontFacing(VertexStage vertices, int outcodes, int i1, int i2, int i3) {
+        return (outcodes == 0) ? vertices.isFrontFacing(i1, i2, i3) : vertices.isFrontFacingClip(i1, i2, i3);
+    }
 
-        // Для векторов-столбцов: v_clip = P * V * M * v
-        final Matrix4 modelViewProjectionMatrix = projectionMatrix.multiply(viewMatrix).multiply(modelMatrix);
+    private static void loadClipVertex(TriangleClipper clipper, int index, VertexStage vertices,
+                                       int vertex, float u, float v, int normal) {
+        double nx = 0.0, ny = 0.0, nz = 0.0;
+        if (normal != PackedMesh.NO_INDEX) {
+            nx = vertices.getNormalX(normal);
+            ny = vertices.getNormalY(normal);
+            nz = vertices.getNormalZ(normal);
+        }
+        clipper.setVertex(index,
+                vertices.getClipX(vertex), vertices.getClipY(vertex), vertices.getClipZ(vertex), vertices.getClipW(vertex),
+                u, v, nx, ny, nz);
+    }
 
-        // Множество для хранения уникальных ВИДИМЫХ ребер
-        Set<Edge> visibleEdges = new HashSet<>();
+    /**
+     * Рисует веером многоугольник, оставшийся в clipper после отсечения. Треугольники веера
+     * с вершиной, у которой w после отсечения не положителен (погрешность), пропускаются.
+     * Возвращает число нарисованных треугольников.
+     */
+    private int drawClippedFan(DrawOutput output, TriangleRasterizer.Shading shading, int polygonId,
+                               int clippedCount, VertexStage vertices) {
+        final int stride = TriangleRasterizer.VERTEX_STRIDE;
+        for (int k = 0; k < clippedCount; k++) {
+            clippedVisible[k] = projectClipped(clipper, k, vertices.getWidth(), vertices.getHeight(),
+                    clippedVertices, k * stride);
+        }
+        int drawn = 0;
+        for (int k = 2; k < clippedCount; k++) {
+            if (clippedVisible[0] && clippedVisible[k - 1] && clippedVisible[k]) {
+                System.arraycopy(clippedVertices, 0, triangle, 0, stride);
+                System.arraycopy(clippedVertices, (k - 1) * stride, triangle, stride, stride);
+                System.arraycopy(clippedVertices, k * stride, triangle, 2 * stride, stride);
+                output.triangle(shading, triangle, polygonId);
+                drawn++;
+            }
+        }
+        return drawn;
+    }
 
-        // Собираем уникальные ребра ВИДИМЫХ треугольников
-        for (Polygon polygon : mesh.polygons) {
-            if (polygon.getVertexIndices().size() != 3) continue;
+    // Деление на w вершины отсечённого многоугольника (как в VertexStage и assembleVertex).
+    // Экранные x, y округляются до float, как у вершин из VertexStage
+    private static boolean projectClipped(TriangleClipper clipper, int k, int width, int height,
+                                          double[] dest, int offset) {
+        final double clipW = clipper.get(k, 3);
+        if (!(clipW > 1e-7)) {
+            return false;
+        }
+        final double invW = 1.0 / clipW;
+        dest[offset] = (float) ((clipper.get(k, 0) * invW + 1.0) * width * 0.5);
+        dest[offset + 1] = (float) ((1.0 - clipper.get(k, 1) * invW) * height * 0.5);
+        dest[offset + 2] = invW;
+        dest[offset + 3] = clipper.get(k, 2) * invW;
+        dest[offset + 4] = clipper.get(k, 4) * invW;
+        dest[offset + 5] = clipper.get(k, 5) * invW;
+        dest[offset + 6] = clipper.get(k, 6) * invW;
+        dest[offset + 7] = clipper.get(k, 7) * invW;
+        dest[offset + 8] = clipper.get(k, 8) * invW;
+        return true;
+    }
 
-            int vIdx1 = polygon.getVertexIndices().get(0);
-            int vIdx2 = polygon.getVertexIndices().get(1);
-            int vIdx3 = polygon.getVertexIndices().get(2);
+    // Вершина k (0..2) треугольника в dest: экранные координаты, invW, zOverW и атрибуты, делённые на w
+    private static void assembleVertex(double[] dest, int k, VertexStage vertices, int index, float u, float v, int normal) {
+        final double invW = vertices.getInvW(index);
+        double nxOverW = 0.0, nyOverW = 0.0, nzOverW = 0.0;
+        if (normal != PackedMesh.NO_INDEX) {
+            nxOverW = vertices.getNormalX(normal) * invW;
+            nyOverW = vertices.getNormalY(normal) * invW;
+            nzOverW = vertices.getNormalZ(normal) * invW;
+        }
+        final int offset = k * TriangleRasterizer.VERTEX_STRIDE;
+        dest[offset] = vertices.getScreenX(index);
+        dest[offset + 1] = vertices.getScreenY(index);
+        dest[offset + 2] = invW;
+        dest[offset + 3] = vertices.getZOverW(index);
+        dest[offset + 4] = u * invW;
+        dest[offset + 5] = v * invW;
+        dest[offset + 6] = nxOverW;
+        dest[offset + 7] = nyOverW;
+        dest[offset + 8] = nzOverW;
+    }
 
-            Vector3 v1 = mesh.vertices.get(vIdx1);
-            Vector3 v2 = mesh.vertices.get(vIdx2);
-            Vector3 v3 = mesh.vertices.get(vIdx3);
+    /**
+     * Подсветка выделенных полигонов через растеризатор: заливка веером смешивается с кадром,
+     * контур рисуется как каркас. Глубина только проверяется, поэтому заслонённые полигоны
+     * не подсвечиваются, а ID-буфер не меняется. Проецируются только вершины выделения.
+     */
+    private void renderSelection(
+            final DrawOutput output,
+            final VertexStage vertices,
+            final List<FrameSnapshot.SelectedPolygons> selection,
+            final Matrix4 viewProjectionMatrix,
+            final Matrix4 modelViewProjectionMatrix,
+            final int width,
+            final int height) {
 
-            Vector3 projV1 = transformVertex(v1, modelViewProjectionMatrix, width, height);
-            Vector3 projV2 = transformVertex(v2, modelViewProjectionMatrix, width, height);
-            Vector3 projV3 = transformVertex(v3, modelViewProjectionMatrix, width, height);
+        final int outlineArgb = FrameBuffer.packColor(SELECTION_OUTLINE_COLOR);
+        for (FrameSnapshot.SelectedPolygons selected : selection) {
+            Matrix4.multiply(viewProjectionMatrix, selected.modelMatrix, modelViewProjectionMatrix);
+            vertices.run(selected.positions, selected.getVertexCount(), modelViewProjectionMatrix, width, height);
 
-            // Проверяем видимость треугольника (back-face culling)
-            if (!isTriangleVisible(projV1, projV2, projV3)) {
-                continue; // Пропускаем невидимые треугольники
+            int start = 0;
+            for (final int end : selected.polygonEnds) {
+                for (int k = start + 1; k + 1 < end; k++) {
+                    addSelectionTriangle(output, vertices, start, k, k + 1);
+                }
+                // В контур идут только стороны полигона, без внутренних рёбер веера
+                for (int k = start; k < end; k++) {
+                    final int next = (k + 1 < end) ? k + 1 : start;
+                    if (((vertices.getOutcode(k) | vertices.getOutcode(next)) & VertexStage.NOT_FINITE) == 0) {
+                        addEdge(output, clipper, vertices, k, next, outlineArgb);
+                    }
+                }
+                start = end;
             }
+        }
+    }
 
-            // Добавляем ребра ВИДИМОГО треугольника
-            visibleEdges.add(new Edge(projV1, projV2));
-            visibleEdges.add(new Edge(projV2, projV3));
-            visibleEdges.add(new Edge(projV3, projV1));
+    // Треугольник заливки выделения; обе стороны, отсечение — как у треугольников сетки
+    private void addSelectionTriangle(DrawOutput output, VertexStage vertices, int i1, int i2, int i3) {
+        final int code1 = vertices.getOutcode(i1);
+        final int code2 = vertices.getOutcode(i2);
+        final int code3 = vertices.getOutcode(i3);
+        final int outcodes = code1 | code2 | code3;
+        if (outcodes == 0) {
+            assembleVertex(triangle, 0, vertices, i1, 0, 0, PackedMesh.NO_INDEX);
+            assembleVertex(triangle, 1, vertices, i2, 0, 0, PackedMesh.NO_INDEX);
+            assembleVertex(triangle, 2, vertices, i3, 0, 0, PackedMesh.NO_INDEX);
+            output.triangle(TriangleRasterizer.Shading.BLEND, triangle, FrameBuffer.NO_ID);
+            return;
+        }
+        if ((outcodes & VertexStage.NOT_FINITE) != 0 || (code1 & code2 & code3) != 0) {
+            return;
         }
 
-        // Рисуем только видимые ребра
-        PixelWriter pixelWriter = graphicsContext.getPixelWriter();
-        for (Edge edge : visibleEdges) {
-            Vector3 v1 = edge.v1;
-            Vector3 v2 = edge.v2;
+        loadClipVertex(clipper, 0, vertices, i1, 0, 0, PackedMesh.NO_INDEX);
+        loadClipVertex(clipper, 1, vertices, i2, 0, 0, PackedMesh.NO_INDEX);
+        loadClipVertex(clipper, 2, vertices, i3, 0, 0, PackedMesh.NO_INDEX);
+        final int clippedCount = clipper.clip(outcodes, vertices.getGuardBand());
+        drawClippedFan(output, TriangleRasterizer.Shading.BLEND, FrameBuffer.NO_ID, clippedCount, vertices);
+    }
 
+    /**
+     * Каркас: топология рёбер берётся из сетки ({@link PackedMesh#getEdges()}), за кадр только
+     * отмечаются рёбра видимых треугольников и рисуются по уже спроецированным вершинам.
+     */
+    private void renderWireframe(
+            final DrawOutput output,
+            final TriangleClipper clipper,
+            final PackedMesh packed,
+            final VertexStage vertices,
+            final RenderSettings.CullMode cullMode,
+            final Color wireframeColor) {
+
+        final MeshEdges edges = packed.getEdges();
+        final int mark = nextEdgeMark(edges.getEdgeCount());
+        final int[] marks = edgeMarks;
+        final int[] visible = visibleEdges;
+        int visibleCount = 0;
+
+        final int[] vertexIndices = packed.getVertexIndices();
+
+        // Отмечаем уникальные рёбра ВИДИМЫХ треугольников
+        for (int p = 0; p < packed.getPolygonCount(); p++) {
+            if (packed.getPolygonSize(p) != 3) continue;
+            final int c = packed.getPolygonStart(p);
+
+            final int i1 = vertexIndices[c];
+            final int i2 = vertexIndices[c + 1];
+            final int i3 = vertexIndices[c + 2];
+
+            // Те же правила, что и для заливки: отсечение и отбраковка по обходу
+            final int code1 = vertices.getOutcode(i1);
+            final int code2 = vertices.getOutcode(i2);
+            final int code3 = vertices.getOutcode(i3);
+            final int outcodes = code1 | code2 | code3;
+            if ((outcodes & VertexStage.NOT_FINITE) != 0 || (code1 & code2 & code3) != 0) {
+                continue;
+            }
+            if (cullMode != RenderSettings.CullMode.NONE
+                    && isFrontFacing(vertices, outcodes, i1, i2, i3) == (cullMode == RenderSettings.CullMode.FRONT)) {
+                continue; // Пропускаем невидимые треугольники
+            }
 
-            float zOffset = -0.0001f;
-            Vector3 v1Offset = new Vector3(v1.x, v1.y, v1.z + zOffset);
-            Vector3 v2Offset = new Vector3(v2.x, v2.y, v2.z + zOffset);
+            for (int k = c; k < c + 3; k++) {
+                final int edge = edges.getCornerEdge(k);
+                if (marks[edge] != mark) {
+                    marks[edge] = mark;
+                    visible[visibleCount++] = edge;
+                }
+            }
+        }
 
-            drawLineWithDepthTestOnly(pixelWriter, zBuffer, v1Offset, v2Offset, wireframeColor);
+        // Рисуем только видимые рёбра
+        final int argb = FrameBuffer.packColor(wireframeColor);
+        for (int i = 0; i < visibleCount; i++) {
+            final int edge = visible[i];
+            addEdge(output, clipper, vertices, edges.getEdgeStart(edge), edges.getEdgeEnd(edge), argb);
+        }
+    }
 
+    // Новая отметка видимых рёбер объекта: массив отметок не очищается между объектами
+    private int nextEdgeMark(final int edgeCount) {
+        if (edgeMarks.length < edgeCount) {
+            edgeMarks = new int[edgeCount];
+            visibleEdges = new int[edgeCount];
+            edgeMark = 0;
+        }
+        if (++edgeMark == Integer.MAX_VALUE) {
+            Arrays.fill(edgeMarks, 0);
+            edgeMark = 1;
+        }
+        return edgeMark;
+    }
+
+    /**
+     * Ребро каркаса со сдвигом к камере. Частично отсекаемое ребро режется в однородных координатах;
+     * общее ребро соседей режется в одном порядке вершин — получаются одинаковые концы.
+     */
+    private static void addEdge(DrawOutput output, TriangleClipper clipper, VertexStage vertices,
+                                int a, int b, int argb) {
+        final int from = Math.min(a, b);
+        final int to = Math.max(a, b);
+        final int planes = vertices.getOutcode(from) | vertices.getOutcode(to);
+        if (planes == 0) {
+            output.line(
+                    vertices.getScreenX(from), vertices.getScreenY(from), (float) vertices.getZOverW(from) + WIREFRAME_DEPTH_OFFSET,
+                    vertices.getScreenX(to), vertices.getScreenY(to), (float) vertices.getZOverW(to) + WIREFRAME_DEPTH_OFFSET,
+                    argb);
+            return;
+        }
+        if (!clipper.clipSegment(
+                vertices.getClipX(from), vertices.getClipY(from), vertices.getClipZ(from), vertices.getClipW(from),
+                vertices.getClipX(to), vertices.getClipY(to), vertices.getClipZ(to), vertices.getClipW(to),
+                planes, vertices.getGuardBand())) {
+            return;
+        }
+        final double startW = clipper.getSegment(0, 3);
+        final double endW = clipper.getSegment(1, 3);
+        if (!(startW > 1e-7) || !(endW > 1e-7)) {
+            return;
         }
+        final double startInvW = 1.0 / startW;
+        final double endInvW = 1.0 / endW;
+        final int width = vertices.getWidth();
+        final int height = vertices.getHeight();
+        output.line(
+                (float) ((clipper.getSegment(0, 0) * startInvW + 1.0) * width * 0.5),
+                (float) ((1.0 - clipper.getSegment(0, 1) * startInvW) * height * 0.5),
+                (float) (clipper.getSegment(0, 2) * startInvW) + WIREFRAME_DEPTH_OFFSET,
+                (float) ((clipper.getSegment(1, 0) * endInvW + 1.0) * width * 0.5),
+                (float) ((1.0 - clipper.getSegment(1, 1) * endInvW) * height * 0.5),
+                (float) (clipper.getSegment(1, 2) * endInvW) + WIREFRAME_DEPTH_OFFSET,
+                argb);
     }
 
 
@@ -386,27 +610,47 @@ public class RenderEngine {
             Matrix4 mvp,
             int width, int height
     ) {
-        Vector4 clip = GraphicConveyor.multiplyMatrix4ByVector4(mvp, vertex);
+        return projectVertex(vertex.x, vertex.y, vertex.z,
+                (texCoord != null) ? texCoord.x : 0.0f,
+                (texCoord != null) ? texCoord.y : 0.0f,
+                normal, mvp, width, height);
+    }
+
+    /**
+     * Проекция вершины, заданной координатами (без промежуточных векторов).
+     * Отсутствующие UV передаются нулями: 0 / w = 0, как и без текстуры.
+     */
+    public static ProjectedVertex projectVertex(
+            float x, float y, float z,
+            float u, float v,
+            Vector3 normal,          // может быть null
+            Matrix4 mvp,
+            int width, int height
+    ) {
+        // Тот же порядок операций, что и у Matrix4.multiply(Vector4) с w = 1
+        final float[] m = mvp.m;
+        final float clipX = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+        final float clipY = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+        final float clipZ = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+        final float clipW = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0f;
 
         // ВАЖНО: отбрасываем точки "на/за камерой" (w <= 0 в вашей матрице перспективы: w' = z)
-        if (!Float.isFinite(clip.w) || clip.w <= 1e-7f) {
+        if (!Float.isFinite(clipW) || clipW <= 1e-7f
+                || !Float.isFinite(clipX) || !Float.isFinite(clipY) || !Float.isFinite(clipZ)) {
             return null;
         }
 
-        double invW = 1.0 / clip.w;
+        double invW = 1.0 / clipW;
 
-        double ndcX = clip.x * invW;
-        double ndcY = clip.y * invW;
-        double zOverW = clip.z * invW; // ndcZ
+        double ndcX = clipX * invW;
+        double ndcY = clipY * invW;
+        double zOverW = clipZ * invW; // ndcZ
 
         float screenX = (float)((ndcX + 1.0) * width * 0.5);
         float screenY = (float)((1.0 - ndcY) * height * 0.5);
 
-        double uOverW = 0.0, vOverW = 0.0;
-        if (texCoord != null) {
-            uOverW = texCoord.x * invW;
-            vOverW = texCoord.y * invW;
-        }
+        double uOverW = u * invW;
+        double vOverW = v * invW;
 
         double nxOverW = 0.0, nyOverW = 0.0, nzOverW = 0.0;
         if (normal != null) {
@@ -420,12 +664,31 @@ public class RenderEngine {
 
 
     public static Vector3 transformVertex(final Vector3 vertex, final Matrix4 mvp, final int width, final int height) {
-        Vector3 ndc = GraphicConveyor.multiplyMatrix4ByVector3(mvp, vertex);
-        if (!Float.isFinite(ndc.x) || !Float.isFinite(ndc.y) || !Float.isFinite(ndc.z)) {
+        return transformVertex(vertex.x, vertex.y, vertex.z, mvp, width, height);
+    }
+
+    public static Vector3 transformVertex(final float x, final float y, final float z,
+                                          final Matrix4 mvp, final int width, final int height) {
+        // Тот же порядок операций, что и у GraphicConveyor.multiplyMatrix4ByVector3
+        final float[] m = mvp.m;
+        final float rx = m[0] * x + m[1] * y + m[2] * z + m[3] * 1.0f;
+        final float ry = m[4] * x + m[5] * y + m[6] * z + m[7] * 1.0f;
+        final float rz = m[8] * x + m[9] * y + m[10] * z + m[11] * 1.0f;
+        final float rw = m[12] * x + m[13] * y + m[14] * z + m[15] * 1.0f;
+        if (Math.abs(rw) < 1e-7f) {
+            return new Vector3(Float.NaN, Float.NaN, Float.NaN);
+        }
+        final float ndcX = rx / rw;
+        final float ndcY = ry / rw;
+        final float ndcZ = rz / rw;
+        if (!Float.isFinite(ndcX) || !Float.isFinite(ndcY) || !Float.isFinite(ndcZ)) {
             return new Vector3(Float.NaN, Float.NaN, Float.NaN);
         }
-        Point2 p = GraphicConveyor.vertexToPoint(ndc, width, height);
-        return new Vector3(p.x, p.y, ndc.z);
+        // GraphicConveyor.vertexToPoint
+        return new Vector3(
+                (ndcX * width * 0.5F) + width * 0.5F,
+                (-ndcY * height * 0.5F) + height * 0.5F,
+                ndcZ);
     }
 
 
@@ -444,155 +707,6 @@ public class RenderEngine {
         return rotationScale.inverse().transpose();
     }
 
-    /**
-     * Преобразует нормаль с помощью нормальной матрицы
-     */
-    private static Vector3 transformNormal(Vector3 normal, Matrix3 normalMatrix) {
-        return normalMatrix.multiply(normal).normalized();
-    }
-
-    /**
-     * Проверяет, виден ли треугольник (back-face culling)
-     */
-    private static boolean isTriangleVisible(ProjectedVertex v1, ProjectedVertex v2, ProjectedVertex v3) {
-        // Векторы сторон треугольника в экранных координатах
-        float e1x = v2.x - v1.x;
-        float e1y = v2.y - v1.y;
-        float e2x = v3.x - v1.x;
-        float e2y = v3.y - v1.y;
-
-        // Знак псевдоскалярного произведения (2D cross) определяет ориентацию
-        float cross = e1x * e2y - e1y * e2x;
-
-        // Для вашей системы координат (y вниз), условие может быть инвертировано.
-        // Здесь оставляем тот же смысл, что и раньше: "невидимые" отсекаем.
-        return cross <= 0;
-    }
-
-    private static boolean isTriangleVisible(Vector3 v1, Vector3 v2, Vector3 v3) {
-        // Векторы сторон треугольника
-        Vector3 edge1 = v2.subtract(v1);
-        Vector3 edge2 = v3.subtract(v1);
-
-        // Нормаль треугольника (не нормализованная)
-        Vector3 normal = edge1.cross(edge2);
-
-        // Если Z-компонента нормали положительна, треугольник смотрит от нас
-        return normal.z <= 0;
-    }
-
-    /**
-     * Рисует текстурированный треугольник с освещением
-     */
-    // RenderEngine.java (или Rasterization — как удобнее, но у вас сейчас в RenderEngine)
-    private static void drawTexturedTriangleWithLightingPerspectiveCorrect(
-            PixelWriter pixelWriter,
-            ZBuffer zBuffer,
-            ProjectedVertex v1, ProjectedVertex v2, ProjectedVertex v3,
-            Texture texture,
-            Lighting.Light light
-    ) {
-        if (texture == null || !texture.isValid()) return;
-
-        int minX = (int) Math.max(0, Math.floor(Math.min(v1.x, Math.min(v2.x, v3.x))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1, Math.ceil(Math.max(v1.x, Math.max(v2.x, v3.x))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(v1.y, Math.min(v2.y, v3.y))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1, Math.ceil(Math.max(v1.y, Math.max(v2.y, v3.y))));
-
-        double det = (v1.x - v3.x) * (v2.y - v3.y) - (v2.x - v3.x) * (v1.y - v3.y);
-        if (Math.abs(det) < 1e-10) return;
-        double invDet = 1.0 / det;
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-
-                double l1 = ((x - v3.x) * (v2.y - v3.y) - (v2.x - v3.x) * (y - v3.y)) * invDet;
-                double l2 = ((v1.x - v3.x) * (y - v3.y) - (x - v3.x) * (v1.y - v3.y)) * invDet;
-                double l3 = 1 - l1 - l2;
-
-                if (l1 >= 0 && l2 >= 0 && l3 >= 0) {
-
-                    double invW = l1 * v1.invW + l2 * v2.invW + l3 * v3.invW;
-                    if (invW <= 1e-12 || !Double.isFinite(invW)) continue;
-
-                    double z = (l1 * v1.zOverW + l2 * v2.zOverW + l3 * v3.zOverW) / invW;
-
-                    if (z < zBuffer.get(x, y)) {
-                        double u = (l1 * v1.uOverW + l2 * v2.uOverW + l3 * v3.uOverW) / invW;
-                        double v = (l1 * v1.vOverW + l2 * v2.vOverW + l3 * v3.vOverW) / invW;
-
-                        Color texColor = texture.getColor(u, v);
-
-                        // Нормаль перспективно-корректно:
-                        double nx = (l1 * v1.nxOverW + l2 * v2.nxOverW + l3 * v3.nxOverW) / invW;
-                        double ny = (l1 * v1.nyOverW + l2 * v2.nyOverW + l3 * v3.nyOverW) / invW;
-                        double nz = (l1 * v1.nzOverW + l2 * v2.nzOverW + l3 * v3.nzOverW) / invW;
-
-                        Vector3 normal = new Vector3((float)nx, (float)ny, (float)nz).normalized();
-
-                        Color finalColor = Lighting.applySmoothLighting(texColor, normal, light);
-
-                        pixelWriter.setColor(x, y, finalColor);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Освещённый треугольник без текстуры:
-     *  - персп.-корректная глубина (z)
-     *  - персп.-корректная интерполяция нормали (через nOverW и invW)
-     */
-    private static void drawLitTriangleWithNormalInterpolationPerspectiveCorrect(
-            PixelWriter pixelWriter,
-            ZBuffer zBuffer,
-            ProjectedVertex v1, ProjectedVertex v2, ProjectedVertex v3,
-            Color baseColor,
-            Lighting.Light light
-    ) {
-        int minX = (int) Math.max(0, Math.floor(Math.min(v1.x, Math.min(v2.x, v3.x))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1, Math.ceil(Math.max(v1.x, Math.max(v2.x, v3.x))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(v1.y, Math.min(v2.y, v3.y))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1, Math.ceil(Math.max(v1.y, Math.max(v2.y, v3.y))));
-
-        double det = (v1.x - v3.x) * (v2.y - v3.y) - (v2.x - v3.x) * (v1.y - v3.y);
-        if (Math.abs(det) < 1e-10) return;
-        double invDet = 1.0 / det;
-
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-
-                double l1 = ((x - v3.x) * (v2.y - v3.y) - (v2.x - v3.x) * (y - v3.y)) * invDet;
-                double l2 = ((v1.x - v3.x) * (y - v3.y) - (x - v3.x) * (v1.y - v3.y)) * invDet;
-                double l3 = 1 - l1 - l2;
-
-                if (l1 >= 0 && l2 >= 0 && l3 >= 0) {
-
-                    double invW = l1 * v1.invW + l2 * v2.invW + l3 * v3.invW;
-                    if (invW <= 1e-12 || !Double.isFinite(invW)) continue;
-
-                    double z = (l1 * v1.zOverW + l2 * v2.zOverW + l3 * v3.zOverW) / invW;
-                    if (!Double.isFinite(z)) continue;
-
-                    if (z < zBuffer.get(x, y)) {
-                        double nx = (l1 * v1.nxOverW + l2 * v2.nxOverW + l3 * v3.nxOverW) / invW;
-                        double ny = (l1 * v1.nyOverW + l2 * v2.nyOverW + l3 * v3.nyOverW) / invW;
-                        double nz = (l1 * v1.nzOverW + l2 * v2.nzOverW + l3 * v3.nzOverW) / invW;
-
-                        Vector3 normal = new Vector3((float) nx, (float) ny, (float) nz).normalized();
-                        Color finalColor = Lighting.applySmoothLighting(baseColor, normal, light);
-
-                        pixelWriter.setColor(x, y, finalColor);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
-        }
-    }
-
-
     public static class ProjectedVertex {
         public final float x;      // screen
         public final float y;      // screen
@@ -619,105 +733,45 @@ public class RenderEngine {
     }
 
     /**
-     * Рисует треугольник с интерполяцией нормалей для сглаженного освещения
+     * Рисование сразу в буферы кадра растеризатором движка
      */
-    private static void drawLitTriangleWithNormalInterpolation(
-            GraphicsContext graphicsContext,
-            ZBuffer zBuffer,
-            Vector3 v1, Vector3 v2, Vector3 v3,
-            Vector3 n1, Vector3 n2, Vector3 n3,
-            Color baseColor,
-            Lighting.Light light) {
-
-        PixelWriter pixelWriter = graphicsContext.getPixelWriter();
-
-        // Определяем ограничивающий прямоугольник
-        int minX = (int) Math.max(0, Math.floor(Math.min(v1.x, Math.min(v2.x, v3.x))));
-        int maxX = (int) Math.min(zBuffer.getWidth() - 1,
-                Math.ceil(Math.max(v1.x, Math.max(v2.x, v3.x))));
-        int minY = (int) Math.max(0, Math.floor(Math.min(v1.y, Math.min(v2.y, v3.y))));
-        int maxY = (int) Math.min(zBuffer.getHeight() - 1,
-                Math.ceil(Math.max(v1.y, Math.max(v2.y, v3.y))));
-
-        // Вычисляем константы для барицентрических координат
-        double det = (v1.x - v3.x) * (v2.y - v3.y) - (v2.x - v3.x) * (v1.y - v3.y);
-
-        if (Math.abs(det) < 1e-10) {
-            return; // Вырожденный треугольник
+    private static final class ImmediateOutput implements DrawOutput {
+        private final TriangleRasterizer rasterizer = new TriangleRasterizer();
+        private FrameBuffer frameBuffer;
+        private ZBuffer zBuffer;
+        private int objectId = FrameBuffer.NO_ID;
+
+        void begin(FrameBuffer frameBuffer, ZBuffer zBuffer) {
+            this.frameBuffer = frameBuffer;
+            this.zBuffer = zBuffer;
         }
 
-        double invDet = 1.0 / det;
-
-        // Проходим по всем пикселям в ограничивающем прямоугольнике
-        for (int y = minY; y <= maxY; y++) {
-            for (int x = minX; x <= maxX; x++) {
-
-                // Вычисляем барицентрические координаты
-                double lambda1 = ((x - v3.x) * (v2.y - v3.y) -
-                        (v2.x - v3.x) * (y - v3.y)) * invDet;
-                double lambda2 = ((v1.x - v3.x) * (y - v3.y) -
-                        (x - v3.x) * (v1.y - v3.y)) * invDet;
-                double lambda3 = 1 - lambda1 - lambda2;
-
-                // Проверяем, находится ли точка внутри треугольника
-                if (lambda1 >= 0 && lambda2 >= 0 && lambda3 >= 0) {
-
-                    // Интерполируем глубину
-                    double z = lambda1 * v1.z + lambda2 * v2.z + lambda3 * v3.z;
-
-                    // Проверяем Z-буфер
-                    if (z < zBuffer.get(x, y)) {
-
-                        // Интерполируем нормаль
-                        Vector3 normal = Lighting.interpolateNormal(
-                                n1, n2, n3,
-                                (float)lambda1, (float)lambda2, (float)lambda3
-                        );
-
-                        // Применяем освещение
-                        Color finalColor = Lighting.applySmoothLighting(baseColor, normal, light);
-
-                        // Рисуем пиксель
-                        pixelWriter.setColor(x, y, finalColor);
-                        zBuffer.set(x, y, z);
-                    }
-                }
-            }
+        @Override
+        public void beginObject(int objectId, Texture texture, Texture.Filter filter, Color baseColor,
+                                Lighting.Light light, OcclusionGroup group) {
+            this.objectId = objectId;
+            rasterizer.setTexture(texture, filter);
+            rasterizer.setColor(baseColor);
+            rasterizer.setLight(light);
         }
-    }
 
-    /**
-     * Класс для хранения уникальных ребер
-     */
-    private static class Edge {
-        public final Vector3 v1;
-        public final Vector3 v2;
-
-        public Edge(Vector3 v1, Vector3 v2) {
-            // Упорядочиваем вершины по хэш-коду для обеспечения уникальности
-            // (A,B) и (B,A) должны считаться одинаковыми
-            if (v1.hashCode() < v2.hashCode()) {
-                this.v1 = v1;
-                this.v2 = v2;
-            } else {
-                this.v1 = v2;
-                this.v2 = v1;
-            }
+        @Override
+        public void beginSelection(int fillArgb, float depthOffset) {
+            objectId = FrameBuffer.NO_ID;
+            rasterizer.setBlend(fillArgb, depthOffset);
         }
 
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (obj == null || getClass() != obj.getClass()) return false;
-
-            Edge other = (Edge) obj;
-            return v1.equals(other.v1) && v2.equals(other.v2);
+        public void triangle(TriangleRasterizer.Shading shading, double[] vertices, int polygonId) {
+            // Номера пишутся вместе с цветом только на время этого треугольника
+            frameBuffer.setCurrentIds(objectId, polygonId);
+            rasterizer.draw(frameBuffer, zBuffer, shading, vertices, 0);
+            frameBuffer.setCurrentIds(FrameBuffer.NO_ID, FrameBuffer.NO_ID);
         }
 
         @Override
-        public int hashCode() {
-            // Симметричный хэш-код для (A,B) и (B,A)
-            return v1.hashCode() ^ v2.hashCode();
+        public void line(float x1, float y1, float z1, float x2, float y2, float z2, int argb) {
+            drawLineWithDepthTestOnly(frameBuffer, zBuffer, x1, y1, z1, x2, y2, z2, argb);
         }
     }
-}
\ No newline at end of file
+}
@@ -4,19 +4,132 @@ import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 
 public class RenderSettings {
-    public boolean drawWireframe = false;
-    public boolean useTexture = false;
-    public boolean useLighting = false;
 
-    public Color baseColor = Color.GRAY;
+    /**
+     * Какие треугольники отбрасываются по обходу вершин на экране: никакие, задние или передние.
+     */
+    public enum CullMode {
+        NONE,
+        BACK,
+        FRONT
+    }
+
+    private boolean drawWireframe = false;
+    private boolean useTexture = false;
+    private boolean useLighting = false;
+
+    // Многопоточная растеризация по тайлам. Учитывается только в глобальных настройках рендера
+    private boolean useTiledRasterization = false;
+
+    // Номера объекта и полигона в каждом пикселе кадра (выбор мышью). Тоже только в глобальных настройках
+    private boolean writeIdBuffer = true;
+
+    // Фильтрация текстуры; при TRILINEAR мип-уровень выбирается по производным UV
+    private Texture.Filter textureFilter = Texture.Filter.TRILINEAR;
+
+    // Отбраковка по обходу вершин — до выборки UV и нормалей; действует и на каркас
+    private CullMode cullMode = CullMode.BACK;
+
+    private Color baseColor = Color.GRAY;
     //public Image texture = null;
 
-    /*public RenderSettings copy() {
+    // Счётчик изменений вьюпорта, которому принадлежат настройки (null — ни одному)
+    private ChangeTracker changeTracker;
+
+    public void setChangeTracker(ChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+    }
+
+    private void markChanged() {
+        if (changeTracker != null) {
+            changeTracker.markChanged();
+        }
+    }
+
+    // Изменяются только через сеттеры, чтобы вьюпорт узнал о смене настроек
+    public boolean isDrawWireframe() {
+        return drawWireframe;
+    }
+
+    public boolean isUseTexture() {
+        return useTexture;
+    }
+
+    public boolean isUseLighting() {
+        return useLighting;
+    }
+
+    public boolean isUseTiledRasterization() {
+        return useTiledRasterization;
+    }
+
+    public boolean isWriteIdBuffer() {
+        return writeIdBuffer;
+    }
+
+    public Texture.Filter getTextureFilter() {
+        return textureFilter;
+    }
+
+    public CullMode getCullMode() {
+        return cullMode;
+    }
+
+    public Color getBaseColor() {
+        return baseColor;
+    }
+
+    public void setDrawWireframe(boolean drawWireframe) {
+        this.drawWireframe = drawWireframe;
+        markChanged();
+    }
+
+    public void setUseTexture(boolean useTexture) {
+        this.useTexture = useTexture;
+        markChanged();
+    }
+
+    public void setUseLighting(boolean useLighting) {
+        this.useLighting = useLighting;
+        markChanged();
+    }
+
+    public void setUseTiledRasterization(boolean useTiledRasterization) {
+        this.useTiledRasterization = useTiledRasterization;
+        markChanged();
+    }
+
+    public void setWriteIdBuffer(boolean writeIdBuffer) {
+        this.writeIdBuffer = writeIdBuffer;
+        markChanged();
+    }
+
+    public void setTextureFilter(Texture.Filter textureFilter) {
+        this.textureFilter = textureFilter;
+        markChanged();
+    }
+
+    public void setCullMode(CullMode cullMode) {
+        this.cullMode = cullMode;
+        markChanged();
+    }
+
+    public void setBaseColor(Color baseColor) {
+        this.baseColor = baseColor;
+        markChanged();
+    }
+
+    // Копия для снимка кадра: без счётчика, поля пишутся напрямую
+    public RenderSettings copy() {
         RenderSettings copy = new RenderSettings();
         copy.drawWireframe = this.drawWireframe;
         copy.useTexture = this.useTexture;
         copy.useLighting = this.useLighting;
+        copy.useTiledRasterization = this.useTiledRasterization;
+        copy.writeIdBuffer = this.writeIdBuffer;
+        copy.textureFilter = this.textureFilter;
+        copy.cullMode = this.cullMode;
         copy.baseColor = this.baseColor;
         return copy;
-    }*/
+    }
 }
@@ -1,39 +1,300 @@
 package com.cgvsu.render_engine;
 
+import com.cgvsu.rasterization.FrameBuffer;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.paint.Color;
 
+/**
+ * Текстура, разобранная один раз при загрузке в массивы premultiplied ARGB (как в FrameBuffer)
+ * вместе с цепочкой мип-уровней. Выборка идёт прямо из массивов, без PixelReader и без Color.
+ *
+ * Уровень 0 — исходное изображение, каждый следующий вдвое меньше (усреднение по площади,
+ * нечётные стороны — с весами, без потери края), последний уровень 1x1.
+ * Строки хранятся сверху вниз, как в JavaFX; v переворачивается при выборке.
+ */
 public class Texture {
-    private final Image image;
+
+    /**
+     * Способ выборки: ближайший тексель уровня 0 (мип-уровни не используются),
+     * билинейная в ближайшем мип-уровне, трилинейная между двумя соседними уровнями.
+     */
+    public enum Filter {
+        NEAREST,
+        BILINEAR,
+        TRILINEAR
+    }
+
+    private static final double INV_LN2 = 1.0 / Math.log(2);
+
     private final int width;
     private final int height;
-    private final PixelReader pixelReader;
+    private final int[][] levels;
+    private final int[] levelWidths;
+    private final int[] levelHeights;
 
     public Texture(Image image) {
-        this.image = image;
-        this.width = (int) image.getWidth();
-        this.height = (int) image.getHeight();
-        this.pixelReader = image.getPixelReader();
+        this((int) image.getWidth(), (int) image.getHeight(), decode(image));
+    }
+
+    /**
+     * Текстура из готовых пикселей premultiplied ARGB, строка за строкой сверху вниз.
+     * Массив не копируется.
+     */
+    public Texture(int width, int height, int[] argb) {
+        if (width <= 0 || height <= 0 || argb.length < width * height) {
+            throw new IllegalArgumentException("Invalid texture size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+
+        int levelCount = 1;
+        for (int w = width, h = height; w > 1 || h > 1; w = Math.max(1, w / 2), h = Math.max(1, h / 2)) {
+            levelCount++;
+        }
+        levels = new int[levelCount][];
+        levelWidths = new int[levelCount];
+        levelHeights = new int[levelCount];
+
+        levels[0] = argb;
+        levelWidths[0] = width;
+        levelHeights[0] = height;
+        for (int level = 1; level < levelCount; level++) {
+            levelWidths[level] = Math.max(1, levelWidths[level - 1] / 2);
+            levelHeights[level] = Math.max(1, levelHeights[level - 1] / 2);
+            levels[level] = downsample(levels[level - 1], levelWidths[level - 1], levelHeights[level - 1],
+                    levelWidths[level], levelHeights[level]);
+        }
+    }
+
+    private static int[] decode(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] argb = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), argb, 0, width);
+        return argb;
+    }
+
+    /**
+     * Уменьшение вдвое усреднением по площади. Чётная сторона — по 2 текселя на тексель результата.
+     * Нечётная сторона 2n+1 сводится к n текселям по 3 с весами (n - i, n, i + 1) / (2n + 1):
+     * каждый тексель результата покрывает ровно (2n + 1) / n исходных, поэтому край
+     * не отбрасывается и уровни не смещаются на полтекселя. Сторона длины 1 остаётся как есть.
+     */
+    private static int[] downsample(int[] source, int sourceWidth, int sourceHeight, int width, int height) {
+        final Taps xTaps = new Taps(sourceWidth, width);
+        final Taps yTaps = new Taps(sourceHeight, height);
+        final long denominator = (long) xTaps.denominator * yTaps.denominator;
+        final long half = denominator / 2;
+
+        int[] result = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                long a = 0, r = 0, g = 0, b = 0;
+                for (int j = 0; j < 3; j++) {
+                    final int wy = yTaps.weights[y * 3 + j];
+                    if (wy == 0) {
+                        continue;
+                    }
+                    final int row = yTaps.indices[y * 3 + j] * sourceWidth;
+                    for (int i = 0; i < 3; i++) {
+                        final int weight = wy * xTaps.weights[x * 3 + i];
+                        if (weight == 0) {
+                            continue;
+                        }
+                        final int c = source[row + xTaps.indices[x * 3 + i]];
+                        a += (long) ((c >>> 24) & 0xFF) * weight;
+                        r += (long) ((c >> 16) & 0xFF) * weight;
+                        g += (long) ((c >> 8) & 0xFF) * weight;
+                        b += (long) (c & 0xFF) * weight;
+                    }
+                }
+                result[y * width + x] = (int) ((a + half) / denominator) << 24
+                        | (int) ((r + half) / denominator) << 16
+                        | (int) ((g + half) / denominator) << 8
+                        | (int) ((b + half) / denominator);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Исходные тексели и целые веса (общий знаменатель denominator) по одной оси:
+     * по 3 на тексель результата, лишние — с весом 0.
+     */
+    private static final class Taps {
+        final int[] indices;
+        final int[] weights;
+        final int denominator;
+
+        Taps(int sourceSize, int size) {
+            indices = new int[size * 3];
+            weights = new int[size * 3];
+            if (sourceSize == 1) {
+                denominator = 1;
+                weights[0] = 1;
+            } else if (sourceSize % 2 == 0) {
+                denominator = 2;
+                for (int i = 0; i < size; i++) {
+                    indices[i * 3] = 2 * i;
+                    indices[i * 3 + 1] = 2 * i + 1;
+                    weights[i * 3] = 1;
+                    weights[i * 3 + 1] = 1;
+                }
+            } else {
+                denominator = sourceSize;
+                for (int i = 0; i < size; i++) {
+                    indices[i * 3] = 2 * i;
+                    indices[i * 3 + 1] = 2 * i + 1;
+                    indices[i * 3 + 2] = 2 * i + 2;
+                    weights[i * 3] = size - i;
+                    weights[i * 3 + 1] = size;
+                    weights[i * 3 + 2] = i + 1;
+                }
+            }
+        }
     }
 
     public Color getColor(double u, double v) {
+        return FrameBuffer.unpackColor(sampleArgb(u, v));
+    }
+
+    /**
+     * Ближайший тексель уровня 0 (premultiplied ARGB). UV повторяются, v=0 — нижняя строка.
+     */
+    public int sampleArgb(double u, double v) {
+        return sampleNearest(0, u, v);
+    }
+
+    /**
+     * Выборка с фильтрацией. lod — уровень детализации (log2 числа текселей уровня 0 на пиксель),
+     * для BILINEAR округляется до ближайшего уровня, для NEAREST не учитывается.
+     */
+    public int sampleArgb(double u, double v, double lod, Filter filter) {
+        if (filter == Filter.NEAREST) {
+            return sampleNearest(0, u, v);
+        }
+        if (filter == Filter.TRILINEAR) {
+            if (!(lod > 0)) {
+                return sampleBilinear(0, u, v);
+            }
+            int maxLevel = levels.length - 1;
+            if (lod >= maxLevel) {
+                return sampleBilinear(maxLevel, u, v);
+            }
+            int level = (int) lod;
+            int weight = (int) ((lod - level) * 256);
+            return lerp(sampleBilinear(level, u, v), sampleBilinear(level + 1, u, v), weight);
+        }
+
+        int level = lod > 0.5 ? Math.min(levels.length - 1, (int) (lod + 0.5)) : 0;
+        return sampleBilinear(level, u, v);
+    }
+
+    /**
+     * Уровень детализации по производным UV в экранном пространстве (в долях текстуры на пиксель).
+     * Берётся большая из длин двух осей следа пикселя, переведённая в тексели уровня 0.
+     */
+    public double computeLod(double dudx, double dvdx, double dudy, double dvdy) {
+        double ax = dudx * width, bx = dvdx * height;
+        double ay = dudy * width, by = dvdy * height;
+        double rho2 = Math.max(ax * ax + bx * bx, ay * ay + by * by);
+        if (rho2 <= 1.0) {
+            return 0;
+        }
+        // log2(sqrt(rho2))
+        return 0.5 * Math.log(rho2) * INV_LN2;
+    }
+
+    private int sampleNearest(int level, double u, double v) {
+        int w = levelWidths[level];
+        int h = levelHeights[level];
+
         u = u - Math.floor(u);
         v = v - Math.floor(v);
 
         v = 1.0 - v;
 
-        int x = (int) (u * width);
-        int y = (int) (v * height);
+        int x = (int) (u * w);
+        int y = (int) (v * h);
+
+        x = Math.max(0, Math.min(w - 1, x));
+        y = Math.max(0, Math.min(h - 1, y));
+
+        return levels[level][y * w + x];
+    }
+
+    private int sampleBilinear(int level, double u, double v) {
+        int w = levelWidths[level];
+        int h = levelHeights[level];
+        int[] texels = levels[level];
+
+        u = u - Math.floor(u);
+        v = v - Math.floor(v);
+
+        // Центры текселей лежат на половинках
+        double tx = u * w - 0.5;
+        double ty = (1.0 - v) * h - 0.5;
+        double fx = Math.floor(tx);
+        double fy = Math.floor(ty);
+        int wx = (int) ((tx - fx) * 256);
+        int wy = (int) ((ty - fy) * 256);
 
-        x = Math.max(0, Math.min(width  - 1, x));
-        y = Math.max(0, Math.min(height - 1, y));
+        // Соседи тоже повторяются через край
+        int x0 = wrap((int) fx, w);
+        int x1 = wrap(x0 + 1, w);
+        int y0 = wrap((int) fy, h);
+        int y1 = wrap(y0 + 1, h);
 
-        return pixelReader.getColor(x, y);
+        int top = lerp(texels[y0 * w + x0], texels[y0 * w + x1], wx);
+        int bottom = lerp(texels[y1 * w + x0], texels[y1 * w + x1], wx);
+        return lerp(top, bottom, wy);
     }
 
+    private static int wrap(int i, int size) {
+        i %= size;
+        return i < 0 ? i + size : i;
+    }
+
+    /**
+     * Покомпонентная интерполяция ARGB, вес t в 1/256.
+     */
+    private static int lerp(int c0, int c1, int t) {
+        if (t <= 0 || c0 == c1) {
+            return c0;
+        }
+        // Каналы попарно (A,G и R,B) в одном int: между ними 8 свободных бит под умножение
+        int ag0 = (c0 >>> 8) & 0x00FF00FF, ag1 = (c1 >>> 8) & 0x00FF00FF;
+        int rb0 = c0 & 0x00FF00FF, rb1 = c1 & 0x00FF00FF;
+        int ag = ((ag0 << 8) + (ag1 - ag0) * t) & 0xFF00FF00;
+        int rb = (((rb0 << 8) + (rb1 - rb0) * t) >>> 8) & 0x00FF00FF;
+        return ag | rb;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Память под пиксели всех мип-уровней.
+     */
+    public long getSizeInBytes() {
+        long texels = 0;
+        for (int[] level : levels) {
+            texels += level.length;
+        }
+        return texels * Integer.BYTES;
+    }
 
     public boolean isValid() {
-        return image != null;
+        return levels[0] != null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package com.cgvsu.render_engine;
+
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Общий кэш текстур: один и тот же файл разбирается один раз, а объекты сцены получают
+ * одну и ту же Texture.
+ *
+ * Ключ — канонический путь и время изменения файла: изменённый на диске файл загружается заново,
+ * старая запись вытесняется. Разобранные пиксели держатся в пределах бюджета памяти,
+ * при превышении вытесняются давно не запрошенные текстуры (LRU). Вытеснение лишь отпускает
+ * ссылку кэша — объекты, которым текстура уже выдана, продолжают ею пользоваться.
+ */
+public final class TextureCache {
+
+    /**
+     * Загрузка и разбор файла текстуры.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Texture load(Path path) throws IOException;
+    }
+
+    public static final long DEFAULT_MEMORY_BUDGET = 1L << 30;
+
+    private static final TextureCache shared = new TextureCache(DEFAULT_MEMORY_BUDGET, TextureCache::decodeImage);
+
+    // Порядок доступа: первая запись — давно не запрошенная
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Loader loader;
+    private long memoryBudget;
+    private long bytesResident;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TextureCache(long memoryBudget, Loader loader) {
+        this.memoryBudget = memoryBudget;
+        this.loader = loader;
+    }
+
+    /**
+     * Кэш, через который приложение загружает текстуры.
+     */
+    public static TextureCache shared() {
+        return shared;
+    }
+
+    private static Texture decodeImage(Path path) throws IOException {
+        Image image = new Image(path.toUri().toString());
+        if (image.isError()) {
+            Exception cause = image.getException();
+            throw new IOException("Cannot decode image " + path + (cause != null ? ": " + cause.getMessage() : ""), cause);
+        }
+        return new Texture(image);
+    }
+
+    /**
+     * Текстура файла: из кэша, если файл не менялся, иначе загружается заново.
+     */
+    public synchronized Texture get(Path path) throws IOException {
+        Path canonical = path.toRealPath();
+        long modified = Files.getLastModifiedTime(canonical).toMillis();
+
+        Entry entry = entries.get(canonical);
+        if (entry != null && entry.modified == modified) {
+            hits++;
+            return entry.texture;
+        }
+
+        misses++;
+        Texture texture = loader.load(canonical);
+        if (entry != null) {
+            bytesResident -= entry.bytes;
+        }
+        entry = new Entry(texture, modified, texture.getSizeInBytes());
+        entries.put(canonical, entry);
+        bytesResident += entry.bytes;
+        evictOverBudget();
+        return texture;
+    }
+
+    /**
+     * Вытесняет давно не запрошенные текстуры, пока кэш не уложится в бюджет.
+     * Последняя запрошенная остаётся, даже если одна больше бюджета.
+     */
+    private void evictOverBudget() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytesResident > memoryBudget && entries.size() > 1) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            bytesResident -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evictOverBudget();
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytesResident = 0;
+    }
+
+    public synchronized long getBytesResident() {
+        return bytesResident;
+    }
+
+    public synchronized int getTextureCount() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TextureCache{textures=%d, resident=%d KB, budget=%d KB, hits=%d, misses=%d, evictions=%d}",
+                entries.size(), bytesResident >> 10, memoryBudget >> 10, hits, misses, evictions);
+    }
+
+    private static final class Entry {
+        final Texture texture;
+        final long modified;
+        final long bytes;
+
+        Entry(Texture texture, long modified, long bytes) {
+            this.texture = texture;
+            this.modified = modified;
+            this.bytes = bytes;
+        }
+    }
+}
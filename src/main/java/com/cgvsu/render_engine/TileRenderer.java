@@ -0,0 +1,206 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.rasterization.TriangleRasterizer;
+import com.cgvsu.rasterization.ZBuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Многопоточный растеризатор по тайлам.
+ *
+ * Команды копятся за кадр в {@link CommandBuffer} и раскладываются по тайлам TILE_SIZE x TILE_SIZE
+ * по своим ограничивающим прямоугольникам: в тайл попадают только номера команд. Буфер команд
+ * и списки номеров тайлов переиспользуются между кадрами. Каждый тайл рисуется в собственные буферы цвета и глубины,
+ * поэтому потоки не пересекаются и блокировки не нужны. Внутри тайла команды выполняются
+ * в порядке подачи — результат попиксельно совпадает с последовательной отрисовкой.
+ *
+ * Команды одного объекта идут подряд и ссылаются на общую {@link OcclusionGroup}: тайл проверяет
+ * её по своей пирамиде Z-буфера один раз и пропускает все команды заслонённого объекта.
+ */
+public final class TileRenderer {
+
+    public static final int TILE_SIZE = 64;
+
+    private final ForkJoinPool pool;
+    private final CommandBuffer commands = new CommandBuffer();
+
+    private Tile[] tiles = new Tile[0];
+    private int tilesX;
+    private int tilesY;
+    private int width = -1;
+    private int height = -1;
+
+    public TileRenderer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TileRenderer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Начинает кадр: сбрасывает накопленные команды и при смене размера пересоздаёт тайлы.
+     */
+    public void begin(int width, int height) {
+        commands.clear();
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        tilesX = (Math.max(0, width) + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (Math.max(0, height) + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new Tile[tilesX * tilesY];
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int x = tx * TILE_SIZE;
+                int y = ty * TILE_SIZE;
+                tiles[ty * tilesX + tx] = new Tile(x, y,
+                        Math.min(TILE_SIZE, width - x),
+                        Math.min(TILE_SIZE, height - y));
+            }
+        }
+    }
+
+    public void submit(DrawCommand command) {
+        commands.add(command);
+    }
+
+    /**
+     * Приёмник треугольников и рёбер движка текущего кадра (без объектов на команду).
+     */
+    DrawOutput output() {
+        return commands;
+    }
+
+    /**
+     * Раскладывает команды по тайлам, параллельно растеризует тайлы и переносит
+     * их в итоговые буферы. Тайлы без команд не трогаются: итоговые буферы
+     * должны быть заранее очищены тем же цветом фона.
+     */
+    public void execute(FrameBuffer target, ZBuffer targetDepth, int clearArgb) {
+        if (tiles.length == 0) {
+            commands.clear();
+            return;
+        }
+        binCommands();
+        pool.invoke(new TileTask(target, targetDepth, clearArgb, 0, tiles.length));
+        commands.clear();
+    }
+
+    private void binCommands() {
+        for (Tile tile : tiles) {
+            tile.binSize = 0;
+        }
+        final int count = commands.size();
+        for (int i = 0; i < count; i++) {
+            final float commandMinX = commands.getMinX(i);
+            final float commandMinY = commands.getMinY(i);
+            final float commandMaxX = commands.getMaxX(i);
+            final float commandMaxY = commands.getMaxY(i);
+            if (!Float.isFinite(commandMinX) || !Float.isFinite(commandMinY)
+                    || !Float.isFinite(commandMaxX) || !Float.isFinite(commandMaxY)) {
+                continue;
+            }
+            // Границы с запасом (floor/ceil), как у ограничивающих прямоугольников растеризаторов
+            int minX = (int) Math.floor(commandMinX);
+            int minY = (int) Math.floor(commandMinY);
+            int maxX = (int) Math.ceil(commandMaxX);
+            int maxY = (int) Math.ceil(commandMaxY);
+            if (maxX < 0 || maxY < 0 || minX > width - 1 || minY > height - 1) {
+                continue;
+            }
+            int tx0 = clamp(minX / TILE_SIZE, tilesX);
+            int tx1 = clamp(maxX / TILE_SIZE, tilesX);
+            int ty0 = clamp(minY / TILE_SIZE, tilesY);
+            int ty1 = clamp(maxY / TILE_SIZE, tilesY);
+            for (int ty = ty0; ty <= ty1; ty++) {
+                for (int tx = tx0; tx <= tx1; tx++) {
+                    tiles[ty * tilesX + tx].add(i);
+                }
+            }
+        }
+    }
+
+    private static int clamp(int tileIndex, int tileCount) {
+        return Math.max(0, Math.min(tileCount - 1, tileIndex));
+    }
+
+    private void renderTile(Tile tile, FrameBuffer target, ZBuffer targetDepth, int clearArgb) {
+        if (tile.binSize == 0) {
+            return;
+        }
+        tile.frameBuffer.setIdsEnabled(target.hasIds());
+        tile.frameBuffer.clear(clearArgb);
+        tile.zBuffer.clear();
+        OcclusionGroup group = null;
+        boolean occluded = false;
+        for (int k = 0; k < tile.binSize; k++) {
+            final int command = tile.bin[k];
+            final OcclusionGroup commandGroup = commands.getGroup(command);
+            if (commandGroup != group) {
+                group = commandGroup;
+                occluded = group != null && group.isOccluded(tile.zBuffer);
+            }
+            if (!occluded) {
+                commands.draw(command, tile.frameBuffer, tile.zBuffer, tile.rasterizer);
+            }
+        }
+        tile.frameBuffer.copyTo(target);
+        tile.zBuffer.copyTo(targetDepth);
+    }
+
+    private static final class Tile {
+        final FrameBuffer frameBuffer;
+        final ZBuffer zBuffer;
+        // Состояние растеризации тайла: тайл рисует один поток за раз
+        final TriangleRasterizer rasterizer = new TriangleRasterizer();
+        // Индексы команд, задевающих тайл, в порядке подачи
+        int[] bin = new int[64];
+        int binSize;
+
+        Tile(int x, int y, int width, int height) {
+            this.frameBuffer = new FrameBuffer(x, y, width, height);
+            this.zBuffer = new ZBuffer(x, y, width, height);
+        }
+
+        void add(int commandIndex) {
+            if (binSize == bin.length) {
+                bin = Arrays.copyOf(bin, bin.length * 2);
+            }
+            bin[binSize++] = commandIndex;
+        }
+    }
+
+    // Задача живёт только внутри execute и не сериализуется
+    @SuppressWarnings("serial")
+    private final class TileTask extends RecursiveAction {
+        private final FrameBuffer target;
+        private final ZBuffer targetDepth;
+        private final int clearArgb;
+        private final int from;
+        private final int to;
+
+        TileTask(FrameBuffer target, ZBuffer targetDepth, int clearArgb, int from, int to) {
+            this.target = target;
+            this.targetDepth = targetDepth;
+            this.clearArgb = clearArgb;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                renderTile(tiles[from], target, targetDepth, clearArgb);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(target, targetDepth, clearArgb, from, mid),
+                    new TileTask(target, targetDepth, clearArgb, mid, to));
+        }
+    }
+}
@@ -6,27 +6,52 @@ public class Transform {
     private Vector3 translation = new Vector3(0, 0, 0);
     private Vector3 rotation = new Vector3(0, 0, 0); // углы в радианах
     private Vector3 scale = new Vector3(1, 1, 1);
+    // Счётчик изменений вьюпорта, в сцене которого объект (null — объект вне сцены)
+    private ChangeTracker changeTracker;
 
     public Transform() {}
 
+    public void setChangeTracker(ChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+    }
+
+    private void markChanged() {
+        if (changeTracker != null) {
+            changeTracker.markChanged();
+        }
+    }
+
     public Vector3 getTranslation() { return translation; }
     public Vector3 getRotation() { return rotation; }
     public Vector3 getScale() { return scale; }
 
-    public void setTranslation(Vector3 translation) { this.translation = translation; }
-    public void setRotation(Vector3 rotation) { this.rotation = rotation; }
-    public void setScale(Vector3 scale) { this.scale = scale; }
+    public void setTranslation(Vector3 translation) {
+        this.translation = translation;
+        markChanged();
+    }
+
+    public void setRotation(Vector3 rotation) {
+        this.rotation = rotation;
+        markChanged();
+    }
+
+    public void setScale(Vector3 scale) {
+        this.scale = scale;
+        markChanged();
+    }
 
     public void translate(float dx, float dy, float dz) {
         translation.x += dx;
         translation.y += dy;
         translation.z += dz;
+        markChanged();
     }
 
     public void rotate(float dx, float dy, float dz) {
         rotation.x += dx;
         rotation.y += dy;
         rotation.z += dz;
+        markChanged();
     }
 
     // Масштабирование по всем осям для увеличения/уменьшения
@@ -34,23 +59,28 @@ public class Transform {
         scale.x *= factor;
         scale.y *= factor;
         scale.z *= factor;
+        markChanged();
     }
 
     public void scaleX(float factor) {
         scale.x *= factor;
+        markChanged();
     }
 
     public void scaleY(float factor) {
         scale.y *= factor;
+        markChanged();
     }
 
     public void scaleZ(float factor) {
         scale.z *= factor;
+        markChanged();
     }
 
     public void reset() {
         translation = new Vector3(0, 0, 0);
         rotation = new Vector3(0, 0, 0);
         scale = new Vector3(1, 1, 1);
+        markChanged();
     }
 }
\ No newline at end of file
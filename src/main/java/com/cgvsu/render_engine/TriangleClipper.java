@@ -0,0 +1,165 @@
+package com.cgvsu.render_engine;
+
+/**
+ * Отсечение треугольников и рёбер в однородных координатах (Sutherland–Hodgman).
+ *
+ * Треугольник режется ближней плоскостью (z >= -w) и, только если вершина вышла за
+ * защитную полосу (guard band), боковыми плоскостями |x|, |y| <= guardBand * w. Внутри
+ * полосы растеризатор сам обрезает треугольник по экрану, поэтому обычные треугольники,
+ * выходящие за край экрана, сюда не попадают вовсе.
+ *
+ * Атрибуты новых вершин (UV, нормаль) интерполируются линейно в пространстве отсечения —
+ * до деления на w, поэтому после проекции они остаются перспективно-корректными.
+ * Буферы переиспользуются: один экземпляр на поток рендера.
+ */
+public final class TriangleClipper {
+
+    // Биты кода вершины: за какой плоскостью она лежит
+    public static final int NEAR = 1;
+    public static final int LEFT = 1 << 1;
+    public static final int RIGHT = 1 << 2;
+    public static final int BOTTOM = 1 << 3;
+    public static final int TOP = 1 << 4;
+    private static final int PLANE_COUNT = 5;
+
+    // Раскладка вершины: x, y, z, w в пространстве отсечения, затем u, v и нормаль
+    static final int STRIDE = 9;
+    // Каждая плоскость добавляет не больше одной вершины
+    static final int MAX_VERTICES = 3 + PLANE_COUNT;
+
+    private double[] polygon = new double[MAX_VERTICES * STRIDE];
+    private double[] scratch = new double[MAX_VERTICES * STRIDE];
+    private final double[] segment = new double[2 * 4];
+
+    /**
+     * Код вершины относительно ближней плоскости и защитной полосы (0 — внутри).
+     */
+    public static int outcode(float x, float y, float z, float w, double guardBand) {
+        int code = 0;
+        if (z < -w) code |= NEAR;
+        final double limit = guardBand * w;
+        if (x < -limit) code |= LEFT;
+        if (x > limit) code |= RIGHT;
+        if (y < -limit) code |= BOTTOM;
+        if (y > limit) code |= TOP;
+        return code;
+    }
+
+    /**
+     * Записывает вершину треугольника (index от 0 до 2) перед вызовом {@link #clip}.
+     */
+    public void setVertex(int index, double x, double y, double z, double w,
+                          double u, double v, double nx, double ny, double nz) {
+        final int o = index * STRIDE;
+        polygon[o] = x;
+        polygon[o + 1] = y;
+        polygon[o + 2] = z;
+        polygon[o + 3] = w;
+        polygon[o + 4] = u;
+        polygon[o + 5] = v;
+        polygon[o + 6] = nx;
+        polygon[o + 7] = ny;
+        polygon[o + 8] = nz;
+    }
+
+    /**
+     * Отсекает треугольник из setVertex плоскостями из маски planes (объединение кодов вершин).
+     *
+     * @return число вершин выпуклого многоугольника (0, если ничего не осталось);
+     *         сами вершины — {@link #get(int, int)}
+     */
+    public int clip(int planes, double guardBand) {
+        int count = 3;
+        for (int plane = 0; plane < PLANE_COUNT && count > 0; plane++) {
+            if ((planes & (1 << plane)) == 0) {
+                continue;
+            }
+            int outCount = 0;
+            for (int i = 0; i < count; i++) {
+                final int a = i * STRIDE;
+                final int b = ((i + 1) % count) * STRIDE;
+                final double da = distance(polygon, a, plane, guardBand);
+                final double db = distance(polygon, b, plane, guardBand);
+                if (da >= 0) {
+                    System.arraycopy(polygon, a, scratch, outCount++ * STRIDE, STRIDE);
+                }
+                if ((da >= 0) != (db >= 0)) {
+                    // Точка пересечения ребра с плоскостью: все атрибуты — одним параметром t
+                    final double t = da / (da - db);
+                    final int o = outCount++ * STRIDE;
+                    for (int k = 0; k < STRIDE; k++) {
+                        scratch[o + k] = polygon[a + k] + t * (polygon[b + k] - polygon[a + k]);
+                    }
+                }
+            }
+            final double[] swap = polygon;
+            polygon = scratch;
+            scratch = swap;
+            count = outCount;
+        }
+        return count < 3 ? 0 : count;
+    }
+
+    public double get(int vertex, int component) {
+        return polygon[vertex * STRIDE + component];
+    }
+
+    /**
+     * Отсекает отрезок (x, y, z, w концов) теми же плоскостями.
+     *
+     * @return false, если от отрезка ничего не осталось; иначе концы — {@link #getSegment(int, int)}
+     */
+    public boolean clipSegment(double x0, double y0, double z0, double w0,
+                               double x1, double y1, double z1, double w1,
+                               int planes, double guardBand) {
+        final double[] p = segment;
+        p[0] = x0; p[1] = y0; p[2] = z0; p[3] = w0;
+        p[4] = x1; p[5] = y1; p[6] = z1; p[7] = w1;
+        double tMin = 0, tMax = 1;
+        for (int plane = 0; plane < PLANE_COUNT; plane++) {
+            if ((planes & (1 << plane)) == 0) {
+                continue;
+            }
+            final double d0 = distance(p, 0, plane, guardBand);
+            final double d1 = distance(p, 4, plane, guardBand);
+            if (d0 < 0 && d1 < 0) {
+                return false;
+            }
+            if (d0 < 0) {
+                tMin = Math.max(tMin, d0 / (d0 - d1));
+            } else if (d1 < 0) {
+                tMax = Math.min(tMax, d0 / (d0 - d1));
+            }
+        }
+        if (tMin > tMax) {
+            return false;
+        }
+        for (int k = 0; k < 4; k++) {
+            final double start = p[k], end = p[4 + k];
+            p[k] = start + tMin * (end - start);
+            p[4 + k] = start + tMax * (end - start);
+        }
+        return true;
+    }
+
+    public double getSegment(int end, int component) {
+        return segment[end * 4 + component];
+    }
+
+    // Расстояние со знаком до плоскости (>= 0 — внутри); вершина — x, y, z, w начиная с offset
+    private static double distance(double[] vertex, int offset, int plane, double guardBand) {
+        final double x = vertex[offset], y = vertex[offset + 1], z = vertex[offset + 2], w = vertex[offset + 3];
+        switch (plane) {
+            case 0:
+                return z + w;
+            case 1:
+                return guardBand * w + x;
+            case 2:
+                return guardBand * w - x;
+            case 3:
+                return guardBand * w + y;
+            default:
+                return guardBand * w - y;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix3;
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.rasterization.TriangleSetup;
+
+import java.util.Arrays;
+
+/**
+ * Стадия обработки вершин: каждая вершина объекта проецируется ровно один раз за кадр.
+ *
+ * Результат лежит в переиспользуемых массивах (экранные x/y, 1/w, z/w), а сборка
+ * треугольников и каркас только индексируют их. Массивы растут до размера самой
+ * большой модели и дальше не пересоздаются.
+ *
+ * Каждая вершина получает код отсечения ({@link TriangleClipper#outcode}): экранные значения
+ * считаются только для вершин с нулевым кодом, а треугольники с ненулевым кодом у какой-нибудь
+ * вершины собираются через отсечение по однородным координатам clipX/Y/Z/W.
+ *
+ * Также преобразуются нормали (для освещения): матрица нормалей считается один раз на объект,
+ * а каждая нормаль — при первом обращении из треугольника, пережившего отбраковку.
+ * Нормали в пространстве камеры лежат в отдельном буфере.
+ */
+public final class VertexStage {
+
+    // Код вершины с нечисловыми координатами: такие треугольники не рисуются вовсе
+    static final int NOT_FINITE = 1 << 6;
+
+    // Однородные координаты после MVP (нужны и для отсечения)
+    private float[] clipXs = new float[0];
+    private float[] clipYs = new float[0];
+    private float[] clipZs = new float[0];
+    private float[] clipWs = new float[0];
+
+    private float[] screenX = new float[0];
+    private float[] screenY = new float[0];
+    private double[] invW = new double[0];
+    private double[] zOverW = new double[0];
+    // Код отсечения: 0 — вершина перед ближней плоскостью и внутри защитной полосы
+    private byte[] outcodes = new byte[0];
+    private int count;
+    private int width;
+    private int height;
+    private double guardBand;
+
+    // Границы видимых вершин объекта: экранный прямоугольник и диапазон глубин (для отбраковки пирамидой Z-буфера)
+    private float minScreenX, minScreenY, maxScreenX, maxScreenY;
+    private double minDepth, maxAbsDepth, minZOverW;
+    private int validCount;
+    private int clippedCount;
+
+    // Нормали в пространстве камеры (x, y, z подряд), нормализованные; готовы те, чья отметка равна normalMark
+    private float[] viewNormals = new float[0];
+    private int[] normalMarks = new int[0];
+    private int normalMark;
+    private float[] sourceNormals;
+    private int normalCount;
+    private int preparedNormalCount;
+    // Матрица нормалей текущего объекта: нормали по одной удобнее умножать на неё прямо здесь,
+    // без вызова пакетного преобразования на каждую
+    private float n00, n01, n02, n10, n11, n12, n20, n21, n22;
+
+    /**
+     * Проецирует все вершины из плоского массива позиций (x, y, z подряд).
+     */
+    public void run(final float[] positions, final int vertexCount, final Matrix4 mvp, final int width, final int height) {
+        ensureCapacity(vertexCount);
+        count = vertexCount;
+        this.width = width;
+        this.height = height;
+        // За полосой экранные координаты не помещаются в фиксированную точку растеризатора
+        guardBand = TriangleSetup.MAX_COORDINATE * 0.5 / Math.max(1, Math.max(width, height));
+
+        // Умножение на матрицу — пакетом (с SIMD, если доступен), деление на w и отбраковка — здесь
+        BatchTransform.transformPointsHomogeneous(mvp, positions, vertexCount, clipXs, clipYs, clipZs, clipWs);
+        minScreenX = minScreenY = Float.POSITIVE_INFINITY;
+        maxScreenX = maxScreenY = Float.NEGATIVE_INFINITY;
+        minDepth = minZOverW = Double.POSITIVE_INFINITY;
+        maxAbsDepth = 0;
+        validCount = 0;
+        clippedCount = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            final float clipX = clipXs[i];
+            final float clipY = clipYs[i];
+            final float clipZ = clipZs[i];
+            final float clipW = clipWs[i];
+
+            if (!Float.isFinite(clipW) || !Float.isFinite(clipX) || !Float.isFinite(clipY) || !Float.isFinite(clipZ)) {
+                outcodes[i] = NOT_FINITE;
+                continue;
+            }
+            int outcode = TriangleClipper.outcode(clipX, clipY, clipZ, clipW, guardBand);
+            if (clipW <= 1e-7f) {
+                outcode |= TriangleClipper.NEAR; // Не делим на почти нулевое w, даже если проекция нестандартная
+            }
+            outcodes[i] = (byte) outcode;
+            if (outcode != 0) {
+                clippedCount++;
+                continue;
+            }
+
+            final double w = 1.0 / clipW;
+            invW[i] = w;
+            zOverW[i] = clipZ * w;
+            screenX[i] = (float) ((clipX * w + 1.0) * width * 0.5);
+            screenY[i] = (float) ((1.0 - clipY * w) * height * 0.5);
+
+            // Глубина вершины в том же виде, в каком её получает растеризатор: zOverW / invW
+            final double depth = zOverW[i] / w;
+            validCount++;
+            minScreenX = Math.min(minScreenX, screenX[i]);
+            maxScreenX = Math.max(maxScreenX, screenX[i]);
+            minScreenY = Math.min(minScreenY, screenY[i]);
+            maxScreenY = Math.max(maxScreenY, screenY[i]);
+            minDepth = Math.min(minDepth, depth);
+            maxAbsDepth = Math.max(maxAbsDepth, Math.abs(depth));
+            minZOverW = Math.min(minZOverW, zOverW[i]);
+        }
+    }
+
+    /**
+     * Готовит преобразование нормалей объекта матрицей нормалей (обратной транспонированной к модель-вид).
+     * Сами нормали преобразуются лениво, в {@link #prepareNormal}: только те, что нужны
+     * треугольникам, прошедшим отбраковку.
+     */
+    void beginNormals(final float[] normals, final int count, final Matrix3 normalMatrix) {
+        if (viewNormals.length < count * 3) {
+            viewNormals = new float[count * 3];
+            normalMarks = new int[count];
+            normalMark = 0;
+        }
+        if (++normalMark == Integer.MAX_VALUE) {
+            Arrays.fill(normalMarks, 0);
+            normalMark = 1;
+        }
+        sourceNormals = normals;
+        normalCount = count;
+        preparedNormalCount = 0;
+
+        n00 = normalMatrix.get(0, 0);
+        n01 = normalMatrix.get(0, 1);
+        n02 = normalMatrix.get(0, 2);
+        n10 = normalMatrix.get(1, 0);
+        n11 = normalMatrix.get(1, 1);
+        n12 = normalMatrix.get(1, 2);
+        n20 = normalMatrix.get(2, 0);
+        n21 = normalMatrix.get(2, 1);
+        n22 = normalMatrix.get(2, 2);
+    }
+
+    /**
+     * Преобразует и нормализует нормаль, если в этом объекте она ещё не встречалась.
+     */
+    void prepareNormal(final int normal) {
+        if (normalMarks[normal] == normalMark) {
+            return;
+        }
+        normalMarks[normal] = normalMark;
+        preparedNormalCount++;
+
+        // Тот же порядок операций, что и у Matrix3.multiply(Vector3).normalized()
+        final int i = normal * 3;
+        final float x = sourceNormals[i];
+        final float y = sourceNormals[i + 1];
+        final float z = sourceNormals[i + 2];
+        final float nx = n00 * x + n01 * y + n02 * z;
+        final float ny = n10 * x + n11 * y + n12 * z;
+        final float nz = n20 * x + n21 * y + n22 * z;
+        final float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0) {
+            viewNormals[i] = 0;
+            viewNormals[i + 1] = 0;
+            viewNormals[i + 2] = 0;
+        } else {
+            viewNormals[i] = nx / length;
+            viewNormals[i + 1] = ny / length;
+            viewNormals[i + 2] = nz / length;
+        }
+    }
+
+    // Сколько разных нормалей объекта преобразовано с последнего beginNormals
+    int getPreparedNormalCount() {
+        return preparedNormalCount;
+    }
+
+    private void ensureCapacity(int size) {
+        if (outcodes.length >= size) {
+            return;
+        }
+        clipXs = new float[size];
+        clipYs = new float[size];
+        clipZs = new float[size];
+        clipWs = new float[size];
+        screenX = new float[size];
+        screenY = new float[size];
+        invW = new double[size];
+        zOverW = new double[size];
+        outcodes = new byte[size];
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    // Вершина спроецирована (код 0): её экранные значения можно брать напрямую
+    boolean isValid(int vertex) {
+        return outcodes[vertex] == 0;
+    }
+
+    public int getOutcode(int vertex) {
+        return outcodes[vertex];
+    }
+
+    float getClipX(int vertex) {
+        return clipXs[vertex];
+    }
+
+    float getClipY(int vertex) {
+        return clipYs[vertex];
+    }
+
+    float getClipZ(int vertex) {
+        return clipZs[vertex];
+    }
+
+    float getClipW(int vertex) {
+        return clipWs[vertex];
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    double getGuardBand() {
+        return guardBand;
+    }
+
+    float getScreenX(int vertex) {
+        return screenX[vertex];
+    }
+
+    float getScreenY(int vertex) {
+        return screenY[vertex];
+    }
+
+    double getInvW(int vertex) {
+        return invW[vertex];
+    }
+
+    double getZOverW(int vertex) {
+        return zOverW[vertex];
+    }
+
+    /**
+     * Ни одной вершины с числовыми координатами: объект нечего рисовать.
+     */
+    boolean isEmpty() {
+        return validCount == 0 && clippedCount == 0;
+    }
+
+    /**
+     * Границы объекта для отбраковки целиком: прямоугольник видимых вершин и ближайшая глубина
+     * фрагментов его треугольников (и рёбер каркаса — их глубина z/w со сдвигом wireframeDepthOffset).
+     *
+     * @return null, если границы не известны: нет ни одной видимой вершины или есть отсекаемые
+     *         (тогда объект рисуется без проверки)
+     */
+    OcclusionGroup occlusionGroup(boolean wireframe, double wireframeDepthOffset) {
+        // Отсечённые треугольники дают новые вершины вне этих границ — объект целиком не проверяем
+        if (validCount == 0 || clippedCount > 0) {
+            return null;
+        }
+        // Запас на погрешность интерполяции, как в TriangleSetup.isOccluded
+        double nearest = minDepth - 1e-9 * maxAbsDepth;
+        if (wireframe) {
+            nearest = Math.min(nearest, minZOverW + wireframeDepthOffset - 1e-6 * (1 + Math.abs(minZOverW)));
+        }
+        return new OcclusionGroup(
+                (int) Math.floor(minScreenX), (int) Math.floor(minScreenY),
+                (int) Math.ceil(maxScreenX), (int) Math.ceil(maxScreenY),
+                (float) nearest);
+    }
+
+    int getNormalCount() {
+        return normalCount;
+    }
+
+    float getNormalX(int normal) {
+        return viewNormals[normal * 3];
+    }
+
+    float getNormalY(int normal) {
+        return viewNormals[normal * 3 + 1];
+    }
+
+    float getNormalZ(int normal) {
+        return viewNormals[normal * 3 + 2];
+    }
+
+    /**
+     * Знак площади треугольника в экранных координатах (y вниз): видимы треугольники с cross <= 0.
+     */
+    public boolean isFrontFacing(int v1, int v2, int v3) {
+        final float e1x = screenX[v2] - screenX[v1];
+        final float e1y = screenY[v2] - screenY[v1];
+        final float e2x = screenX[v3] - screenX[v1];
+        final float e2y = screenY[v3] - screenY[v1];
+        return e1x * e2y - e1y * e2x <= 0;
+    }
+
+    /**
+     * То же по однородным координатам (x, y, w) — для треугольников, которые ещё предстоит отсечь:
+     * знак определителя совпадает со знаком площади в NDC, когда все w > 0, и остаётся
+     * верным для видимой части треугольника, даже если часть вершин за камерой.
+     */
+    public boolean isFrontFacingClip(int v1, int v2, int v3) {
+        final double x1 = clipXs[v1], y1 = clipYs[v1], w1 = clipWs[v1];
+        final double x2 = clipXs[v2], y2 = clipYs[v2], w2 = clipWs[v2];
+        final double x3 = clipXs[v3], y3 = clipYs[v3], w3 = clipWs[v3];
+        final double determinant = x1 * (y2 * w3 - y3 * w2) - y1 * (x2 * w3 - x3 * w2) + w1 * (x2 * y3 - x3 * y2);
+        // Ось y экрана направлена вниз: видимым на экране (cross <= 0) соответствует определитель >= 0
+        return determinant >= 0;
+    }
+}
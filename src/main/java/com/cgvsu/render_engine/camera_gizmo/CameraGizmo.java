@@ -15,9 +15,9 @@ public class CameraGizmo extends SceneObject {
         this.camera = camera;
 
         RenderSettings settings = new RenderSettings();
-        settings.drawWireframe = true;
-        settings.useTexture = false;
-        settings.useLighting = false;
+        settings.setDrawWireframe(true);
+        settings.setUseTexture(false);
+        settings.setUseLighting(false);
         applyRenderSettings(settings);
 
         setWireframeColor(Color.LIGHTGREEN);
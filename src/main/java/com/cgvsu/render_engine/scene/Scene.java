@@ -1,6 +1,7 @@
 package com.cgvsu.render_engine.scene;
 
 import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.ChangeTracker;
 import com.cgvsu.render_engine.camera_gizmo.CameraGizmo;
 
 import java.util.ArrayList;
@@ -9,12 +10,28 @@ import java.util.List;
 
 /**
  * Scene — единое хранилище объектов и камер.
+ *
+ * Сцена отдаёт свой {@link ChangeTracker} добавленным объектам и камерам: их изменения
+ * отмечаются только в нём.
  */
 public class Scene {
 
     private final List<SceneObject> objects = new ArrayList<>();
     private final List<Camera> cameras = new ArrayList<>();
     private Camera activeCamera;
+    private final ChangeTracker changeTracker;
+
+    public Scene() {
+        this(new ChangeTracker());
+    }
+
+    public Scene(ChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+    }
+
+    public ChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
 
     // ---------- Objects ----------
     public List<SceneObject> getObjects() {
@@ -23,10 +40,15 @@ public class Scene {
 
     public void addObject(SceneObject obj) {
         objects.add(obj);
+        obj.setChangeTracker(changeTracker);
+        changeTracker.markChanged();
     }
 
     public void removeObject(SceneObject obj) {
-        objects.remove(obj);
+        if (objects.remove(obj)) {
+            obj.setChangeTracker(null);
+        }
+        changeTracker.markChanged();
     }
 
     /**
@@ -59,12 +81,17 @@ public class Scene {
                 }
 
                 // Удаляем камеру из списка камер
-                cameras.remove(cam);
+                if (cameras.remove(cam)) {
+                    cam.setChangeTracker(null);
+                }
             }
 
             // Удаляем объект из сцены (включая гизмо)
-            objects.remove(obj);
+            if (objects.remove(obj)) {
+                obj.setChangeTracker(null);
+            }
         }
+        changeTracker.markChanged();
     }
 
 
@@ -83,22 +110,28 @@ public class Scene {
 
     public void addCamera(Camera camera, boolean makeActive) {
         cameras.add(camera);
+        camera.setChangeTracker(changeTracker);
         if (activeCamera == null || makeActive) {
             activeCamera = camera;
         }
+        changeTracker.markChanged();
     }
 
     public void removeCamera(Camera camera) {
-        cameras.remove(camera);
+        if (cameras.remove(camera)) {
+            camera.setChangeTracker(null);
+        }
         if (camera == activeCamera) {
             activeCamera = cameras.isEmpty() ? null : cameras.get(0);
         }
+        changeTracker.markChanged();
     }
 
     public void nextCamera() {
         if (cameras.isEmpty()) return;
         int idx = cameras.indexOf(activeCamera);
         activeCamera = cameras.get((idx + 1) % cameras.size());
+        changeTracker.markChanged();
     }
 
     public void setActiveCamera(int index) {
@@ -106,5 +139,6 @@ public class Scene {
             return;
         }
         activeCamera = cameras.get(index);
+        changeTracker.markChanged();
     }
 }
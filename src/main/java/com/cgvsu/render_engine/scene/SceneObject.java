@@ -1,6 +1,7 @@
 package com.cgvsu.render_engine.scene;
 
 import com.cgvsu.model.Model;
+import com.cgvsu.render_engine.ChangeTracker;
 import com.cgvsu.render_engine.RenderSettings;
 import com.cgvsu.render_engine.Texture;
 import com.cgvsu.render_engine.Transform;
@@ -19,6 +20,9 @@ public class SceneObject {
 
     private RenderSettings renderSettings = null;
 
+    // Счётчик изменений вьюпорта, в сцене которого объект (null — объект вне сцены)
+    private ChangeTracker changeTracker;
+
     public SceneObject(String name, Model model, Texture texture) {
         this.name = name;
         this.model = model;
@@ -30,15 +34,38 @@ public class SceneObject {
         setTransform(transform);
     }
 
+    /**
+     * Подключает объект (вместе с его Transform и настройками) к счётчику изменений сцены.
+     */
+    public void setChangeTracker(ChangeTracker changeTracker) {
+        this.changeTracker = changeTracker;
+        transform.setChangeTracker(changeTracker);
+        if (renderSettings != null) {
+            renderSettings.setChangeTracker(changeTracker);
+        }
+    }
+
+    private void markChanged() {
+        if (changeTracker != null) {
+            changeTracker.markChanged();
+        }
+    }
+
     // Getters and setters
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
     public Model getModel() { return model; }
-    public void setModel(Model model) { this.model = model; }
+    public void setModel(Model model) {
+        this.model = model;
+        markChanged();
+    }
 
     public Texture getTexture() { return texture; }
-    public void setTexture(Texture texture) { this.texture = texture; }
+    public void setTexture(Texture texture) {
+        this.texture = texture;
+        markChanged();
+    }
 
     public Transform getTransform() {
         return transform;
@@ -46,16 +73,27 @@ public class SceneObject {
 
     public void setTransform(Transform transform) {
         this.transform = (transform != null) ? transform : new Transform();
+        this.transform.setChangeTracker(changeTracker);
+        markChanged();
     }
 
     public boolean isVisible() { return visible; }
-    public void setVisible(boolean visible) { this.visible = visible; }
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+        markChanged();
+    }
 
     public Color getWireframeColor() { return wireframeColor; }
-    public void setWireframeColor(Color wireframeColor) { this.wireframeColor = wireframeColor; }
+    public void setWireframeColor(Color wireframeColor) {
+        this.wireframeColor = wireframeColor;
+        markChanged();
+    }
 
     public Color getModelColor() { return modelColor; }
-    public void setModelColor(Color modelColor) { this.modelColor = modelColor; }
+    public void setModelColor(Color modelColor) {
+        this.modelColor = modelColor;
+        markChanged();
+    }
 
     // Методы для настроек рендеринга
     public RenderSettings getRenderSettings() {
@@ -64,23 +102,29 @@ public class SceneObject {
 
     public void setRenderSettings(RenderSettings settings) {
         this.renderSettings = settings;
+        if (settings != null) {
+            settings.setChangeTracker(changeTracker);
+        }
+        markChanged();
     }
 
     public void applyRenderSettings(RenderSettings settings) {
         if (this.renderSettings == null) {
             this.renderSettings = new RenderSettings();
+            this.renderSettings.setChangeTracker(changeTracker);
         }
 
         // Копируем только выбранные настройки
-        this.renderSettings.drawWireframe = settings.drawWireframe;
-        this.renderSettings.useTexture = settings.useTexture;
-        this.renderSettings.useLighting = settings.useLighting;
+        this.renderSettings.setDrawWireframe(settings.isDrawWireframe());
+        this.renderSettings.setUseTexture(settings.isUseTexture());
+        this.renderSettings.setUseLighting(settings.isUseLighting());
         // Можно добавить копирование других настроек
     }
 
     // Сброс настроек объекта к глобальным
     public void resetRenderSettings() {
         this.renderSettings = null;
+        markChanged();
     }
 
     // Проверка, есть ли у объекта свои настройки
@@ -1,7 +1,7 @@
 package com.cgvsu.triangulation;
 
 import com.cgvsu.model.Model;
-import com.cgvsu.model.Polygon;
+import com.cgvsu.model.PackedMesh;
 import com.cgvsu.model.TriangulatedModel;
 
 public class Triangulator {
@@ -10,12 +10,81 @@ public class Triangulator {
         return new TriangulatedModel(model);
     }
 
+    /**
+     * Веерная триангуляция упакованной сетки (на ней построена {@link TriangulatedModel}).
+     * Массивы координат переиспользуются, пересобираются только индексы.
+     */
+    public static PackedMesh triangulate(PackedMesh mesh) {
+        if (mesh.isTriangulated()) {
+            return mesh;
+        }
+
+        final int[] vertexIndices = mesh.getVertexIndices();
+        final int[] textureVertexIndices = mesh.getTextureVertexIndices();
+        final int[] normalIndices = mesh.getNormalIndices();
+
+        // Полигон из n > 3 вершин даёт n - 2 треугольника, остальные переносятся как есть
+        int resultPolygons = 0;
+        int resultCorners = 0;
+        for (int p = 0; p < mesh.getPolygonCount(); p++) {
+            final int size = mesh.getPolygonSize(p);
+            if (size > 3) {
+                resultPolygons += size - 2;
+                resultCorners += (size - 2) * 3;
+            } else {
+                resultPolygons++;
+                resultCorners += size;
+            }
+        }
+
+        final int[] offsets = new int[resultPolygons + 1];
+        final int[] newVertexIndices = new int[resultCorners];
+        final int[] newTextureVertexIndices = new int[resultCorners];
+        final int[] newNormalIndices = new int[resultCorners];
+
+        int polygon = 0;
+        int corner = 0;
+        for (int p = 0; p < mesh.getPolygonCount(); p++) {
+            final int start = mesh.getPolygonStart(p);
+            final int size = mesh.getPolygonSize(p);
+            if (size <= 3) {
+                offsets[polygon++] = corner;
+                System.arraycopy(vertexIndices, start, newVertexIndices, corner, size);
+                System.arraycopy(textureVertexIndices, start, newTextureVertexIndices, corner, size);
+                System.arraycopy(normalIndices, start, newNormalIndices, corner, size);
+                corner += size;
+                continue;
+            }
+            for (int i = 1; i < size - 1; i++) {
+                offsets[polygon++] = corner;
+                corner = copyCorner(mesh, start, corner, newVertexIndices, newTextureVertexIndices, newNormalIndices);
+                corner = copyCorner(mesh, start + i, corner, newVertexIndices, newTextureVertexIndices, newNormalIndices);
+                corner = copyCorner(mesh, start + i + 1, corner, newVertexIndices, newTextureVertexIndices, newNormalIndices);
+            }
+        }
+        offsets[resultPolygons] = corner;
+
+        return mesh.withPolygons(offsets, newVertexIndices, newTextureVertexIndices, newNormalIndices);
+    }
+
+    private static int copyCorner(PackedMesh mesh, int from, int to,
+                                  int[] vertexIndices, int[] textureVertexIndices, int[] normalIndices) {
+        vertexIndices[to] = mesh.getVertexIndices()[from];
+        textureVertexIndices[to] = mesh.getTextureVertexIndices()[from];
+        normalIndices[to] = mesh.getNormalIndices()[from];
+        return to + 1;
+    }
+
     public static boolean needsTriangulation(Model model) {
-        for (Polygon polygon : model.polygons) {
-            if (polygon.getVertexIndices().size() > 3) {
+        return needsTriangulation(model.getPackedMesh());
+    }
+
+    public static boolean needsTriangulation(PackedMesh mesh) {
+        for (int p = 0; p < mesh.getPolygonCount(); p++) {
+            if (mesh.getPolygonSize(p) > 3) {
                 return true;
             }
         }
         return false;
     }
-}
\ No newline at end of file
+}
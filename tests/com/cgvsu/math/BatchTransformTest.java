@@ -0,0 +1,186 @@
+package com.cgvsu.math;
+
+import com.cgvsu.render_engine.GraphicConveyor;
+import com.cgvsu.render_engine.RenderEngine;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchTransformTest {
+
+    // Нечётное количество, чтобы у SIMD-реализации был хвост
+    private static final int COUNT = 37;
+
+    private static float[] randomPoints(int count, long seed) {
+        Random random = new Random(seed);
+        float[] points = new float[count * 3];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat() * 20 - 10;
+        }
+        return points;
+    }
+
+    private static Matrix4 modelViewProjection() {
+        Matrix4 model = GraphicConveyor.createModelMatrix(
+                new Vector3(1, -2, 3), new Vector3(30, 45, 10), new Vector3(1.5f, 0.5f, 2));
+        Matrix4 view = GraphicConveyor.lookAt(new Vector3(0, 0, 40), new Vector3(0, 0, 0));
+        Matrix4 projection = GraphicConveyor.perspective(1.0f, 1.5f, 0.01f, 100);
+        return projection.multiply(view).multiply(model);
+    }
+
+    @Test
+    void transformPointsMatchesMatrixMultiply() {
+        Matrix4 matrix = modelViewProjection();
+        float[] src = randomPoints(COUNT, 1);
+        float[] dst = new float[COUNT * 3];
+        BatchTransform.transformPoints(matrix, src, dst, COUNT);
+
+        for (int i = 0; i < COUNT; i++) {
+            Vector4 expected = matrix.multiply(new Vector4(src[i * 3], src[i * 3 + 1], src[i * 3 + 2], 1));
+            assertEquals(expected.x, dst[i * 3]);
+            assertEquals(expected.y, dst[i * 3 + 1]);
+            assertEquals(expected.z, dst[i * 3 + 2]);
+        }
+    }
+
+    @Test
+    void transformDirectionsIgnoresTranslation() {
+        Matrix4 matrix = GraphicConveyor.createModelMatrix(
+                new Vector3(100, 200, 300), new Vector3(0, 90, 0), new Vector3(1, 1, 1));
+        float[] dst = new float[3];
+        BatchTransform.transformDirections(matrix, new float[]{1, 0, 0}, dst, 1);
+
+        Vector4 expected = matrix.multiply(new Vector4(1, 0, 0, 0));
+        assertEquals(expected.x, dst[0]);
+        assertEquals(expected.y, dst[1]);
+        assertEquals(expected.z, dst[2]);
+    }
+
+    @Test
+    void offsetsAndInPlaceTransform() {
+        Matrix4 matrix = modelViewProjection();
+        float[] points = randomPoints(COUNT, 2);
+        float[] expected = new float[COUNT * 3];
+        BatchTransform.transformPoints(matrix, points, expected, COUNT);
+
+        // Часть массива со смещением
+        float[] shifted = new float[COUNT * 3 + 5];
+        System.arraycopy(points, 0, shifted, 2, COUNT * 3);
+        float[] out = new float[COUNT * 3 + 7];
+        BatchTransform.transformPoints(matrix, shifted, 2, out, 7, COUNT);
+        for (int i = 0; i < COUNT * 3; i++) {
+            assertEquals(expected[i], out[7 + i]);
+        }
+        assertEquals(0, out[6]);
+
+        // Источник и приёмник совпадают
+        BatchTransform.transformPoints(matrix, points, points, COUNT);
+        assertArrayEquals(expected, points);
+    }
+
+    @Test
+    void homogeneousMatchesMatrixMultiply() {
+        Matrix4 matrix = modelViewProjection();
+        float[] src = randomPoints(COUNT, 3);
+        float[] x = new float[COUNT];
+        float[] y = new float[COUNT];
+        float[] z = new float[COUNT];
+        float[] w = new float[COUNT];
+        BatchTransform.transformPointsHomogeneous(matrix, src, COUNT, x, y, z, w);
+
+        for (int i = 0; i < COUNT; i++) {
+            Vector4 expected = matrix.multiply(new Vector4(src[i * 3], src[i * 3 + 1], src[i * 3 + 2], 1));
+            assertEquals(expected.x, x[i]);
+            assertEquals(expected.y, y[i]);
+            assertEquals(expected.z, z[i]);
+            assertEquals(expected.w, w[i]);
+        }
+    }
+
+    @Test
+    void projectToScreenMatchesTransformVertex() {
+        Matrix4 matrix = modelViewProjection();
+        float[] src = randomPoints(COUNT, 4);
+        float[] dst = new float[COUNT * 3];
+        BatchTransform.projectToScreen(matrix, src, dst, COUNT, 800, 600);
+
+        for (int i = 0; i < COUNT; i++) {
+            Vector3 expected = RenderEngine.transformVertex(src[i * 3], src[i * 3 + 1], src[i * 3 + 2], matrix, 800, 600);
+            assertEquals(expected.x, dst[i * 3]);
+            assertEquals(expected.y, dst[i * 3 + 1]);
+            assertEquals(expected.z, dst[i * 3 + 2]);
+        }
+    }
+
+    @Test
+    void projectToScreenMarksPointsAtCameraPlane() {
+        // w = z: точки с z = 0 проецировать нельзя
+        Matrix4 matrix = Matrix4.identity();
+        matrix.set(3, 3, 0);
+        matrix.set(3, 2, 1);
+        float[] src = new float[COUNT * 3];
+        for (int i = 0; i < COUNT; i++) {
+            src[i * 3] = i;
+            src[i * 3 + 1] = -i;
+            src[i * 3 + 2] = (i % 3 == 0) ? 0 : 2;
+        }
+        float[] dst = new float[COUNT * 3];
+        BatchTransform.projectToScreen(matrix, src, dst, COUNT, 100, 100);
+
+        for (int i = 0; i < COUNT; i++) {
+            if (i % 3 == 0) {
+                assertTrue(Float.isNaN(dst[i * 3]) && Float.isNaN(dst[i * 3 + 1]) && Float.isNaN(dst[i * 3 + 2]));
+            } else {
+                assertEquals(i / 2f * 50 + 50, dst[i * 3]);
+                assertEquals(i / 2f * 50 + 50, dst[i * 3 + 1]);
+                assertEquals(1, dst[i * 3 + 2]);
+            }
+        }
+    }
+
+    @Test
+    void vectorKernelIsBitExact() {
+        BatchTransform.Kernel vector = BatchTransform.vectorKernel();
+        Assumptions.assumeTrue(vector != null, "Vector API недоступен (сборка без профиля vector или нет --add-modules jdk.incubator.vector)");
+        BatchTransform.Kernel scalar = BatchTransform.scalarKernel();
+
+        float[] m = modelViewProjection().m;
+        for (int count : new int[]{0, 1, 7, 8, 9, 64, 101}) {
+            float[] src = randomPoints(count + 1, count);
+            // Одна точка "на камере" и одна с бесконечностью
+            if (count > 2) {
+                src[3] = 0;
+                src[4] = 0;
+                src[5] = 40;
+                src[8] = Float.POSITIVE_INFINITY;
+            }
+
+            float[] expected = new float[count * 3 + 3];
+            float[] actual = new float[count * 3 + 3];
+            scalar.transformPoints(m, src, 3, expected, 3, count);
+            vector.transformPoints(m, src, 3, actual, 3, count);
+            assertArrayEquals(expected, actual);
+
+            scalar.transformDirections(m, src, 0, expected, 0, count);
+            vector.transformDirections(m, src, 0, actual, 0, count);
+            assertArrayEquals(expected, actual);
+
+            scalar.projectToScreen(m, src, 0, expected, 0, count, 640, 480);
+            vector.projectToScreen(m, src, 0, actual, 0, count, 640, 480);
+            assertArrayEquals(expected, actual);
+
+            float[][] expectedClip = new float[4][count];
+            float[][] actualClip = new float[4][count];
+            scalar.transformPointsHomogeneous(m, src, 0, count,
+                    expectedClip[0], expectedClip[1], expectedClip[2], expectedClip[3]);
+            vector.transformPointsHomogeneous(m, src, 0, count,
+                    actualClip[0], actualClip[1], actualClip[2], actualClip[3]);
+            for (int k = 0; k < 4; k++) {
+                assertArrayEquals(expectedClip[k], actualClip[k]);
+            }
+        }
+    }
+}
@@ -93,4 +93,63 @@ public class Matrix4Test {
         assertThrows(ArithmeticException.class, singular::inverse);
         assertThrows(ArithmeticException.class, () -> singular.solve(new Vector4(1,2,3,4)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void multiply_intoDestination_matchesMultiply_evenWhenAliased() {
+        Matrix4 A = new Matrix4(new float[][]{
+                {1, -2, 0, 4},
+                {0, 3, -1, 0},
+                {2, 0, 1, -5},
+                {0, 0, 0, 1}
+        });
+        Matrix4 B = new Matrix4(new float[][]{
+                {0, 1, 0, 2},
+                {-1, 0, 0, 0},
+                {0, 0, 1, 3},
+                {0, 0, 0, 1}
+        });
+        Matrix4 expected = A.multiply(B);
+
+        Matrix4 dest = new Matrix4();
+        assertSame(dest, Matrix4.multiply(A, B, dest));
+        assertEquals(expected, dest);
+
+        // Приёмник совпадает с левым, затем с правым аргументом
+        assertEquals(expected, Matrix4.multiply(new Matrix4(A), B, new Matrix4(A)));
+        Matrix4 left = new Matrix4(A);
+        assertEquals(expected, Matrix4.multiply(left, B, left));
+        Matrix4 right = new Matrix4(B);
+        assertEquals(expected, Matrix4.multiply(A, right, right));
+        Matrix4 square = new Matrix4(A);
+        assertEquals(A.multiply(A), Matrix4.multiply(square, square, square));
+
+        Matrix4 transposed = new Matrix4(A);
+        assertEquals(A.transpose(), Matrix4.transpose(transposed, transposed));
+    }
+
+    @Test
+    void transformPoint_matchesMultiplyVector4() {
+        Matrix4 A = new Matrix4(new float[][]{
+                {0.5f, -2, 0, 4},
+                {0, 3, -1, 0.25f},
+                {2, 0, 1, -5},
+                {0, 0, 1, 0}
+        });
+        Vector4 expected = A.multiply(new Vector4(1.5f, -2, 3, 1));
+
+        float[] src = {9, 1.5f, -2, 3};
+        float[] dst = new float[5];
+        A.transformPoint(src, 1, dst, 1);
+        assertArrayEquals(new float[]{0, expected.x, expected.y, expected.z, expected.w}, dst);
+
+        Vector4 v = new Vector4(1.5f, -2, 3, 1);
+        assertEquals(expected, A.multiply(v, v));
+
+        float[] projected = new float[3];
+        assertTrue(A.transformPointProjective(src, 1, projected, 0));
+        assertEquals(expected.x / expected.w, projected[0]);
+        assertFalse(A.transformPointProjective(new float[]{1, 1, 0}, 0, projected, 0));
+
+        assertEquals(A.get(2, 3), A.m[2 * 4 + 3]);
+    }
+}
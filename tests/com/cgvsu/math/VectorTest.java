@@ -82,4 +82,23 @@ public class VectorTest {
         assertEquals(1.0, n.length(), EPS);
         assertThrows(ArithmeticException.class, () -> new Vector4(0,0,0,0).normalized());
     }
-}
\ No newline at end of file
+
+    @Test
+    void vector3_destinationOps_matchImmutableOps() {
+        Vector3 a = new Vector3(1.5f, -2, 3);
+        Vector3 b = new Vector3(0.25f, 4, -1);
+        Vector3 dest = new Vector3(0, 0, 0);
+
+        assertEquals(a.add(b), Vector3.add(a, b, dest));
+        assertEquals(a.subtract(b), Vector3.subtract(a, b, dest));
+        assertEquals(a.scale(-3), Vector3.scale(a, -3, dest));
+        assertEquals(a.cross(b), Vector3.cross(a, b, dest));
+        assertEquals(a.normalized(), Vector3.normalize(a, dest));
+        assertEquals(new Vector3(0, 0, 0), Vector3.normalize(new Vector3(0, 0, 0), dest));
+
+        // Приёмник может быть аргументом
+        Vector3 c = new Vector3(a);
+        assertSame(c, Vector3.cross(c, b, c));
+        assertEquals(a.cross(b), c);
+    }
+}
@@ -0,0 +1,77 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundingVolumeTest {
+
+    @Test
+    void testBoxAndSphereContainAllVertices() {
+        Random random = new Random(4);
+        float[] positions = new float[300 * 3];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = (float) (random.nextGaussian() * 50 + 1000);
+        }
+        BoundingVolume bounds = BoundingVolume.fromPositions(positions, 300);
+
+        assertFalse(bounds.isEmpty());
+        float minX = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < positions.length; i += 3) {
+            minX = Math.min(minX, positions[i]);
+            maxX = Math.max(maxX, positions[i]);
+
+            double dx = positions[i] - bounds.centerX;
+            double dy = positions[i + 1] - bounds.centerY;
+            double dz = positions[i + 2] - bounds.centerZ;
+            assertTrue(Math.sqrt(dx * dx + dy * dy + dz * dz) <= bounds.radius, "vertex " + i / 3);
+        }
+        assertEquals(minX, bounds.minX);
+        assertEquals(maxX, bounds.maxX);
+
+        // Сфера не больше описанной вокруг параллелепипеда
+        double halfDiagonal = 0.5 * Math.sqrt(Math.pow(bounds.maxX - bounds.minX, 2)
+                + Math.pow(bounds.maxY - bounds.minY, 2) + Math.pow(bounds.maxZ - bounds.minZ, 2));
+        assertTrue(bounds.radius <= halfDiagonal * 1.0001);
+    }
+
+    @Test
+    void testNonFiniteVerticesAreIgnored() {
+        float[] positions = {1, 2, 3, Float.NaN, 0, 0, -1, -2, -3, Float.POSITIVE_INFINITY, 0, 0};
+        BoundingVolume bounds = BoundingVolume.fromPositions(positions, 4);
+        assertEquals(-1, bounds.minX);
+        assertEquals(1, bounds.maxX);
+        assertEquals(0, bounds.centerZ);
+        assertTrue(Float.isFinite(bounds.radius));
+
+        assertTrue(BoundingVolume.fromPositions(new float[0], 0).isEmpty());
+    }
+
+    @Test
+    void testModelBoundsFollowGeometryEdits() {
+        Model model = new Model();
+        model.setVertices(new ArrayList<>(Arrays.asList(new Vector3(0, 0, 0), new Vector3(1, 1, 1))));
+        BoundingVolume bounds = model.getBounds();
+        assertEquals(1, bounds.maxX);
+        assertSame(bounds, model.getBounds());
+
+        // Замена вершины сбрасывает границы без явного invalidateCaches
+        model.vertices.set(1, new Vector3(5, 1, 1));
+        assertEquals(5, model.getBounds().maxX);
+
+        // Полученная вершина — копия: её правка на месте модель не меняет
+        Vector3 vertex = model.vertices.get(1);
+        Vector3.add(vertex, new Vector3(10, 0, 0), vertex);
+        assertEquals(5, model.getBounds().maxX);
+        model.vertices.set(1, vertex);
+        assertEquals(15, model.getBounds().maxX);
+
+        model.vertices.add(new Vector3(-3, 0, 0));
+        assertEquals(-3, model.getBounds().minX);
+    }
+}
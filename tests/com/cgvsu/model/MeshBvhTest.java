@@ -0,0 +1,172 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector3;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshBvhTest {
+
+    // Ближайшее пересечение перебором всех треугольников веера
+    private static double bruteForceDistance(PackedMesh mesh, double[] origin, double[] direction) {
+        float[] p = mesh.getPositions();
+        int[] indices = mesh.getVertexIndices();
+        double best = Double.POSITIVE_INFINITY;
+        for (int polygon = 0; polygon < mesh.getPolygonCount(); polygon++) {
+            int start = mesh.getPolygonStart(polygon);
+            for (int k = 1; k + 1 < mesh.getPolygonSize(polygon); k++) {
+                int a = indices[start] * 3, b = indices[start + k] * 3, c = indices[start + k + 1] * 3;
+                double[] e1 = {p[b] - p[a], p[b + 1] - p[a + 1], p[b + 2] - p[a + 2]};
+                double[] e2 = {p[c] - p[a], p[c + 1] - p[a + 1], p[c + 2] - p[a + 2]};
+                double[] s = {origin[0] - p[a], origin[1] - p[a + 1], origin[2] - p[a + 2]};
+                double[] q = cross(direction, e2);
+                double det = dot(e1, q);
+                if (det == 0) continue;
+                double u = dot(s, q) / det;
+                double[] r = cross(s, e1);
+                double v = dot(direction, r) / det;
+                double t = dot(e2, r) / det;
+                if (u >= 0 && v >= 0 && u + v <= 1 && t >= 0) {
+                    best = Math.min(best, t);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double[] cross(double[] a, double[] b) {
+        return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    // Облако случайных треугольников и четырёхугольников
+    private static PackedMesh randomMesh(Random random, int polygons) {
+        PackedMesh.Builder builder = new PackedMesh.Builder();
+        for (int i = 0; i < polygons; i++) {
+            int size = i % 3 == 0 ? 4 : 3;
+            double cx = random.nextGaussian() * 10, cy = random.nextGaussian() * 10, cz = random.nextGaussian() * 10;
+            int first = builder.getVertexCount();
+            for (int k = 0; k < size; k++) {
+                builder.addVertex((float) (cx + random.nextGaussian()), (float) (cy + random.nextGaussian()),
+                        (float) (cz + random.nextGaussian()));
+                builder.addCorner(first + k, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX);
+            }
+            builder.endPolygon();
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testNearestHitMatchesBruteForce() {
+        Random random = new Random(12);
+        PackedMesh mesh = randomMesh(random, 3000);
+        MeshBvh bvh = mesh.getBvh();
+        assertEquals(3000 + 1000, bvh.getTriangleCount());
+        assertSame(bvh, mesh.getBvh());
+
+        RayHit hit = new RayHit();
+        int hits = 0;
+        for (int i = 0; i < 500; i++) {
+            double[] origin = {random.nextGaussian() * 30, random.nextGaussian() * 30, random.nextGaussian() * 30};
+            double[] target = {random.nextGaussian() * 10, random.nextGaussian() * 10, random.nextGaussian() * 10};
+            double[] direction = {target[0] - origin[0], target[1] - origin[1], target[2] - origin[2]};
+
+            double expected = bruteForceDistance(mesh, origin, direction);
+            hit.reset(Double.POSITIVE_INFINITY);
+            boolean found = bvh.intersect(origin[0], origin[1], origin[2], direction[0], direction[1], direction[2], hit);
+            assertEquals(expected != Double.POSITIVE_INFINITY, found, "ray " + i);
+            if (!found) {
+                assertFalse(hit.isHit());
+                continue;
+            }
+            hits++;
+            assertEquals(expected, hit.getDistance(), 1e-6 * (1 + expected), "ray " + i);
+
+            // Точка по барицентрическим координатам лежит на луче
+            float[] p = mesh.getPositions();
+            double w0 = 1 - hit.getU() - hit.getV();
+            for (int axis = 0; axis < 3; axis++) {
+                double point = w0 * p[hit.getVertex0() * 3 + axis] + hit.getU() * p[hit.getVertex1() * 3 + axis]
+                        + hit.getV() * p[hit.getVertex2() * 3 + axis];
+                assertEquals(origin[axis] + hit.getDistance() * direction[axis], point, 1e-6);
+            }
+            // Вершины попадания — углы 0, corner и corner + 1 найденного полигона
+            int start = mesh.getPolygonStart(hit.getPolygon());
+            int[] indices = mesh.getVertexIndices();
+            assertEquals(indices[start], hit.getVertex0());
+            assertEquals(indices[start + hit.getCorner()], hit.getVertex1());
+            assertEquals(indices[start + hit.getCorner() + 1], hit.getVertex2());
+        }
+        assertTrue(hits > 100, "hits " + hits);
+    }
+
+    @Test
+    void testSearchIsLimitedByPreviousHit() {
+        PackedMesh.Builder builder = new PackedMesh.Builder();
+        // Два квадрата на z = 1 и z = 3
+        for (int layer = 0; layer < 2; layer++) {
+            float z = 1 + 2 * layer;
+            int first = builder.getVertexCount();
+            builder.addVertex(-1, -1, z).addVertex(1, -1, z).addVertex(1, 1, z).addVertex(-1, 1, z);
+            for (int k = 0; k < 4; k++) {
+                builder.addCorner(first + k, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX);
+            }
+            builder.endPolygon();
+        }
+        MeshBvh bvh = builder.build().getBvh();
+
+        RayHit hit = new RayHit();
+        hit.reset(Double.POSITIVE_INFINITY);
+        assertTrue(bvh.intersect(0.5, 0.25, 0, 0, 0, 1, hit));
+        assertEquals(0, hit.getPolygon());
+        assertEquals(1, hit.getDistance(), 1e-12);
+
+        // С обратной стороны тоже попадание
+        hit.reset(Double.POSITIVE_INFINITY);
+        assertTrue(bvh.intersect(0.5, 0.25, 5, 0, 0, -1, hit));
+        assertEquals(1, hit.getPolygon());
+
+        // Уже найденное ближе пересечение не перезаписывается
+        hit.reset(0.5);
+        assertFalse(bvh.intersect(0.5, 0.25, 0, 0, 0, 1, hit));
+        assertFalse(hit.isHit());
+
+        hit.reset(Double.POSITIVE_INFINITY);
+        assertFalse(bvh.intersect(5, 5, 0, 0, 0, 1, hit));
+    }
+
+    @Test
+    void testModelRebuildsBvhAfterEdit() {
+        Model model = new Model();
+        model.vertices.addAll(Arrays.asList(
+                new Vector3(0, 0, 0), new Vector3(1, 0, 0), new Vector3(0, 1, 0), new Vector3(Float.NaN, 0, 0)));
+        Polygon triangle = new Polygon();
+        triangle.setVertexIndices(new ArrayList<>(Arrays.asList(0, 1, 2)));
+        Polygon broken = new Polygon();
+        broken.setVertexIndices(new ArrayList<>(Arrays.asList(0, 1, 3)));
+        model.polygons.add(triangle);
+        model.polygons.add(broken);
+
+        // Треугольник с NaN-вершиной в иерархию не попадает
+        MeshBvh bvh = model.getBvh();
+        assertEquals(1, bvh.getTriangleCount());
+        assertSame(bvh, model.getBvh());
+
+        model.polygons.remove(1);
+        assertNotSame(bvh, model.getBvh());
+        assertEquals(1, model.getBvh().getTriangleCount());
+
+        model.polygons.clear();
+        RayHit hit = new RayHit();
+        hit.reset(Double.POSITIVE_INFINITY);
+        assertEquals(0, model.getBvh().getTriangleCount());
+        assertFalse(model.getBvh().intersect(0.2, 0.2, -1, 0, 0, 1, hit));
+    }
+}
@@ -0,0 +1,77 @@
+package com.cgvsu.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeshEdgesTest {
+
+    private static PackedMesh mesh(int[][] polygons, int vertexCount) {
+        PackedMesh.Builder builder = new PackedMesh.Builder();
+        for (int i = 0; i < vertexCount; i++) {
+            builder.addVertex(i, 0, 0);
+        }
+        for (int[] polygon : polygons) {
+            for (int vertex : polygon) {
+                builder.addCorner(vertex, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX);
+            }
+            builder.endPolygon();
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testSharedSidesGetOneEdge() {
+        // Квадрат из двух треугольников и четырёхугольник рядом
+        PackedMesh mesh = mesh(new int[][]{{0, 1, 2}, {0, 2, 3}, {1, 4, 5, 2}}, 6);
+        MeshEdges edges = mesh.getEdges();
+        assertSame(edges, mesh.getEdges());
+        assertEquals(8, edges.getEdgeCount());
+
+        // Диагональ 0-2 общая для треугольников, сторона 1-2 — для треугольника и четырёхугольника
+        assertEquals(edges.getCornerEdge(1), edges.getCornerEdge(mesh.getPolygonStart(2) + 3));
+        assertEquals(edges.getCornerEdge(2), edges.getCornerEdge(3));
+        int diagonal = edges.getCornerEdge(2);
+        assertEquals(0, edges.getEdgeStart(diagonal));
+        assertEquals(2, edges.getEdgeEnd(diagonal));
+        // Замыкающая сторона многоугольника: последний угол -> первый
+        int closing = edges.getCornerEdge(mesh.getPolygonStart(1) + 2);
+        assertEquals(0, edges.getEdgeStart(closing));
+        assertEquals(3, edges.getEdgeEnd(closing));
+    }
+
+    @Test
+    void testMatchesPairSetOnRandomMesh() {
+        Random random = new Random(7);
+        int vertexCount = 2000;
+        int[][] polygons = new int[20000][];
+        for (int i = 0; i < polygons.length; i++) {
+            int size = 3 + random.nextInt(2);
+            polygons[i] = new int[size];
+            for (int k = 0; k < size; k++) {
+                polygons[i][k] = random.nextInt(vertexCount);
+            }
+        }
+        PackedMesh mesh = mesh(polygons, vertexCount);
+        MeshEdges edges = mesh.getEdges();
+
+        Map<Long, Integer> expected = new HashMap<>();
+        int corner = 0;
+        for (int[] polygon : polygons) {
+            for (int k = 0; k < polygon.length; k++, corner++) {
+                int a = polygon[k];
+                int b = polygon[(k + 1) % polygon.length];
+                long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                int edge = edges.getCornerEdge(corner);
+                assertEquals(edge, (int) expected.computeIfAbsent(key, unused -> edge));
+                assertEquals(Math.min(a, b), edges.getEdgeStart(edge));
+                assertEquals(Math.max(a, b), edges.getEdgeEnd(edge));
+            }
+        }
+        assertEquals(expected.size(), edges.getEdgeCount());
+    }
+}
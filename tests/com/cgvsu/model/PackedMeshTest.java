@@ -0,0 +1,237 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector2;
+import com.cgvsu.math.Vector3;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.render_engine.Transform;
+import com.cgvsu.triangulation.Triangulator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedMeshTest {
+
+    private static final String QUAD_AND_TRIANGLE_OBJ = String.join("\n",
+            "v 0 0 0",
+            "v 1 0 0",
+            "v 1 1 0",
+            "v 0 1 0",
+            "v 0.5 2 0",
+            "vt 0 0",
+            "vt 1 0",
+            "vt 1 1",
+            "vt 0 1",
+            "vn 0 0 1",
+            "f 1/1/1 2/2/1 3/3/1 4/4/1",
+            "f 3 5 4",
+            "");
+
+    private static Polygon polygon(Integer... vertexIndices) {
+        Polygon polygon = new Polygon();
+        polygon.setVertexIndices(new ArrayList<>(Arrays.asList(vertexIndices)));
+        return polygon;
+    }
+
+    @Test
+    void testFromModelPacksCoordinatesAndOffsets() {
+        Model model = ObjReader.read(QUAD_AND_TRIANGLE_OBJ);
+        PackedMesh mesh = PackedMesh.fromModel(model);
+
+        assertEquals(5, mesh.getVertexCount());
+        assertEquals(4, mesh.getTextureVertexCount());
+        assertEquals(1, mesh.getNormalCount());
+        assertEquals(2, mesh.getPolygonCount());
+        assertEquals(7, mesh.getCornerCount());
+
+        assertArrayEquals(new int[]{0, 4, 7}, mesh.getPolygonOffsets());
+        assertArrayEquals(new int[]{0, 1, 2, 3, 2, 4, 3}, mesh.getVertexIndices());
+        assertEquals(0.5f, mesh.getPositions()[12]);
+        assertEquals(2f, mesh.getPositions()[13]);
+
+        assertTrue(mesh.hasTextureVertices(0));
+        assertTrue(mesh.hasNormals(0));
+        assertFalse(mesh.hasTextureVertices(1));
+        assertFalse(mesh.hasNormals(1));
+        assertEquals(PackedMesh.NO_INDEX, mesh.getTextureVertexIndices()[5]);
+        assertFalse(mesh.isTriangulated());
+    }
+
+    @Test
+    void testReadPackedMatchesRead() {
+        PackedMesh expected = PackedMesh.fromModel(ObjReader.read(QUAD_AND_TRIANGLE_OBJ));
+        PackedMesh actual = ObjReader.readPacked(QUAD_AND_TRIANGLE_OBJ);
+
+        assertArrayEquals(expected.getPositions(), actual.getPositions());
+        assertArrayEquals(expected.getTextureCoordinates(), actual.getTextureCoordinates());
+        assertArrayEquals(expected.getNormals(), actual.getNormals());
+        assertArrayEquals(expected.getPolygonOffsets(), actual.getPolygonOffsets());
+        assertArrayEquals(expected.getVertexIndices(), actual.getVertexIndices());
+        assertArrayEquals(expected.getTextureVertexIndices(), actual.getTextureVertexIndices());
+        assertArrayEquals(expected.getNormalIndices(), actual.getNormalIndices());
+    }
+
+    @Test
+    void testToModelRoundTrip() {
+        Model original = ObjReader.read(QUAD_AND_TRIANGLE_OBJ);
+        Model restored = PackedMesh.fromModel(original).toModel();
+
+        assertEquals(original.vertices, restored.vertices);
+        assertEquals(original.normals, restored.normals);
+        assertEquals(original.textureVertices.size(), restored.textureVertices.size());
+        assertEquals(original.polygons.size(), restored.polygons.size());
+        for (int i = 0; i < original.polygons.size(); i++) {
+            assertEquals(original.polygons.get(i).getVertexIndices(), restored.polygons.get(i).getVertexIndices());
+            assertEquals(original.polygons.get(i).getTextureVertexIndices(), restored.polygons.get(i).getTextureVertexIndices());
+            assertEquals(original.polygons.get(i).getNormalIndices(), restored.polygons.get(i).getNormalIndices());
+        }
+    }
+
+    @Test
+    void testPackedTriangulationMatchesTriangulatedModel() {
+        Model model = ObjReader.read(QUAD_AND_TRIANGLE_OBJ);
+        PackedMesh expected = PackedMesh.fromModel(Triangulator.triangulate(model));
+        PackedMesh actual = Triangulator.triangulate(PackedMesh.fromModel(model));
+
+        assertTrue(actual.isTriangulated());
+        assertFalse(Triangulator.needsTriangulation(actual));
+        assertArrayEquals(expected.getPolygonOffsets(), actual.getPolygonOffsets());
+        assertArrayEquals(expected.getVertexIndices(), actual.getVertexIndices());
+        assertArrayEquals(expected.getTextureVertexIndices(), actual.getTextureVertexIndices());
+        assertArrayEquals(expected.getNormalIndices(), actual.getNormalIndices());
+    }
+
+    @Test
+    void testCacheIsRebuiltAfterModification() {
+        Model model = new Model();
+        model.vertices.add(new Vector3(0, 0, 0));
+        model.vertices.add(new Vector3(1, 0, 0));
+        model.vertices.add(new Vector3(0, 1, 0));
+        model.polygons.add(polygon(0, 1, 2));
+
+        PackedMesh first = model.getPackedMesh();
+        assertSame(first, model.getPackedMesh());
+
+        // Изменения через списки сбрасывают кэш без явной инвалидации
+        model.vertices.add(new Vector3(1, 1, 0));
+        model.polygons.add(polygon(1, 3, 2));
+        PackedMesh second = model.getPackedMesh();
+        assertNotSame(first, second);
+        assertEquals(2, second.getPolygonCount());
+
+        model.vertices.set(0, new Vector3(-1, 0, 0));
+        assertEquals(-1f, model.getPackedMesh().getPositions()[0]);
+
+        // Полигон из списка — копия: правка его индексов сетку не трогает
+        PackedMesh third = model.getPackedMesh();
+        model.polygons.get(1).getVertexIndices().set(0, 0);
+        assertSame(third, model.getPackedMesh());
+        assertEquals(1, model.polygons.get(1).getVertexIndices().get(0));
+
+        model.recalculateNormals();
+        assertEquals(4, model.getPackedMesh().getNormalCount());
+        assertTrue(model.getPackedMesh().hasNormals(0));
+    }
+
+    @Test
+    void testPreparedModelKeepsOnlyPackedMesh() {
+        Model model = ModelPreparationUtils.prepare(ObjReader.readPacked(QUAD_AND_TRIANGLE_OBJ));
+
+        assertFalse(model.hasObjectLists());
+        assertTrue(model.getPackedMesh().isTriangulated());
+        assertEquals(5, model.getVertexCount());
+        assertEquals(3, model.getPolygonCount());
+        assertEquals(5, model.getNormalCount());
+        ObjWriter.modelToString(model);
+        assertFalse(model.hasObjectLists());
+
+        // Чтение идёт прямо из сетки; списки создаются только при изменении
+        assertEquals(3, model.polygons.size());
+        assertEquals(3, model.polygons.get(0).getVertexIndices().size());
+        assertFalse(model.hasObjectLists());
+        PackedMesh mesh = model.getPackedMesh();
+        model.vertices.set(4, new Vector3(0.5f, 3, 0));
+        assertTrue(model.hasObjectLists());
+        assertNotSame(mesh, model.getPackedMesh());
+        assertEquals(3f, model.getBounds().maxY);
+    }
+
+    @Test
+    void testPackedNormalsMatchListNormals() {
+        Model listModel = ObjReader.read(QUAD_AND_TRIANGLE_OBJ);
+        listModel.recalculateNormals();
+        Model packedModel = ObjReader.readPacked(QUAD_AND_TRIANGLE_OBJ).toModel();
+        packedModel.recalculateNormals();
+
+        assertFalse(packedModel.hasObjectLists());
+        PackedMesh expected = listModel.getPackedMesh();
+        PackedMesh actual = packedModel.getPackedMesh();
+        assertArrayEquals(expected.getNormals(), actual.getNormals());
+        assertArrayEquals(expected.getNormalIndices(), actual.getNormalIndices());
+    }
+
+    @Test
+    void testPackedRemovePolygonsMatchesListRemovePolygons() {
+        BitSet removed = new BitSet();
+        removed.set(0);
+        for (boolean removeVertices : new boolean[]{false, true}) {
+            Model listModel = ObjReader.read(QUAD_AND_TRIANGLE_OBJ);
+            listModel.removePolygons(removed, removeVertices);
+            Model packedModel = ObjReader.readPacked(QUAD_AND_TRIANGLE_OBJ).toModel();
+            packedModel.removePolygons(removed, removeVertices);
+
+            assertFalse(packedModel.hasObjectLists());
+            PackedMesh expected = listModel.getPackedMesh();
+            PackedMesh actual = packedModel.getPackedMesh();
+            assertArrayEquals(expected.getPositions(), actual.getPositions());
+            assertArrayEquals(expected.getTextureCoordinates(), actual.getTextureCoordinates());
+            assertArrayEquals(expected.getNormals(), actual.getNormals());
+            assertArrayEquals(expected.getPolygonOffsets(), actual.getPolygonOffsets());
+            assertArrayEquals(expected.getVertexIndices(), actual.getVertexIndices());
+            assertArrayEquals(expected.getTextureVertexIndices(), actual.getTextureVertexIndices());
+            assertArrayEquals(expected.getNormalIndices(), actual.getNormalIndices());
+        }
+    }
+
+    @Test
+    void testWriterOutputIsSameForModelAndPackedMesh() {
+        Model model = ObjReader.read(QUAD_AND_TRIANGLE_OBJ);
+        Transform transform = new Transform();
+        transform.translate(1, 2, 3);
+        transform.rotate(0.3f, 0.1f, 0);
+        transform.scale(2);
+
+        String fromModel = ObjWriter.modelToString(model, transform, "test");
+        String fromMesh = ObjWriter.meshToString(model.getPackedMesh(), transform, "test");
+
+        assertEquals(fromModel, fromMesh);
+        assertTrue(fromModel.contains("f 1/1/1 2/2/1 3/3/1 4/4/1"));
+        assertTrue(fromModel.contains("f 3 5 4"));
+    }
+
+    @Test
+    void testPackedMeshIsSmallerThanObjectModel() {
+        PackedMesh.Builder builder = new PackedMesh.Builder();
+        for (int i = 0; i < 300; i++) {
+            builder.addVertex(i, i, i);
+            builder.addTextureVertex(i, i);
+        }
+        for (int i = 0; i + 2 < 300; i++) {
+            builder.addCorner(i, i, PackedMesh.NO_INDEX)
+                    .addCorner(i + 1, i + 1, PackedMesh.NO_INDEX)
+                    .addCorner(i + 2, i + 2, PackedMesh.NO_INDEX)
+                    .endPolygon();
+        }
+        PackedMesh mesh = builder.build();
+
+        assertEquals(298, mesh.getPolygonCount());
+        assertTrue(mesh.isTriangulated());
+        // 3 float на вершину, 2 на UV, 3 * 3 индекса на треугольник + смещения
+        assertEquals(4L * (900 + 600 + 299 + 3 * 894), mesh.getDataSizeBytes());
+        assertEquals(new Vector2(5, 5), mesh.toModel().textureVertices.get(5));
+    }
+}
@@ -0,0 +1,132 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector2;
+import com.cgvsu.math.Vector3;
+import com.cgvsu.render_engine.scene.SceneObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolygonSelectionTest {
+
+    private static Polygon polygon(Integer... vertices) {
+        Polygon polygon = new Polygon();
+        polygon.setVertexIndices(new ArrayList<>(Arrays.asList(vertices)));
+        return polygon;
+    }
+
+    @Test
+    void testToggleAndCount() {
+        SceneObject first = new SceneObject("first", new Model(), null);
+        SceneObject second = new SceneObject("second", new Model(), null);
+        PolygonSelection selection = new PolygonSelection();
+        assertTrue(selection.isEmpty());
+
+        assertTrue(selection.toggle(first, 3));
+        assertTrue(selection.toggle(first, 100));
+        assertTrue(selection.toggle(second, 0));
+        selection.add(second, 0);
+        assertEquals(3, selection.size());
+        assertTrue(selection.contains(first, 100));
+        assertFalse(selection.contains(second, 3));
+        assertFalse(selection.contains(first, -1));
+        assertEquals(List.of(first, second), new ArrayList<>(selection.getObjects()));
+
+        // Повторный выбор снимает выделение; объект без полигонов пропадает из выделения
+        assertFalse(selection.toggle(second, 0));
+        assertEquals(List.of(first), new ArrayList<>(selection.getObjects()));
+        assertTrue(selection.getPolygons(second).isEmpty());
+        assertEquals(2, selection.size());
+
+        selection.removeObject(first);
+        assertTrue(selection.isEmpty());
+        selection.add(second, 5);
+        selection.clear();
+        assertEquals(0, selection.size());
+        assertFalse(selection.contains(second, 5));
+    }
+
+    @Test
+    void testRemovePolygonsCompactsUnusedElements() {
+        Model model = new Model();
+        for (int i = 0; i < 6; i++) {
+            model.vertices.add(new Vector3(i, 0, 0));
+            model.textureVertices.add(new Vector2(i, 0));
+            model.normals.add(new Vector3(0, 0, i));
+        }
+        Polygon removed = polygon(0, 1, 2);
+        removed.setTextureVertexIndices(new ArrayList<>(Arrays.asList(0, 1, 2)));
+        Polygon kept = polygon(2, 3, 5);
+        kept.setTextureVertexIndices(new ArrayList<>(Arrays.asList(2, 3, 5)));
+        kept.setNormalIndices(new ArrayList<>(Arrays.asList(5, 4, 3)));
+        Polygon alsoRemoved = polygon(1, 4, 3);
+        model.polygons.addAll(List.of(removed, kept, alsoRemoved));
+
+        SceneObject object = new SceneObject("object", model, null);
+        PolygonSelection selection = new PolygonSelection();
+        selection.add(object, 0);
+        selection.add(object, 2);
+        model.removePolygons(selection.getPolygons(object), true);
+
+        assertEquals(1, model.polygons.size());
+        Polygon remaining = model.polygons.get(0);
+        assertEquals(List.of(0, 1, 2), remaining.getVertexIndices());
+        assertEquals(List.of(0, 1, 2), remaining.getTextureVertexIndices());
+        assertEquals(List.of(2, 1, 0), remaining.getNormalIndices());
+        assertEquals(List.of(2f, 3f, 5f), List.of(model.vertices.get(0).x, model.vertices.get(1).x, model.vertices.get(2).x));
+        assertEquals(5f, model.textureVertices.get(2).x);
+        assertEquals(3f, model.normals.get(0).z);
+        assertEquals(3, model.normals.size());
+        assertEquals(1, model.getPackedMesh().getPolygonCount());
+    }
+
+    @Test
+    void testRemovePolygonsKeepsVerticesWhenAsked() {
+        Model model = new Model();
+        for (int i = 0; i < 4; i++) {
+            model.vertices.add(new Vector3(i, i, 0));
+        }
+        model.polygons.add(polygon(0, 1, 2));
+        model.polygons.add(polygon(1, 2, 3));
+        BitSet removed = new BitSet();
+        removed.set(0);
+        // Номера за пределами списка полигонов игнорируются
+        removed.set(7);
+        model.removePolygons(removed, false);
+
+        assertEquals(1, model.polygons.size());
+        assertEquals(4, model.vertices.size());
+        assertEquals(List.of(1, 2, 3), model.polygons.get(0).getVertexIndices());
+    }
+
+    @Test
+    void testRemovingManyPolygonsIsLinear() {
+        // Полоса из 200 000 треугольников, удаляется каждый второй
+        int triangles = 200_000;
+        Model model = new Model();
+        for (int i = 0; i < triangles + 2; i++) {
+            model.vertices.add(new Vector3(i, i % 2, 0));
+        }
+        for (int i = 0; i < triangles; i++) {
+            model.polygons.add(polygon(i, i + 1, i + 2));
+        }
+        BitSet removed = new BitSet();
+        for (int i = 0; i < triangles; i += 2) {
+            removed.set(i);
+        }
+
+        long start = System.nanoTime();
+        model.removePolygons(removed, true);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(triangles / 2, model.polygons.size());
+        assertEquals(triangles + 1, model.vertices.size()); // Вершина 0 использовалась только удалённым
+        assertEquals(List.of(0, 1, 2), model.polygons.get(0).getVertexIndices());
+        assertTrue(elapsedMillis < 2000, elapsedMillis + " ms");
+    }
+}
@@ -0,0 +1,144 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.PackedMesh;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ObjReaderParallelTest {
+
+    private static ForkJoinPool pool;
+    private Path file;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @BeforeEach
+    void createFile() throws IOException {
+        file = Files.createTempFile("parallel", ".obj");
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static void assertSameMesh(PackedMesh expected, PackedMesh actual) {
+        Assertions.assertArrayEquals(expected.getPositions(), actual.getPositions());
+        Assertions.assertArrayEquals(expected.getTextureCoordinates(), actual.getTextureCoordinates());
+        Assertions.assertArrayEquals(expected.getNormals(), actual.getNormals());
+        Assertions.assertArrayEquals(expected.getPolygonOffsets(), actual.getPolygonOffsets());
+        Assertions.assertArrayEquals(expected.getVertexIndices(), actual.getVertexIndices());
+        Assertions.assertArrayEquals(expected.getTextureVertexIndices(), actual.getTextureVertexIndices());
+        Assertions.assertArrayEquals(expected.getNormalIndices(), actual.getNormalIndices());
+    }
+
+    // Полоса треугольников, где грани ссылаются на вершины и абсолютно, и относительно
+    private static String randomObj(long seed, int count, String lineSeparator) {
+        Random random = new Random(seed);
+        StringBuilder content = new StringBuilder("# generated\n".replace("\n", lineSeparator));
+        for (int i = 0; i < count; i++) {
+            content.append("v ").append(random.nextFloat()).append(' ')
+                    .append(random.nextFloat() * 100).append(' ').append(-random.nextFloat()).append(lineSeparator);
+            content.append("vt ").append(random.nextFloat()).append(' ').append(random.nextFloat()).append(lineSeparator);
+            if (i % 2 == 0) {
+                content.append("vn 0 ").append(random.nextFloat()).append(" 1").append(lineSeparator);
+            }
+            if (i >= 2) {
+                int v = i + 1;
+                int n = i / 2 + 1;
+                switch (i % 4) {
+                    case 0 -> content.append("f -1/-1/-1 -2/-2/-1 -3/-3/-1");
+                    case 1 -> content.append("f ").append(v).append('/').append(v).append(' ')
+                            .append(v - 1).append('/').append(v - 1).append(' ')
+                            .append(v - 2).append('/').append(v - 2);
+                    case 2 -> content.append("f -3//-2 ").append(v - 1).append("//").append(n).append(" -1//-1");
+                    default -> content.append("f ").append(v).append(" -2 -3 ").append(v - 3);
+                }
+                content.append(lineSeparator);
+            }
+        }
+        return content.toString();
+    }
+
+    private PackedMesh readWithChunkSize(long chunkSize) throws IOException {
+        return ObjParallelReader.read(file, pool, chunkSize);
+    }
+
+    @Test
+    public void testParallelMatchesStreaming() throws IOException {
+        Files.writeString(file, randomObj(1, 3000, "\n"));
+        PackedMesh expected = ObjReader.readPacked(file);
+
+        for (long chunkSize : new long[]{1, 97, 4096, 1 << 20}) {
+            assertSameMesh(expected, readWithChunkSize(chunkSize));
+        }
+        assertSameMesh(expected, ObjReader.readPackedParallel(file, pool));
+        Assertions.assertEquals(3000, expected.getVertexCount());
+    }
+
+    @Test
+    public void testCrLfIsNotSplitBetweenChunks() throws IOException {
+        Files.writeString(file, randomObj(2, 500, "\r\n"));
+        PackedMesh expected = ObjReader.readPacked(file);
+
+        for (long chunkSize = 1; chunkSize < 64; chunkSize += 7) {
+            assertSameMesh(expected, readWithChunkSize(chunkSize));
+        }
+    }
+
+    @Test
+    public void testNegativeIndicesReferToPreviousElements() throws IOException {
+        Files.writeString(file, "v 0 0 0\nv 1 0 0\nv 0 1 0\nf -3 -2 -1\nv 1 1 0\nf 2 -1 3\n");
+
+        for (long chunkSize : new long[]{1, 1024}) {
+            PackedMesh mesh = readWithChunkSize(chunkSize);
+            Assertions.assertArrayEquals(new int[]{0, 1, 2, 1, 3, 2}, mesh.getVertexIndices());
+        }
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 1, 3, 2}, ObjReader.readPacked(file).getVertexIndices());
+    }
+
+    @Test
+    public void testChunkBoundsFollowLines() throws IOException {
+        Files.writeString(file, "v 1 2 3\nvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvv\nf 1 1 1\n");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = ObjParallelReader.findChunkBounds(channel, 10);
+            Assertions.assertArrayEquals(new long[]{0, 46, 54}, bounds);
+        }
+    }
+
+    @Test
+    public void testErrorLineIsCountedFromFileStart() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("v ").append(i).append(" 0 0\n");
+        }
+        content.append("vn 0 oops 0\n");
+        content.append("v 1\n");
+        Files.writeString(file, content.toString());
+
+        ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                () -> readWithChunkSize(100));
+        Assertions.assertEquals("Error parsing OBJ file on line: 1001. Failed to parse float value.",
+                exception.getMessage());
+        Assertions.assertEquals(1001, exception.getLineInd());
+    }
+}
@@ -0,0 +1,141 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.PackedMesh;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+class ObjReaderStreamingTest {
+
+    private static final String MIXED_OBJ = String.join("\r\n",
+            "# comment with v 1 2 3",
+            "o cube",
+            "v 1.5 -2.25e1 +3",
+            "v 0.000001 1E-3 -0",
+            "v .5 7. 12345678.9",
+            "v 1 2 3 1.0",
+            "vt 0.25 0.75",
+            "vt 1 0 0",
+            "vn 0 0 1",
+            "",
+            "  v 100 100 100",
+            "vp 1 2 3",
+            "f 1/1/1 2/2/1 3/1/1",
+            "f 1//1 2//1 4//1",
+            "f 1/1 2 3/2",
+            "f 4/2/ 3/1/ 2/2/",
+            "f\t2   3\t4",
+            "");
+
+    private static void assertSameMesh(PackedMesh expected, PackedMesh actual) {
+        Assertions.assertArrayEquals(expected.getPositions(), actual.getPositions());
+        Assertions.assertArrayEquals(expected.getTextureCoordinates(), actual.getTextureCoordinates());
+        Assertions.assertArrayEquals(expected.getNormals(), actual.getNormals());
+        Assertions.assertArrayEquals(expected.getPolygonOffsets(), actual.getPolygonOffsets());
+        Assertions.assertArrayEquals(expected.getVertexIndices(), actual.getVertexIndices());
+        Assertions.assertArrayEquals(expected.getTextureVertexIndices(), actual.getTextureVertexIndices());
+        Assertions.assertArrayEquals(expected.getNormalIndices(), actual.getNormalIndices());
+    }
+
+    // Поток, отдающий данные маленькими порциями: строки и переводы строк рвутся между чтениями
+    private static InputStream trickle(String content, int chunk) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
+    private static String errorMessage(String content) {
+        ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                () -> ObjReader.readPacked(content));
+        return exception.getMessage();
+    }
+
+    @Test
+    public void testStreamingMatchesStringReader() throws IOException {
+        PackedMesh expected = PackedMesh.fromModel(ObjReader.read(MIXED_OBJ));
+
+        assertSameMesh(expected, ObjReader.readPacked(MIXED_OBJ));
+        for (int chunk = 1; chunk <= 13; chunk++) {
+            assertSameMesh(expected, ObjReader.readPacked(trickle(MIXED_OBJ, chunk)));
+        }
+        Assertions.assertEquals(4, expected.getVertexCount());
+        Assertions.assertEquals(5, expected.getPolygonCount());
+    }
+
+    @Test
+    public void testReadFromPath() throws IOException {
+        Path file = Files.createTempFile("streaming", ".obj");
+        try {
+            Files.writeString(file, MIXED_OBJ.replace("\r\n", "\n"));
+            assertSameMesh(ObjReader.readPacked(MIXED_OBJ), ObjReader.readPacked(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testLongLineGrowsBuffer() throws IOException {
+        StringBuilder content = new StringBuilder("v 1 2 3\nv 4 5 6\nv 7 8 9\nf");
+        for (int i = 0; i < 200_000; i++) {
+            content.append(' ').append(i % 3 + 1);
+        }
+        content.append("\nvn 0 1 0");
+
+        PackedMesh mesh = ObjReader.readPacked(new ByteArrayInputStream(
+                content.toString().getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(200_000, mesh.getPolygonSize(0));
+        Assertions.assertEquals(1, mesh.getNormalCount());
+    }
+
+    @Test
+    public void testFloatsMatchFloatParseFloat() {
+        Random random = new Random(7);
+        StringBuilder content = new StringBuilder();
+        String[] samples = new String[3000];
+        for (int i = 0; i < samples.length; i++) {
+            String sample = switch (i % 6) {
+                case 0 -> Float.toString(Float.intBitsToFloat(random.nextInt()) % 1e6f);
+                case 1 -> Double.toString(random.nextDouble() * 2000 - 1000);
+                case 2 -> String.format(Locale.ROOT, "%.6f", random.nextGaussian());
+                case 3 -> (random.nextInt(2000000) - 1000000) + "e" + (random.nextInt(60) - 30);
+                case 4 -> "0.0000000" + random.nextInt(100000);
+                default -> "123456789012345678." + random.nextInt(1000);
+            };
+            if (sample.contains("NaN") || sample.contains("Infinity")) {
+                sample = "1";
+            }
+            samples[i] = sample;
+            content.append("v ").append(sample).append(" 0 0\n");
+        }
+
+        float[] positions = ObjReader.readPacked(content.toString()).getPositions();
+        for (int i = 0; i < samples.length; i++) {
+            Assertions.assertEquals(Float.parseFloat(samples[i]), positions[i * 3], samples[i]);
+        }
+    }
+
+    @Test
+    public void testErrorsKeepLineNumbers() {
+        Assertions.assertEquals("Error parsing OBJ file on line: 3. Failed to parse float value.",
+                errorMessage("v 1 2 3\n\nv 1 x 3\n"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 2. Too few texture vertex arguments.",
+                errorMessage("vt 0 0\r\nvt 1\r\n"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 1. Failed to parse int value.",
+                errorMessage("f 1 2 3a"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 2. Invalid element size.",
+                errorMessage("v 0 0 0\nf 1/1/1/1 1 1"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 1. Failed to parse int value.",
+                errorMessage("f 99999999999 1 1"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.cgvsu.rasterization;
+
+import javafx.scene.paint.Color;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Сравнение обхода треугольников: перебор ограничивающего прямоугольника и обход блоками 8x8.
+ * Для каждого набора треугольников печатает число проверенных пикселей (нужна проверка рёберных функций),
+ * число пикселей, записанных без проверки (покрытые блоки), число записанных пикселей и время заливки.
+ *
+ * Запуск: java -cp ... com.cgvsu.rasterization.RasterizationBenchmark
+ */
+public final class RasterizationBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int TRIANGLES = 2000;
+    private static final int ROUNDS = 15;
+
+    private RasterizationBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        run("thin (CAD slivers)", thinTriangles(new Random(1)));
+        run("regular", regularTriangles(new Random(2)));
+    }
+
+    // Длинные тонкие треугольники под случайными углами: длина 300..900 px, ширина 1..4 px
+    private static double[] thinTriangles(Random random) {
+        double[] triangles = new double[TRIANGLES * 6];
+        for (int i = 0; i < TRIANGLES; i++) {
+            double length = 300 + random.nextDouble() * 600;
+            double width = 1 + random.nextDouble() * 3;
+            double angle = random.nextDouble() * Math.PI;
+            double x = random.nextDouble() * (WIDTH - 200) + 100;
+            double y = random.nextDouble() * (HEIGHT - 200) + 100;
+            double dx = Math.cos(angle), dy = Math.sin(angle);
+            triangles[i * 6] = x - dx * length / 2;
+            triangles[i * 6 + 1] = y - dy * length / 2;
+            triangles[i * 6 + 2] = x + dx * length / 2;
+            triangles[i * 6 + 3] = y + dy * length / 2;
+            triangles[i * 6 + 4] = x - dy * width;
+            triangles[i * 6 + 5] = y + dx * width;
+        }
+        return triangles;
+    }
+
+    private static double[] regularTriangles(Random random) {
+        double[] triangles = new double[TRIANGLES * 6];
+        for (int i = 0; i < TRIANGLES; i++) {
+            double x = random.nextDouble() * WIDTH;
+            double y = random.nextDouble() * HEIGHT;
+            for (int k = 0; k < 3; k++) {
+                triangles[i * 6 + k * 2] = x + random.nextDouble() * 120 - 60;
+                triangles[i * 6 + k * 2 + 1] = y + random.nextDouble() * 120 - 60;
+            }
+        }
+        return triangles;
+    }
+
+    private static void run(String name, double[] triangles) {
+        TriangleSetup setup = new TriangleSetup();
+        long boundingBox = 0;
+        long tested = 0;
+        long untested = 0;
+        long written = 0;
+        for (int i = 0; i < TRIANGLES; i++) {
+            if (!setup(setup, triangles, i)) {
+                continue;
+            }
+            boundingBox += (long) (setup.maxX - setup.minX + 1) * (setup.maxY - setup.minY + 1);
+            long[] counts = new long[3];
+            setup.traverse((y, from, to, e1, e2, e3, covered) -> {
+                for (int x = from; x <= to; x++) {
+                    if (covered) {
+                        counts[1]++;
+                        counts[2]++;
+                    } else {
+                        counts[0]++;
+                        if ((e1 | e2 | e3) >= 0) {
+                            counts[2]++;
+                        }
+                    }
+                    e1 += setup.e1StepX;
+                    e2 += setup.e2StepX;
+                    e3 += setup.e3StepX;
+                }
+            });
+            tested += counts[0];
+            untested += counts[1];
+            written += counts[2];
+        }
+
+        FrameBuffer frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+        ZBuffer zBuffer = new ZBuffer(WIDTH, HEIGHT);
+        double boundingBoxMs = Double.MAX_VALUE;
+        double blocksMs = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            zBuffer.clear();
+            long start = System.nanoTime();
+            for (int i = 0; i < TRIANGLES; i++) {
+                fillBoundingBox(frameBuffer, zBuffer, setup, triangles, i);
+            }
+            boundingBoxMs = Math.min(boundingBoxMs, (System.nanoTime() - start) / 1e6);
+
+            zBuffer.clear();
+            start = System.nanoTime();
+            for (int i = 0; i < TRIANGLES; i++) {
+                Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                        triangles[i * 6], triangles[i * 6 + 1], 1, 0.5,
+                        triangles[i * 6 + 2], triangles[i * 6 + 3], 1, 0.5,
+                        triangles[i * 6 + 4], triangles[i * 6 + 5], 1, 0.5,
+                        Color.GRAY);
+            }
+            blocksMs = Math.min(blocksMs, (System.nanoTime() - start) / 1e6);
+        }
+
+        System.out.printf(Locale.ROOT, "%s: %d triangles%n", name, TRIANGLES);
+        System.out.printf(Locale.ROOT, "  bounding box: %,d pixels tested, %.2f ms%n", boundingBox, boundingBoxMs);
+        System.out.printf(Locale.ROOT, "  8x8 blocks:   %,d pixels tested, %,d written without test, %.2f ms%n",
+                tested, untested, blocksMs);
+        System.out.printf(Locale.ROOT, "  pixels written: %,d (%.1f%% of bounding box, %.1f%% of block-tested)%n",
+                written, 100.0 * written / boundingBox, 100.0 * written / Math.max(1, tested + untested));
+    }
+
+    private static boolean setup(TriangleSetup setup, double[] triangles, int i) {
+        return setup.setup(triangles[i * 6], triangles[i * 6 + 1],
+                triangles[i * 6 + 2], triangles[i * 6 + 3],
+                triangles[i * 6 + 4], triangles[i * 6 + 5],
+                0, 0, WIDTH - 1, HEIGHT - 1);
+    }
+
+    // Прежний обход: проверка каждого пикселя прямоугольника, заливка как у fillTrianglePerspectiveCorrect
+    private static void fillBoundingBox(FrameBuffer frameBuffer, ZBuffer zBuffer, TriangleSetup setup,
+                                        double[] triangles, int i) {
+        if (!setup(setup, triangles, i)) {
+            return;
+        }
+        final int argb = 0xFF808080;
+        long row1 = setup.e1, row2 = setup.e2, row3 = setup.e3;
+        for (int y = setup.minY; y <= setup.maxY; y++) {
+            long e1 = row1, e2 = row2, e3 = row3;
+            for (int x = setup.minX; x <= setup.maxX; x++) {
+                if ((e1 | e2 | e3) >= 0) {
+                    double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+
+                    double invW = l1 * 1 + l2 * 1 + l3 * 1;
+                    if (invW > 1e-12 && Double.isFinite(invW)) {
+                        double z = (l1 * 0.5 + l2 * 0.5 + l3 * 0.5) / invW;
+
+                        if (Double.isFinite(z) && zBuffer.testAndSet(x, y, (float) z)) {
+                            frameBuffer.setArgb(x, y, argb);
+                        }
+                    }
+                }
+                e1 += setup.e1StepX;
+                e2 += setup.e2StepX;
+                e3 += setup.e3StepX;
+            }
+            row1 += setup.e1StepY;
+            row2 += setup.e2StepY;
+            row3 += setup.e3StepY;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.cgvsu.rasterization;
 
-import javafx.scene.image.PixelWriter;
 import javafx.scene.paint.Color;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -18,7 +17,7 @@ public class RasterizationLineBresenhamTest {
     static void lookupPrivateMethod() throws Exception {
         DRAW_LINE_PRIVATE = Rasterization.class.getDeclaredMethod(
                 "drawLineWithZBuffer",
-                PixelWriter.class,
+                FrameBuffer.class,
                 ZBuffer.class,
                 double.class, double.class, double.class,
                 double.class, double.class, double.class,
@@ -28,7 +27,7 @@ public class RasterizationLineBresenhamTest {
     }
 
     private static void drawLine(
-            PixelWriter pw, ZBuffer zb,
+            FrameBuffer pw, ZBuffer zb,
             double x1, double y1, double z1,
             double x2, double y2, double z2,
             Color color
@@ -52,12 +51,12 @@ public class RasterizationLineBresenhamTest {
     @Test
     void singlePoint_drawsExactlyOnePixel() {
         ZBuffer zb = new ZBuffer(10, 10);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         drawLine(pw, zb, 3, 4, 7, 3, 4, 7, Color.RED);
 
         assertEquals(1, pw.totalWrites());
-        assertEquals(Set.of(new RecordingPixelWriter.Pixel(3, 4)), pw.writtenPixels());
+        assertEquals(Set.of(new RecordingFrameBuffer.Pixel(3, 4)), pw.writtenPixels());
         assertColorEquals(Color.RED, pw.get(3, 4));
         assertEquals(7.0, zb.get(3, 4), 1e-12);
     }
@@ -65,17 +64,17 @@ public class RasterizationLineBresenhamTest {
     @Test
     void horizontalLine_includesEndpoints_andInterpolatesZ() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         drawLine(pw, zb, 1, 5, 10, 6, 5, 4, Color.BLUE);
 
-        List<RecordingPixelWriter.Pixel> expected = List.of(
-                new RecordingPixelWriter.Pixel(1, 5),
-                new RecordingPixelWriter.Pixel(2, 5),
-                new RecordingPixelWriter.Pixel(3, 5),
-                new RecordingPixelWriter.Pixel(4, 5),
-                new RecordingPixelWriter.Pixel(5, 5),
-                new RecordingPixelWriter.Pixel(6, 5)
+        List<RecordingFrameBuffer.Pixel> expected = List.of(
+                new RecordingFrameBuffer.Pixel(1, 5),
+                new RecordingFrameBuffer.Pixel(2, 5),
+                new RecordingFrameBuffer.Pixel(3, 5),
+                new RecordingFrameBuffer.Pixel(4, 5),
+                new RecordingFrameBuffer.Pixel(5, 5),
+                new RecordingFrameBuffer.Pixel(6, 5)
         );
         assertEquals(expected, pw.writeOrder(), "Bresenham pixel path mismatch");
 
@@ -84,24 +83,24 @@ public class RasterizationLineBresenhamTest {
         for (int i = 0; i < expected.size(); i++) {
             var p = expected.get(i);
             assertColorEquals(Color.BLUE, pw.get(p.x, p.y));
-            assertEquals(expectedZ[i], zb.get(p.x, p.y), 1e-12, "Z mismatch at " + p);
+            assertEquals(expectedZ[i], zb.get(p.x, p.y), 1e-6, "Z mismatch at " + p);
         }
     }
 
     @Test
     void verticalLine_includesEndpoints() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         drawLine(pw, zb, 3, 1, 0, 3, 6, 10, Color.GREEN);
 
-        List<RecordingPixelWriter.Pixel> expected = List.of(
-                new RecordingPixelWriter.Pixel(3, 1),
-                new RecordingPixelWriter.Pixel(3, 2),
-                new RecordingPixelWriter.Pixel(3, 3),
-                new RecordingPixelWriter.Pixel(3, 4),
-                new RecordingPixelWriter.Pixel(3, 5),
-                new RecordingPixelWriter.Pixel(3, 6)
+        List<RecordingFrameBuffer.Pixel> expected = List.of(
+                new RecordingFrameBuffer.Pixel(3, 1),
+                new RecordingFrameBuffer.Pixel(3, 2),
+                new RecordingFrameBuffer.Pixel(3, 3),
+                new RecordingFrameBuffer.Pixel(3, 4),
+                new RecordingFrameBuffer.Pixel(3, 5),
+                new RecordingFrameBuffer.Pixel(3, 6)
         );
         assertEquals(expected, pw.writeOrder());
     }
@@ -109,17 +108,17 @@ public class RasterizationLineBresenhamTest {
     @Test
     void diagonalSlopePlusOne() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         drawLine(pw, zb, 1, 1, 0, 6, 6, 0, Color.BLACK);
 
-        List<RecordingPixelWriter.Pixel> expected = List.of(
-                new RecordingPixelWriter.Pixel(1, 1),
-                new RecordingPixelWriter.Pixel(2, 2),
-                new RecordingPixelWriter.Pixel(3, 3),
-                new RecordingPixelWriter.Pixel(4, 4),
-                new RecordingPixelWriter.Pixel(5, 5),
-                new RecordingPixelWriter.Pixel(6, 6)
+        List<RecordingFrameBuffer.Pixel> expected = List.of(
+                new RecordingFrameBuffer.Pixel(1, 1),
+                new RecordingFrameBuffer.Pixel(2, 2),
+                new RecordingFrameBuffer.Pixel(3, 3),
+                new RecordingFrameBuffer.Pixel(4, 4),
+                new RecordingFrameBuffer.Pixel(5, 5),
+                new RecordingFrameBuffer.Pixel(6, 6)
         );
         assertEquals(expected, pw.writeOrder());
     }
@@ -127,17 +126,17 @@ public class RasterizationLineBresenhamTest {
     @Test
     void diagonalNegativeSlope() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         drawLine(pw, zb, 1, 6, 0, 6, 1, 0, Color.ORANGE);
 
-        List<RecordingPixelWriter.Pixel> expected = List.of(
-                new RecordingPixelWriter.Pixel(1, 6),
-                new RecordingPixelWriter.Pixel(2, 5),
-                new RecordingPixelWriter.Pixel(3, 4),
-                new RecordingPixelWriter.Pixel(4, 3),
-                new RecordingPixelWriter.Pixel(5, 2),
-                new RecordingPixelWriter.Pixel(6, 1)
+        List<RecordingFrameBuffer.Pixel> expected = List.of(
+                new RecordingFrameBuffer.Pixel(1, 6),
+                new RecordingFrameBuffer.Pixel(2, 5),
+                new RecordingFrameBuffer.Pixel(3, 4),
+                new RecordingFrameBuffer.Pixel(4, 3),
+                new RecordingFrameBuffer.Pixel(5, 2),
+                new RecordingFrameBuffer.Pixel(6, 1)
         );
         assertEquals(expected, pw.writeOrder());
     }
@@ -145,18 +144,18 @@ public class RasterizationLineBresenhamTest {
     @Test
     void steepLine_octant2_pixelsMatchExactly() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         // dx=2 dy=5
         drawLine(pw, zb, 2, 1, 0, 4, 6, 0, Color.PURPLE);
 
-        List<RecordingPixelWriter.Pixel> expected = List.of(
-                new RecordingPixelWriter.Pixel(2, 1),
-                new RecordingPixelWriter.Pixel(2, 2),
-                new RecordingPixelWriter.Pixel(3, 3),
-                new RecordingPixelWriter.Pixel(3, 4),
-                new RecordingPixelWriter.Pixel(4, 5),
-                new RecordingPixelWriter.Pixel(4, 6)
+        List<RecordingFrameBuffer.Pixel> expected = List.of(
+                new RecordingFrameBuffer.Pixel(2, 1),
+                new RecordingFrameBuffer.Pixel(2, 2),
+                new RecordingFrameBuffer.Pixel(3, 3),
+                new RecordingFrameBuffer.Pixel(3, 4),
+                new RecordingFrameBuffer.Pixel(4, 5),
+                new RecordingFrameBuffer.Pixel(4, 6)
         );
         assertEquals(expected, pw.writeOrder());
     }
@@ -164,18 +163,18 @@ public class RasterizationLineBresenhamTest {
     @Test
     void shallowLine_octant1_pixelsMatchExactly() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         // dx=5 dy=2
         drawLine(pw, zb, 1, 2, 0, 6, 4, 0, Color.BROWN);
 
-        List<RecordingPixelWriter.Pixel> expected = List.of(
-                new RecordingPixelWriter.Pixel(1, 2),
-                new RecordingPixelWriter.Pixel(2, 2),
-                new RecordingPixelWriter.Pixel(3, 3),
-                new RecordingPixelWriter.Pixel(4, 3),
-                new RecordingPixelWriter.Pixel(5, 4),
-                new RecordingPixelWriter.Pixel(6, 4)
+        List<RecordingFrameBuffer.Pixel> expected = List.of(
+                new RecordingFrameBuffer.Pixel(1, 2),
+                new RecordingFrameBuffer.Pixel(2, 2),
+                new RecordingFrameBuffer.Pixel(3, 3),
+                new RecordingFrameBuffer.Pixel(4, 3),
+                new RecordingFrameBuffer.Pixel(5, 4),
+                new RecordingFrameBuffer.Pixel(6, 4)
         );
         assertEquals(expected, pw.writeOrder());
     }
@@ -183,7 +182,7 @@ public class RasterizationLineBresenhamTest {
     @Test
     void respectsZBuffer_doesNotOverwriteWithFartherLine() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         // Ближняя (z=0)
         drawLine(pw, zb, 1, 5, 0, 6, 5, 0, Color.RED);
@@ -204,16 +203,16 @@ public class RasterizationLineBresenhamTest {
     @Test
     void clipsToBounds_onlyInRangePixelsAreWritten() {
         ZBuffer zb = new ZBuffer(5, 5);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         // Линия (-2,2)->(2,2) пересекает границу
         drawLine(pw, zb, -2, 2, 0, 2, 2, 4, Color.CYAN);
 
         // Внутри буфера должны быть только x=0..2
-        Set<RecordingPixelWriter.Pixel> expected = Set.of(
-                new RecordingPixelWriter.Pixel(0, 2),
-                new RecordingPixelWriter.Pixel(1, 2),
-                new RecordingPixelWriter.Pixel(2, 2)
+        Set<RecordingFrameBuffer.Pixel> expected = Set.of(
+                new RecordingFrameBuffer.Pixel(0, 2),
+                new RecordingFrameBuffer.Pixel(1, 2),
+                new RecordingFrameBuffer.Pixel(2, 2)
         );
 
         assertEquals(expected, pw.writtenPixels());
@@ -58,7 +58,7 @@ public class RasterizationTexturedTriangleTest {
     @Test
     void fillTriangleTextured_fillsExactIntegerPixels_forRightTriangle() {
         ZBuffer zb = new ZBuffer(10, 10);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         Texture tex = constantTexture(Color.RED);
 
@@ -72,19 +72,21 @@ public class RasterizationTexturedTriangleTest {
                 tex
         );
 
-        // Ожидаем ровно все целочисленные точки с x>=0,y>=0,x+y<=4
-        Set<RecordingPixelWriter.Pixel> expected = new HashSet<>();
-        for (int y = 0; y <= 4; y++) {
-            for (int x = 0; x <= 4 - y; x++) {
-                expected.add(new RecordingPixelWriter.Pixel(x, y));
+        // Правило top-left: точки на верхнем (y=0) и левом (x=0) рёбрах рисуются,
+        // на гипотенузе x+y=4 (правое нижнее ребро) — нет, их рисует соседний треугольник.
+        // Ожидаем ровно все целочисленные точки с x>=0,y>=0,x+y<4
+        Set<RecordingFrameBuffer.Pixel> expected = new HashSet<>();
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 4 - y; x++) {
+                expected.add(new RecordingFrameBuffer.Pixel(x, y));
             }
         }
 
         assertEquals(expected, pw.writtenPixels(), "Triangle coverage mismatch (holes or extra pixels?)");
-        assertEquals(15, pw.writtenPixels().size()); // (N+1)(N+2)/2 = 15 для N=4
+        assertEquals(10, pw.writtenPixels().size()); // N(N+1)/2 = 10 для N=4
 
         // И цвета должны быть красные (текстура 1x1)
-        for (RecordingPixelWriter.Pixel p : expected) {
+        for (RecordingFrameBuffer.Pixel p : expected) {
             assertColorEquals(Color.RED, pw.get(p.x, p.y));
             assertEquals(0.0, zb.get(p.x, p.y), 1e-12);
         }
@@ -92,12 +94,14 @@ public class RasterizationTexturedTriangleTest {
         // Вне треугольника — ничего не рисуем
         assertNull(pw.get(4, 4));
         assertNull(pw.get(3, 3)); // x+y=6>4
+        assertNull(pw.get(2, 2)); // на гипотенузе
+        assertNull(pw.get(4, 0)); // вершина на гипотенузе
     }
 
     @Test
     void fillTriangleTextured_uvInterpolation_matchesExpectedColors_atSelectedPoints() {
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         Texture tex = gradientTexture(16, 16);
 
@@ -120,9 +124,9 @@ public class RasterizationTexturedTriangleTest {
                 {0, 0},
                 {3, 1},
                 {1, 3},
-                {3, 3}, // на гипотенузе (x+y=6) — должна считаться внутри (>=0)
-                {6, 0}, // вершина
-                {0, 6}  // вершина
+                {2, 3}, // у самой гипотенузы (x+y=5)
+                {5, 0}, // на верхнем ребре
+                {0, 5}  // на левом ребре
         };
 
         for (int[] p : points) {
@@ -140,6 +144,10 @@ public class RasterizationTexturedTriangleTest {
 
         // Точно вне треугольника
         assertNull(pw.get(6, 6));
+        // Гипотенуза и вершины на ней — правое нижнее ребро, по правилу top-left не рисуются
+        assertNull(pw.get(3, 3));
+        assertNull(pw.get(6, 0));
+        assertNull(pw.get(0, 6));
     }
 
     @Test
@@ -147,7 +155,7 @@ public class RasterizationTexturedTriangleTest {
         // 1) Дальний (z=10) красный
         // 2) Ближний (z=5) зелёный -> должен перекрыть
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         Texture red = constantTexture(Color.RED);
         Texture green = constantTexture(Color.LIME);
@@ -179,7 +187,7 @@ public class RasterizationTexturedTriangleTest {
         // 1) Ближний (z=5) зелёный
         // 2) Дальний (z=10) красный -> НЕ должен перекрыть
         ZBuffer zb = new ZBuffer(20, 20);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         Texture red = constantTexture(Color.RED);
         Texture green = constantTexture(Color.LIME);
@@ -211,7 +219,7 @@ public class RasterizationTexturedTriangleTest {
     @Test
     void fillTriangleTextured_doesNothing_whenTextureIsNull() {
         ZBuffer zb = new ZBuffer(10, 10);
-        RecordingPixelWriter pw = new RecordingPixelWriter();
+        RecordingFrameBuffer pw = new RecordingFrameBuffer();
 
         Rasterization.fillTriangleTextured(
                 pw, zb,
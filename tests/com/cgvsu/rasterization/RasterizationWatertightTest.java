@@ -0,0 +1,130 @@
+package com.cgvsu.rasterization;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterizationWatertightTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    /**
+     * Каждый треугольник рисуется со своим Z-буфером, чтобы повторная запись пикселя
+     * не пряталась за тестом глубины.
+     */
+    private static void fill(RecordingFrameBuffer frameBuffer,
+                             double x1, double y1, double x2, double y2, double x3, double y3) {
+        Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, new ZBuffer(WIDTH + 8, HEIGHT + 8),
+                x1, y1, 1, 0.5,
+                x2, y2, 1, 0.5,
+                x3, y3, 1, 0.5,
+                Color.RED);
+    }
+
+    private static void assertCoveredExactlyOnce(RecordingFrameBuffer frameBuffer, int width, int height) {
+        for (int y = 0; y < height + 8; y++) {
+            for (int x = 0; x < width + 8; x++) {
+                int expected = (x < width && y < height) ? 1 : 0;
+                assertEquals(expected, frameBuffer.writeCount(x, y), "pixel (" + x + "," + y + ")");
+            }
+        }
+    }
+
+    @Test
+    void testSquareSplitByDiagonal() {
+        RecordingFrameBuffer frameBuffer = new RecordingFrameBuffer();
+        fill(frameBuffer, 0, 0, 16, 0, 16, 16);
+        fill(frameBuffer, 0, 0, 16, 16, 0, 16);
+
+        // Ровно квадрат [0, 16) x [0, 16): диагональ — один раз, правое и нижнее рёбра — соседям
+        assertCoveredExactlyOnce(frameBuffer, 16, 16);
+    }
+
+    @Test
+    void testJitteredGridHasNoCracksOrOverlaps() {
+        // Сетка с дробными внутренними вершинами; внешний контур — прямоугольник WIDTH x HEIGHT
+        final int columns = 8;
+        final int rows = 6;
+        double[][] xs = new double[rows + 1][columns + 1];
+        double[][] ys = new double[rows + 1][columns + 1];
+        Random random = new Random(7);
+        for (int j = 0; j <= rows; j++) {
+            for (int i = 0; i <= columns; i++) {
+                xs[j][i] = i * (double) WIDTH / columns;
+                ys[j][i] = j * (double) HEIGHT / rows;
+                if (i > 0 && i < columns) {
+                    xs[j][i] += random.nextDouble() * 4 - 2;
+                }
+                if (j > 0 && j < rows) {
+                    ys[j][i] += random.nextDouble() * 4 - 2;
+                }
+            }
+        }
+
+        RecordingFrameBuffer frameBuffer = new RecordingFrameBuffer();
+        for (int j = 0; j < rows; j++) {
+            for (int i = 0; i < columns; i++) {
+                double ax = xs[j][i], ay = ys[j][i];
+                double bx = xs[j][i + 1], by = ys[j][i + 1];
+                double cx = xs[j + 1][i + 1], cy = ys[j + 1][i + 1];
+                double dx = xs[j + 1][i], dy = ys[j + 1][i];
+                // Обход вершин чередуется: правило не должно зависеть от ориентации треугольника
+                if (((i + j) & 1) == 0) {
+                    fill(frameBuffer, ax, ay, bx, by, cx, cy);
+                    fill(frameBuffer, ax, ay, dx, dy, cx, cy);
+                } else {
+                    fill(frameBuffer, ax, ay, bx, by, dx, dy);
+                    fill(frameBuffer, bx, by, dx, dy, cx, cy);
+                }
+            }
+        }
+
+        assertCoveredExactlyOnce(frameBuffer, WIDTH, HEIGHT);
+    }
+
+    @Test
+    void testFanAroundSubpixelCenter() {
+        // Веер треугольников вокруг дробного центра: общие рёбра сходятся в одной точке
+        final double centerX = 20.37;
+        final double centerY = 17.81;
+        final int segments = 13;
+        RecordingFrameBuffer frameBuffer = new RecordingFrameBuffer();
+        RecordingFrameBuffer polygon = new RecordingFrameBuffer();
+
+        double[] px = new double[segments];
+        double[] py = new double[segments];
+        for (int k = 0; k < segments; k++) {
+            double angle = 2 * Math.PI * k / segments;
+            px[k] = centerX + 15.3 * Math.cos(angle);
+            py[k] = centerY + 14.1 * Math.sin(angle);
+        }
+        for (int k = 0; k < segments; k++) {
+            int next = (k + 1) % segments;
+            fill(frameBuffer, centerX, centerY, px[k], py[k], px[next], py[next]);
+        }
+        // Тот же выпуклый многоугольник другим разбиением (веером из вершины 0)
+        for (int k = 1; k + 1 < segments; k++) {
+            fill(polygon, px[0], py[0], px[k], py[k], px[k + 1], py[k + 1]);
+        }
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertTrue(frameBuffer.writeCount(x, y) <= 1, "double write at (" + x + "," + y + ")");
+                assertEquals(polygon.writeCount(x, y), frameBuffer.writeCount(x, y), "pixel (" + x + "," + y + ")");
+            }
+        }
+    }
+
+    @Test
+    void testDegenerateAndOutOfRangeTrianglesDrawNothing() {
+        RecordingFrameBuffer frameBuffer = new RecordingFrameBuffer();
+        fill(frameBuffer, 0, 0, 10, 10, 20, 20);
+        fill(frameBuffer, 0, 0, 1e9, 0, 0, 10);
+        fill(frameBuffer, 0, 0, Double.NaN, 0, 0, 10);
+        assertEquals(0, frameBuffer.totalWrites());
+    }
+}
@@ -1,19 +1,13 @@
 package com.cgvsu.rasterization;
 
-import javafx.scene.image.PixelFormat;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
 import javafx.scene.paint.Color;
 
-import java.nio.Buffer;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.util.*;
 
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableSet;
 
-public final class RecordingPixelWriter implements PixelWriter {
+public final class RecordingFrameBuffer extends FrameBuffer {
 
     public static final class Pixel {
         public final int x;
@@ -46,6 +40,11 @@ public final class RecordingPixelWriter implements PixelWriter {
     private final Map<Long, Integer> writeCountByPixel = new HashMap<>();
     private final List<Pixel> writeOrder = new ArrayList<>();
 
+    public RecordingFrameBuffer() {
+        // Собственный массив пикселей не нужен: все записи перехватываются в setArgb
+        super(0, 0);
+    }
+
     private static long key(int x, int y) {
         return (((long) x) << 32) | (y & 0xffffffffL);
     }
@@ -83,47 +82,10 @@ public final class RecordingPixelWriter implements PixelWriter {
     }
 
     @Override
-    public void setColor(int x, int y, Color c) {
+    public void setArgb(int x, int y, int argb) {
         long k = key(x, y);
         writeOrder.add(new Pixel(x, y));
-        lastColorByPixel.put(k, c);
+        lastColorByPixel.put(k, unpackColor(argb));
         writeCountByPixel.merge(k, 1, Integer::sum);
     }
-
-    // Ниже — методы, которые Rasterization не использует.
-    // Оставляем их, чтобы компилилось, и чтобы случайное использование в тестах сразу падало.
-
-    @Override
-    public PixelFormat getPixelFormat() {
-        return null;
-    }
-
-    @Override
-    public void setArgb(int x, int y, int argb) {
-        throw new UnsupportedOperationException("Not used in these tests");
-    }
-
-    @Override
-    public <T extends Buffer> void setPixels(
-            int x, int y, int w, int h, PixelFormat<T> pixelformat, T buffer, int scanlineStride) {
-        throw new UnsupportedOperationException("Not used in these tests");
-    }
-
-    @Override
-    public void setPixels(
-            int x, int y, int w, int h, PixelFormat<ByteBuffer> pixelformat, byte[] buffer, int offset, int scanlineStride) {
-        throw new UnsupportedOperationException("Not used in these tests");
-    }
-
-    @Override
-    public void setPixels(
-            int x, int y, int w, int h, PixelFormat<IntBuffer> pixelformat, int[] buffer, int offset, int scanlineStride) {
-        throw new UnsupportedOperationException("Not used in these tests");
-    }
-
-    @Override
-    public void setPixels(
-            int dstx, int dsty, int w, int h, PixelReader reader, int srcx, int srcy) {
-        throw new UnsupportedOperationException("Not used in these tests");
-    }
 }
@@ -0,0 +1,108 @@
+package com.cgvsu.rasterization;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TriangleSetupTest {
+
+    private static final int SIZE = 96;
+
+    // Покрытие перебором всего прямоугольника: как до обхода блоками
+    private static int[] bruteForceCoverage(TriangleSetup setup) {
+        int[] coverage = new int[SIZE * SIZE];
+        long row1 = setup.e1, row2 = setup.e2, row3 = setup.e3;
+        for (int y = setup.minY; y <= setup.maxY; y++) {
+            long e1 = row1, e2 = row2, e3 = row3;
+            for (int x = setup.minX; x <= setup.maxX; x++) {
+                if ((e1 | e2 | e3) >= 0) {
+                    coverage[y * SIZE + x]++;
+                }
+                e1 += setup.e1StepX;
+                e2 += setup.e2StepX;
+                e3 += setup.e3StepX;
+            }
+            row1 += setup.e1StepY;
+            row2 += setup.e2StepY;
+            row3 += setup.e3StepY;
+        }
+        return coverage;
+    }
+
+    private static int[] blockCoverage(TriangleSetup setup, int[] tested) {
+        int[] coverage = new int[SIZE * SIZE];
+        setup.traverse((y, from, to, e1, e2, e3, covered) -> {
+            for (int x = from; x <= to; x++) {
+                boolean inside = (e1 | e2 | e3) >= 0;
+                if (covered) {
+                    assertTrue(inside, "covered block contains outside pixel (" + x + "," + y + ")");
+                } else {
+                    tested[0]++;
+                }
+                if (inside) {
+                    coverage[y * SIZE + x]++;
+                }
+                e1 += setup.e1StepX;
+                e2 += setup.e2StepX;
+                e3 += setup.e3StepX;
+            }
+        });
+        return coverage;
+    }
+
+    @Test
+    void testBlockTraversalMatchesBruteForce() {
+        Random random = new Random(11);
+        TriangleSetup setup = new TriangleSetup();
+        int drawn = 0;
+        for (int i = 0; i < 500; i++) {
+            double x1 = random.nextDouble() * 120 - 12, y1 = random.nextDouble() * 120 - 12;
+            double x2 = random.nextDouble() * 120 - 12, y2 = random.nextDouble() * 120 - 12;
+            double x3 = random.nextDouble() * 120 - 12, y3 = random.nextDouble() * 120 - 12;
+            // Область отсечения не выровнена по блокам, как у тайла с нечётным началом
+            if (!setup.setup(x1, y1, x2, y2, x3, y3, 5, 3, SIZE - 7, SIZE - 2)) {
+                continue;
+            }
+            drawn++;
+            assertArrayEquals(bruteForceCoverage(setup), blockCoverage(setup, new int[1]), "triangle " + i);
+        }
+        assertTrue(drawn > 400);
+    }
+
+    @Test
+    void testThinTriangleSkipsMostOfBoundingBox() {
+        // Длинный тонкий треугольник по диагонали: прямоугольник почти весь пустой
+        TriangleSetup setup = new TriangleSetup();
+        assertTrue(setup.setup(0, 0, 95, 93, 93, 95, 0, 0, SIZE - 1, SIZE - 1));
+
+        int[] tested = new int[1];
+        int[] coverage = blockCoverage(setup, tested);
+        int written = 0;
+        for (int value : coverage) {
+            written += value;
+        }
+        int boundingBox = (setup.maxX - setup.minX + 1) * (setup.maxY - setup.minY + 1);
+
+        assertTrue(written > 0);
+        assertTrue(tested[0] * 4 < boundingBox, "tested " + tested[0] + " of " + boundingBox);
+    }
+
+    @Test
+    void testLargeTriangleFillsInteriorBlocksWithoutTests() {
+        TriangleSetup setup = new TriangleSetup();
+        assertTrue(setup.setup(0, 0, 200, 0, 0, 200, 0, 0, SIZE - 1, SIZE - 1));
+
+        int[] tested = new int[1];
+        int[] coverage = blockCoverage(setup, tested);
+        int written = 0;
+        for (int value : coverage) {
+            written += value;
+        }
+
+        // Треугольник закрывает весь буфер: ни одного пикселя с проверкой
+        assertEquals(SIZE * SIZE, written);
+        assertEquals(0, tested[0]);
+    }
+}
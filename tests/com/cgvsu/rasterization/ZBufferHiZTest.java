@@ -0,0 +1,187 @@
+package com.cgvsu.rasterization;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZBufferHiZTest {
+
+    // Размер не кратен блоку 8x8
+    private static final int WIDTH = 83;
+    private static final int HEIGHT = 61;
+
+    // Ответ без пирамиды: все глубины прямоугольника не больше z
+    private static boolean bruteForceOccluded(ZBuffer zBuffer, int minX, int minY, int maxX, int maxY, float z) {
+        for (int y = Math.max(minY, zBuffer.getMinY()); y <= Math.min(maxY, zBuffer.getMaxY()); y++) {
+            for (int x = Math.max(minX, zBuffer.getMinX()); x <= Math.min(maxX, zBuffer.getMaxX()); x++) {
+                if (!(zBuffer.get(x, y) <= z)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Пирамида отвечает с точностью до блоков 8x8: "заслонено" — всегда верно, а для прямоугольников,
+     * выровненных по блокам, ответ совпадает с перебором.
+     */
+    private static void assertQueriesMatchBruteForce(ZBuffer zBuffer, Random random, int queries) {
+        for (int i = 0; i < queries; i++) {
+            boolean aligned = (i & 1) == 0;
+            int x0, y0, x1, y1;
+            if (aligned) {
+                x0 = random.nextInt(WIDTH / 8 + 1) * 8;
+                y0 = random.nextInt(HEIGHT / 8 + 1) * 8;
+                x1 = x0 + (random.nextInt(5) + 1) * 8 - 1;
+                y1 = y0 + (random.nextInt(5) + 1) * 8 - 1;
+            } else {
+                x0 = random.nextInt(WIDTH + 20) - 10;
+                y0 = random.nextInt(HEIGHT + 20) - 10;
+                x1 = x0 + random.nextInt(40);
+                y1 = y0 + random.nextInt(40);
+            }
+            float z = random.nextFloat();
+            boolean expected = bruteForceOccluded(zBuffer, x0, y0, x1, y1, z);
+            boolean actual = zBuffer.isOccluded(x0, y0, x1, y1, z);
+            String query = "query " + i + ": [" + x0 + "," + x1 + "] x [" + y0 + "," + y1 + "], z = " + z;
+            if (aligned) {
+                assertEquals(expected, actual, query);
+            } else if (actual) {
+                assertTrue(expected, query);
+            }
+        }
+    }
+
+    @Test
+    void testQueriesMatchBruteForceAfterWrites() {
+        Random random = new Random(3);
+        ZBuffer zBuffer = new ZBuffer(WIDTH, HEIGHT);
+        assertQueriesMatchBruteForce(zBuffer, random, 200);
+
+        for (int round = 0; round < 20; round++) {
+            // Прямоугольники глубин, постепенно приближающиеся к камере
+            int x0 = random.nextInt(WIDTH), y0 = random.nextInt(HEIGHT);
+            int x1 = Math.min(WIDTH - 1, x0 + random.nextInt(30)), y1 = Math.min(HEIGHT - 1, y0 + random.nextInt(30));
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    zBuffer.testAndSet(x, y, random.nextFloat());
+                }
+            }
+            assertQueriesMatchBruteForce(zBuffer, random, 100);
+        }
+
+        // set может и отдалить пиксель: максимум блока должен вырасти
+        zBuffer.set(40, 30, 0.999);
+        assertFalse(zBuffer.isOccluded(40, 30, 40, 30, 0.99f));
+        assertQueriesMatchBruteForce(zBuffer, random, 200);
+
+        zBuffer.clear();
+        assertFalse(zBuffer.isOccluded(0, 0, WIDTH - 1, HEIGHT - 1, 1e30f));
+        assertQueriesMatchBruteForce(zBuffer, random, 100);
+    }
+
+    @Test
+    void testFullyCoveredBufferOccludesFartherDepths() {
+        ZBuffer zBuffer = new ZBuffer(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                zBuffer.testAndSet(x, y, 0.5f);
+            }
+        }
+
+        assertTrue(zBuffer.isOccluded(0, 0, WIDTH - 1, HEIGHT - 1, 0.5f));
+        assertTrue(zBuffer.isOccluded(-100, -100, 1000, 1000, 0.7f));
+        assertFalse(zBuffer.isOccluded(10, 10, 20, 20, 0.4f));
+        // Прямоугольник вне буфера: рисовать нечего
+        assertTrue(zBuffer.isOccluded(WIDTH + 5, 0, WIDTH + 50, 10, 0.0f));
+        // NaN-глубину отбрасывать нельзя
+        assertFalse(zBuffer.isOccluded(0, 0, 10, 10, Float.NaN));
+    }
+
+    @Test
+    void testCopyToInvalidatesTargetPyramid() {
+        ZBuffer screen = new ZBuffer(WIDTH, HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                screen.testAndSet(x, y, 0.2f);
+            }
+        }
+        assertTrue(screen.isOccluded(0, 0, WIDTH - 1, HEIGHT - 1, 0.3f));
+
+        // Тайл с пустыми глубинами переписывает часть экрана
+        ZBuffer tile = new ZBuffer(16, 8, 24, 24);
+        tile.copyTo(screen);
+
+        assertFalse(screen.isOccluded(20, 10, 20, 10, 0.3f));
+        assertTrue(screen.isOccluded(0, 40, WIDTH - 1, HEIGHT - 1, 0.3f));
+        assertQueriesMatchBruteForce(screen, new Random(5), 200);
+    }
+
+    @Test
+    void testTriangleBehindQuadIsRejected() {
+        ZBuffer zBuffer = new ZBuffer(WIDTH, HEIGHT);
+        RecordingFrameBuffer frameBuffer = new RecordingFrameBuffer();
+        // Ближний квадрат на весь буфер
+        Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                0, 0, 1, 0.3, WIDTH, 0, 1, 0.3, WIDTH, HEIGHT, 1, 0.3, Color.RED);
+        Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                0, 0, 1, 0.3, WIDTH, HEIGHT, 1, 0.3, 0, HEIGHT, 1, 0.3, Color.RED);
+        int quadWrites = frameBuffer.totalWrites();
+        assertEquals(WIDTH * HEIGHT, quadWrites);
+
+        TriangleSetup setup = new TriangleSetup();
+        assertTrue(setup.setup(10, 10, 70, 15, 30, 50, zBuffer));
+        assertTrue(setup.isOccludedPerspective(zBuffer, 1, 0.6, 0.5, 0.4, 2, 1.6));
+
+        // Дальний треугольник не рисуется, ближний — рисуется
+        Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                10, 10, 1, 0.6, 70, 15, 1, 0.8, 30, 50, 1, 0.9, Color.BLUE);
+        assertEquals(quadWrites, frameBuffer.totalWrites());
+        Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                10, 10, 1, 0.6, 70, 15, 1, 0.1, 30, 50, 1, 0.9, Color.BLUE);
+        assertTrue(frameBuffer.totalWrites() > quadWrites);
+    }
+
+    @Test
+    void testRejectedTrianglesHaveNoVisiblePixels() {
+        // Отбраковка консервативна: у отброшенного треугольника ни один пиксель не прошёл бы тест глубины
+        Random random = new Random(9);
+        ZBuffer zBuffer = new ZBuffer(WIDTH, HEIGHT);
+        FrameBuffer frameBuffer = new FrameBuffer(WIDTH, HEIGHT);
+        TriangleSetup setup = new TriangleSetup();
+        int rejected = 0;
+        for (int i = 0; i < 2000; i++) {
+            double[] v = new double[12];
+            for (int k = 0; k < 3; k++) {
+                v[k * 4] = random.nextDouble() * (WIDTH + 20) - 10;
+                v[k * 4 + 1] = random.nextDouble() * (HEIGHT + 20) - 10;
+                v[k * 4 + 2] = 0.5 + random.nextDouble();
+                v[k * 4 + 3] = v[k * 4 + 2] * (0.2 + random.nextDouble() * 0.8);
+            }
+            if (!setup.setup(v[0], v[1], v[4], v[5], v[8], v[9], zBuffer)) {
+                continue;
+            }
+            if (setup.isOccludedPerspective(zBuffer, v[2], v[3], v[6], v[7], v[10], v[11])) {
+                rejected++;
+                final long step1 = setup.e1StepX, step2 = setup.e2StepX, step3 = setup.e3StepX;
+                setup.traverse((y, from, to, e1, e2, e3, covered) -> {
+                    for (int x = from; x <= to; x++, e1 += step1, e2 += step2, e3 += step3) {
+                        if (covered || (e1 | e2 | e3) >= 0) {
+                            double l1 = setup.lambda1(e1), l2 = setup.lambda2(e2), l3 = setup.lambda3(e3);
+                            double invW = l1 * v[2] + l2 * v[6] + l3 * v[10];
+                            double z = (l1 * v[3] + l2 * v[7] + l3 * v[11]) / invW;
+                            assertFalse(zBuffer.test(x, y, (float) z), "visible pixel (" + x + "," + y + ")");
+                        }
+                    }
+                });
+            }
+            Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                    v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9], v[10], v[11], Color.GRAY);
+        }
+        assertTrue(rejected > 100, "rejected " + rejected);
+    }
+}
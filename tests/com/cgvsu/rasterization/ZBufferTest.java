@@ -31,7 +31,7 @@ class ZBufferTest {
         zBuffer.set(15, 25, -1.2);
 
         assertEquals(0.5, zBuffer.get(5, 10), 1e-10);
-        assertEquals(-1.2, zBuffer.get(15, 25), 1e-10);
+        assertEquals(-1.2, zBuffer.get(15, 25), 1e-6);
 
         assertEquals(Double.POSITIVE_INFINITY, zBuffer.get(0, 0));
     }
@@ -52,4 +52,34 @@ class ZBufferTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    void testTestAndSetWritesOnlyCloserDepth() {
+        ZBuffer zBuffer = new ZBuffer(4, 4);
+
+        assertTrue(zBuffer.testAndSet(1, 2, 0.5f));
+        assertFalse(zBuffer.testAndSet(1, 2, 0.7f));
+        assertEquals(0.5, zBuffer.get(1, 2), 1e-6);
+
+        assertTrue(zBuffer.testAndSet(1, 2, 0.25f));
+        assertEquals(0.25, zBuffer.get(1, 2), 1e-6);
+
+        assertTrue(zBuffer.test(1, 2, 0.1f));
+        assertEquals(0.25, zBuffer.get(1, 2), 1e-6);
+    }
+
+    @Test
+    void testResize() {
+        ZBuffer zBuffer = new ZBuffer(5, 5);
+        zBuffer.set(4, 4, 0.3);
+
+        zBuffer.resize(8, 3);
+
+        assertEquals(8, zBuffer.getWidth());
+        assertEquals(3, zBuffer.getHeight());
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 8; x++) {
+                assertEquals(Double.POSITIVE_INFINITY, zBuffer.get(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.BackgroundRenderer;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.FrameSnapshot;
+import com.cgvsu.render_engine.RenderEngine;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundRendererTest {
+
+    private static final int WIDTH = 120;
+    private static final int HEIGHT = 90;
+
+    private static final String QUAD_OBJ = String.join("\n",
+            "v -1 -1 0",
+            "v 1 -1 0",
+            "v 1 1 0",
+            "v -1 1 0",
+            "f 1 3 2",
+            "f 1 4 3",
+            "");
+
+    private Scene scene;
+    private SceneObject object;
+    private RenderSettings settings;
+    private BackgroundRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        scene = new Scene();
+        scene.addCamera(new Camera(new Vector3(0, 0, 5), new Vector3(0, 0, 0),
+                1.0f, (float) WIDTH / HEIGHT, 0.01f, 100), true);
+        Model model = ObjReader.read(QUAD_OBJ);
+        object = new SceneObject("quad", model, null);
+        scene.addObject(object);
+        settings = new RenderSettings();
+        settings.setDrawWireframe(true);
+
+        RenderEngine engine = new RenderEngine();
+        engine.setBackgroundColor(Color.BLACK);
+        renderer = new BackgroundRenderer(engine);
+    }
+
+    @AfterEach
+    void tearDown() {
+        renderer.shutdown();
+    }
+
+    private FrameSnapshot capture() {
+        return FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null);
+    }
+
+    private static int[] renderSerial(FrameSnapshot snapshot) {
+        RenderEngine engine = new RenderEngine();
+        engine.setBackgroundColor(Color.BLACK);
+        FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        engine.render(snapshot, frameBuffer);
+        return frameBuffer.getPixels().clone();
+    }
+
+    private BackgroundRenderer.Frame awaitFrame() throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (!renderer.isBusy()) {
+                BackgroundRenderer.Frame frame = renderer.takeFrame();
+                if (frame != null) {
+                    return frame;
+                }
+            }
+            Thread.sleep(1);
+        }
+        fail("frame was not rendered in time");
+        return null;
+    }
+
+    @Test
+    void testBackgroundFrameMatchesSerialRender() throws InterruptedException {
+        FrameSnapshot snapshot = capture();
+        renderer.submit(snapshot);
+
+        BackgroundRenderer.Frame frame = awaitFrame();
+        assertEquals(WIDTH, frame.getFrameBuffer().getWidth());
+        assertArrayEquals(renderSerial(snapshot), frame.getFrameBuffer().getPixels());
+        assertNotEquals(FrameBuffer.packColor(Color.BLACK), frame.getFrameBuffer().getArgb(WIDTH / 2, HEIGHT / 2));
+        assertNull(renderer.takeFrame());
+    }
+
+    @Test
+    void testSnapshotIsNotAffectedByLaterChanges() throws InterruptedException {
+        FrameSnapshot snapshot = capture();
+        int[] expected = renderSerial(snapshot);
+
+        // Сцена меняется после снимка, но до отрисовки
+        object.getTransform().translate(0.7f, 0, 0);
+        object.setModelColor(Color.RED);
+        settings.setDrawWireframe(false);
+
+        renderer.submit(snapshot);
+        assertArrayEquals(expected, awaitFrame().getFrameBuffer().getPixels());
+    }
+
+    @Test
+    void testLatestSnapshotWins() throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            object.getTransform().translate(0.1f, 0, 0);
+            renderer.submit(capture());
+        }
+        FrameSnapshot last = capture();
+        renderer.submit(last);
+
+        assertArrayEquals(renderSerial(last), awaitFrame().getFrameBuffer().getPixels());
+    }
+}
@@ -0,0 +1,98 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.Model;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.ChangeTracker;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.Transform;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeTrackerTest {
+
+    private static void assertMarksChanged(ChangeTracker tracker, Runnable mutation) {
+        long before = tracker.getVersion();
+        mutation.run();
+        assertNotEquals(before, tracker.getVersion());
+    }
+
+    private static void assertDoesNotMarkChanged(ChangeTracker tracker, Runnable mutation) {
+        long before = tracker.getVersion();
+        mutation.run();
+        assertEquals(before, tracker.getVersion());
+    }
+
+    @Test
+    void testTransformMutationsMarkChanged() {
+        ChangeTracker tracker = new ChangeTracker();
+        Transform transform = new Transform();
+        transform.setChangeTracker(tracker);
+        assertMarksChanged(tracker, () -> transform.translate(1, 0, 0));
+        assertMarksChanged(tracker, () -> transform.rotate(0, 1, 0));
+        assertMarksChanged(tracker, () -> transform.scale(2));
+        assertMarksChanged(tracker, () -> transform.setTranslation(new Vector3(1, 2, 3)));
+        assertMarksChanged(tracker, transform::reset);
+    }
+
+    @Test
+    void testSceneAndObjectMutationsMarkChanged() {
+        Scene scene = new Scene();
+        ChangeTracker tracker = scene.getChangeTracker();
+        SceneObject object = new SceneObject("cube", new Model(), null);
+        Camera camera = new Camera(new Vector3(0, 0, 10), new Vector3(0, 0, 0), 1.0f, 1, 0.01f, 100);
+
+        assertMarksChanged(tracker, () -> scene.addObject(object));
+        assertMarksChanged(tracker, () -> scene.addCamera(camera, true));
+        assertMarksChanged(tracker, () -> object.setVisible(false));
+        assertMarksChanged(tracker, () -> object.getTransform().translate(0, 1, 0));
+        assertMarksChanged(tracker, () -> object.setTransform(new Transform()));
+        assertMarksChanged(tracker, () -> object.getTransform().scale(2));
+        assertMarksChanged(tracker, () -> object.applyRenderSettings(new RenderSettings()));
+        assertMarksChanged(tracker, () -> object.getRenderSettings().setUseLighting(true));
+        assertMarksChanged(tracker, () -> camera.movePosition(new Vector3(0, 0, -1)));
+        assertMarksChanged(tracker, () -> scene.removeObject(object));
+
+        // Удалённый объект сцену больше не трогает
+        assertDoesNotMarkChanged(tracker, () -> object.getTransform().translate(1, 0, 0));
+    }
+
+    @Test
+    void testSettingsMutationsMarkChanged() {
+        ChangeTracker tracker = new ChangeTracker();
+        RenderSettings settings = new RenderSettings();
+        settings.setChangeTracker(tracker);
+        assertMarksChanged(tracker, () -> settings.setDrawWireframe(true));
+        assertMarksChanged(tracker, () -> settings.setUseLighting(true));
+    }
+
+    @Test
+    void testScenesTrackChangesIndependently() {
+        // Два окна просмотра: изменение в одном не должно перерисовывать другое
+        Scene first = new Scene();
+        Scene second = new Scene(new ChangeTracker());
+        SceneObject object = new SceneObject("cube", new Model(), null);
+        first.addObject(object);
+        second.addObject(new SceneObject("other", new Model(), null));
+
+        assertDoesNotMarkChanged(second.getChangeTracker(), () -> {
+            object.getTransform().translate(1, 0, 0);
+            first.addCamera(new Camera(new Vector3(0, 0, 10), new Vector3(0, 0, 0), 1.0f, 1, 0.01f, 100), true);
+        });
+        assertMarksChanged(first.getChangeTracker(), () -> object.setVisible(false));
+    }
+
+    @Test
+    void testUnchangedAspectRatioDoesNotMarkChanged() {
+        Scene scene = new Scene();
+        Camera camera = new Camera(new Vector3(0, 0, 10), new Vector3(0, 0, 0), 1.0f, 1.5f, 0.01f, 100);
+        scene.addCamera(camera, true);
+        ChangeTracker tracker = scene.getChangeTracker();
+
+        assertDoesNotMarkChanged(tracker, () -> camera.setAspectRatio(1.5f));
+        assertMarksChanged(tracker, () -> camera.setAspectRatio(2.0f));
+    }
+}
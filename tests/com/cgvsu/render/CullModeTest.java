@@ -0,0 +1,141 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Vector3;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.CullingStats;
+import com.cgvsu.render_engine.FrameSnapshot;
+import com.cgvsu.render_engine.RenderEngine;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CullModeTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    // Левая половина экрана — передний треугольник, правая — задний (камера смотрит вдоль -z)
+    private static final String TWO_SIDED_OBJ = String.join("\n",
+            "v 0 -1 0",
+            "v 0 1 0",
+            "v 1 0 0",
+            "v -1 0 0",
+            "vn 0 0 1",
+            "vn 0 0 -1",
+            "f 1//1 2//1 3//1",
+            "f 1//2 2//2 4//2",
+            "");
+
+    private Scene scene;
+    private SceneObject object;
+    private RenderSettings settings;
+    private RenderEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        scene = new Scene();
+        scene.addCamera(new Camera(new Vector3(0, 0, 5), new Vector3(0, 0, 0),
+                1.0f, (float) WIDTH / HEIGHT, 0.01f, 100), true);
+        object = new SceneObject("triangles", ObjReader.read(TWO_SIDED_OBJ), null);
+        scene.addObject(object);
+        settings = new RenderSettings();
+        settings.setUseLighting(true);
+        engine = new RenderEngine();
+        engine.setBackgroundColor(Color.BLACK);
+    }
+
+    private FrameBuffer render() {
+        FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        engine.render(FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null), frameBuffer);
+        return frameBuffer;
+    }
+
+    @Test
+    void testCullModeSelectsVisibleSide() {
+        // Мир +x на экране слева: треугольник 0 — слева, треугольник 1 — справа
+        int leftX = 70;
+        int rightX = 90;
+        int y = HEIGHT / 2;
+
+        FrameBuffer back = render();
+        assertEquals(0, back.getPolygonId(leftX, y));
+        assertEquals(FrameBuffer.NO_ID, back.getPolygonId(rightX, y));
+
+        settings.setCullMode(RenderSettings.CullMode.FRONT);
+        FrameBuffer front = render();
+        assertEquals(FrameBuffer.NO_ID, front.getPolygonId(leftX, y));
+        assertEquals(1, front.getPolygonId(rightX, y));
+
+        settings.setCullMode(RenderSettings.CullMode.NONE);
+        FrameBuffer none = render();
+        assertEquals(0, none.getPolygonId(leftX, y));
+        assertEquals(1, none.getPolygonId(rightX, y));
+
+        // Каркас подчиняется тому же режиму: рёбра отброшенного треугольника не рисуются
+        settings.setDrawWireframe(true);
+        settings.setCullMode(RenderSettings.CullMode.FRONT);
+        FrameBuffer wireframe = render();
+        int background = FrameBuffer.packColor(Color.BLACK);
+        for (int x = 0; x < 75; x++) {
+            for (int row = 0; row < HEIGHT; row++) {
+                assertEquals(background, wireframe.getArgb(x, row), "(" + x + "," + row + ")");
+            }
+        }
+    }
+
+    @Test
+    void testStatsCountCulledTrianglesAndTransformedNormals() {
+        SceneObject offscreen = new SceneObject("offscreen", ObjReader.read(TWO_SIDED_OBJ), null);
+        offscreen.getTransform().setTranslation(new Vector3(100, 0, 0));
+        scene.addObject(offscreen);
+
+        render();
+        CullingStats stats = engine.getCullingStats();
+        assertEquals(2, stats.getObjects());
+        assertEquals(1, stats.getObjectsOutsideFrustum());
+        assertEquals(2, stats.getTriangles());
+        assertEquals(1, stats.getTrianglesBackCulled());
+        assertEquals(0, stats.getTrianglesFrontCulled());
+        assertEquals(1, stats.getTrianglesDrawn());
+        // Нормаль отброшенного треугольника не преобразуется
+        assertEquals(2, stats.getNormals());
+        assertEquals(1, stats.getNormalsTransformed());
+
+        settings.setCullMode(RenderSettings.CullMode.FRONT);
+        render();
+        assertSame(stats, engine.getCullingStats());
+        assertEquals(0, stats.getTrianglesBackCulled());
+        assertEquals(1, stats.getTrianglesFrontCulled());
+        assertEquals(1, stats.getNormalsTransformed());
+
+        settings.setCullMode(RenderSettings.CullMode.NONE);
+        render();
+        assertEquals(2, stats.getTrianglesDrawn());
+        assertEquals(2, stats.getNormalsTransformed());
+    }
+
+    @Test
+    void testTriangleCrossingNearPlaneIsClippedAndDrawn() {
+        // Третья вершина за камерой: объект нельзя проверить на заслонение целиком, но рисовать его нужно
+        scene.removeObject(object);
+        scene.addObject(new SceneObject("near", ObjReader.read(String.join("\n",
+                "v -1 -1 0",
+                "v 1 -1 0",
+                "v 0 -0.5 10",
+                "f 1 2 3",
+                "")), null));
+
+        FrameBuffer frameBuffer = render();
+        CullingStats stats = engine.getCullingStats();
+        assertEquals(1, stats.getTrianglesClipped());
+        assertTrue(stats.getTrianglesDrawn() > 0);
+        assertNotEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(WIDTH / 2, HEIGHT - 5));
+    }
+}
@@ -0,0 +1,86 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.BatchTransform;
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.BoundingVolume;
+import com.cgvsu.render_engine.Frustum;
+import com.cgvsu.render_engine.GraphicConveyor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrustumTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    // Камера в начале координат смотрит вдоль +z
+    private static Matrix4 viewProjection() {
+        Matrix4 view = GraphicConveyor.lookAt(new Vector3(0, 0, 0), new Vector3(0, 0, 1));
+        Matrix4 projection = GraphicConveyor.perspective(1.0f, (float) WIDTH / HEIGHT, 0.1f, 100f);
+        return projection.multiply(view);
+    }
+
+    private static BoundingVolume box(float x, float y, float z, float halfSize) {
+        return BoundingVolume.fromPositions(new float[]{
+                x - halfSize, y - halfSize, z - halfSize,
+                x + halfSize, y + halfSize, z + halfSize}, 2);
+    }
+
+    @Test
+    void testBoxesAroundTheCamera() {
+        Frustum frustum = new Frustum();
+        frustum.set(viewProjection(), WIDTH, HEIGHT);
+
+        assertTrue(frustum.intersects(box(0, 0, 10, 1)));
+        assertFalse(frustum.intersects(box(0, 0, -10, 1)), "behind the camera");
+        assertFalse(frustum.intersects(box(-50, 0, 10, 1)), "left of the screen");
+        assertFalse(frustum.intersects(box(0, 50, 10, 1)), "above the screen");
+        // Пересекает ближнюю плоскость: часть за ней видна
+        assertTrue(frustum.intersects(box(0, 0, 0, 1)));
+        // Между камерой и ближней плоскостью: отсекается целиком
+        assertFalse(frustum.intersects(box(0, 0, 0.05f, 0.01f)), "in front of the near plane");
+        // Дальше дальней плоскости: растеризатор такие объекты рисует, отбрасывать нельзя
+        assertTrue(frustum.intersects(box(0, 0, 500, 1)));
+        assertFalse(frustum.intersects(BoundingVolume.fromPositions(new float[0], 0)));
+    }
+
+    @Test
+    void testRejectedBoxesHaveNoVisiblePoints() {
+        // Отбраковка консервативна: у отброшенного объёма ни одна точка не попадает на экран за ближней плоскостью
+        Random random = new Random(17);
+        Matrix4 viewProjection = viewProjection();
+        Frustum frustum = new Frustum();
+        frustum.set(viewProjection, WIDTH, HEIGHT);
+        float[] points = new float[64 * 3];
+        float[] screen = new float[64 * 3];
+        int rejected = 0;
+        for (int i = 0; i < 500; i++) {
+            BoundingVolume bounds = box((float) random.nextGaussian() * 20, (float) random.nextGaussian() * 20,
+                    (float) random.nextGaussian() * 20, 0.5f + random.nextFloat() * 5);
+            if (frustum.intersects(bounds)) {
+                continue;
+            }
+            rejected++;
+            for (int k = 0; k < points.length; k += 3) {
+                points[k] = bounds.minX + random.nextFloat() * (bounds.maxX - bounds.minX);
+                points[k + 1] = bounds.minY + random.nextFloat() * (bounds.maxY - bounds.minY);
+                points[k + 2] = bounds.minZ + random.nextFloat() * (bounds.maxZ - bounds.minZ);
+            }
+            BatchTransform.projectToScreen(viewProjection, points, screen, 64, WIDTH, HEIGHT);
+            for (int k = 0; k < points.length; k += 3) {
+                float z = viewProjection.get(2, 0) * points[k] + viewProjection.get(2, 1) * points[k + 1]
+                        + viewProjection.get(2, 2) * points[k + 2] + viewProjection.get(2, 3);
+                float w = viewProjection.get(3, 0) * points[k] + viewProjection.get(3, 1) * points[k + 1]
+                        + viewProjection.get(3, 2) * points[k + 2] + viewProjection.get(3, 3);
+                boolean onScreen = z + w >= 0 && w > 0 && screen[k] >= 0 && screen[k] <= WIDTH
+                        && screen[k + 1] >= 0 && screen[k + 1] <= HEIGHT;
+                assertFalse(onScreen, "box " + i + " point " + k / 3);
+            }
+        }
+        assertTrue(rejected > 100, "rejected " + rejected);
+    }
+}
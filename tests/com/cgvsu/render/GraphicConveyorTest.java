@@ -84,9 +84,8 @@ class GraphicConveyorTest {
     @Test
     void testMultiplyMatrix4ByVector3() {
         Matrix4 matrix = Matrix4.identity();
-        float[][] values = matrix.m;
-        values[0][3] = 1.0f; // Сдвиг по X
-        values[1][3] = 2.0f; // Сдвиг по Y
+        matrix.set(0, 3, 1.0f); // Сдвиг по X
+        matrix.set(1, 3, 2.0f); // Сдвиг по Y
 
         Vector3 vertex = new Vector3(1, 1, 1);
         Vector3 result = multiplyMatrix4ByVector3(matrix, vertex);
@@ -99,8 +98,7 @@ class GraphicConveyorTest {
     @Test
     void testMultiplyMatrix4ByVector3WithDivision() {
         Matrix4 matrix = Matrix4.identity();
-        float[][] values = matrix.m;
-        values[3][3] = 2.0f; // w = 2, должно делиться
+        matrix.set(3, 3, 2.0f); // w = 2, должно делиться
 
         Vector3 vertex = new Vector3(2, 4, 6);
         Vector3 result = multiplyMatrix4ByVector3(matrix, vertex);
@@ -0,0 +1,181 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.Model;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.FrameSnapshot;
+import com.cgvsu.render_engine.Picking;
+import com.cgvsu.render_engine.RenderEngine;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBufferTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    private static final String QUAD_OBJ = String.join("\n",
+            "v -1 -1 0",
+            "v 1 -1 0",
+            "v 1 1 0",
+            "v -1 1 0",
+            "f 1 3 2",
+            "f 1 4 3",
+            "");
+
+    @Test
+    void testFrameBufferStoresIdsOnlyForCurrentPrimitive() {
+        FrameBuffer frameBuffer = new FrameBuffer(4, 3);
+        frameBuffer.setArgb(0, 0, 1);
+        assertFalse(frameBuffer.hasIds());
+        assertEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(0, 0));
+
+        frameBuffer.setIdsEnabled(true);
+        frameBuffer.setCurrentIds(2, 7);
+        frameBuffer.setArgb(1, 1, 5);
+        // Без текущих номеров (каркас, подсветка) ID-буфер не меняется
+        frameBuffer.setCurrentIds(FrameBuffer.NO_ID, FrameBuffer.NO_ID);
+        frameBuffer.setArgb(1, 1, 6);
+        frameBuffer.setArgb(2, 1, 6);
+        assertEquals(6, frameBuffer.getArgb(1, 1));
+        assertEquals(2, frameBuffer.getObjectId(1, 1));
+        assertEquals(7, frameBuffer.getPolygonId(1, 1));
+        assertEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(2, 1));
+        assertEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(-1, 1));
+        assertEquals(FrameBuffer.NO_ID, frameBuffer.getPolygonId(4, 1));
+
+        // Тайл переносит номера в свою область большого буфера
+        FrameBuffer tile = new FrameBuffer(2, 1, 2, 2);
+        tile.setIdsEnabled(true);
+        tile.setCurrentIds(3, 1);
+        tile.setArgb(3, 2, 9);
+        tile.copyTo(frameBuffer);
+        assertEquals(3, frameBuffer.getObjectId(3, 2));
+        assertEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(2, 1));
+
+        List<int[]> visited = new ArrayList<>();
+        frameBuffer.visitIds(-10, -10, 10, 10, (x, y, objectId, polygonId) -> visited.add(new int[]{x, y, objectId, polygonId}));
+        assertEquals(2, visited.size());
+        assertArrayEquals(new int[]{1, 1, 2, 7}, visited.get(0));
+        assertArrayEquals(new int[]{3, 2, 3, 1}, visited.get(1));
+
+        frameBuffer.clear(0);
+        assertEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(1, 1));
+        frameBuffer.setIdsEnabled(false);
+        assertFalse(frameBuffer.hasIds());
+    }
+
+    private static Scene scene(SceneObject... objects) {
+        Scene scene = new Scene();
+        scene.addCamera(new Camera(new Vector3(0, 0, 5), new Vector3(0, 0, 0),
+                1.0f, (float) WIDTH / HEIGHT, 0.01f, 100), true);
+        for (SceneObject object : objects) {
+            scene.addObject(object);
+        }
+        return scene;
+    }
+
+    private static SceneObject quad(String name, float x, float y, float z, float scale) {
+        SceneObject object = new SceneObject(name, ObjReader.read(QUAD_OBJ), null);
+        object.getTransform().setTranslation(new Vector3(x, y, z));
+        object.getTransform().setScale(new Vector3(scale, scale, scale));
+        return object;
+    }
+
+    private static FrameBuffer render(FrameSnapshot snapshot) {
+        RenderEngine engine = new RenderEngine();
+        engine.setBackgroundColor(Color.BLACK);
+        FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        engine.render(snapshot, frameBuffer);
+        return frameBuffer;
+    }
+
+    @Test
+    void testIdsMatchNearestRayHits() {
+        SceneObject far = quad("far", 0, 0, -2, 2);
+        SceneObject near = quad("near", 0.5f, 0.2f, 1, 0.6f);
+        Scene scene = scene(far, near);
+        RenderSettings settings = new RenderSettings();
+
+        FrameSnapshot snapshot = FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null);
+        FrameBuffer frameBuffer = render(snapshot);
+        assertTrue(frameBuffer.hasIds());
+
+        Camera camera = scene.getActiveCamera();
+        Matrix4 viewProjection = camera.getProjectionMatrix().multiply(camera.getViewMatrix());
+        int compared = 0, mismatches = 0;
+        BitSet seenObjects = new BitSet();
+        for (int y = 0; y < HEIGHT; y += 3) {
+            for (int x = 0; x < WIDTH; x += 3) {
+                Picking.Hit hit = Picking.pick(scene.getObjects(), viewProjection, WIDTH, HEIGHT, x, y);
+                SceneObject object = snapshot.resolveObjectId(frameBuffer.getObjectId(x, y));
+                int polygon = frameBuffer.getPolygonId(x, y);
+                compared++;
+                if (hit == null) {
+                    if (object != null) mismatches++;
+                } else if (hit.getObject() != object || hit.getPolygon() != polygon) {
+                    mismatches++;
+                } else {
+                    seenObjects.set(frameBuffer.getObjectId(x, y));
+                }
+            }
+        }
+        // Расхождения возможны только в пикселях ровно на рёбрах
+        assertTrue(mismatches * 50 < compared, mismatches + " of " + compared);
+        assertEquals(2, seenObjects.cardinality());
+    }
+
+    @Test
+    void testTiledAndWireframeRenderingKeepIds() {
+        SceneObject far = quad("far", 0, 0, -2, 2);
+        SceneObject near = quad("near", 0.5f, 0.2f, 1, 0.6f);
+        Scene scene = scene(far, near);
+        RenderSettings settings = new RenderSettings();
+        FrameBuffer serial = render(FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null));
+
+        settings.setUseTiledRasterization(true);
+        settings.setDrawWireframe(true);
+        FrameBuffer tiled = render(FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null));
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(serial.getObjectId(x, y), tiled.getObjectId(x, y), "(" + x + "," + y + ")");
+                assertEquals(serial.getPolygonId(x, y), tiled.getPolygonId(x, y), "(" + x + "," + y + ")");
+            }
+        }
+
+        settings.setWriteIdBuffer(false);
+        assertFalse(render(FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null)).hasIds());
+    }
+
+    @Test
+    void testEditedObjectIsNotResolved() {
+        SceneObject object = quad("quad", 0, 0, 0, 1);
+        Scene scene = scene(object);
+        FrameSnapshot snapshot = FrameSnapshot.capture(scene, null, new RenderSettings(), WIDTH, HEIGHT, null);
+        FrameBuffer frameBuffer = render(snapshot);
+
+        int objectId = frameBuffer.getObjectId(WIDTH / 2, HEIGHT / 2);
+        assertSame(object, snapshot.resolveObjectId(objectId));
+        BitSet polygons = new BitSet();
+        frameBuffer.visitIds(0, 0, WIDTH - 1, HEIGHT - 1, (x, y, id, polygon) -> polygons.set(polygon));
+        assertEquals(2, polygons.cardinality());
+
+        // После правки сетки номера полигонов кадра устарели
+        Model model = object.getModel();
+        model.polygons.remove(1);
+        assertNull(snapshot.resolveObjectId(objectId));
+        assertNull(snapshot.resolveObjectId(FrameBuffer.NO_ID));
+    }
+}
@@ -0,0 +1,114 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PackedMesh;
+import com.cgvsu.render_engine.GraphicConveyor;
+import com.cgvsu.render_engine.Picking;
+import com.cgvsu.render_engine.scene.SceneObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PickingTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    // Камера в начале координат смотрит вдоль +z
+    private static Matrix4 viewProjection() {
+        Matrix4 view = GraphicConveyor.lookAt(new Vector3(0, 0, 0), new Vector3(0, 0, 1));
+        Matrix4 projection = GraphicConveyor.perspective(1.0f, (float) WIDTH / HEIGHT, 0.1f, 100f);
+        return projection.multiply(view);
+    }
+
+    // Квадрат 2x2 из двух треугольников в плоскости z = 0
+    private static SceneObject square(String name, float x, float y, float z) {
+        PackedMesh mesh = new PackedMesh.Builder()
+                .addVertex(-1, -1, 0).addVertex(1, -1, 0).addVertex(1, 1, 0).addVertex(-1, 1, 0)
+                .addCorner(0, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX)
+                .addCorner(1, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX)
+                .addCorner(2, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX)
+                .endPolygon()
+                .addCorner(0, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX)
+                .addCorner(2, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX)
+                .addCorner(3, PackedMesh.NO_INDEX, PackedMesh.NO_INDEX)
+                .endPolygon()
+                .build();
+        Model model = mesh.toModel();
+        SceneObject object = new SceneObject(name, model, null);
+        object.getTransform().setTranslation(new Vector3(x, y, z));
+        return object;
+    }
+
+    @Test
+    void testNearestObjectIsPicked() {
+        SceneObject far = square("far", 0, 0, 10);
+        SceneObject near = square("near", 0, 0, 5);
+        List<SceneObject> objects = List.of(far, near);
+        Matrix4 viewProjection = viewProjection();
+
+        Picking.Hit hit = Picking.pick(objects, viewProjection, WIDTH, HEIGHT, WIDTH / 2.0, HEIGHT / 2.0);
+        assertNotNull(hit);
+        assertSame(near, hit.getObject());
+
+        // Правее центра и ниже диагонали — первый треугольник ближнего квадрата
+        hit = Picking.pick(objects, viewProjection, WIDTH, HEIGHT, WIDTH / 2.0 + 20, HEIGHT / 2.0 + 10);
+        assertNotNull(hit);
+        assertSame(near, hit.getObject());
+        assertEquals(0, hit.getPolygon());
+        hit = Picking.pick(objects, viewProjection, WIDTH, HEIGHT, WIDTH / 2.0 - 20, HEIGHT / 2.0 - 10);
+        assertEquals(1, hit.getPolygon());
+
+        // Скрытый объект не выбирается: под ним дальний
+        near.setVisible(false);
+        hit = Picking.pick(objects, viewProjection, WIDTH, HEIGHT, WIDTH / 2.0, HEIGHT / 2.0);
+        assertSame(far, hit.getObject());
+        near.setVisible(true);
+
+        // Мимо обоих квадратов
+        assertNull(Picking.pick(objects, viewProjection, WIDTH, HEIGHT, 5, 5));
+    }
+
+    @Test
+    void testHitsFollowTransformAndIgnoreObjectsBehindCamera() {
+        SceneObject shifted = square("shifted", 3, 0, 10);
+        SceneObject behind = square("behind", 0, 0, -5);
+        List<SceneObject> objects = List.of(shifted, behind);
+        Matrix4 viewProjection = viewProjection();
+
+        assertNull(Picking.pick(objects, viewProjection, WIDTH, HEIGHT, WIDTH / 2.0, HEIGHT / 2.0));
+
+        // Центр сдвинутого квадрата на экране
+        float[] center = {3, 0, 10};
+        float[] screen = new float[3];
+        viewProjection.transformPointProjective(center, 0, screen, 0);
+        double x = (screen[0] + 1) * WIDTH * 0.5;
+        double y = (1 - screen[1]) * HEIGHT * 0.5;
+        Picking.Hit hit = Picking.pick(objects, viewProjection, WIDTH, HEIGHT, x, y);
+        assertNotNull(hit);
+        assertSame(shifted, hit.getObject());
+    }
+
+    @Test
+    void testPickIfReadyDoesNotBuildBvhInCaller() throws InterruptedException {
+        SceneObject near = square("near", 0, 0, 5);
+        List<SceneObject> objects = List.of(near);
+        PackedMesh mesh = near.getModel().getPackedMesh();
+        assertNull(mesh.getBvhIfReady());
+
+        // Пока BVH не готова, ответа нет; построение уходит в фон
+        assertNull(Picking.pickIfReady(objects, viewProjection(), WIDTH, HEIGHT, WIDTH / 2.0, HEIGHT / 2.0));
+        for (int i = 0; i < 500 && mesh.getBvhIfReady() == null; i++) {
+            Thread.sleep(10);
+        }
+        assertNotNull(mesh.getBvhIfReady());
+        Picking.Hit hit = Picking.pickIfReady(objects, viewProjection(), WIDTH, HEIGHT, WIDTH / 2.0, HEIGHT / 2.0);
+        assertNotNull(hit);
+        assertSame(near, hit.getObject());
+        assertSame(mesh.getBvhIfReady(), mesh.getBvh());
+    }
+}
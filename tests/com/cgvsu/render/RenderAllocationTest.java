@@ -0,0 +1,109 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.ModelPreparationUtils;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.FrameSnapshot;
+import com.cgvsu.render_engine.RenderEngine;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RenderAllocationTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int GRID = 64;
+
+    private Scene scene;
+    private RenderSettings settings;
+
+    // Сетка GRID x GRID квадратов с нормалями перед камерой: 2 * GRID * GRID треугольников
+    private static String grid() {
+        StringBuilder obj = new StringBuilder("vn 0 0 1\n");
+        for (int y = 0; y <= GRID; y++) {
+            for (int x = 0; x <= GRID; x++) {
+                obj.append("v ").append(2.0 * x / GRID - 1).append(' ').append(2.0 * y / GRID - 1).append(" 0\n");
+            }
+        }
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                int a = y * (GRID + 1) + x + 1;
+                int b = a + 1;
+                int c = a + GRID + 1;
+                int d = c + 1;
+                obj.append("f ").append(a).append("//1 ").append(b).append("//1 ").append(d).append("//1 ")
+                        .append(c).append("//1\n");
+            }
+        }
+        return obj.toString();
+    }
+
+    @BeforeEach
+    void setUp() {
+        scene = new Scene();
+        scene.addCamera(new Camera(new Vector3(0, 0, 3), new Vector3(0, 0, 0),
+                1.0f, (float) WIDTH / HEIGHT, 0.01f, 100), true);
+        scene.addObject(new SceneObject("grid", ModelPreparationUtils.prepare(ObjReader.read(grid())), null));
+        settings = new RenderSettings();
+        settings.setUseLighting(true);
+        settings.setCullMode(RenderSettings.CullMode.NONE);
+    }
+
+    // Байты, выделенные текущим потоком за кадр (после прогрева)
+    private long allocatedPerFrame(RenderEngine engine, FrameSnapshot snapshot, FrameBuffer frameBuffer) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Нет счётчика выделенной памяти");
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled(),
+                "Нет счётчика выделенной памяти");
+        long threadId = Thread.currentThread().getId();
+
+        long minimum = Long.MAX_VALUE;
+        for (int frame = 0; frame < 5; frame++) {
+            long before = allocation.getThreadAllocatedBytes(threadId);
+            engine.render(snapshot, frameBuffer);
+            minimum = Math.min(minimum, allocation.getThreadAllocatedBytes(threadId) - before);
+        }
+        return minimum;
+    }
+
+    @Test
+    void testSerialFrameDoesNotAllocatePerTriangle() {
+        RenderEngine engine = new RenderEngine();
+        FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        FrameSnapshot snapshot = FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null);
+
+        long allocated = allocatedPerFrame(engine, snapshot, frameBuffer);
+
+        int drawn = engine.getCullingStats().getTrianglesDrawn();
+        assertEquals(2 * GRID * GRID, drawn);
+        // Раньше на треугольник приходились три вершины и команда (сотни байт)
+        assertTrue(allocated < 16 * 1024, allocated + " bytes for " + drawn + " triangles");
+    }
+
+    @Test
+    void testTiledFrameReusesCommandBuffer() {
+        settings.setUseTiledRasterization(true);
+        RenderEngine engine = new RenderEngine();
+        FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        FrameSnapshot snapshot = FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, null);
+
+        long allocated = allocatedPerFrame(engine, snapshot, frameBuffer);
+
+        int drawn = engine.getCullingStats().getTrianglesDrawn();
+        assertEquals(2 * GRID * GRID, drawn);
+        // Раньше каждый треугольник становился командой с копией вершин на весь кадр
+        assertTrue(allocated < 16 * 1024, allocated + " bytes for " + drawn + " triangles");
+    }
+}
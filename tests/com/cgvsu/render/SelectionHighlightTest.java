@@ -0,0 +1,120 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Vector3;
+import com.cgvsu.model.PolygonSelection;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.FrameSnapshot;
+import com.cgvsu.render_engine.RenderEngine;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelectionHighlightTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    private static final String QUAD_OBJ = String.join("\n",
+            "v -1 -1 0",
+            "v 1 -1 0",
+            "v 1 1 0",
+            "v -1 1 0",
+            "f 1 3 2",
+            "f 1 4 3",
+            "");
+
+    private Scene scene;
+    private SceneObject quad;
+    private SceneObject occluder;
+    private RenderSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        scene = new Scene();
+        scene.addCamera(new Camera(new Vector3(0, 0, 5), new Vector3(0, 0, 0),
+                1.0f, (float) WIDTH / HEIGHT, 0.01f, 100), true);
+        quad = new SceneObject("quad", ObjReader.read(QUAD_OBJ), null);
+        scene.addObject(quad);
+        // Маленький квадрат перед углом первого треугольника (на экране — слева снизу)
+        occluder = new SceneObject("occluder", ObjReader.read(QUAD_OBJ), null);
+        occluder.getTransform().setTranslation(new Vector3(0.5f, -0.5f, 1));
+        occluder.getTransform().setScale(new Vector3(0.3f, 0.3f, 0.3f));
+        occluder.setModelColor(Color.BLUE);
+        scene.addObject(occluder);
+        settings = new RenderSettings();
+    }
+
+    private FrameBuffer render(PolygonSelection selection) {
+        RenderEngine engine = new RenderEngine();
+        engine.setBackgroundColor(Color.BLACK);
+        FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+        engine.render(FrameSnapshot.capture(scene, null, settings, WIDTH, HEIGHT, selection), frameBuffer);
+        return frameBuffer;
+    }
+
+    @Test
+    void testHighlightIsDepthTestedAndKeepsIds() {
+        FrameBuffer plain = render(null);
+        PolygonSelection selection = new PolygonSelection();
+        selection.add(quad, 0);
+        FrameBuffer selected = render(selection);
+
+        // Первый треугольник квадрата: открытая часть и часть за заслонителем; второй треугольник
+        int[] open = {70, 56};
+        int[] hidden = {64, 76};
+        int[] other = {90, 50};
+        assertEquals(0, plain.getPolygonId(open[0], open[1]));
+        assertEquals(plain.getObjectId(open[0], open[1]), selected.getObjectId(open[0], open[1]));
+        assertNotEquals(plain.getObjectId(open[0], open[1]), plain.getObjectId(hidden[0], hidden[1]));
+        assertEquals(1, plain.getPolygonId(other[0], other[1]));
+
+        assertNotEquals(plain.getArgb(open[0], open[1]), selected.getArgb(open[0], open[1]));
+        assertEquals(plain.getArgb(hidden[0], hidden[1]), selected.getArgb(hidden[0], hidden[1]));
+        assertEquals(plain.getArgb(other[0], other[1]), selected.getArgb(other[0], other[1]));
+
+        int quadId = plain.getObjectId(open[0], open[1]);
+        int outline = FrameBuffer.packColor(Color.RED);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // Подсветка не меняет ID-буфер; вне выделенного полигона может попасть только контур
+                assertEquals(plain.getObjectId(x, y), selected.getObjectId(x, y));
+                assertEquals(plain.getPolygonId(x, y), selected.getPolygonId(x, y));
+                boolean inside = plain.getObjectId(x, y) == quadId && plain.getPolygonId(x, y) == 0;
+                if (!inside && plain.getArgb(x, y) != selected.getArgb(x, y)) {
+                    assertEquals(outline, selected.getArgb(x, y), "(" + x + "," + y + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testTiledHighlightMatchesSerial() {
+        PolygonSelection selection = new PolygonSelection();
+        selection.add(quad, 0);
+        selection.add(quad, 1);
+        selection.add(occluder, 1);
+        int[] serial = render(selection).getPixels().clone();
+
+        settings.setUseTiledRasterization(true);
+        assertArrayEquals(serial, render(selection).getPixels());
+    }
+
+    @Test
+    void testHiddenObjectAndStaleIndicesAreNotHighlighted() {
+        FrameBuffer plain = render(null);
+        PolygonSelection selection = new PolygonSelection();
+        selection.add(quad, 5);
+        selection.add(occluder, 0);
+        occluder.setVisible(false);
+        FrameBuffer hidden = render(null);
+        assertArrayEquals(hidden.getPixels(), render(selection).getPixels());
+        assertNotEquals(plain.getObjectId(64, 76), hidden.getObjectId(64, 76));
+    }
+}
@@ -0,0 +1,117 @@
+package com.cgvsu.render;
+
+import com.cgvsu.render_engine.Texture;
+import com.cgvsu.render_engine.TextureCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextureCacheTest {
+
+    // Текстура 4x4 вместе с мип-уровнями: 16 + 4 + 1 текселей
+    private static final long TEXTURE_BYTES = (16 + 4 + 1) * Integer.BYTES;
+
+    private Path directory;
+    private final List<Path> loaded = new ArrayList<>();
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("textures");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private TextureCache cache(long budget) {
+        return new TextureCache(budget, path -> {
+            loaded.add(path);
+            return new Texture(4, 4, new int[16]);
+        });
+    }
+
+    private Path file(String name) throws IOException {
+        return Files.writeString(directory.resolve(name), name);
+    }
+
+    @Test
+    void testSameFileIsSharedAcrossRequests() throws IOException {
+        TextureCache cache = cache(TextureCache.DEFAULT_MEMORY_BUDGET);
+        Path albedo = file("albedo.png");
+
+        Texture first = cache.get(albedo);
+        // Другое написание того же пути
+        Texture second = cache.get(directory.resolve("..").resolve(directory.getFileName()).resolve("albedo.png"));
+
+        assertSame(first, second);
+        assertEquals(1, loaded.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(TEXTURE_BYTES, cache.getBytesResident());
+        assertEquals(TEXTURE_BYTES, first.getSizeInBytes());
+    }
+
+    @Test
+    void testModifiedFileIsReloaded() throws IOException {
+        TextureCache cache = cache(TextureCache.DEFAULT_MEMORY_BUDGET);
+        Path albedo = file("albedo.png");
+        Files.setLastModifiedTime(albedo, FileTime.fromMillis(1_000_000));
+        Texture before = cache.get(albedo);
+
+        Files.setLastModifiedTime(albedo, FileTime.fromMillis(2_000_000));
+        Texture after = cache.get(albedo);
+
+        assertNotSame(before, after);
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getTextureCount());
+        assertEquals(TEXTURE_BYTES, cache.getBytesResident());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvictedOverBudget() throws IOException {
+        TextureCache cache = cache(2 * TEXTURE_BYTES);
+        Path a = file("a.png");
+        Path b = file("b.png");
+        Path c = file("c.png");
+
+        Texture textureA = cache.get(a);
+        cache.get(b);
+        cache.get(a);   // b становится самой давней
+        cache.get(c);
+
+        assertEquals(2, cache.getTextureCount());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2 * TEXTURE_BYTES, cache.getBytesResident());
+        assertSame(textureA, cache.get(a));
+
+        cache.get(b);
+        assertEquals(List.of(a.toRealPath(), b.toRealPath(), c.toRealPath(), b.toRealPath()), loaded);
+
+        // Уменьшение бюджета вытесняет сразу, но последняя текстура остаётся
+        cache.setMemoryBudget(0);
+        assertEquals(1, cache.getTextureCount());
+        assertEquals(TEXTURE_BYTES, cache.getBytesResident());
+    }
+
+    @Test
+    void testMissingFileIsReported() {
+        TextureCache cache = cache(TextureCache.DEFAULT_MEMORY_BUDGET);
+        assertThrows(IOException.class, () -> cache.get(directory.resolve("missing.png")));
+        assertEquals(0, cache.getMisses());
+    }
+}
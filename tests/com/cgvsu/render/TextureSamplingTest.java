@@ -0,0 +1,133 @@
+package com.cgvsu.render;
+
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.rasterization.Rasterization;
+import com.cgvsu.rasterization.ZBuffer;
+import com.cgvsu.render_engine.Texture;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextureSamplingTest {
+
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    // Шахматка из одиночных текселей: средний цвет любого уровня кроме нулевого — серый
+    private static Texture checkerboard(int size) {
+        int[] argb = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                argb[y * size + x] = ((x + y) & 1) == 0 ? WHITE : BLACK;
+            }
+        }
+        return new Texture(size, size, argb);
+    }
+
+    private static int red(int argb) {
+        return (argb >> 16) & 0xFF;
+    }
+
+    @Test
+    void testMipChainEndsWithAverage() {
+        Texture texture = checkerboard(8);
+        assertEquals(4, texture.getLevelCount());
+        int average = texture.sampleArgb(0.3, 0.7, 10, Texture.Filter.BILINEAR);
+        assertEquals(0xFF808080, average);
+
+        // Неквадратная текстура: 5x2 -> 2x1 -> 1x1
+        assertEquals(3, new Texture(5, 2, new int[10]).getLevelCount());
+    }
+
+    @Test
+    void testOddSideKeepsEdgeTexels() {
+        // 5x1 с белым последним текселем: 5 -> 2 весами (2, 2, 1) и (1, 2, 2) из 5, край не теряется
+        Texture texture = new Texture(5, 1, new int[]{BLACK, BLACK, BLACK, BLACK, WHITE});
+        assertEquals(0, red(texture.sampleArgb(0.25, 0.5, 1, Texture.Filter.BILINEAR)));
+        assertEquals(102, red(texture.sampleArgb(0.75, 0.5, 1, Texture.Filter.BILINEAR)));
+        // Последний уровень — среднее всей текстуры
+        assertEquals(51, red(texture.sampleArgb(0.5, 0.5, 10, Texture.Filter.BILINEAR)));
+    }
+
+    @Test
+    void testNearestKeepsWrapAndVFlip() {
+        int[] argb = new int[16];
+        argb[1] = 0xFF112233;          // x=1, верхняя строка
+        argb[2 * 4] = 0xFF445566;      // x=0, третья строка сверху
+        Texture texture = new Texture(4, 4, argb);
+
+        assertEquals(0xFF112233, texture.sampleArgb(0.3, 0.999));
+        assertEquals(0xFF112233, texture.sampleArgb(-0.7, 1.999));
+        assertEquals(0xFF445566, texture.sampleArgb(0.0, -0.6));
+        // NEAREST не смотрит на мип-уровни
+        assertEquals(0xFF112233, texture.sampleArgb(0.3, 0.999, 5, Texture.Filter.NEAREST));
+    }
+
+    @Test
+    void testBilinearBlendsNeighboursAndWraps() {
+        Texture texture = new Texture(2, 1, new int[]{BLACK, WHITE});
+
+        // Ровно между центрами текселей
+        assertEquals(127, red(texture.sampleArgb(0.5, 0.5, 0, Texture.Filter.BILINEAR)), 1);
+        // В центре текселя — сам тексель
+        assertEquals(BLACK, texture.sampleArgb(0.25, 0.5, 0, Texture.Filter.BILINEAR));
+        // На краю u=0 соседом становится тексель с другой стороны
+        assertEquals(127, red(texture.sampleArgb(0.0, 0.5, 0, Texture.Filter.BILINEAR)), 1);
+    }
+
+    @Test
+    void testTrilinearBlendsLevels() {
+        Texture texture = checkerboard(4);
+        int level0 = red(texture.sampleArgb(0.125, 0.875, 0, Texture.Filter.TRILINEAR));
+        int halfway = red(texture.sampleArgb(0.125, 0.875, 0.5, Texture.Filter.TRILINEAR));
+        int level1 = red(texture.sampleArgb(0.125, 0.875, 1, Texture.Filter.TRILINEAR));
+
+        assertEquals(255, level0);
+        assertEquals(128, level1);
+        assertEquals((level0 + level1) / 2, halfway, 1);
+    }
+
+    @Test
+    void testLodFromDerivatives() {
+        Texture texture = checkerboard(256);
+        assertEquals(0, texture.computeLod(0.5 / 256, 0, 0, 0.5 / 256));
+        assertEquals(0, texture.computeLod(1.0 / 256, 0, 0, 1.0 / 256), 1e-9);
+        assertEquals(2, texture.computeLod(4.0 / 256, 0, 0, 1.0 / 256), 1e-9);
+        assertEquals(3, texture.computeLod(0, 8.0 / 256, 0, 0), 1e-9);
+    }
+
+    @Test
+    void testMinifiedTriangleIsFilteredToAverage() {
+        // Текстура 64x64 на квадрате 8x8 пикселей: 8 текселей на пиксель, lod = 3
+        Texture texture = checkerboard(64);
+        FrameBuffer nearest = new FrameBuffer(8, 8);
+        FrameBuffer trilinear = new FrameBuffer(8, 8);
+        fillQuad(nearest, texture, Texture.Filter.NEAREST);
+        fillQuad(trilinear, texture, Texture.Filter.TRILINEAR);
+
+        boolean aliased = false;
+        for (int y = 1; y < 7; y++) {
+            for (int x = 1; x < 7; x++) {
+                int sampled = red(nearest.getArgb(x, y));
+                aliased |= sampled == 0 || sampled == 255;
+                assertEquals(128, red(trilinear.getArgb(x, y)), 2, "pixel " + x + "," + y);
+            }
+        }
+        assertTrue(aliased);
+    }
+
+    private static void fillQuad(FrameBuffer frameBuffer, Texture texture, Texture.Filter filter) {
+        ZBuffer zBuffer = new ZBuffer(8, 8);
+        // invW = 1: перспективы нет, UV линейны по экрану
+        Rasterization.fillTriangleTexturedPerspectiveCorrect(frameBuffer, zBuffer,
+                0, 0, 1, 0.5, 0, 1,
+                8, 0, 1, 0.5, 1, 1,
+                0, 8, 1, 0.5, 0, 0,
+                texture, filter);
+        Rasterization.fillTriangleTexturedPerspectiveCorrect(frameBuffer, zBuffer,
+                8, 0, 1, 0.5, 1, 1,
+                8, 8, 1, 0.5, 1, 0,
+                0, 8, 1, 0.5, 0, 0,
+                texture, filter);
+    }
+}
@@ -0,0 +1,168 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Vector3;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.rasterization.Rasterization;
+import com.cgvsu.rasterization.ZBuffer;
+import com.cgvsu.render_engine.DrawCommand;
+import com.cgvsu.render_engine.TileRenderer;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileRendererTest {
+
+    // Размер специально не кратен размеру тайла
+    private static final int WIDTH = 203;
+    private static final int HEIGHT = 141;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    private static final class Triangle extends DrawCommand {
+        final double[] v;
+        final Color color;
+
+        Triangle(double[] v, Color color) {
+            super((float) Math.min(v[0], Math.min(v[4], v[8])), (float) Math.min(v[1], Math.min(v[5], v[9])),
+                    (float) Math.max(v[0], Math.max(v[4], v[8])), (float) Math.max(v[1], Math.max(v[5], v[9])));
+            this.v = v;
+            this.color = color;
+        }
+
+        @Override
+        public void draw(FrameBuffer frameBuffer, ZBuffer zBuffer) {
+            Rasterization.fillTrianglePerspectiveCorrect(frameBuffer, zBuffer,
+                    v[0], v[1], v[2], v[3],
+                    v[4], v[5], v[6], v[7],
+                    v[8], v[9], v[10], v[11],
+                    color);
+        }
+    }
+
+    private static final class Line extends DrawCommand {
+        final Vector3 start;
+        final Vector3 end;
+
+        Line(Vector3 start, Vector3 end) {
+            super(Math.min(start.x, end.x), Math.min(start.y, end.y),
+                    Math.max(start.x, end.x), Math.max(start.y, end.y));
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void draw(FrameBuffer frameBuffer, ZBuffer zBuffer) {
+            Rasterization.drawLineWithDepthTestOnly(frameBuffer, zBuffer, start, end, Color.BLACK);
+        }
+    }
+
+    private static List<DrawCommand> randomScene(long seed, int count) {
+        Random random = new Random(seed);
+        List<DrawCommand> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double[] v = new double[12];
+            for (int k = 0; k < 3; k++) {
+                // Вершины могут выходить за экран
+                v[k * 4] = random.nextDouble() * (WIDTH + 80) - 40;
+                v[k * 4 + 1] = random.nextDouble() * (HEIGHT + 80) - 40;
+                v[k * 4 + 2] = 0.5 + random.nextDouble();
+                v[k * 4 + 3] = random.nextDouble() * 2 - 1;
+            }
+            Color color = Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+            commands.add(new Triangle(v, color));
+            if (i % 3 == 0) {
+                commands.add(new Line(
+                        new Vector3((float) v[0], (float) v[1], -1f),
+                        new Vector3((float) v[4], (float) v[5], -1f)));
+            }
+        }
+        return commands;
+    }
+
+    @Test
+    void testTiledOutputMatchesSerial() {
+        List<DrawCommand> commands = randomScene(42, 300);
+        int clearArgb = FrameBuffer.packColor(Color.WHITE);
+
+        FrameBuffer serialColor = new FrameBuffer(WIDTH, HEIGHT);
+        ZBuffer serialDepth = new ZBuffer(WIDTH, HEIGHT);
+        serialColor.clear(clearArgb);
+        for (DrawCommand command : commands) {
+            command.draw(serialColor, serialDepth);
+        }
+
+        FrameBuffer tiledColor = new FrameBuffer(WIDTH, HEIGHT);
+        ZBuffer tiledDepth = new ZBuffer(WIDTH, HEIGHT);
+        tiledColor.clear(clearArgb);
+        TileRenderer renderer = new TileRenderer(pool);
+        renderer.begin(WIDTH, HEIGHT);
+        commands.forEach(renderer::submit);
+        renderer.execute(tiledColor, tiledDepth, clearArgb);
+
+        assertArrayEquals(serialColor.getPixels(), tiledColor.getPixels());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(serialDepth.get(x, y), tiledDepth.get(x, y), 0.0f, "depth at " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testRendererIsReusableAcrossFrames() {
+        int clearArgb = FrameBuffer.packColor(Color.WHITE);
+        TileRenderer renderer = new TileRenderer(pool);
+        FrameBuffer color = new FrameBuffer(WIDTH, HEIGHT);
+        ZBuffer depth = new ZBuffer(WIDTH, HEIGHT);
+
+        for (long seed = 1; seed <= 3; seed++) {
+            List<DrawCommand> commands = randomScene(seed, 50);
+
+            FrameBuffer expected = new FrameBuffer(WIDTH, HEIGHT);
+            ZBuffer expectedDepth = new ZBuffer(WIDTH, HEIGHT);
+            expected.clear(clearArgb);
+            for (DrawCommand command : commands) {
+                command.draw(expected, expectedDepth);
+            }
+
+            color.clear(clearArgb);
+            depth.clear();
+            renderer.begin(WIDTH, HEIGHT);
+            commands.forEach(renderer::submit);
+            renderer.execute(color, depth, clearArgb);
+
+            assertArrayEquals(expected.getPixels(), color.getPixels(), "frame " + seed);
+        }
+    }
+
+    @Test
+    void testTileBuffersUseScreenCoordinates() {
+        FrameBuffer tile = new FrameBuffer(64, 128, 64, 64);
+        tile.clear(0);
+        tile.setArgb(70, 130, 0xFF112233);
+
+        FrameBuffer screen = new FrameBuffer(200, 200);
+        tile.copyTo(screen);
+
+        assertEquals(0xFF112233, screen.getArgb(70, 130));
+        assertEquals(64, tile.getMinX());
+        assertEquals(191, tile.getMaxY());
+    }
+}
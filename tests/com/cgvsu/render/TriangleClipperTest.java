@@ -0,0 +1,187 @@
+package com.cgvsu.render;
+
+import com.cgvsu.math.Matrix4;
+import com.cgvsu.math.Vector3;
+import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.rasterization.FrameBuffer;
+import com.cgvsu.render_engine.Camera;
+import com.cgvsu.render_engine.FrameSnapshot;
+import com.cgvsu.render_engine.GraphicConveyor;
+import com.cgvsu.render_engine.RenderEngine;
+import com.cgvsu.render_engine.RenderSettings;
+import com.cgvsu.render_engine.TriangleClipper;
+import com.cgvsu.render_engine.VertexStage;
+import com.cgvsu.render_engine.scene.Scene;
+import com.cgvsu.render_engine.scene.SceneObject;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TriangleClipperTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final double GUARD_BAND = 4.0;
+
+    // Атрибуты — линейные функции однородных координат: после отсечения зависимость должна сохраниться
+    private static void setVertex(TriangleClipper clipper, int index, double x, double y, double z, double w) {
+        clipper.setVertex(index, x, y, z, w, x + 2 * y, w, z - x, 3 * y, x + y + z + w);
+    }
+
+    private static void assertAttributesInterpolated(TriangleClipper clipper, int count) {
+        for (int k = 0; k < count; k++) {
+            double x = clipper.get(k, 0), y = clipper.get(k, 1), z = clipper.get(k, 2), w = clipper.get(k, 3);
+            assertEquals(x + 2 * y, clipper.get(k, 4), EPSILON);
+            assertEquals(w, clipper.get(k, 5), EPSILON);
+            assertEquals(z - x, clipper.get(k, 6), EPSILON);
+            assertEquals(3 * y, clipper.get(k, 7), EPSILON);
+            assertEquals(x + y + z + w, clipper.get(k, 8), EPSILON);
+        }
+    }
+
+    @Test
+    void testNearPlaneCutsTriangleIntoQuad() {
+        TriangleClipper clipper = new TriangleClipper();
+        setVertex(clipper, 0, -1, -1, 1, 2);
+        setVertex(clipper, 1, 1, -1, 1, 2);
+        // Вершина за камерой
+        setVertex(clipper, 2, 0, 1, -3, -1);
+        int planes = TriangleClipper.outcode(0, 1, -3, -1, GUARD_BAND);
+        assertEquals(TriangleClipper.NEAR, planes & TriangleClipper.NEAR);
+
+        int count = clipper.clip(planes, GUARD_BAND);
+        assertEquals(4, count);
+        int onPlane = 0;
+        for (int k = 0; k < count; k++) {
+            double z = clipper.get(k, 2), w = clipper.get(k, 3);
+            assertTrue(z + w >= -EPSILON, "vertex " + k);
+            assertTrue(w > 0, "vertex " + k);
+            if (Math.abs(z + w) < EPSILON) {
+                onPlane++;
+            }
+        }
+        assertEquals(2, onPlane);
+        assertAttributesInterpolated(clipper, count);
+    }
+
+    @Test
+    void testTriangleBehindNearPlaneIsRemoved() {
+        TriangleClipper clipper = new TriangleClipper();
+        setVertex(clipper, 0, -1, -1, -2, 1);
+        setVertex(clipper, 1, 1, -1, -2, 1);
+        setVertex(clipper, 2, 0, 1, -2, 1);
+        assertEquals(0, clipper.clip(TriangleClipper.NEAR, GUARD_BAND));
+    }
+
+    @Test
+    void testGuardBandClippingKeepsCoordinatesInRange() {
+        Random random = new Random(21);
+        TriangleClipper clipper = new TriangleClipper();
+        int clipped = 0;
+        for (int i = 0; i < 1000; i++) {
+            int planes = 0;
+            for (int k = 0; k < 3; k++) {
+                double w = random.nextDouble() * 10 - 2;
+                double x = random.nextGaussian() * 30;
+                double y = random.nextGaussian() * 30;
+                double z = random.nextDouble() * 10 - 5;
+                setVertex(clipper, k, x, y, z, w);
+                planes |= TriangleClipper.outcode((float) x, (float) y, (float) z, (float) w, GUARD_BAND);
+            }
+            int count = clipper.clip(planes, GUARD_BAND);
+            if (count == 0) {
+                continue;
+            }
+            clipped++;
+            assertTrue(count >= 3 && count <= 8);
+            for (int k = 0; k < count; k++) {
+                double x = clipper.get(k, 0), y = clipper.get(k, 1), z = clipper.get(k, 2), w = clipper.get(k, 3);
+                double tolerance = 1e-9 * (1 + Math.abs(w) + Math.abs(x) + Math.abs(y));
+                assertTrue(z + w >= -tolerance, "near, triangle " + i);
+                if ((planes & (TriangleClipper.LEFT | TriangleClipper.RIGHT)) != 0) {
+                    assertTrue(Math.abs(x) <= GUARD_BAND * w + tolerance, "x, triangle " + i);
+                }
+                if ((planes & (TriangleClipper.BOTTOM | TriangleClipper.TOP)) != 0) {
+                    assertTrue(Math.abs(y) <= GUARD_BAND * w + tolerance, "y, triangle " + i);
+                }
+            }
+            assertAttributesInterpolated(clipper, count);
+        }
+        assertTrue(clipped > 100, "clipped " + clipped);
+    }
+
+    @Test
+    void testSegmentIsClippedAtNearPlane() {
+        TriangleClipper clipper = new TriangleClipper();
+        assertTrue(clipper.clipSegment(0, 0, 1, 2, 2, 4, -3, -1, TriangleClipper.NEAR, GUARD_BAND));
+        // Первый конец внутри и не меняется
+        assertEquals(0, clipper.getSegment(0, 0), EPSILON);
+        assertEquals(2, clipper.getSegment(0, 3), EPSILON);
+        // Второй — на ближней плоскости: t = 3 / 7
+        double t = 3.0 / 7.0;
+        assertEquals(2 * t, clipper.getSegment(1, 0), EPSILON);
+        assertEquals(4 * t, clipper.getSegment(1, 1), EPSILON);
+        assertEquals(0, clipper.getSegment(1, 2) + clipper.getSegment(1, 3), EPSILON);
+
+        assertFalse(clipper.clipSegment(0, 0, -3, 1, 1, 1, -4, 2, TriangleClipper.NEAR, GUARD_BAND));
+    }
+
+    @Test
+    void testHomogeneousFacingMatchesScreenFacing() {
+        Random random = new Random(8);
+        int count = 300;
+        float[] positions = new float[count * 3];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = (float) random.nextGaussian() * 3;
+        }
+        Matrix4 view = GraphicConveyor.lookAt(new Vector3(0, 0, -10), new Vector3(0, 0, 0));
+        Matrix4 projection = GraphicConveyor.perspective(1.0f, 4f / 3f, 0.1f, 100f);
+        VertexStage stage = new VertexStage();
+        stage.run(positions, count, projection.multiply(view), 640, 480);
+
+        int compared = 0;
+        for (int i = 0; i + 2 < count; i += 3) {
+            if ((stage.getOutcode(i) | stage.getOutcode(i + 1) | stage.getOutcode(i + 2)) != 0) {
+                continue;
+            }
+            compared++;
+            assertEquals(stage.isFrontFacing(i, i + 1, i + 2), stage.isFrontFacingClip(i, i + 1, i + 2),
+                    "triangle " + i / 3);
+        }
+        assertTrue(compared > 50, "compared " + compared);
+    }
+
+    @Test
+    void testPlaneStraddlingNearPlaneIsDrawn() {
+        // Пол под камерой уходит за неё: у объекта есть вершины за ближней плоскостью
+        Scene scene = new Scene();
+        scene.addCamera(new Camera(new Vector3(0, 0, 5), new Vector3(0, 0, 0),
+                1.0f, 160f / 120f, 0.01f, 100), true);
+        scene.addObject(new SceneObject("floor", ObjReader.read(String.join("\n",
+                "v -50 -1 -50",
+                "v 50 -1 -50",
+                "v 50 -1 50",
+                "v -50 -1 50",
+                "f 1 3 2",
+                "f 1 4 3",
+                "f 1 2 3",
+                "f 1 3 4",
+                "")), null));
+
+        for (boolean tiled : new boolean[]{false, true}) {
+            RenderSettings settings = new RenderSettings();
+            settings.setUseTiledRasterization(tiled);
+            RenderEngine engine = new RenderEngine();
+            engine.setBackgroundColor(Color.BLACK);
+            FrameBuffer frameBuffer = new FrameBuffer(0, 0);
+            engine.render(FrameSnapshot.capture(scene, null, settings, 160, 120, null), frameBuffer);
+
+            // Нижняя половина экрана — пол, верхняя — фон
+            assertNotEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(80, 110), "tiled " + tiled);
+            assertNotEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(5, 118), "tiled " + tiled);
+            assertEquals(FrameBuffer.NO_ID, frameBuffer.getObjectId(80, 10), "tiled " + tiled);
+        }
+    }
+}